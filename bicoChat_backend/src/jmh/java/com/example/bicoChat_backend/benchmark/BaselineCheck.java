@@ -0,0 +1,139 @@
+package com.example.bicoChat_backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file with the checked-in baseline (src/jmh/baseline.json) and fails when a benchmark
+ * lost more than jmh.max-throughput-drop of its ops/s or allocates more than jmh.max-allocation-growth more bytes
+ * per operation (gc.alloc.rate.norm, from -prof gc). Both default to 0.10.
+ *
+ * A throughput drop only counts when the 99.9% confidence intervals JMH reports for the two scores do not overlap,
+ * and only when both runs used the same JVM (jdkVersion and vmName of the result file): on a noisy or different
+ * machine the ops/s move by more than the threshold without any change in the code, while the bytes per
+ * operation stay within a few percent.
+ *
+ * The baseline is only meaningful on the machine it was recorded on. Record it there before the first check, and
+ * again after an intended change, by running the check with -Djmh.record-baseline=true (the results are then copied
+ * to the baseline file, to be committed when that machine is the one running the check). A missing or empty
+ * baseline fails the check.
+ */
+public class BaselineCheck {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: BaselineCheck <results.json> <baseline.json>");
+        }
+        double maxThroughputDrop = Double.parseDouble(System.getProperty("jmh.max-throughput-drop", "0.10"));
+        double maxAllocationGrowth = Double.parseDouble(System.getProperty("jmh.max-allocation-growth", "0.10"));
+
+        File resultsFile = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        Map<String, JsonNode> results = load(resultsFile);
+        if (results.isEmpty()) {
+            throw new IllegalStateException("No benchmark results in " + resultsFile);
+        }
+        if (Boolean.getBoolean("jmh.record-baseline")) {
+            Files.copy(resultsFile.toPath(), baselineFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("[LOG - BaselineCheck] Baseline of " + results.size() + " benchmarks recorded in " + baselineFile);
+            return;
+        }
+
+        Map<String, JsonNode> baseline = baselineFile.exists() ? load(baselineFile) : Map.of();
+        if (baseline.isEmpty()) {
+            throw new IllegalStateException("No baseline in " + baselineFile
+                    + ": record one on this machine by running the check with -Djmh.record-baseline=true");
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("[LOG - BaselineCheck] " + entry.getKey() + ": new benchmark, not in the baseline");
+                continue;
+            }
+            JsonNode after = entry.getValue();
+
+            double throughputBefore = before.path("primaryMetric").path("score").asDouble();
+            double throughputAfter = after.path("primaryMetric").path("score").asDouble();
+            double throughputChange = relativeChange(throughputBefore, throughputAfter);
+            // NaN when JMH could not compute an interval (a single iteration): the threshold alone decides then
+            double errorBefore = before.path("primaryMetric").path("scoreError").asDouble(0);
+            double errorAfter = after.path("primaryMetric").path("scoreError").asDouble(0);
+            boolean outsideNoise = Double.isNaN(errorBefore) || Double.isNaN(errorAfter)
+                    || throughputBefore - errorBefore > throughputAfter + errorAfter;
+            boolean sameJvm = jvm(before).equals(jvm(after));
+
+            Double allocationBefore = allocation(before);
+            Double allocationAfter = allocation(after);
+            Double allocationChange = allocationBefore != null && allocationAfter != null
+                    ? relativeChange(allocationBefore, allocationAfter) : null;
+
+            System.out.printf("[LOG - BaselineCheck] %-60s ops/s %12.1f -> %12.1f (%+6.1f%%)   B/op %s%n",
+                    entry.getKey(), throughputBefore, throughputAfter, throughputChange * 100,
+                    allocationChange == null ? "n/a" : String.format("%10.1f -> %10.1f (%+6.1f%%)", allocationBefore, allocationAfter, allocationChange * 100));
+
+            if (!sameJvm) {
+                System.out.println("[LOG - BaselineCheck]   ops/s not compared: baseline recorded on " + jvm(before) + ", results on " + jvm(after));
+            } else if (throughputChange < -maxThroughputDrop && outsideNoise) {
+                regressions.add(entry.getKey() + ": ops/s " + String.format("%+.1f%%", throughputChange * 100));
+            }
+            if (allocationChange != null && allocationChange > maxAllocationGrowth) {
+                regressions.add(entry.getKey() + ": B/op " + String.format("%+.1f%%", allocationChange * 100));
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Regressions against the baseline:\n  " + String.join("\n  ", regressions));
+        }
+        System.out.println("[LOG - BaselineCheck] No regression against the baseline");
+    }
+
+    /**
+     * Reads a JMH result file, keyed by benchmark name and parameters.
+     */
+    private static Map<String, JsonNode> load(File file) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String jvm(JsonNode result) {
+        return result.path("vmName").asText() + " " + result.path("jdkVersion").asText();
+    }
+
+    private static Double allocation(JsonNode result) {
+        // Older JMH versions prefix the profiler metrics with "·"
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return null;
+    }
+
+    private static double relativeChange(double before, double after) {
+        return before == 0 ? (after == 0 ? 0 : 1) : (after - before) / before;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.bicoChat_backend.benchmark;
+
+import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.ChatService;
+import com.example.bicoChat_backend.service.DisplayNameResolver;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.FriendService;
+import com.example.bicoChat_backend.service.MessageService;
+import com.example.bicoChat_backend.service.ParticipantService;
+import com.example.bicoChat_backend.service.ReadStateService;
+import com.example.bicoChat_backend.service.UserService;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The services wired as in the application, on an InMemoryStorageBackend seeded with a fixed data set:
+ * USERS users, each in an individual chat with the next CHAT_PARTNERS users and friend of the next FRIENDS users,
+ * and {@code messagesPerChat} messages per chat. Messages sent over STOMP go to a channel that drops them,
+ * after being converted to JSON as the broker would.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+    static final int USERS = 200;
+    static final int CHAT_PARTNERS = 2;
+    static final int FRIENDS = 20;
+
+    @Param({"50"})
+    public int messagesPerChat;
+
+    InMemoryStorageBackend backend;
+    FirebaseService firebaseService;
+    MessageService messageService;
+    ChatService chatService;
+    UserService userService;
+    FriendService friendService;
+
+    List<String> chatIds;
+    String busyChatId; // The chat that sendMessage writes to
+    Map<String, Message> busyChatMessages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = new InMemoryStorageBackend();
+        firebaseService = new FirebaseService(backend);
+
+        MessageChannel discard = (message, timeout) -> true;
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate(discard);
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+
+        ReadStateService readStateService = new ReadStateService();
+        ReflectionTestUtils.setField(readStateService, "firebaseService", firebaseService);
+        ParticipantService participantService = new ParticipantService(firebaseService, 10000);
+        DisplayNameResolver displayNameResolver = new DisplayNameResolver(firebaseService, 10000);
+
+        userService = new UserService(firebaseService);
+
+        chatService = new ChatService();
+        ReflectionTestUtils.setField(chatService, "firebaseService", firebaseService);
+        ReflectionTestUtils.setField(chatService, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(chatService, "userService", userService);
+        ReflectionTestUtils.setField(chatService, "participantService", participantService);
+        ReflectionTestUtils.setField(chatService, "readStateService", readStateService);
+
+        messageService = new MessageService();
+        ReflectionTestUtils.setField(messageService, "chatService", chatService);
+        ReflectionTestUtils.setField(messageService, "firebaseService", firebaseService);
+        ReflectionTestUtils.setField(messageService, "participantService", participantService);
+        ReflectionTestUtils.setField(messageService, "displayNameResolver", displayNameResolver);
+        ReflectionTestUtils.setField(messageService, "readStateService", readStateService);
+        ReflectionTestUtils.setField(messageService, "messagingTemplate", messagingTemplate);
+
+        friendService = new FriendService();
+        ReflectionTestUtils.setField(friendService, "firebaseService", firebaseService);
+        ReflectionTestUtils.setField(friendService, "userService", userService);
+
+        seed();
+    }
+
+    /**
+     * Puts back the seeded messages of the chat written by sendMessage, so that every iteration
+     * measures the same amount of data.
+     */
+    @Setup(Level.Iteration)
+    public void resetBusyChat() {
+        firebaseService.set("chats/" + busyChatId + "/messages", busyChatMessages).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        backend.shutdown();
+    }
+
+    private void seed() {
+        Map<String, Object> updates = new HashMap<>();
+        Map<String, User> users = new HashMap<>();
+        for (int u = 0; u < USERS; u++) {
+            User user = new User(userId(u), "user" + u, "First" + u, "Last" + u, null);
+            user.setEmail("user" + u + "@example.com");
+            Map<String, String> friends = new HashMap<>();
+            for (int f = 1; f <= FRIENDS; f++) {
+                friends.put(userId((u + f) % USERS), "active");
+            }
+            user.setFriends(friends);
+            users.put(userId(u), user);
+        }
+
+        chatIds = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            for (int p = 1; p <= CHAT_PARTNERS; p++) {
+                String first = userId(u);
+                String second = userId((u + p) % USERS);
+                String chatId = "chat_" + first + "_" + second;
+                chatIds.add(chatId);
+
+                Map<String, Message> messages = new HashMap<>();
+                for (int m = 0; m < messagesPerChat; m++) {
+                    String sender = m % 2 == 0 ? first : second;
+                    messages.put("msg" + (1_700_000_000_000L + m),
+                            new Message("Message number " + m + " of " + chatId, sender, timestamp(m), false, null));
+                }
+                Chat chat = new Chat(null, "individual", List.of(first, second));
+                chat.setMessages(messages);
+                updates.put("chats/" + chatId, chat);
+
+                Message last = messages.get("msg" + (1_700_000_000_000L + messagesPerChat - 1));
+                users.get(first).getChatUser().put(chatId, new User.ChatInfo(last.getContent(), "user" + ((u + p) % USERS),
+                        last.getTimestamp(), 0, last.getSender(), null, null, "individual"));
+                users.get(second).getChatUser().put(chatId, new User.ChatInfo(last.getContent(), "user" + u,
+                        last.getTimestamp(), 1, last.getSender(), null, null, "individual"));
+
+                // Both users read the chat up to the middle of the history
+                String middle = timestamp(messagesPerChat / 2);
+                updates.put("chatReads/" + chatId, Map.of(first, middle, second, middle));
+            }
+        }
+        users.forEach((uid, user) -> updates.put("users/" + uid, user));
+        firebaseService.updateMulti(updates).join();
+
+        busyChatId = chatIds.get(0);
+        busyChatMessages = chatService.getMessagesMap(busyChatId).join();
+    }
+
+    static String userId(int index) {
+        return String.format("user%04d", index);
+    }
+
+    private static String timestamp(int minutes) {
+        return String.format("2025-05-01T%02d:%02d:00", 8 + minutes / 60 % 16, minutes % 60);
+    }
+}
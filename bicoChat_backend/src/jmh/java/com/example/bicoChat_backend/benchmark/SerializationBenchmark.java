@@ -0,0 +1,53 @@
+package com.example.bicoChat_backend.benchmark;
+
+import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the response bodies of GET /api/chats and GET /api/chats/{chatId}/messages,
+ * built from the seeded data (see BenchmarkData).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<ChatResponse> chats;
+    private List<Message> messages;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        chats = data.chatService.getAllChats().join();
+        messages = data.messageService.getMessagesByChatId(data.chatIds.get(1)).join();
+    }
+
+    @Benchmark
+    public byte[] serializeChats() throws Exception {
+        return objectMapper.writeValueAsBytes(chats);
+    }
+
+    @Benchmark
+    public byte[] serializeMessages() throws Exception {
+        return objectMapper.writeValueAsBytes(messages);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bicoChat_backend.benchmark;
+
+import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.dto.response.FriendResponseDTO;
+import com.example.bicoChat_backend.dto.response.UserResponse;
+import com.example.bicoChat_backend.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the service methods behind the busiest endpoints, on the seeded in-memory store
+ * (see BenchmarkData). The storage stand-in answers on the calling thread, so the scores measure
+ * the services themselves: path building, model conversion, sorting and mapping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ServiceBenchmark {
+
+    private int next;
+
+    private String nextChatId(BenchmarkData data) {
+        next = (next + 1) % data.chatIds.size();
+        return data.chatIds.get(next);
+    }
+
+    @Benchmark
+    public Map<String, Object> sendMessage(BenchmarkData data) {
+        Message message = new Message("Benchmark message", BenchmarkData.userId(0), "2025-05-02T10:00:00", false, null);
+        return data.messageService.sendMessage(data.busyChatId, message).join();
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByChatId(BenchmarkData data) {
+        return data.messageService.getMessagesByChatId(nextChatId(data)).join();
+    }
+
+    @Benchmark
+    public List<ChatResponse> getAllChats(BenchmarkData data) {
+        return data.chatService.getAllChats().join();
+    }
+
+    @Benchmark
+    public List<UserResponse> getAllUsers(BenchmarkData data) {
+        return data.userService.getAllUsers().join();
+    }
+
+    @Benchmark
+    public List<FriendResponseDTO> getFriendsOfUser(BenchmarkData data) {
+        next = (next + 1) % BenchmarkData.USERS;
+        return data.friendService.getFriendsOfUser(BenchmarkData.userId(next)).join();
+    }
+}
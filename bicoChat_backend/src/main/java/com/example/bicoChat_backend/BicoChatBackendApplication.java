@@ -2,18 +2,10 @@ package com.example.bicoChat_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@ComponentScan(basePackages = {
-		"com.example.bicoChat_backend",                    // include tutto
-		"com.example.bicoChat_backend.config",
-		"com.example.bicoChat_backend.config.firebase",
-		"com.example.bicoChat_backend.controller",
-		"com.example.bicoChat_backend.controller.user",
-		"com.example.bicoChat_backend.service",
-		"com.example.bicoChat_backend.service.user",
-})
+@EnableScheduling
 public class BicoChatBackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package com.example.bicoChat_backend.config;
+
+import com.example.bicoChat_backend.service.media.FirebaseStorageMediaStore;
+import com.example.bicoChat_backend.service.media.LocalMediaStore;
+import com.example.bicoChat_backend.service.media.MediaStore;
+import com.google.firebase.cloud.StorageClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Chooses where the media files go: bicochat.media.store=firebase (default) uses the Firebase Storage bucket
+ * bicochat.media.bucket, bicochat.media.store=local the directory bicochat.media.local-dir.
+ */
+@Configuration
+public class MediaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.media.store", havingValue = "firebase", matchIfMissing = true)
+    public MediaStore firebaseStorageMediaStore(StorageClient storageClient,
+                                                @Value("${bicochat.media.bucket}") String bucket) {
+        return new FirebaseStorageMediaStore(storageClient.bucket(bucket));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.media.store", havingValue = "local")
+    public MediaStore localMediaStore(@Value("${bicochat.media.local-dir:media}") String directory) throws IOException {
+        return new LocalMediaStore(Path.of(directory));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bicoChat_backend.config;
+
+import com.example.bicoChat_backend.service.storage.FirebaseStorageBackend;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
+import com.example.bicoChat_backend.service.storage.JpaStorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageEntryRepository;
+import com.google.firebase.database.DatabaseReference;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Chooses the database behind FirebaseService: bicochat.storage.type=firebase (default) uses the Firebase
+ * Realtime Database, memory an in-memory tree and h2 the JPA datasource (the embedded H2 database unless
+ * spring.datasource.* says otherwise). The last two let the services run without a Firebase project.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.storage.type", havingValue = "firebase", matchIfMissing = true)
+    public StorageBackend firebaseStorageBackend(DatabaseReference databaseReference) {
+        return new FirebaseStorageBackend(databaseReference);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.storage.type", havingValue = "memory")
+    public StorageBackend inMemoryStorageBackend() {
+        System.out.println("[LOG - StorageConfig] Using the in-memory storage backend");
+        return new InMemoryStorageBackend();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.storage.type", havingValue = "h2")
+    public StorageBackend jpaStorageBackend(StorageEntryRepository repository, PlatformTransactionManager transactionManager) {
+        System.out.println("[LOG - StorageConfig] Using the JPA storage backend");
+        return new JpaStorageBackend(repository, transactionManager);
+    }
+}
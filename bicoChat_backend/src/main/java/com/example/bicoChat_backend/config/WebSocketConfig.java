@@ -1,11 +1,15 @@
 package com.example.bicoChat_backend.config;
 
+import com.example.bicoChat_backend.service.metrics.BrokerMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 
 /**
@@ -16,6 +20,9 @@ import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private BrokerMetrics brokerMetrics;
+
     /**
      * Register the STOMP WebSocket endpoint.
      * The endpoint "/ws" will handle incoming WebSocket connections.
@@ -35,6 +42,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      * Configure the message broker for handling messages.
      * - Enable a simple in-memory message broker for messages to the "/topic" destinations.
      * - Set "/app" as the prefix for application-level message destinations.
+     * - Deliver the messages of each session in the order they were published.
      *
      * @param registry The registry for configuring the message broker.
      */
@@ -44,6 +52,39 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.enableSimpleBroker("/topic");
         // Set "/app" as the prefix for messages destined for application-specific endpoints
         registry.setApplicationDestinationPrefixes("/app");
+        // The outbound channel runs on a thread pool, so two messages to the same session can overtake
+        // each other; clients detect gaps with MessageEvent.seq, which only works in publish order
+        registry.setPreservePublishOrder(true);
+    }
+
+    /**
+     * Follow the sessions, subscriptions and frames received from the clients (see BrokerMetrics).
+     *
+     * @param registration The registration of the channel carrying the frames from the clients.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(brokerMetrics.inboundInterceptor());
+    }
+
+    /**
+     * Count the frames delivered to each destination and time their delivery (see BrokerMetrics).
+     *
+     * @param registration The registration of the channel carrying the frames to the clients.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(brokerMetrics.outboundInterceptor());
+    }
+
+    /**
+     * Count the sessions closed because they could not keep up with their messages (see BrokerMetrics).
+     *
+     * @param registration The registration of the WebSocket transport.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(brokerMetrics::decorate);
     }
 
     /**
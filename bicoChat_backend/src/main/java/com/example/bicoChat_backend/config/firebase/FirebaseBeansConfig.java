@@ -2,6 +2,7 @@ package com.example.bicoChat_backend.config.firebase;
 
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
@@ -14,7 +15,7 @@ import org.springframework.context.annotation.DependsOn;
 public class FirebaseBeansConfig {
 
 
-    @Value("${DATABASE_URL}")
+    @Value("${DATABASE_URL:}")
     private String databaseUrl;
 
     /**
@@ -27,11 +28,15 @@ public class FirebaseBeansConfig {
     }
 
     /**
-     * Bean for Realtime Database
+     * Bean for Realtime Database, only when it is the storage backend (bicochat.storage.type=firebase)
      */
     @Bean
     @DependsOn("firebaseApp")
+    @ConditionalOnProperty(name = "bicochat.storage.type", havingValue = "firebase", matchIfMissing = true)
     public DatabaseReference firebaseDatabase() {
+        if (databaseUrl.isEmpty()) {
+            throw new IllegalStateException("DATABASE_URL is required with bicochat.storage.type=firebase");
+        }
         return FirebaseDatabase.getInstance(databaseUrl).getReference();
     }
 
@@ -0,0 +1,34 @@
+package com.example.bicoChat_backend.config.firebase;
+
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.cache.CachingFirebaseService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.google.firebase.database.DatabaseReference;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+/**
+ * Registers the single FirebaseService bean: the caching one when bicochat.cache.firebase.enabled=true,
+ * the plain one otherwise. Only one of them is ever created, so there is one write batcher, one callback
+ * executor and one set of storage metrics; both read through the StorageBackend selected by bicochat.storage.type.
+ */
+@Configuration
+@EnableConfigurationProperties(FirebaseCacheProperties.class)
+public class FirebaseCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.cache.firebase.enabled", havingValue = "false", matchIfMissing = true)
+    public FirebaseService firebaseService(@Nullable DatabaseReference databaseReference, StorageBackend storageBackend) {
+        return new FirebaseService(databaseReference, storageBackend);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bicochat.cache.firebase.enabled", havingValue = "true")
+    public FirebaseService cachingFirebaseService(@Nullable DatabaseReference databaseReference, StorageBackend storageBackend,
+                                                  FirebaseCacheProperties properties) {
+        return new CachingFirebaseService(databaseReference, storageBackend, properties.getPrefixes());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bicoChat_backend.config.firebase;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the optional read cache in front of FirebaseService (bicochat.cache.firebase.*).
+ * Each entry of "prefixes" enables caching for the paths below that prefix, e.g.
+ * bicochat.cache.firebase.prefixes.users.ttl=60s caches users/{uid}, users/{uid}/chatUser, ...
+ */
+@ConfigurationProperties(prefix = "bicochat.cache.firebase")
+public class FirebaseCacheProperties {
+
+    private boolean enabled = false;
+    private Map<String, Policy> prefixes = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, Policy> getPrefixes() {
+        return prefixes;
+    }
+
+    public void setPrefixes(Map<String, Policy> prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * Cache policy of a single path prefix.
+     */
+    public static class Policy {
+
+        private Duration ttl = Duration.ofSeconds(60); // How long an entry stays cached after it was loaded
+        private long maxSize = 10000; // Maximum number of cached paths below the prefix
+
+        public Policy() {
+        }
+
+        public Policy(Duration ttl, long maxSize) {
+            this.ttl = ttl;
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+}
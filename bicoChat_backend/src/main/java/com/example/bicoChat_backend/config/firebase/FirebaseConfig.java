@@ -44,7 +44,8 @@ public class FirebaseConfig {
     @Value("${CLIENT_X509_CERT_URL}")
     private String client_x509_cert_url;
 
-    @Value("${DATABASE_URL}")
+    // Only needed when the Realtime Database is the storage backend (see FirebaseBeansConfig)
+    @Value("${DATABASE_URL:}")
     private String database_url;
 
     // the following 4 variables are needed for setting the email address to send verification email
@@ -95,10 +96,12 @@ public class FirebaseConfig {
             InputStream credentialsStream = new ByteArrayInputStream(jsonCredentials.getBytes());
 
             // Firebase Config
-            FirebaseOptions options = FirebaseOptions.builder()
-                    .setCredentials(GoogleCredentials.fromStream(credentialsStream))
-                    .setDatabaseUrl(database_url)
-                    .build();
+            FirebaseOptions.Builder builder = FirebaseOptions.builder()
+                    .setCredentials(GoogleCredentials.fromStream(credentialsStream));
+            if (!database_url.isEmpty()) {
+                builder.setDatabaseUrl(database_url);
+            }
+            FirebaseOptions options = builder.build();
 
             // App initialization
             return FirebaseApp.initializeApp(options);
@@ -0,0 +1,56 @@
+package com.example.bicoChat_backend.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Helpers for the controller endpoints that return a CompletableFuture instead of blocking a Tomcat thread.
+ */
+public final class AsyncResponses {
+
+    private AsyncResponses() {
+    }
+
+    /**
+     * Bounds the time an endpoint waits for Firebase. If the response is not ready within the timeout
+     * the request is answered with 504 Gateway Timeout; other failures are propagated unchanged.
+     *
+     * @param response The pending response of the endpoint.
+     * @param timeoutMs Timeout in milliseconds (0 or less = no timeout).
+     * @param endpoint Name of the endpoint, used in the log.
+     * @param <R> Type of the response.
+     * @return CompletableFuture with the response, or with an empty 504 response on timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public static <R extends ResponseEntity<?>> CompletableFuture<R> withTimeout(CompletableFuture<R> response,
+                                                                                 long timeoutMs, String endpoint) {
+        if (timeoutMs <= 0) {
+            return response;
+        }
+        return response.copy()
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    Throwable cause = cause(error);
+                    if (cause instanceof TimeoutException) {
+                        System.err.println("[LOG - AsyncResponses] " + endpoint + " timed out after " + timeoutMs + " ms");
+                        return (R) ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+                    }
+                    throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(cause);
+                });
+    }
+
+    /**
+     * Unwraps the exception a CompletableFuture stage failed with.
+     *
+     * @param error The exception passed to exceptionally or handle.
+     * @return The original exception, without the CompletionException wrapping it.
+     */
+    public static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
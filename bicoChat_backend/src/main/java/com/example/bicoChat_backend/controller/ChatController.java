@@ -3,11 +3,17 @@ package com.example.bicoChat_backend.controller;
 import com.example.bicoChat_backend.dto.request.CreateGroupRequest;
 import com.example.bicoChat_backend.dto.request.GroupUpdateRequest;
 import com.example.bicoChat_backend.dto.request.RoleUpdateRequest;
+import com.example.bicoChat_backend.dto.response.ChatEvent;
 import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.dto.response.ChatSnapshotResponse;
+import com.example.bicoChat_backend.dto.response.ChatSummaryResponse;
 import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.service.ChatMetaService;
 import com.example.bicoChat_backend.service.ChatService;
 import com.example.bicoChat_backend.service.FirebaseService;
 import com.example.bicoChat_backend.service.UserService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
 import com.google.firebase.database.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,6 +22,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -26,9 +33,9 @@ import javax.annotation.PostConstruct;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * REST controller for managing chat functionalities including individual and group chats.
@@ -45,51 +52,175 @@ public class ChatController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ChatMetaService chatMetaService;
+
     @Autowired
     private FirebaseService firebaseService;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
+
     /**
-     * Initializes a Firebase listener for chat updates.
-     * On any change, it sends updated chat list to clients via WebSocket (/topic/chats).
+     * How chat changes are pushed on /topic/chats:
+     * "full" re-sends the whole chat list on every change, "delta" sends one ChatEvent per changed chat.
+     */
+    @Value("${bicochat.realtime.chats-mode:full}")
+    private String chatsMode = "full";
+
+    // Maximum time the read endpoints wait for Firebase before answering 504
+    @Value("${bicochat.http.timeout.chats-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long chatsTimeoutMs = 10000;
+
+    @Value("${bicochat.http.timeout.chat-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long chatTimeoutMs = 10000;
+
+    private final AtomicLong chatEventSeq = new AtomicLong(); // Sequence number of the last published ChatEvent
+    private final AtomicBoolean chatFeedReady = new AtomicBoolean(false); // True once the initial chat load has been skipped
+
+    /**
+     * Initializes a listener for chat updates on the storage behind FirebaseService.
+     * In "full" mode, on any change it sends the updated chat list to clients via WebSocket (/topic/chats).
+     * In "delta" mode, it only sends the chat that was added, changed or removed.
      */
     @PostConstruct
     public void initFirebaseChatListener() {
+        if ("delta".equalsIgnoreCase(chatsMode)) {
+            initFirebaseChatDeltaListener();
+            return;
+        }
+
         firebaseService.getWithTypeIndicator("/chats", new GenericTypeIndicator<Map<String, Chat>>() {})
                 .thenAccept(chatsMap -> {
-                    firebaseService.getDatabaseReference().child("chats")
-                            .addValueEventListener(new ValueEventListener() {
-                                @Override
-                                public void onDataChange(DataSnapshot snapshot) {
-                                    chatService.getAllChats().thenAccept(chats -> {
-                                        messagingTemplate.convertAndSend("/topic/chats", chats);
-                                    });
-                                }
-
-                                @Override
-                                public void onCancelled(DatabaseError error) {
-                                    System.err.println("Error on /chats: " + error.getMessage());
-                                }
+                    firebaseService.listen("chats", new StorageBackend.ValueListener() {
+                        @Override
+                        public void onValue(StorageSnapshot snapshot) {
+                            chatService.getAllChats().thenAccept(chats -> {
+                                messagingTemplate.convertAndSend("/topic/chats", chats);
                             });
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            System.err.println("Error on /chats: " + error.getMessage());
+                        }
+                    });
                 });
     }
 
+    /**
+     * Attaches a child listener on the "chats" node that publishes one ChatEvent per changed chat.
+     * The onChildAdded callbacks fired for the chats already present at startup are skipped:
+     * clients get those through the snapshot endpoint instead.
+     */
+    private void initFirebaseChatDeltaListener() {
+        firebaseService.listenToChildren("chats", new StorageBackend.ChildListener() {
+            @Override
+            public void onChildAdded(StorageSnapshot snapshot) {
+                if (chatFeedReady.get()) {
+                    publishChatEvent(ChatEvent.Type.ADDED, snapshot);
+                }
+            }
+
+            @Override
+            public void onChildChanged(StorageSnapshot snapshot) {
+                publishChatEvent(ChatEvent.Type.CHANGED, snapshot);
+            }
+
+            @Override
+            public void onChildRemoved(StorageSnapshot snapshot) {
+                publishChatEvent(ChatEvent.Type.REMOVED, snapshot);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                System.err.println("Error on /chats: " + error.getMessage());
+            }
+        });
+
+        // Marks the end of the initial load: the chats added from now on are published
+        firebaseService.afterInitialEvents("chats", () -> chatFeedReady.set(true));
+    }
+
+    /**
+     * Publishes a single chat delta on /topic/chats. Messages are not included:
+     * they are streamed separately on /topic/messages/{chatId}.
+     *
+     * @param type The kind of change.
+     * @param snapshot The snapshot of the chat that changed.
+     */
+    private void publishChatEvent(ChatEvent.Type type, StorageSnapshot snapshot) {
+        Chat chat = null;
+        if (type != ChatEvent.Type.REMOVED) {
+            chat = snapshot.getValue(Chat.class);
+            if (chat != null) {
+                chat.setMessages(null);
+            }
+        }
+        ChatEvent event = new ChatEvent(type, snapshot.getKey(), chatEventSeq.incrementAndGet(), chat);
+        messagingTemplate.convertAndSend("/topic/chats", event);
+    }
+
     @Operation(summary = "Get all the chats")
     @ApiResponse(responseCode = "200", description = "List of chats obteined with success")
+    @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     @GetMapping
-    public List<ChatResponse> getAllChats() throws ExecutionException, InterruptedException {
-        return chatService.getAllChats().get();
+    public CompletableFuture<ResponseEntity<List<ChatResponse>>> getAllChats() {
+        return AsyncResponses.withTimeout(
+                chatService.getAllChats().thenApply(ResponseEntity::ok),
+                chatsTimeoutMs, "GET /api/chats");
+    }
+
+    @Operation(
+            summary = "Get a snapshot of all the chats",
+            description = "Returns every chat without its messages and avatar (read from the chatMeta index), "
+                    + "plus the sequence number of the last delta event. "
+                    + "Clients call it once on connect and then apply the /topic/chats events with a greater seq."
+    )
+    @ApiResponse(responseCode = "200", description = "Snapshot obtained with success")
+    @GetMapping("/snapshot")
+    public CompletableFuture<ChatSnapshotResponse> getChatsSnapshot() {
+        long seq = chatEventSeq.get();
+        return chatService.getChatSummaries()
+                .thenApply(chats -> new ChatSnapshotResponse(seq, chats));
+    }
+
+    @Operation(
+            summary = "Get the summaries of all the chats",
+            description = "Returns id, type, title, participants and the last message preview of every chat, "
+                    + "most recently active first. Messages are not included: use the message endpoints to load them."
+    )
+    @ApiResponse(responseCode = "200", description = "Summaries obtained with success")
+    @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
+    @GetMapping("/summaries")
+    public CompletableFuture<ResponseEntity<List<ChatSummaryResponse>>> getChatSummaries() {
+        return AsyncResponses.withTimeout(
+                chatMetaService.getSummaries().thenApply(ResponseEntity::ok),
+                chatsTimeoutMs, "GET /api/chats/summaries");
     }
 
+    @Operation(summary = "Get the summary of a specific chat")
+    @ApiResponse(responseCode = "200", description = "Chat Found")
+    @ApiResponse(responseCode = "404", description = "Chat not Found")
+    @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
+    @GetMapping("/{chatId}/summary")
+    public CompletableFuture<ResponseEntity<ChatSummaryResponse>> getChatSummary(@PathVariable String chatId) {
+        return AsyncResponses.withTimeout(
+                chatMetaService.getSummary(chatId)
+                        .thenApply(summary -> summary.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build())),
+                chatTimeoutMs, "GET /api/chats/{chatId}/summary");
+    }
 
     @Operation(summary = "Retrieve a specific chat by ID")
     @ApiResponse(responseCode = "200", description = "Chat Found")
     @ApiResponse(responseCode = "404", description = "Chat not Found")
+    @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     @GetMapping("/{chatId}")
-    public ResponseEntity<ChatResponse> getChatById(@PathVariable String chatId) throws ExecutionException, InterruptedException {
-        Optional<ChatResponse> chatResponse = chatService.getChatById(chatId).get();
-        return chatResponse.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    public CompletableFuture<ResponseEntity<ChatResponse>> getChatById(@PathVariable String chatId) {
+        return AsyncResponses.withTimeout(
+                chatService.getChatById(chatId)
+                        .thenApply(chatResponse -> chatResponse.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build())),
+                chatTimeoutMs, "GET /api/chats/{chatId}");
     }
 
 
@@ -163,18 +294,15 @@ public class ChatController {
             @ApiResponse(responseCode = "500", description = "Error occurred while updating the group")
     })
     @PatchMapping("/{chatId}")
-    public ResponseEntity<String> updateGroupInfo(
+    public CompletableFuture<ResponseEntity<String>> updateGroupInfo(
             @PathVariable String chatId,
             @RequestBody GroupUpdateRequest request
     ) {
-        try {
-            chatService.updateGroupInfo(chatId, request);
-            return ResponseEntity.ok("Gruppo aggiornato con successo.");
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Non hai i permessi per modificare il gruppo.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore aggiornamento gruppo.");
-        }
+        return chatService.updateGroupInfo(chatId, request)
+                .thenApply(v -> ResponseEntity.ok("Gruppo aggiornato con successo."))
+                .exceptionally(e -> AsyncResponses.cause(e) instanceof SecurityException
+                        ? ResponseEntity.status(HttpStatus.FORBIDDEN).body("Non hai i permessi per modificare il gruppo.")
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore aggiornamento gruppo."));
     }
 
     @Operation(
@@ -199,18 +327,15 @@ public class ChatController {
             @ApiResponse(responseCode = "500", description = "Internal server error while updating role")
     })
     @PatchMapping("/{chatId}/role")
-    public ResponseEntity<String> updateUserRole(
+    public CompletableFuture<ResponseEntity<String>> updateUserRole(
             @PathVariable String chatId,
             @RequestBody RoleUpdateRequest request
     ) {
-        try {
-            chatService.updateUserRole(chatId, request);
-            return ResponseEntity.ok("Ruolo aggiornato.");
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore aggiornamento ruolo.");
-        }
+        return chatService.updateUserRole(chatId, request)
+                .thenApply(v -> ResponseEntity.ok("Ruolo aggiornato."))
+                .exceptionally(e -> AsyncResponses.cause(e) instanceof SecurityException
+                        ? ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.")
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore aggiornamento ruolo."));
     }
 
     @Operation(
@@ -243,19 +368,16 @@ public class ChatController {
             @ApiResponse(responseCode = "500", description = "Internal server error during user removal")
     })
     @DeleteMapping("/{chatId}/user/{targetUserId}")
-    public ResponseEntity<String> removeUserFromGroup(
+    public CompletableFuture<ResponseEntity<String>> removeUserFromGroup(
             @PathVariable String chatId,
             @PathVariable String targetUserId,
             @RequestParam String requesterId
     ) {
-        try {
-            chatService.removeUserFromGroup(chatId, targetUserId, requesterId);
-            return ResponseEntity.ok("Utente rimosso con successo.");
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante la rimozione dell'utente.");
-        }
+        return chatService.removeUserFromGroup(chatId, targetUserId, requesterId)
+                .thenApply(v -> ResponseEntity.ok("Utente rimosso con successo."))
+                .exceptionally(e -> AsyncResponses.cause(e) instanceof SecurityException
+                        ? ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.")
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante la rimozione dell'utente."));
     }
 
     @Operation(
@@ -282,18 +404,15 @@ public class ChatController {
             @ApiResponse(responseCode = "500", description = "Internal server error during group deletion")
     })
     @DeleteMapping("/group/{chatId}")
-    public ResponseEntity<String> deleteGroupChat(
+    public CompletableFuture<ResponseEntity<String>> deleteGroupChat(
             @PathVariable String chatId,
             @RequestParam String requesterId
     ) {
-        try {
-            chatService.deleteGroupChat(chatId, requesterId);
-            return ResponseEntity.ok("Gruppo eliminato.");
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Non sei autorizzato a eliminare il gruppo.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante l'eliminazione del gruppo.");
-        }
+        return chatService.deleteGroupChat(chatId, requesterId)
+                .thenApply(v -> ResponseEntity.ok("Gruppo eliminato."))
+                .exceptionally(e -> AsyncResponses.cause(e) instanceof SecurityException
+                        ? ResponseEntity.status(HttpStatus.FORBIDDEN).body("Non sei autorizzato a eliminare il gruppo.")
+                        : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante l'eliminazione del gruppo."));
     }
 
     @Operation(
@@ -327,21 +446,23 @@ public class ChatController {
             @ApiResponse(responseCode = "500", description = "Internal server error during user addition")
     })
     @PostMapping("/{chatId}/add-user/{userId}")
-    public ResponseEntity<String> addUserToGroup(
+    public CompletableFuture<ResponseEntity<String>> addUserToGroup(
             @PathVariable String chatId,
             @PathVariable String userId,
             @RequestParam String requesterId
     ) {
-        try {
-            chatService.addUserToGroup(chatId, userId, requesterId);
-            return ResponseEntity.ok("Utente aggiunto al gruppo.");
-        } catch (SecurityException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.");
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante l'aggiunta al gruppo.");
-        }
+        return chatService.addUserToGroup(chatId, userId, requesterId)
+                .thenApply(v -> ResponseEntity.ok("Utente aggiunto al gruppo."))
+                .exceptionally(e -> {
+                    Throwable cause = AsyncResponses.cause(e);
+                    if (cause instanceof SecurityException) {
+                        return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Permesso negato.");
+                    }
+                    if (cause instanceof IllegalArgumentException) {
+                        return ResponseEntity.badRequest().body(cause.getMessage());
+                    }
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante l'aggiunta al gruppo.");
+                });
     }
 
     @Operation(
@@ -0,0 +1,161 @@
+package com.example.bicoChat_backend.controller;
+
+import com.example.bicoChat_backend.service.media.MediaService;
+import com.example.bicoChat_backend.service.media.StoredMedia;
+import com.example.bicoChat_backend.service.media.ThumbnailPipeline;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download of the media files (avatars, message images), addressed by the SHA-256 of their content.
+ */
+@RestController
+@RequestMapping("/api/media")
+public class MediaController {
+
+    // A hash always names the same content, so the files can be cached forever
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Operation(
+            summary = "Upload a media file",
+            description = "Stores a PNG, JPEG, GIF or WebP image sent as multipart/form-data and returns its hash and the " +
+                    "reference to save in the models (e.g. as the image of POST /api/messages/{chatId}/send). " +
+                    "The file is streamed to the store; uploading a file that is already stored does not store it again."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File stored; body with hash, ref and url"),
+            @ApiResponse(responseCode = "400", description = "Empty, too large or unsupported file"),
+            @ApiResponse(responseCode = "500", description = "Internal server error while storing the file")
+    })
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Object> upload(@RequestParam("file") MultipartFile file) {
+        if (file.getSize() > mediaService.getMaxBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File larger than " + mediaService.getMaxBytes() + " bytes");
+        }
+        try (InputStream input = file.getInputStream()) {
+            return stored(mediaService.store(input));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("[LOG - MediaController] Error storing media: " + e.getMessage());
+            return ResponseEntity.status(500).body("Error storing the file");
+        }
+    }
+
+    @Operation(
+            summary = "Upload a media file as the raw request body",
+            description = "Same as the multipart upload, for clients that send the image bytes as the body " +
+                    "(Content-Type image/* or application/octet-stream). The body is copied to the store as it arrives."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File stored; body with hash, ref and url"),
+            @ApiResponse(responseCode = "400", description = "Empty, too large or unsupported file"),
+            @ApiResponse(responseCode = "413", description = "Declared Content-Length above the size limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error while storing the file")
+    })
+    @PostMapping(value = "/stream", consumes = {"image/png", "image/jpeg", "image/gif", "image/webp", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Object> uploadStream(HttpServletRequest request) {
+        // Refused before reading anything when the client declares the size
+        if (request.getContentLengthLong() > mediaService.getMaxBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("File larger than " + mediaService.getMaxBytes() + " bytes");
+        }
+        try {
+            return stored(mediaService.store(request.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("[LOG - MediaController] Error storing media: " + e.getMessage());
+            return ResponseEntity.status(500).body("Error storing the file");
+        }
+    }
+
+    private static ResponseEntity<Object> stored(String hash) {
+        return ResponseEntity.ok(Map.of(
+                "hash", hash,
+                "ref", MediaService.toReference(hash),
+                "url", "/api/media/" + hash));
+    }
+
+    @Operation(
+            summary = "Download a media file",
+            description = "Returns the file with the given hash, or with size its thumbnail whose longest side is at most " +
+                    "that many pixels. The response carries an ETag and a long Cache-Control, and a request with a " +
+                    "matching If-None-Match is answered 304 without reading the file.",
+            parameters = {
+                    @Parameter(name = "hash", description = "SHA-256 of the file, in hexadecimal", required = true, in = ParameterIn.PATH),
+                    @Parameter(name = "size", description = "Size of the thumbnail (one of bicochat.media.thumbnail.sizes)", required = false, in = ParameterIn.QUERY)
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File returned successfully"),
+            @ApiResponse(responseCode = "304", description = "The client already has the file"),
+            @ApiResponse(responseCode = "400", description = "Unsupported thumbnail size"),
+            @ApiResponse(responseCode = "404", description = "No file with this hash"),
+            @ApiResponse(responseCode = "500", description = "Internal server error while reading the file")
+    })
+    @GetMapping("/{hash}")
+    public CompletableFuture<ResponseEntity<byte[]>> download(
+            @PathVariable String hash,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        if (size != null && !mediaService.supportsSize(size)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+
+        String key = size != null ? ThumbnailPipeline.variantKey(hash, size) : hash;
+        if (matches(ifNoneMatch, key)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(304).eTag(etag(key)).cacheControl(IMMUTABLE).build());
+        }
+
+        CompletableFuture<StoredMedia> media = size != null ? mediaService.load(hash, size) : mediaService.load(hash);
+        return media
+                .thenApply(file -> {
+                    if (file == null) {
+                        return ResponseEntity.notFound().<byte[]>build();
+                    }
+                    // The original served in place of a thumbnail still being made must not be cached for good
+                    CacheControl cacheControl = key.equals(file.getHash()) ? IMMUTABLE : CacheControl.maxAge(1, TimeUnit.MINUTES);
+                    if (matches(ifNoneMatch, file.getHash())) {
+                        return ResponseEntity.status(304).eTag(etag(file.getHash())).cacheControl(cacheControl).<byte[]>build();
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(etag(file.getHash()))
+                            .cacheControl(cacheControl)
+                            .contentType(MediaType.parseMediaType(file.getContentType()))
+                            .header("X-Content-Type-Options", "nosniff")
+                            .body(file.getContent());
+                })
+                .exceptionally(ex -> {
+                    System.err.println("[LOG - MediaController] Error loading media " + key + ": " + ex.getMessage());
+                    return ResponseEntity.status(500).build();
+                });
+    }
+
+    private static String etag(String key) {
+        return "\"" + key + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String key) {
+        return ifNoneMatch != null && (ifNoneMatch.contains(etag(key)) || ifNoneMatch.trim().equals("*"));
+    }
+}
@@ -1,9 +1,17 @@
 package com.example.bicoChat_backend.controller;
 
+import com.example.bicoChat_backend.dto.response.MessageEvent;
+import com.example.bicoChat_backend.dto.response.MessagePageResponse;
 import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.model.ReadMark;
 import com.example.bicoChat_backend.service.ChatService;
 import com.example.bicoChat_backend.service.FirebaseService;
 import com.example.bicoChat_backend.service.MessageService;
+import com.example.bicoChat_backend.service.ReadStateService;
+import com.example.bicoChat_backend.service.storage.FirebaseSnapshot;
+import com.example.bicoChat_backend.service.storage.FirebaseStorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
 import com.google.firebase.database.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,15 +19,22 @@ import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Controller for handling message-related API requests.
@@ -41,13 +56,61 @@ public class MessageController {
     @Autowired
     private ChatService chatService; // Service for chat-related logic
 
+    @Autowired
+    private ReadStateService readStateService; // Read watermarks of the chats
+
     /**
-     * Initializes the Firebase listener to listen for new messages added to a chat.
-     * Once a new message is added, it sends the message to the corresponding topic.
+     * How the message listeners are attached at startup:
+     * "since-now" only listens to messages newer than the startup time for the chats that already exist,
+     * "replay" listens to every message and so re-publishes the whole history once.
+     */
+    @Value("${bicochat.realtime.messages-bootstrap:since-now}")
+    private String messagesBootstrap = "since-now";
+
+    // Maximum time the endpoints wait for Firebase before answering 504
+    @Value("${bicochat.http.timeout.messages-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long messagesTimeoutMs = 10000;
+
+    @Value("${bicochat.http.timeout.send-message-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long sendTimeoutMs = 10000;
+
+    // Page size of the message history when the client does not ask for one, and the largest allowed
+    @Value("${bicochat.messages.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${bicochat.messages.page.max-size:200}")
+    private int maxPageSize = 200;
+
+    private final Map<String, AtomicLong> messageEventSeq = new ConcurrentHashMap<>(); // Per-chat MessageEvent sequence
+    private final AtomicBoolean messageFeedReady = new AtomicBoolean(false); // True once the chats present at startup are attached
+    private final Map<String, StorageBackend.Registration> messageListeners = new ConcurrentHashMap<>(); // Per-chat listeners (non-Firebase backends)
+
+    /**
+     * Initializes the listeners for messages added, changed or removed in a chat, on the storage behind FirebaseService.
+     * Each change is sent as a single MessageEvent to the corresponding topic.
+     * In "since-now" mode the chats present at startup are listened from the startup time on,
+     * so their history is not replayed; chats created later are listened in full.
      */
     @PostConstruct
     public void initFirebaseMessageListener() {
-        DatabaseReference chatsRef = firebaseService.getDatabaseReference().child("chats");
+        long bootstrapStart = System.currentTimeMillis();
+        boolean sinceNow = !"replay".equalsIgnoreCase(messagesBootstrap);
+        String cutoff = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME); // Same format as the message timestamps
+
+        if (firebaseService.getStorageBackend() instanceof FirebaseStorageBackend firebase) {
+            initFirebaseQueryListeners(firebase.getDatabaseReference(), bootstrapStart, sinceNow, cutoff);
+        } else {
+            initStorageMessageListeners(bootstrapStart, sinceNow, cutoff);
+        }
+    }
+
+    /**
+     * Firebase variant: in "since-now" mode the chats present at startup are listened through a
+     * startAt(cutoff) query on the timestamps, so Firebase does not even download their history.
+     */
+    private void initFirebaseQueryListeners(DatabaseReference rootRef, long bootstrapStart, boolean sinceNow, String cutoff) {
+        AtomicInteger bootstrapChats = new AtomicInteger();
+        DatabaseReference chatsRef = rootRef.child("chats");
 
         // Listen for changes in the 'chats' node
         chatsRef.addChildEventListener(new ChildEventListener() {
@@ -56,21 +119,29 @@ public class MessageController {
                 String chatId = chatSnapshot.getKey();
                 DatabaseReference messagesRef = chatSnapshot.getRef().child("messages");
 
+                Query messagesQuery = messagesRef;
+                if (!messageFeedReady.get()) {
+                    bootstrapChats.incrementAndGet();
+                    if (sinceNow) {
+                        messagesQuery = messagesRef.orderByChild("timestamp").startAt(cutoff);
+                    }
+                }
+
                 // Listen for changes in the 'messages' node for each chat
-                messagesRef.addChildEventListener(new ChildEventListener() {
+                messagesQuery.addChildEventListener(new ChildEventListener() {
                     @Override
                     public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
-                        sendMessages(chatId); // Send updated messages when a new message is added
+                        publishMessageEvent(chatId, MessageEvent.Type.ADDED, new FirebaseSnapshot(snapshot));
                     }
 
                     @Override
                     public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
-                        sendMessages(chatId); // Send updated messages when a message is changed
+                        publishMessageEvent(chatId, MessageEvent.Type.EDITED, new FirebaseSnapshot(snapshot));
                     }
 
                     @Override
                     public void onChildRemoved(DataSnapshot snapshot) {
-                        sendMessages(chatId); // Send updated messages when a message is removed
+                        publishMessageEvent(chatId, MessageEvent.Type.DELETED, new FirebaseSnapshot(snapshot));
                     }
 
                     @Override
@@ -80,13 +151,6 @@ public class MessageController {
                     public void onCancelled(DatabaseError error) {
                         System.err.println("Error on chats/" + chatId + "/messages: " + error.getMessage());
                     }
-
-                    private void sendMessages(String chatId) {
-                        // Retrieve and send messages to the WebSocket topic
-                        messageService.getMessagesByChatId(chatId).thenAccept(messages -> {
-                            messagingTemplate.convertAndSend("/topic/messages/" + chatId, messages);
-                        });
-                    }
                 });
             }
 
@@ -94,7 +158,9 @@ public class MessageController {
             public void onChildChanged(DataSnapshot snapshot, String previousChildName) {}
 
             @Override
-            public void onChildRemoved(DataSnapshot snapshot) {}
+            public void onChildRemoved(DataSnapshot snapshot) {
+                messageEventSeq.remove(snapshot.getKey()); // The chat is gone, forget its sequence
+            }
 
             @Override
             public void onChildMoved(DataSnapshot snapshot, String previousChildName) {}
@@ -104,6 +170,125 @@ public class MessageController {
                 System.err.println("Error on /chats: " + error.getMessage());
             }
         });
+
+        // Value events fire after the initial child events, so this marks the end of the bootstrap
+        chatsRef.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                messageFeedReady.set(true);
+                System.out.println("[LOG - MessageController] message listener bootstrap took "
+                        + (System.currentTimeMillis() - bootstrapStart) + " ms for " + bootstrapChats.get()
+                        + " chats (mode: " + (sinceNow ? "since-now" : "replay") + ")");
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                messageFeedReady.set(true);
+                System.err.println("Error on /chats: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Variant for the other storage backends, whose listeners take no query: in "since-now" mode the changes
+     * to messages older than the startup time are dropped for the chats present at startup.
+     */
+    private void initStorageMessageListeners(long bootstrapStart, boolean sinceNow, String cutoff) {
+        AtomicInteger bootstrapChats = new AtomicInteger();
+
+        firebaseService.listenToChildren("chats", new StorageBackend.ChildListener() {
+            @Override
+            public void onChildAdded(StorageSnapshot chatSnapshot) {
+                String chatId = chatSnapshot.getKey();
+                boolean bootstrap = !messageFeedReady.get();
+                if (bootstrap) {
+                    bootstrapChats.incrementAndGet();
+                }
+                boolean fromCutoff = bootstrap && sinceNow;
+
+                StorageBackend.Registration registration = firebaseService.listenToChildren("chats/" + chatId + "/messages",
+                        new StorageBackend.ChildListener() {
+                            @Override
+                            public void onChildAdded(StorageSnapshot snapshot) {
+                                publishIfRecent(MessageEvent.Type.ADDED, snapshot);
+                            }
+
+                            @Override
+                            public void onChildChanged(StorageSnapshot snapshot) {
+                                publishIfRecent(MessageEvent.Type.EDITED, snapshot);
+                            }
+
+                            @Override
+                            public void onChildRemoved(StorageSnapshot snapshot) {
+                                publishIfRecent(MessageEvent.Type.DELETED, snapshot);
+                            }
+
+                            @Override
+                            public void onError(Exception error) {
+                                System.err.println("Error on chats/" + chatId + "/messages: " + error.getMessage());
+                            }
+
+                            private void publishIfRecent(MessageEvent.Type type, StorageSnapshot snapshot) {
+                                if (fromCutoff) {
+                                    String timestamp = snapshot.child("timestamp").getValue(String.class);
+                                    if (timestamp == null || timestamp.compareTo(cutoff) < 0) return;
+                                }
+                                publishMessageEvent(chatId, type, snapshot);
+                            }
+                        });
+                StorageBackend.Registration previous = messageListeners.put(chatId, registration);
+                if (previous != null) {
+                    previous.remove();
+                }
+            }
+
+            @Override
+            public void onChildChanged(StorageSnapshot snapshot) {}
+
+            @Override
+            public void onChildRemoved(StorageSnapshot snapshot) {
+                messageEventSeq.remove(snapshot.getKey()); // The chat is gone, forget its sequence and its listener
+                StorageBackend.Registration registration = messageListeners.remove(snapshot.getKey());
+                if (registration != null) {
+                    registration.remove();
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                System.err.println("Error on /chats: " + error.getMessage());
+            }
+        });
+
+        firebaseService.afterInitialEvents("chats", () -> {
+            messageFeedReady.set(true);
+            System.out.println("[LOG - MessageController] message listener bootstrap took "
+                    + (System.currentTimeMillis() - bootstrapStart) + " ms for " + bootstrapChats.get()
+                    + " chats (mode: " + (sinceNow ? "since-now" : "replay") + ")");
+        });
+    }
+
+    /**
+     * Sends a single message change to /topic/messages/{chatId}, taking the message straight from the snapshot.
+     *
+     * @param chatId The ID of the chat the message belongs to.
+     * @param type The kind of change.
+     * @param snapshot The snapshot of the message that changed.
+     */
+    private void publishMessageEvent(String chatId, MessageEvent.Type type, StorageSnapshot snapshot) {
+        Message message = snapshot.getValue(Message.class);
+        if (message == null) {
+            message = new Message();
+        }
+        message.setId(snapshot.getKey());
+
+        // A soft delete is stored as an update of the message
+        if (type == MessageEvent.Type.EDITED && message.isDeleted()) {
+            type = MessageEvent.Type.DELETED;
+        }
+
+        long seq = messageEventSeq.computeIfAbsent(chatId, id -> new AtomicLong()).incrementAndGet();
+        messagingTemplate.convertAndSend("/topic/messages/" + chatId, new MessageEvent(type, chatId, seq, message));
     }
 
     @Operation(
@@ -115,11 +300,98 @@ public class MessageController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Messages retrieved successfully"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     })
     @GetMapping("/{chatId}")
-    public List<Message> getMessagesByChatId(@PathVariable String chatId) throws ExecutionException, InterruptedException {
-        return messageService.getMessagesByChatId(chatId).get(); // Retrieves and returns messages
+    public CompletableFuture<ResponseEntity<List<Message>>> getMessagesByChatId(@PathVariable String chatId) {
+        return AsyncResponses.withTimeout(
+                messageService.getMessagesByChatId(chatId).thenApply(ResponseEntity::ok), // Retrieves and returns messages
+                messagesTimeoutMs, "GET /api/messages/{chatId}");
+    }
+
+    @Operation(
+            summary = "Retrieve a page of the message history of a chat",
+            description = "Returns the latest messages of the chat (oldest first) and a cursor to load the older ones. "
+                    + "Pass the nextCursor of a page to get the page before it; nextCursor is null on the first message of the chat.",
+            parameters = {
+                    @Parameter(name = "chatId", description = "ID of the chat", required = true, in = ParameterIn.PATH),
+                    @Parameter(name = "cursor", description = "nextCursor of the previous page, omitted for the latest messages", in = ParameterIn.QUERY),
+                    @Parameter(name = "size", description = "Number of messages in the page", in = ParameterIn.QUERY)
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
+    })
+    @GetMapping("/{chatId}/page")
+    public CompletableFuture<ResponseEntity<?>> getMessagesPage(
+            @PathVariable String chatId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+
+        int pageSize = size != null ? size : defaultPageSize;
+        if (pageSize <= 0 || pageSize > maxPageSize) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("size must be between 1 and " + maxPageSize));
+        }
+
+        CompletableFuture<MessagePageResponse> page;
+        try {
+            page = messageService.getMessagesPage(chatId, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid cursor"));
+        }
+
+        return AsyncResponses.withTimeout(
+                page.<ResponseEntity<?>>thenApply(ResponseEntity::ok),
+                messagesTimeoutMs, "GET /api/messages/{chatId}/page");
+    }
+
+    @Operation(
+            summary = "Mark a chat as read by a user",
+            description = "Moves the read watermark of the user to the newest message and resets their unread counter. "
+                    + "It is a single write, whatever the number of messages in the chat.",
+            parameters = {
+                    @Parameter(name = "chatId", description = "ID of the chat", required = true, in = ParameterIn.PATH),
+                    @Parameter(name = "userId", description = "ID of the user who read the chat", required = true, in = ParameterIn.QUERY)
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Chat marked as read"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/{chatId}/read")
+    public CompletableFuture<ResponseEntity<Void>> markChatAsRead(
+            @PathVariable String chatId,
+            @RequestParam String userId) {
+        return messageService.markChatMessagesAsRead(chatId, userId)
+                .thenApply(v -> {
+                    // Clients refresh the read receipts of the chat
+                    Map<String, Object> updateNotification = new HashMap<>();
+                    updateNotification.put("chatId", chatId);
+                    updateNotification.put("fieldsUpdated", List.of("reads"));
+                    messagingTemplate.convertAndSend("/topic/chats", updateNotification);
+                    return ResponseEntity.noContent().<Void>build();
+                });
+    }
+
+    @Operation(
+            summary = "Retrieve the read watermarks of a chat",
+            description = "Returns, for each user, the key and timestamp of the newest message they have read. "
+                    + "A message is read by a user when it is not after the user's watermark (by timestamp, then key).",
+            parameters = {
+                    @Parameter(name = "chatId", description = "ID of the chat", required = true, in = ParameterIn.PATH)
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Watermarks retrieved successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/{chatId}/reads")
+    public CompletableFuture<ResponseEntity<Map<String, ReadMark>>> getReadWatermarks(@PathVariable String chatId) {
+        return readStateService.getWatermarks(chatId).thenApply(ResponseEntity::ok);
     }
 
     @Operation(
@@ -127,16 +399,18 @@ public class MessageController {
             description = "Sends a new message to a specific chat.",
             parameters = {
                     @Parameter(name = "chatId", description = "ID of the chat", required = true, in = ParameterIn.PATH),
-                    @Parameter(name = "payload", description = "Message content including content, sender, and optional image", required = true, in = ParameterIn.DEFAULT)
+                    @Parameter(name = "payload", description = "Message content including content, sender, and optional image " +
+                            "(preferably the \"media:{hash}\" reference returned by POST /api/media; inline Base64 is still accepted)", required = true, in = ParameterIn.DEFAULT)
             }
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Message sent successfully"),
             @ApiResponse(responseCode = "400", description = "Missing or invalid content or sender"),
-            @ApiResponse(responseCode = "500", description = "Internal server error while sending the message")
+            @ApiResponse(responseCode = "500", description = "Internal server error while sending the message"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     })
     @PostMapping("/{chatId}/send")
-    public ResponseEntity<?> sendMessage(
+    public CompletableFuture<ResponseEntity<?>> sendMessage(
             @PathVariable String chatId,
             @RequestBody Map<String, Object> payload) {
 
@@ -145,24 +419,24 @@ public class MessageController {
         String image = (String) payload.getOrDefault("image", null); // Image can be null
 
         if (content == null || sender == null) {
-            return ResponseEntity.badRequest().body("Missing content or sender"); // Bad request if content or sender is missing
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Missing content or sender")); // Bad request if content or sender is missing
         }
 
         // Create a new message and set its properties
         Message newMessage = new Message();
         newMessage.setContent(content);
         newMessage.setSender(sender);
-        newMessage.setTimestamp(java.time.LocalDateTime.now().toString());
+        newMessage.setTimestamp(java.time.LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         newMessage.setRead(false);
         newMessage.setImage(image); // Set image if present
 
-        try {
-            Map<String, Object> result = messageService.sendMessage(chatId, newMessage).join();
-            return ResponseEntity.ok(result); // Return success response
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return ResponseEntity.status(500).body("Error sending message"); // Return error response
-        }
+        return AsyncResponses.withTimeout(
+                        messageService.sendMessage(chatId, newMessage).<ResponseEntity<?>>thenApply(ResponseEntity::ok), // Return success response
+                        sendTimeoutMs, "POST /api/messages/{chatId}/send")
+                .exceptionally(ex -> {
+                    ex.printStackTrace();
+                    return ResponseEntity.status(500).body("Error sending message"); // Return error response
+                });
     }
 
 
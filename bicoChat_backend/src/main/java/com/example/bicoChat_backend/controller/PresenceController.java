@@ -0,0 +1,54 @@
+package com.example.bicoChat_backend.controller;
+
+import com.example.bicoChat_backend.service.PresenceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Online status of the users. Changes are pushed on /topic/presence as {uid, status};
+ * clients send a heartbeat to /app/presence/heartbeat to stay online.
+ */
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    @Autowired
+    private PresenceService presenceService;
+
+    /**
+     * Heartbeat of a connected client, with payload {"uid": "..."}.
+     *
+     * @param body The heartbeat payload.
+     * @param headerAccessor The headers of the STOMP frame, carrying the session ID.
+     */
+    @MessageMapping("/presence/heartbeat")
+    public void heartbeat(Map<String, String> body, SimpMessageHeaderAccessor headerAccessor) {
+        String uid = body != null ? body.get("uid") : null;
+        if (uid != null && !uid.isBlank()) {
+            presenceService.heartbeat(headerAccessor.getSessionId(), uid);
+        }
+    }
+
+    @Operation(
+            summary = "Retrieve the online status of the users",
+            description = "Returns the current status of every user seen since the server started or with a stored status, " +
+                    "by user ID. Users not in the map keep the status of their profile; later changes arrive on /topic/presence."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Statuses retrieved successfully")
+    })
+    @GetMapping
+    public ResponseEntity<Map<String, String>> getPresence() {
+        return ResponseEntity.ok(presenceService.snapshot());
+    }
+}
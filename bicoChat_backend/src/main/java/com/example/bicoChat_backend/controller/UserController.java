@@ -1,25 +1,29 @@
 package com.example.bicoChat_backend.controller;
 
+import com.example.bicoChat_backend.dto.response.InboxPageResponse;
 import com.example.bicoChat_backend.dto.response.UserResponse;
 import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.InboxService;
+import com.example.bicoChat_backend.service.PresenceService;
 import com.example.bicoChat_backend.service.UserService;
-import com.google.firebase.database.*;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.PostConstruct;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 @RestController
 @RequestMapping("/api/users")
@@ -28,29 +32,55 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private InboxService inboxService;
+
+    @Autowired
+    private PresenceService presenceService;
+
     @Autowired
     private FirebaseService firebaseService;
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    // Maximum time the read endpoints wait for Firebase before answering 504
+    @Value("${bicochat.http.timeout.users-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long usersTimeoutMs = 10000;
+
+    @Value("${bicochat.http.timeout.user-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long userTimeoutMs = 10000;
+
+    @Value("${bicochat.http.timeout.chatlist-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long chatListTimeoutMs = 10000;
+
+    @Value("${bicochat.http.timeout.inbox-ms:${bicochat.http.timeout.default-ms:10000}}")
+    private long inboxTimeoutMs = 10000;
+
+    // Chats per inbox page when the client does not ask for a limit, and the largest allowed
+    @Value("${bicochat.inbox.page.default-size:50}")
+    private int defaultInboxLimit = 50;
+
+    @Value("${bicochat.inbox.page.max-size:200}")
+    private int maxInboxLimit = 200;
+
     /**
      * Initialize the listener for Firebase user data changes.
      * When user data changes in Firebase, it updates all connected clients with the latest user data.
      */
     @PostConstruct
     public void initFirebaseUserListener() {
-        firebaseService.listenToUsersChanges(new ValueEventListener() {
+        firebaseService.listen("users", new StorageBackend.ValueListener() {
             @Override
-            public void onDataChange(DataSnapshot snapshot) {
+            public void onValue(StorageSnapshot snapshot) {
                 // Fetch all users and send updated user list to all connected clients via WebSocket
                 userService.getAllUsers().thenAccept(users -> {
-                    messagingTemplate.convertAndSend("/topic/users", users);
+                    messagingTemplate.convertAndSend("/topic/users", presenceService.applyTo(users));
                 });
             }
 
             @Override
-            public void onCancelled(DatabaseError error) {
+            public void onError(Exception error) {
                 System.err.println("Error on /users: " + error.getMessage());
             }
         });
@@ -63,11 +93,14 @@ public class UserController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "List of users retrieved successfully"),
-            @ApiResponse(responseCode = "500", description = "Execution error")
+            @ApiResponse(responseCode = "500", description = "Execution error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     })
     @GetMapping
-    public Object getAllUsers() throws ExecutionException, InterruptedException {
-        return userService.getAllUsers().get();
+    public CompletableFuture<ResponseEntity<List<UserResponse>>> getAllUsers() {
+        return AsyncResponses.withTimeout(
+                userService.getAllUsers().thenApply(users -> ResponseEntity.ok(presenceService.applyTo(users))),
+                usersTimeoutMs, "GET /api/users");
     }
 
     @Operation(
@@ -80,19 +113,22 @@ public class UserController {
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "User found and returned"),
             @ApiResponse(responseCode = "404", description = "User not found"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     })
     @GetMapping("/{uid}")
-    public ResponseEntity<?> getUserById(@PathVariable String uid) throws ExecutionException, InterruptedException {
-        Optional<UserResponse> userOpt = userService.getUserById(uid).get();
-        return userOpt
-                .<ResponseEntity<?>>map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found")));
+    public CompletableFuture<ResponseEntity<?>> getUserById(@PathVariable String uid) {
+        return AsyncResponses.withTimeout(
+                userService.getUserById(uid).<ResponseEntity<?>>thenApply(userOpt -> userOpt
+                        .<ResponseEntity<?>>map(user -> ResponseEntity.ok(presenceService.applyTo(user)))
+                        .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found")))),
+                userTimeoutMs, "GET /api/users/{uid}");
     }
 
     @Operation(
             summary = "Update user status",
-            description = "Updates the status of a user, e.g., online, offline, busy.",
+            description = "Updates the status of a user, e.g., online, offline, busy. The change is published on " +
+                    "/topic/presence as {uid, status}; it is not written to the user, so it does not resend /topic/users.",
             parameters = {
                     @Parameter(name = "uid", description = "Unique user ID", required = true, in = ParameterIn.PATH),
                     @Parameter(name = "body", description = "Status payload, e.g. {\"status\": \"online\"}", required = true, in = ParameterIn.DEFAULT)
@@ -106,7 +142,7 @@ public class UserController {
     @PutMapping("/{uid}/status")
     public void updateUserStatus(@PathVariable String uid, @RequestBody Map<String, String> body) {
         String status = body.get("status");
-        userService.updateUserStatus(uid, status);
+        presenceService.setStatus(uid, status);
     }
 
     @Operation(
@@ -126,7 +162,7 @@ public class UserController {
                 .thenAccept(aVoid -> {
                     // After updating Firebase, send the updated user list to all connected clients
                     userService.getAllUsers().thenAccept(users -> {
-                        messagingTemplate.convertAndSend("/topic/users", users);
+                        messagingTemplate.convertAndSend("/topic/users", presenceService.applyTo(users));
                     });
                 })
                 .exceptionally(ex -> {
@@ -150,18 +186,15 @@ public class UserController {
             @ApiResponse(responseCode = "500", description = "Error updating profile")
     })
     @PostMapping("/updateProfile")
-    public ResponseEntity<String> updateProfile(
+    public CompletableFuture<ResponseEntity<String>> updateProfile(
             @RequestParam String userId,
             @RequestParam String firstName,
             @RequestParam String lastName,
             @RequestParam(required = false) String avatar) {
 
-        try {
-            userService.updateUserProfile(userId, firstName, lastName, avatar);
-            return ResponseEntity.ok("User profile updated successfully!");
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body("Error updating profile: " + e.getMessage());
-        }
+        return userService.updateUserProfile(userId, firstName, lastName, avatar)
+                .thenApply(v -> ResponseEntity.ok("User profile updated successfully!"))
+                .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error updating profile: " + e.getMessage()));
     }
 
     @Operation(
@@ -170,17 +203,57 @@ public class UserController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Users list for chat returned successfully"),
-            @ApiResponse(responseCode = "500", description = "Internal server error")
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
     })
     @GetMapping("/chatlist")
-    public ResponseEntity<Map<String, Object>> getAllUsersForChatList() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getAllUsersForChatList() {
+        return AsyncResponses.withTimeout(
+                userService.getAllUsersForChatList().thenApply(ResponseEntity::ok),
+                chatListTimeoutMs, "GET /api/users/chatlist")
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+                });
+    }
+
+    @Operation(
+            summary = "Retrieve the chat inbox of a user",
+            description = "Returns the chats of the user, most recent first and without the hidden ones, "
+                    + "one page at a time. Pass the nextCursor of a page to get the following one.",
+            parameters = {
+                    @Parameter(name = "uid", description = "Unique user ID", required = true, in = ParameterIn.PATH),
+                    @Parameter(name = "cursor", description = "nextCursor of the previous page, omitted for the first page", in = ParameterIn.QUERY),
+                    @Parameter(name = "limit", description = "Number of chats in the page", in = ParameterIn.QUERY)
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Inbox page returned successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error"),
+            @ApiResponse(responseCode = "504", description = "Firebase did not answer in time")
+    })
+    @GetMapping("/{uid}/inbox")
+    public CompletableFuture<ResponseEntity<?>> getInbox(
+            @PathVariable String uid,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        int pageLimit = limit != null ? limit : defaultInboxLimit;
+        if (pageLimit <= 0 || pageLimit > maxInboxLimit) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("limit must be between 1 and " + maxInboxLimit));
+        }
+
+        CompletableFuture<InboxPageResponse> page;
         try {
-            Map<String, Object> result = userService.getAllUsersForChatList().get(); // Blocks until the task completes
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            page = inboxService.getInbox(uid, cursor, pageLimit);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Invalid cursor"));
         }
+
+        return AsyncResponses.withTimeout(
+                page.<ResponseEntity<?>>thenApply(ResponseEntity::ok),
+                inboxTimeoutMs, "GET /api/users/{uid}/inbox");
     }
 
     @Operation(
@@ -0,0 +1,81 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.example.bicoChat_backend.model.Chat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Delta event published on /topic/chats when the chat feed runs in "delta" mode.
+ * Carries only the chat that was added, changed or removed, without its messages.
+ */
+public class ChatEvent {
+
+    public enum Type {
+        ADDED,
+        CHANGED,
+        REMOVED
+    }
+
+    @JsonProperty("type")
+    private Type type;
+
+    @JsonProperty("chatId")
+    private String chatId;
+
+    @JsonProperty("seq")
+    private long seq;
+
+    @JsonProperty("chat")
+    private Chat chat; // null for REMOVED events
+
+    public ChatEvent() {
+    }
+
+    public ChatEvent(Type type, String chatId, long seq, Chat chat) {
+        this.type = type;
+        this.chatId = chatId;
+        this.seq = seq;
+        this.chat = chat;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(String chatId) {
+        this.chatId = chatId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Chat getChat() {
+        return chat;
+    }
+
+    public void setChat(Chat chat) {
+        this.chat = chat;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatEvent{" +
+                "type=" + type +
+                ", chatId='" + chatId + '\'' +
+                ", seq=" + seq +
+                ", chat=" + chat +
+                '}';
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Snapshot of all chats (without messages) that a client loads once on connect.
+ * Delta events on /topic/chats with a seq greater than this one apply on top of it.
+ */
+public class ChatSnapshotResponse {
+
+    @JsonProperty("seq")
+    private long seq;
+
+    @JsonProperty("chats")
+    private List<ChatResponse> chats;
+
+    public ChatSnapshotResponse() {
+    }
+
+    public ChatSnapshotResponse(long seq, List<ChatResponse> chats) {
+        this.seq = seq;
+        this.chats = chats;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public List<ChatResponse> getChats() {
+        return chats;
+    }
+
+    public void setChats(List<ChatResponse> chats) {
+        this.chats = chats;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.example.bicoChat_backend.model.ChatMeta;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Lightweight view of a chat for the chat list: no messages, only the preview of the last one.
+ */
+public class ChatSummaryResponse {
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("type")
+    private String type;
+
+    @JsonProperty("title")
+    private String title;
+
+    @JsonProperty("participants")
+    private List<String> participants;
+
+    @JsonProperty("lastMessage")
+    private String lastMessage;
+
+    @JsonProperty("lastUser")
+    private String lastUser;
+
+    @JsonProperty("lastActivity")
+    private String lastActivity;
+
+    public ChatSummaryResponse() {
+    }
+
+    public ChatSummaryResponse(String id, ChatMeta meta) {
+        this.id = id;
+        this.type = meta.getType();
+        this.title = meta.getTitle();
+        this.participants = meta.getParticipants();
+        this.lastMessage = meta.getLastMessage();
+        this.lastUser = meta.getLastUser();
+        this.lastActivity = meta.getLastActivity();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public String getLastUser() {
+        return lastUser;
+    }
+
+    public void setLastUser(String lastUser) {
+        this.lastUser = lastUser;
+    }
+
+    public String getLastActivity() {
+        return lastActivity;
+    }
+
+    public void setLastActivity(String lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.example.bicoChat_backend.model.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One chat of a user's inbox: the chat ID and the user's chatUser entry for it.
+ */
+public class InboxEntryResponse {
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("chat")
+    private User.ChatInfo chat;
+
+    public InboxEntryResponse() {
+    }
+
+    public InboxEntryResponse(String id, User.ChatInfo chat) {
+        this.id = id;
+        this.chat = chat;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public User.ChatInfo getChat() {
+        return chat;
+    }
+
+    public void setChat(User.ChatInfo chat) {
+        this.chat = chat;
+    }
+}
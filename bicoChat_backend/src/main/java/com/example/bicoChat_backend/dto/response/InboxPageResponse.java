@@ -0,0 +1,42 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of a user's inbox, most recent chat first.
+ * nextCursor points to the following page, or is null on the last one.
+ */
+public class InboxPageResponse {
+
+    @JsonProperty("chats")
+    private List<InboxEntryResponse> chats;
+
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    public InboxPageResponse() {
+    }
+
+    public InboxPageResponse(List<InboxEntryResponse> chats, String nextCursor) {
+        this.chats = chats;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<InboxEntryResponse> getChats() {
+        return chats;
+    }
+
+    public void setChats(List<InboxEntryResponse> chats) {
+        this.chats = chats;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
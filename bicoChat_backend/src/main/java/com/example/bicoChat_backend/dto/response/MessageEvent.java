@@ -0,0 +1,82 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.example.bicoChat_backend.model.Message;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Delta event published on /topic/messages/{chatId} for every message that is added, edited or deleted.
+ * The seq is per chat and increases by one at every event, so a client that sees a gap
+ * knows it missed something and should reload the history.
+ */
+public class MessageEvent {
+
+    public enum Type {
+        ADDED,
+        EDITED,
+        DELETED
+    }
+
+    @JsonProperty("type")
+    private Type type;
+
+    @JsonProperty("chatId")
+    private String chatId;
+
+    @JsonProperty("seq")
+    private long seq;
+
+    @JsonProperty("message")
+    private Message message;
+
+    public MessageEvent() {
+    }
+
+    public MessageEvent(Type type, String chatId, long seq, Message message) {
+        this.type = type;
+        this.chatId = chatId;
+        this.seq = seq;
+        this.message = message;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getChatId() {
+        return chatId;
+    }
+
+    public void setChatId(String chatId) {
+        this.chatId = chatId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public void setMessage(Message message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageEvent{" +
+                "type=" + type +
+                ", chatId='" + chatId + '\'' +
+                ", seq=" + seq +
+                ", message=" + message +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.example.bicoChat_backend.model.Message;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of the message history of a chat, oldest message first.
+ * nextCursor points to the page of older messages, or is null when there are none.
+ */
+public class MessagePageResponse {
+
+    @JsonProperty("messages")
+    private List<Message> messages;
+
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    public MessagePageResponse() {
+    }
+
+    public MessagePageResponse(List<Message> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<Message> messages) {
+        this.messages = messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bicoChat_backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Delta event published on /topic/presence when the status of a user changes.
+ */
+public class PresenceEvent {
+
+    @JsonProperty("uid")
+    private String uid;
+
+    @JsonProperty("status")
+    private String status;
+
+    public PresenceEvent() {
+    }
+
+    public PresenceEvent(String uid, String status) {
+        this.uid = uid;
+        this.status = status;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public void setUid(String uid) {
+        this.uid = uid;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.bicoChat_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a chat stored under chatMeta/{chatId}: every field of the chat except the messages and the avatar
+ * (which can be a Base64 image), plus the last message preview. It is written together with the chat, with every
+ * change of its fields and with every message that changes the last message, so the chat list never reads chats/.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ChatMeta {
+
+    @JsonProperty("type")
+    private String type; // "individual" or "group"
+
+    @JsonProperty("title")
+    private String title; // The title of a group, or the name of the chat
+
+    @JsonProperty("name")
+    private String name;
+
+    @JsonProperty("description")
+    private String description;
+
+    @JsonProperty("creator")
+    private String creator;
+
+    @JsonProperty("admin")
+    private Map<String, Object> admin;
+
+    @JsonProperty("participants")
+    private List<String> participants;
+
+    @JsonProperty("lastMessage")
+    private String lastMessage;
+
+    @JsonProperty("lastUser")
+    private String lastUser;
+
+    @JsonProperty("lastActivity")
+    private String lastActivity;
+
+    // Empty constructor required by Firebase
+    public ChatMeta() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getCreator() {
+        return creator;
+    }
+
+    public void setCreator(String creator) {
+        this.creator = creator;
+    }
+
+    public Map<String, Object> getAdmin() {
+        return admin;
+    }
+
+    public void setAdmin(Map<String, Object> admin) {
+        this.admin = admin;
+    }
+
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public void setParticipants(List<String> participants) {
+        this.participants = participants;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    public void setLastMessage(String lastMessage) {
+        this.lastMessage = lastMessage;
+    }
+
+    public String getLastUser() {
+        return lastUser;
+    }
+
+    public void setLastUser(String lastUser) {
+        this.lastUser = lastUser;
+    }
+
+    public String getLastActivity() {
+        return lastActivity;
+    }
+
+    public void setLastActivity(String lastActivity) {
+        this.lastActivity = lastActivity;
+    }
+}
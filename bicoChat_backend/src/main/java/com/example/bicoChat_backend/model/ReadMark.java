@@ -0,0 +1,85 @@
+package com.example.bicoChat_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Read watermark of a user in a chat, stored under chatReads/{chatId}/{uid}: the key and the timestamp
+ * of the newest message the user has read, both copied from the stored message. Messages are compared
+ * with it in the order of the message queries (timestamp, then key), so the clock and the format are
+ * always those of the messages.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReadMark {
+
+    @JsonProperty("messageKey")
+    private String messageKey;
+
+    @JsonProperty("timestamp")
+    private String timestamp;
+
+    // Empty constructor required by Firebase
+    public ReadMark() {}
+
+    public ReadMark(String messageKey, String timestamp) {
+        this.messageKey = messageKey;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Converts a stored watermark. Watermarks written before the key was recorded are plain strings
+     * on the server clock and cannot be compared with the message timestamps: they are ignored.
+     *
+     * @param value The value stored under chatReads/{chatId}/{uid}.
+     * @return The watermark, or null if the value is not one.
+     */
+    public static ReadMark from(Object value) {
+        if (!(value instanceof Map<?, ?> map) || !(map.get("timestamp") instanceof String timestamp)) {
+            return null;
+        }
+        Object messageKey = map.get("messageKey");
+        return new ReadMark(messageKey instanceof String ? (String) messageKey : null, timestamp);
+    }
+
+    /**
+     * Tells whether a message is at or before this watermark.
+     *
+     * @param key The key of the message (null if unknown: a message with the same timestamp counts as read).
+     * @param timestamp The stored timestamp of the message.
+     * @return true if the message has been read.
+     */
+    public boolean covers(String key, String timestamp) {
+        int order = timestamp.compareTo(this.timestamp);
+        if (order != 0) {
+            return order < 0;
+        }
+        return key == null || messageKey == null || key.compareTo(messageKey) <= 0;
+    }
+
+    /**
+     * Converts the watermark to the value written under chatReads/{chatId}/{uid}.
+     *
+     * @return The map with the message key and timestamp.
+     */
+    public Map<String, Object> toMap() {
+        return Map.of("messageKey", messageKey, "timestamp", timestamp);
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public void setMessageKey(String messageKey) {
+        this.messageKey = messageKey;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bicoChat_backend.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Partial update of a user document. Each setter records only the path it changes, so applying the
+ * patch writes those fields with one multi-path update instead of setting the whole User back
+ * (with its Base64 avatar and every chat entry), and concurrent patches of different fields do not
+ * overwrite each other.
+ */
+public class UserPatch {
+
+    private final Map<String, Object> changes = new LinkedHashMap<>(); // Path relative to users/{uid} -> value (null deletes)
+
+    public UserPatch firstName(String firstName) {
+        return put("firstName", firstName);
+    }
+
+    public UserPatch lastName(String lastName) {
+        return put("lastName", lastName);
+    }
+
+    public UserPatch username(String username) {
+        return put("username", username);
+    }
+
+    public UserPatch avatar(String avatar) {
+        return put("avatar", avatar);
+    }
+
+    public UserPatch bio(String bio) {
+        return put("bio", bio);
+    }
+
+    public UserPatch status(String status) {
+        return put("status", status);
+    }
+
+    /**
+     * Adds or replaces the entry of a chat in the user's chat list.
+     */
+    public UserPatch chat(String chatId, User.ChatInfo chatInfo) {
+        return put("chatUser/" + chatId, chatInfo);
+    }
+
+    /**
+     * Changes a single field of the entry of a chat in the user's chat list (e.g. unreadCount).
+     */
+    public UserPatch chatField(String chatId, String field, Object value) {
+        return put("chatUser/" + chatId + "/" + field, value);
+    }
+
+    /**
+     * Hides a chat behind a PIN.
+     */
+    public UserPatch hideChat(String chatId, String pin) {
+        Map<String, Object> chatPinInfo = new LinkedHashMap<>();
+        chatPinInfo.put("pin", pin);
+        return put("hiddenChats/" + chatId, chatPinInfo);
+    }
+
+    /**
+     * Makes a hidden chat visible again.
+     */
+    public UserPatch unhideChat(String chatId) {
+        return put("hiddenChats/" + chatId, null);
+    }
+
+    /**
+     * @return true if the patch does not change anything.
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return The changed paths, relative to the user document.
+     */
+    public Map<String, Object> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+
+    /**
+     * Adds the changes of this patch to a multi-path update, under users/{uid}.
+     *
+     * @param updates The multi-path update being built.
+     * @param usersPath The root path of the users.
+     * @param uid The ID of the patched user.
+     */
+    public void putInto(Map<String, Object> updates, String usersPath, String uid) {
+        changes.forEach((path, value) -> updates.put(usersPath + "/" + uid + "/" + path, value));
+    }
+
+    private UserPatch put(String path, Object value) {
+        changes.put(path, value);
+        return this;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.dto.response.ChatSummaryResponse;
+import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.model.ChatMeta;
+import com.example.bicoChat_backend.model.Message;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for the chatMeta/{chatId} index: one small summary node per chat (type, title, name, description,
+ * participants, creator, admins, last message preview and last activity), so the chat list never downloads
+ * the message histories.
+ *
+ * The put* helpers add the chatMeta paths to the multi-path update of the write that changes the chat,
+ * so the index is committed atomically with the chat itself.
+ */
+@Service
+public class ChatMetaService {
+
+    public static final String CHAT_META_PATH = "chatMeta"; // Firebase path of the chat summaries
+
+    // Version of the fields kept in chatMeta; an index written by an older version is rebuilt at startup
+    public static final String CHAT_META_VERSION_PATH = "chatMetaVersion";
+    public static final int CHAT_META_VERSION = 2;
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    // When true, the index is built from the chats at startup if chatMeta does not exist yet or is outdated
+    @Value("${bicochat.chat-meta.backfill:true}")
+    private boolean backfill = true;
+
+    /**
+     * Adds the fields describing the chat itself (everything but the messages and the avatar) to a
+     * multi-path update. The last message fields are left untouched.
+     *
+     * @param updates The multi-path update being built.
+     * @param chatId The ID of the chat.
+     * @param chat The chat.
+     */
+    public static void putChat(Map<String, Object> updates, String chatId, Chat chat) {
+        String metaPath = CHAT_META_PATH + "/" + chatId;
+        updates.put(metaPath + "/type", chat.getType());
+        updates.put(metaPath + "/title", chat.getTitle() != null ? chat.getTitle() : chat.getName());
+        updates.put(metaPath + "/name", chat.getName());
+        updates.put(metaPath + "/description", chat.getDescription());
+        updates.put(metaPath + "/participants", chat.getParticipants());
+        updates.put(metaPath + "/creator", chat.getCreator());
+        updates.put(metaPath + "/admin", chat.getAdmin());
+    }
+
+    /**
+     * Adds a new value of one field of the chat (e.g. "description" or "admin") to a multi-path update.
+     */
+    public static void putField(Map<String, Object> updates, String chatId, String field, Object value) {
+        updates.put(CHAT_META_PATH + "/" + chatId + "/" + field, value);
+    }
+
+    /**
+     * Adds the new participant list of a chat to a multi-path update.
+     */
+    public static void putParticipants(Map<String, Object> updates, String chatId, List<String> participants) {
+        updates.put(CHAT_META_PATH + "/" + chatId + "/participants", participants);
+    }
+
+    /**
+     * Adds the last message preview and the last activity time of a chat to a multi-path update.
+     *
+     * @param updates The multi-path update being built.
+     * @param chatId The ID of the chat.
+     * @param content The content of the last message.
+     * @param sender The sender of the last message.
+     * @param timestamp The timestamp of the last message.
+     */
+    public static void putLastMessage(Map<String, Object> updates, String chatId, String content, String sender, String timestamp) {
+        String metaPath = CHAT_META_PATH + "/" + chatId;
+        updates.put(metaPath + "/lastMessage", content);
+        updates.put(metaPath + "/lastUser", sender);
+        updates.put(metaPath + "/lastActivity", timestamp);
+    }
+
+    /**
+     * Adds the removal of the summary of a deleted chat to a multi-path update.
+     */
+    public static void putDeleted(Map<String, Object> updates, String chatId) {
+        updates.put(CHAT_META_PATH + "/" + chatId, null);
+    }
+
+    /**
+     * Retrieves the summaries of all chats, most recently active first.
+     *
+     * @return A CompletableFuture containing the list of chat summaries.
+     */
+    public CompletableFuture<List<ChatSummaryResponse>> getSummaries() {
+        GenericTypeIndicator<Map<String, ChatMeta>> typeIndicator = new GenericTypeIndicator<Map<String, ChatMeta>>() {};
+
+        return firebaseService.getWithTypeIndicator(CHAT_META_PATH, typeIndicator)
+                .thenApply(metaMap -> {
+                    List<ChatSummaryResponse> summaries = new ArrayList<>();
+                    if (metaMap != null) {
+                        metaMap.forEach((chatId, meta) -> summaries.add(new ChatSummaryResponse(chatId, meta)));
+                    }
+                    summaries.sort(Comparator.comparing(ChatSummaryResponse::getLastActivity,
+                            Comparator.nullsLast(Comparator.reverseOrder())));
+                    return summaries;
+                });
+    }
+
+    /**
+     * Retrieves the summary of a single chat.
+     *
+     * @param chatId The ID of the chat.
+     * @return A CompletableFuture containing the summary, if the chat exists.
+     */
+    public CompletableFuture<Optional<ChatSummaryResponse>> getSummary(String chatId) {
+        return firebaseService.get(CHAT_META_PATH + "/" + chatId, ChatMeta.class)
+                .thenApply(meta -> meta != null ? Optional.of(new ChatSummaryResponse(chatId, meta)) : Optional.empty());
+    }
+
+    /**
+     * Converts a summary back to a chat, without messages and avatar.
+     *
+     * @param meta The summary of the chat.
+     * @return The chat.
+     */
+    public static Chat toChat(ChatMeta meta) {
+        Chat chat = new Chat();
+        chat.setType(meta.getType());
+        chat.setTitle(meta.getTitle());
+        chat.setName(meta.getName());
+        chat.setDescription(meta.getDescription());
+        chat.setParticipants(meta.getParticipants());
+        chat.setCreator(meta.getCreator());
+        chat.setAdmin(meta.getAdmin());
+        return chat;
+    }
+
+    /**
+     * Builds the index for databases created before chatMeta existed, or before it had all the fields of
+     * CHAT_META_VERSION. Runs once at startup and only in those cases, since it has to read every chat with its messages.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfMissing() {
+        if (!backfill) {
+            return;
+        }
+        firebaseService.get(CHAT_META_VERSION_PATH, Long.class)
+                .thenCompose(version -> version != null && version >= CHAT_META_VERSION
+                        ? CompletableFuture.completedFuture(-1) : rebuild())
+                .whenComplete((count, error) -> {
+                    if (error != null) {
+                        System.err.println("[LOG - ChatMetaService] chatMeta backfill failed: " + error.getMessage());
+                    } else if (count >= 0) {
+                        System.out.println("[LOG - ChatMetaService] chatMeta built for " + count + " chats");
+                    }
+                });
+    }
+
+    /**
+     * Rewrites the summary of every chat from the chats node.
+     *
+     * @return A CompletableFuture containing the number of chats indexed.
+     */
+    public CompletableFuture<Integer> rebuild() {
+        GenericTypeIndicator<Map<String, Chat>> typeIndicator = new GenericTypeIndicator<Map<String, Chat>>() {};
+
+        return firebaseService.getWithTypeIndicator("chats", typeIndicator)
+                .thenCompose(chatsMap -> {
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put(CHAT_META_VERSION_PATH, CHAT_META_VERSION);
+                    if (chatsMap == null || chatsMap.isEmpty()) {
+                        return firebaseService.updateMulti(updates).thenApply(v -> 0);
+                    }
+
+                    chatsMap.forEach((chatId, chat) -> {
+                        putChat(updates, chatId, chat);
+
+                        Message last = latestMessage(chat);
+                        if (last != null) {
+                            putLastMessage(updates, chatId, last.getContent(), last.getSender(), last.getTimestamp());
+                        }
+                    });
+                    return firebaseService.updateMulti(updates).thenApply(v -> chatsMap.size());
+                });
+    }
+
+    private static Message latestMessage(Chat chat) {
+        if (chat.getMessages() == null) {
+            return null;
+        }
+        return chat.getMessages().values().stream()
+                .filter(message -> message != null && message.getTimestamp() != null)
+                .max(Comparator.comparing(Message::getTimestamp))
+                .orElse(null);
+    }
+}
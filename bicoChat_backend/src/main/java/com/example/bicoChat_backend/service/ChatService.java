@@ -6,14 +6,21 @@ import com.example.bicoChat_backend.dto.request.RoleUpdateRequest;
 import com.example.bicoChat_backend.dto.response.ChatResponse;
 import com.example.bicoChat_backend.dto.response.MessageUpdateNotification;
 import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.model.ChatMeta;
 import com.example.bicoChat_backend.model.Message;
 import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.model.UserPatch;
+import com.example.bicoChat_backend.service.media.MediaService;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.example.bicoChat_backend.service.storage.ValueMapper;
 import com.google.firebase.database.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -32,6 +39,15 @@ public class ChatService {
     @Autowired
     private UserService userService; // Service for user-related operations
 
+    @Autowired
+    private ParticipantService participantService; // Cached participant lists of the chats
+
+    @Autowired
+    private ReadStateService readStateService; // Read watermarks of the chats
+
+    @Autowired
+    private MediaService mediaService; // Content-addressed storage of the avatars
+
     /**
      * Retrieves all chats from Firebase and returns them as a list of ChatResponse objects.
      *
@@ -42,11 +58,16 @@ public class ChatService {
 
         // Fetching all chats from Firebase and mapping them to ChatResponse objects
         return firebaseService.getWithTypeIndicator(CHATS_PATH, typeIndicator)
-                .thenApply(chatsMap -> {
+                .thenCombine(readStateService.getAllWatermarks(), (chatsMap, watermarks) -> {
                     List<ChatResponse> chatResponseList = new ArrayList<>();
                     if (chatsMap != null) {
                         for (Map.Entry<String, Chat> entry : chatsMap.entrySet()) {
-                            chatResponseList.add(new ChatResponse(entry.getKey(), entry.getValue()));
+                            Chat chat = entry.getValue();
+                            if (chat.getMessages() != null) {
+                                // Read receipts come from the watermarks, not from a flag on each message
+                                ReadStateService.applyReadFlags(chat.getMessages().values(), watermarks.get(entry.getKey()));
+                            }
+                            chatResponseList.add(new ChatResponse(entry.getKey(), chat));
                         }
                     } else {
                         System.out.println("No chats found on Firebase!");
@@ -56,18 +77,40 @@ public class ChatService {
     }
 
     /**
-     * Retrieves a specific chat by its ID.
+     * Retrieves all chats without their messages and avatars, for clients that only need the chat list.
+     * The chats are built from the chatMeta index in a single read, so no message history is downloaded.
+     *
+     * @return A CompletableFuture containing a list of ChatResponse objects whose chats have no messages.
+     */
+    public CompletableFuture<List<ChatResponse>> getChatSummaries() {
+        GenericTypeIndicator<Map<String, ChatMeta>> typeIndicator = new GenericTypeIndicator<Map<String, ChatMeta>>() {};
+
+        return firebaseService.getWithTypeIndicator(ChatMetaService.CHAT_META_PATH, typeIndicator).thenApply(metaMap -> {
+            List<ChatResponse> chatResponseList = new ArrayList<>();
+            if (metaMap != null) {
+                new TreeMap<>(metaMap).forEach((chatId, meta) -> chatResponseList.add(new ChatResponse(chatId, ChatMetaService.toChat(meta))));
+            }
+            return chatResponseList;
+        });
+    }
+
+    /**
+     * Retrieves a specific chat by its ID, without its messages.
+     * The fields of the chat come from its chatMeta summary and the avatar from the chat node, so the
+     * message history is never downloaded; messages are loaded by the message endpoints only.
      *
      * @param chatId The ID of the chat to retrieve.
      * @return A CompletableFuture containing an Optional ChatResponse object, if the chat exists.
      */
     public CompletableFuture<Optional<ChatResponse>> getChatById(String chatId) {
-        return firebaseService.get(CHATS_PATH + "/" + chatId, Chat.class)
-                .thenApply(chat -> {
-                    if (chat != null) {
-                        return Optional.of(new ChatResponse(chatId, chat));
+        return firebaseService.get(ChatMetaService.CHAT_META_PATH + "/" + chatId, ChatMeta.class)
+                .thenCombine(firebaseService.get(CHATS_PATH + "/" + chatId + "/avatar", String.class), (meta, avatar) -> {
+                    if (meta == null) {
+                        return Optional.<ChatResponse>empty();
                     }
-                    return Optional.empty();
+                    Chat chat = ChatMetaService.toChat(meta);
+                    chat.setAvatar(avatar);
+                    return Optional.of(new ChatResponse(chatId, chat));
                 });
     }
 
@@ -80,16 +123,30 @@ public class ChatService {
     public CompletableFuture<ChatResponse> createChat(Chat chat) {
         String chatId = UUID.randomUUID().toString(); // Generate a new unique chat ID
 
-        // Saving the new chat to Firebase
-        return firebaseService.set(CHATS_PATH + "/" + chatId, chat)
+        // Saving the new chat and its summary to Firebase
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(CHATS_PATH + "/" + chatId, chat);
+        putNewChatMeta(updates, chatId, chat);
+
+        return firebaseService.updateMulti(updates)
                 .thenApply(v -> {
                     updateChatReferencesInUserProfiles(chatId, chat); // Update chat references in user profiles
                     return new ChatResponse(chatId, chat);
                 });
     }
 
+    /**
+     * Adds the summary of a chat that has no messages yet to a multi-path update.
+     */
+    private static void putNewChatMeta(Map<String, Object> updates, String chatId, Chat chat) {
+        ChatMetaService.putChat(updates, chatId, chat);
+        ChatMetaService.putLastMessage(updates, chatId, "", "system", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    }
+
     /**
      * Updates the chat references in user profiles for all participants.
+     * Only the profile fields needed to build the entries are read, and the entries of all
+     * participants are written with one multi-path update.
      *
      * @param chatId The ID of the chat.
      * @param chat The chat object.
@@ -97,65 +154,85 @@ public class ChatService {
      */
     private CompletableFuture<Void> updateChatReferencesInUserProfiles(String chatId, Chat chat) {
         List<String> participants = chat.getParticipants();
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        boolean individual = "individual".equals(chat.getType()) && participants.size() == 2;
 
-        // Loop through each participant and update their chat references
+        // The email tells whether the user exists; name and avatar are only shown in individual chats
+        Map<String, CompletableFuture<User>> profiles = new HashMap<>();
         for (String userId : participants) {
-            CompletableFuture<Void> future = userService.getUserById(userId)
-                    .thenCompose(optionalUser -> {
-                        if (optionalUser.isEmpty()) return CompletableFuture.completedFuture(null);
-                        User user = optionalUser.get().getUser();
+            profiles.put(userId, getProfileFields(userId, individual));
+        }
+
+        return CompletableFuture.allOf(profiles.values().toArray(new CompletableFuture[0]))
+                .thenCompose(v -> {
+                    String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+                    Map<String, UserPatch> patches = new HashMap<>();
+
+                    // Loop through each participant and update their chat references
+                    for (String userId : participants) {
+                        if (profiles.get(userId).join() == null) continue;
 
-                        if ("individual".equals(chat.getType()) && participants.size() == 2) {
+                        if (individual) {
                             // For individual chats, update the references to the other participant's info
                             String otherId = participants.stream().filter(id -> !id.equals(userId)).findFirst().orElse(null);
-                            if (otherId != null) {
-                                return userService.getUserById(otherId).thenCompose(optOther -> {
-                                    if (optOther.isEmpty()) return CompletableFuture.completedFuture(null);
-                                    User otherUser = optOther.get().getUser();
-                                    String displayName = otherUser.getUsername() != null ? otherUser.getUsername() : otherUser.getEmail();
-                                    String avatar = otherUser.getAvatar() != null ? otherUser.getAvatar() : null;
-
-                                    User.ChatInfo chatInfo = new User.ChatInfo(
-                                            "", displayName, LocalDateTime.now().toString(), 0, "system",
-                                            displayName, avatar,
-                                            "individual"  // Individual chat type
-                                    );
-
-                                    Map<String, User.ChatInfo> userChats = user.getChatUser();
-                                    if (userChats == null) userChats = new HashMap<>();
-                                    userChats.put(chatId, chatInfo);
-                                    user.setChatUser(userChats);
-
-                                    return firebaseService.set(USERS_PATH + "/" + userId, user);
-                                });
+                            User otherUser = otherId != null ? profiles.get(otherId).join() : null;
+                            if (otherUser != null) {
+                                String displayName = otherUser.getUsername() != null ? otherUser.getUsername() : otherUser.getEmail();
+                                User.ChatInfo chatInfo = new User.ChatInfo(
+                                        "", displayName, now, 0, "system",
+                                        displayName, otherUser.getAvatar(),
+                                        "individual"  // Individual chat type
+                                );
+                                patches.put(userId, new UserPatch().chat(chatId, chatInfo));
+                                continue;
                             }
                         }
 
                         // Fallback for group chats or incomplete chat types
                         String title = chat.getName() != null ? chat.getName() : "Chat";
                         User.ChatInfo chatInfo = new User.ChatInfo(
-                                "", title, LocalDateTime.now().toString(), 0, "system",
+                                "", title, now, 0, "system",
                                 title, null,
                                 "group" // Group chat type
                         );
+                        patches.put(userId, new UserPatch().chat(chatId, chatInfo));
+                    }
 
-                        Map<String, User.ChatInfo> userChats = user.getChatUser();
-                        if (userChats == null) userChats = new HashMap<>();
-                        userChats.put(chatId, chatInfo);
-                        user.setChatUser(userChats);
-
-                        return firebaseService.set(USERS_PATH + "/" + userId, user);
-                    });
-
-            futures.add(future);
-        }
+                    return userService.patchUsers(patches);
+                });
+    }
 
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])); // Wait for all futures to complete
+    /**
+     * Reads the email and, if requested, the username and avatar of a user, without the rest
+     * of the document.
+     *
+     * @return A CompletableFuture with a User holding only those fields, or null if the user does not exist.
+     */
+    private CompletableFuture<User> getProfileFields(String userId, boolean withNameAndAvatar) {
+        String userPath = USERS_PATH + "/" + userId;
+        CompletableFuture<String> email = firebaseService.get(userPath + "/email", String.class);
+        CompletableFuture<String> username = withNameAndAvatar
+                ? firebaseService.get(userPath + "/username", String.class)
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<String> avatar = withNameAndAvatar
+                ? firebaseService.get(userPath + "/avatar", String.class)
+                : CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.allOf(email, username, avatar).thenApply(v -> {
+            if (email.join() == null && username.join() == null) {
+                return null;
+            }
+            User user = new User();
+            user.setEmail(email.join());
+            user.setUsername(username.join());
+            user.setAvatar(avatar.join());
+            return user;
+        });
     }
 
     /**
      * Adds a new message to a specific chat and updates the chat references for the participants.
+     * The message, the chat summary and the summaries of the participants are written in one atomic
+     * multi-path update; the unread counters are incremented afterwards (see incrementUnreadCounts).
      *
      * @param chatId The ID of the chat.
      * @param message The message to add.
@@ -164,86 +241,74 @@ public class ChatService {
     public CompletableFuture<Map.Entry<String, Message>> addMessage(String chatId, Message message) {
         String messageId = UUID.randomUUID().toString(); // Generate a new unique message ID
 
-        // Save the new message in Firebase and update participants' chat references
-        return firebaseService.set(CHATS_PATH + "/" + chatId + "/messages/" + messageId, message)
-                .thenCompose(v -> updateLastMessageForParticipants(chatId, message))
-                .thenApply(v -> new AbstractMap.SimpleEntry<>(messageId, message));
+        return participantService.getParticipants(chatId).thenCompose(participants -> {
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(CHATS_PATH + "/" + chatId + "/messages/" + messageId, message);
+            ChatMetaService.putLastMessage(updates, chatId, message.getContent(), message.getSender(), message.getTimestamp());
+            for (String userId : participants) {
+                String userChatPath = USERS_PATH + "/" + userId + "/chatUser/" + chatId;
+                updates.put(userChatPath + "/lastMessage", message.getContent());
+                updates.put(userChatPath + "/timestamp", message.getTimestamp());
+                updates.put(userChatPath + "/lastUser", message.getSender());
+            }
+
+            return firebaseService.updateMulti(updates)
+                    .thenCompose(v -> incrementUnreadCounts(firebaseService, chatId, participants));
+        }).thenApply(v -> new AbstractMap.SimpleEntry<>(messageId, message));
     }
 
     /**
-     * Updates the last message details for each participant in a chat.
+     * Increments the unread counter of each participant of a chat (including the sender), once the
+     * message is stored. Each counter is its own transaction, so concurrent senders never lose an
+     * increment, but the counters are not part of the update that stored the message: a counter that
+     * fails is only logged, the message is not reported as failed, and the counter is corrected by
+     * UnreadReconciliationService from the read watermarks.
      *
+     * @param firebaseService The service writing the counters.
      * @param chatId The ID of the chat.
-     * @param message The message to update.
-     * @return A CompletableFuture that completes when the updates are done.
+     * @param userIds The participants whose counter is incremented.
+     * @return A CompletableFuture that completes, never exceptionally, when all the increments are done.
      */
-    private CompletableFuture<Void> updateLastMessageForParticipants(String chatId, Message message) {
-        return getChatById(chatId).thenCompose(optionalChat -> {
-            if (optionalChat.isPresent()) {
-                Chat chat = optionalChat.get().getChat();
-                List<CompletableFuture<Void>> futures = new ArrayList<>();
-
-                // Loop through each participant and update their last message info
-                for (String userId : chat.getParticipants()) {
-                    CompletableFuture<Void> future = userService.getUserById(userId)
-                            .thenCompose(optionalUser -> {
-                                if (optionalUser.isPresent()) {
-                                    User user = optionalUser.get().getUser();
-                                    Map<String, User.ChatInfo> userChats = user.getChatUser();
-
-                                    if (userChats != null && userChats.containsKey(chatId)) {
-                                        User.ChatInfo chatInfo = userChats.get(chatId);
-                                        chatInfo.setLastMessage(message.getContent());
-                                        chatInfo.setTimestamp(message.getTimestamp());
-                                        chatInfo.setLastUser(message.getSender());
-
-                                        // Increment unread count for both participants (including the sender)
-                                        chatInfo.setUnreadCount(chatInfo.getUnreadCount() + 1);
-
-                                        userChats.put(chatId, chatInfo);
-                                        user.setChatUser(userChats);
-
-                                        return firebaseService.set(USERS_PATH + "/" + userId, user);
-                                    }
-
-                                }
-                                return CompletableFuture.completedFuture(null);
-                            });
-
-                    futures.add(future);
-                }
-
-                return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])); // Wait for all futures to complete
-            }
-            return CompletableFuture.completedFuture(null);
-        });
+    static CompletableFuture<Void> incrementUnreadCounts(FirebaseService firebaseService, String chatId, Collection<String> userIds) {
+        List<CompletableFuture<Long>> increments = new ArrayList<>();
+        for (String userId : userIds) {
+            increments.add(firebaseService.increment(USERS_PATH + "/" + userId + "/chatUser/" + chatId + "/unreadCount", 1)
+                    .exceptionally(error -> {
+                        System.err.println("[LOG - ChatService] Unread counter of " + userId + " in chat " + chatId
+                                + " not incremented: " + error.getMessage());
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(increments.toArray(new CompletableFuture[0]));
     }
 
     /**
-     * Marks a chat as read for a specific user by resetting the unread count.
+     * Marks a chat as read for a specific user by resetting the unread count
+     * and moving the user's read watermark to the newest message of the chat.
      *
      * @param chatId The ID of the chat to mark as read.
      * @param userId The ID of the user marking the chat as read.
      * @return A CompletableFuture indicating the completion of the operation.
      */
     public CompletableFuture<Void> markChatAsRead(String chatId, String userId) {
-        return userService.getUserById(userId).thenCompose(optionalUser -> {
-            if (optionalUser.isPresent()) {
-                User user = optionalUser.get().getUser();
-                Map<String, User.ChatInfo> userChats = user.getChatUser();
-
-                if (userChats != null && userChats.containsKey(chatId)) {
-                    User.ChatInfo chatInfo = userChats.get(chatId);
-                    chatInfo.setUnreadCount(0);
-                    userChats.put(chatId, chatInfo);
-                    user.setChatUser(userChats);
-
-                    // Update user data in Firebase
-                    return firebaseService.set(USERS_PATH + "/" + userId, user);
-                }
-            }
-            return CompletableFuture.completedFuture(null);
-        });
+        String userChatPath = USERS_PATH + "/" + userId + "/chatUser/" + chatId;
+        // Only the timestamp is read: the entry itself can carry a Base64 avatar
+        return firebaseService.exists(userChatPath + "/timestamp")
+                .thenCombine(readStateService.getNewestMark(chatId), (exists, newest) -> {
+                    if (!exists) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    // Reset the counter and move the read watermark together, so the reconciliation agrees with it.
+                    // The watermark is the newest stored message, on the clock and in the format of the messages.
+                    Map<String, Object> updates = new HashMap<>();
+                    new UserPatch().chatField(chatId, "unreadCount", 0).putInto(updates, USERS_PATH, userId);
+                    if (newest != null) {
+                        ReadStateService.putWatermark(updates, chatId, userId, newest);
+                    }
+                    return firebaseService.updateMulti(updates);
+                })
+                .thenCompose(update -> update);
     }
 
     /**
@@ -268,7 +333,7 @@ public class ChatService {
     public CompletableFuture<Void> updateMessage(String chatId, String messageId, String newContent) {
         String messagePath = CHATS_PATH + "/" + chatId + "/messages/" + messageId;
 
-        return firebaseService.get(messagePath)
+        return firebaseService.getSnapshot(messagePath)
                 .thenCompose(snapshot -> {
                     if (!snapshot.exists()) {
                         return CompletableFuture.failedFuture(new RuntimeException("Message not found"));
@@ -283,13 +348,11 @@ public class ChatService {
                     updates.put("content", newContent);
 
                     // Check if the message is the last message
-                    DatabaseReference messagesRef = FirebaseDatabase.getInstance()
-                            .getReference(CHATS_PATH + "/" + chatId + "/messages");
-
-                    return getSnapshotFromQuery(messagesRef.orderByChild("timestamp").limitToLast(1))
+                    return firebaseService.query(CHATS_PATH + "/" + chatId + "/messages",
+                                    new StorageQuery().orderByChild("timestamp").limitToLast(1))
                             .thenCompose(lastSnapshot -> {
                                 boolean isLastMessage = false;
-                                for (DataSnapshot child : lastSnapshot.getChildren()) {
+                                for (StorageSnapshot child : lastSnapshot.getChildren()) {
                                     if (child.getKey().equals(messageId)) {
                                         isLastMessage = true;
                                         break;
@@ -299,7 +362,7 @@ public class ChatService {
                                 if (isLastMessage) {
                                     // If it is the last message, update the chatUser information for all participants
                                     String chatPath = CHATS_PATH + "/" + chatId;
-                                    return firebaseService.get(chatPath)
+                                    return firebaseService.getSnapshot(chatPath)
                                             .thenCompose(chatSnap -> {
                                                 Map<String, Object> chatData = (Map<String, Object>) chatSnap.getValue();
                                                 List<String> participants = (List<String>) chatData.get("participants");
@@ -312,6 +375,8 @@ public class ChatService {
                                                     patch.put(userChatPath + "/timestamp", timestamp);
                                                 }
 
+                                                ChatMetaService.putLastMessage(patch, chatId, newContent, senderId, timestamp);
+
                                                 // Add update to the message content as well
                                                 patch.put(messagePath + "/content", newContent);
 
@@ -350,7 +415,7 @@ public class ChatService {
         String messagePath = CHATS_PATH + "/" + chatId + "/messages/" + messageId;
 
         // 1. Retrieve the message
-        return firebaseService.get(messagePath)
+        return firebaseService.getSnapshot(messagePath)
                 .thenCompose(snapshot -> {
                     if (!snapshot.exists()) {
                         return CompletableFuture.failedFuture(new RuntimeException("Message not found"));
@@ -380,14 +445,12 @@ public class ChatService {
                     updates.put("deleted", true);
 
                     // 3. Check if it is the last message
-                    DatabaseReference messagesRef = FirebaseDatabase.getInstance()
-                            .getReference(CHATS_PATH + "/" + chatId + "/messages");
-
-                    return getSnapshotFromQuery(messagesRef.orderByChild("timestamp").limitToLast(1))
+                    return firebaseService.query(CHATS_PATH + "/" + chatId + "/messages",
+                                    new StorageQuery().orderByChild("timestamp").limitToLast(1))
                             .thenCompose(lastSnapshot -> {
                                 boolean isLastMessage = false;
 
-                                for (DataSnapshot child : lastSnapshot.getChildren()) {
+                                for (StorageSnapshot child : lastSnapshot.getChildren()) {
                                     if (child.getKey().equals(messageId)) {
                                         isLastMessage = true;
                                         break;
@@ -397,7 +460,7 @@ public class ChatService {
                                 if (isLastMessage) {
                                     // 4. Retrieve participants to update `chatUser`
                                     String chatPath = CHATS_PATH + "/" + chatId;
-                                    return firebaseService.get(chatPath)
+                                    return firebaseService.getSnapshot(chatPath)
                                             .thenCompose(chatSnap -> {
                                                 Map<String, Object> chatData = (Map<String, Object>) chatSnap.getValue();
                                                 List<String> participants = (List<String>) chatData.get("participants");
@@ -410,6 +473,8 @@ public class ChatService {
                                                     patch.put(userChatPath + "/timestamp", timestamp);
                                                 }
 
+                                                ChatMetaService.putLastMessage(patch, chatId, "Message deleted", senderId, timestamp);
+
                                                 // Apply soft delete + update chatUser information
                                                 updates.forEach((k, v) -> patch.put(messagePath + "/" + k, v));
                                                 return firebaseService.patch(patch).thenRun(() -> {
@@ -437,24 +502,6 @@ public class ChatService {
     }
 
 
-    private CompletableFuture<DataSnapshot> getSnapshotFromQuery(Query query) {
-        CompletableFuture<DataSnapshot> future = new CompletableFuture<>();
-
-        query.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                future.complete(snapshot);
-            }
-
-            @Override
-            public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(error.toException());
-            }
-        });
-
-        return future;
-    }
-
     public CompletableFuture<ChatResponse> createIndividualChatIfNotExists(String user1Id, String user2Id, String initialMessage) {
         List<String> participants = Arrays.asList(user1Id, user2Id);
         Collections.sort(participants);
@@ -462,11 +509,11 @@ public class ChatService {
         String chatId = participants.get(0) + "_" + participants.get(1);
         System.out.println("🔍 Checking if chat already exists with ID: " + chatId);
 
-        return firebaseService.get(CHATS_PATH + "/" + chatId, Chat.class)
+        return getChatById(chatId)
                 .thenCompose(existingChat -> {
-                    if (existingChat != null) {
+                    if (existingChat.isPresent()) {
                         System.out.println("✅ Chat already exists: " + chatId);
-                        return CompletableFuture.completedFuture(new ChatResponse(chatId, existingChat));
+                        return CompletableFuture.completedFuture(existingChat.get());
                     }
 
                     System.out.println("🚀 Creating new chat with ID: " + chatId);
@@ -474,7 +521,11 @@ public class ChatService {
                     chat.setParticipants(participants);
                     chat.setType("individual");
 
-                    return firebaseService.set(CHATS_PATH + "/" + chatId, chat)
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put(CHATS_PATH + "/" + chatId, chat);
+                    putNewChatMeta(updates, chatId, chat);
+
+                    return firebaseService.updateMulti(updates)
                             .thenCompose(v -> {
                                 System.out.println("📦 Chat saved to Firebase: " + chatId);
                                 return updateChatReferencesInUserProfiles(chatId, chat);
@@ -485,7 +536,7 @@ public class ChatService {
                                 Message message = new Message();
                                 message.setSender(user1Id);
                                 message.setContent(initialMessage);
-                                message.setTimestamp(LocalDateTime.now().toString());
+                                message.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
                                 message.setRead(false);
 
                                 return addMessage(chatId, message)
@@ -499,6 +550,17 @@ public class ChatService {
 
 
     public CompletableFuture<Void> createGroupChat(CreateGroupRequest request) {
+        if (request.getAvatar() == null) {
+            return saveGroupChat(request);
+        }
+        // The avatar is stored in the chat and in every participant's chat entry: offload it first
+        return mediaService.offload(request.getAvatar()).thenCompose(avatar -> {
+            request.setAvatar(avatar);
+            return saveGroupChat(request);
+        });
+    }
+
+    private CompletableFuture<Void> saveGroupChat(CreateGroupRequest request) {
         String chatId = UUID.randomUUID().toString();
         List<String> participants = new ArrayList<>(request.getParticipants());
         String creatorId = request.getCreatorId();
@@ -519,7 +581,7 @@ public class ChatService {
             chatData.put("avatar", request.getAvatar());
         }
 
-        String timestamp = LocalDateTime.now().toString();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
         // Costruzione del primo messaggio
         String firstMessageId = UUID.randomUUID().toString();
@@ -533,6 +595,7 @@ public class ChatService {
         // PRIMA: salva chat + chatUser
         Map<String, Object> firstBatch = new HashMap<>();
         firstBatch.put("chats/" + chatId, chatData);
+        ChatMetaService.putChat(firstBatch, chatId, ValueMapper.convert(chatData, Chat.class));
 
         for (String uid : participants) {
             User.ChatInfo info = new User.ChatInfo(
@@ -553,354 +616,253 @@ public class ChatService {
                 .thenCompose(aVoid -> {
                     Map<String, Object> secondBatch = new HashMap<>();
                     secondBatch.put("chats/" + chatId + "/messages/" + firstMessageId, firstMessage);
+                    ChatMetaService.putLastMessage(secondBatch, chatId, request.getInitialMessage(), creatorId, timestamp);
                     return firebaseService.updateMulti(secondBatch);
                 });
     }
 
-    public void updateGroupInfo(String chatId, GroupUpdateRequest request) {
-        DatabaseReference chatRef = firebaseService.getDatabaseReference()
-                .child("chats")
-                .child(chatId);
-
-        chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    throw new IllegalArgumentException("Chat non trovata.");
-                }
-
-                String type = snapshot.child("type").getValue(String.class);
-                if (!"group".equals(type)) {
-                    throw new IllegalArgumentException("Solo le chat di gruppo possono essere modificate.");
-                }
-
-                String creator = snapshot.child("creator").getValue(String.class);
-                Map<String, Object> adminMap = (Map<String, Object>) snapshot.child("admin").getValue();
-
-                String requesterId = request.getRequesterId();
-                boolean isAdmin = requesterId != null && (
-                        requesterId.equals(creator) ||
-                                (adminMap != null && adminMap.containsValue(requesterId))
-                );
+    /**
+     * Updates the title, description and avatar of a group in the chat, in its summary and in the chat
+     * entries of the participants, as one multi-path update. A Base64 avatar is moved to the media store first.
+     *
+     * @param chatId The ID of the group chat.
+     * @param request The fields to update (null fields are left unchanged) and the ID of the requester.
+     * @return A CompletableFuture completed once the group is updated; it fails with IllegalArgumentException
+     *         if the chat is not a group, and with SecurityException if the requester is not an admin.
+     */
+    public CompletableFuture<Void> updateGroupInfo(String chatId, GroupUpdateRequest request) {
+        if (request.getAvatar() == null) {
+            return saveGroupInfo(chatId, request);
+        }
+        return mediaService.offload(request.getAvatar()).thenCompose(avatar -> {
+            request.setAvatar(avatar);
+            return saveGroupInfo(chatId, request);
+        });
+    }
 
-                if (!isAdmin) {
-                    throw new SecurityException("Permesso negato.");
-                }
+    private CompletableFuture<Void> saveGroupInfo(String chatId, GroupUpdateRequest request) {
+        return getGroupChat(chatId, "Solo le chat di gruppo possono essere modificate.").thenCompose(chat -> {
+            if (!isGroupAdmin(chat, request.getRequesterId())) {
+                throw new SecurityException("Permesso negato.");
+            }
 
-                // Aggiorna i campi nel nodo chats/{chatId}
-                Map<String, Object> updates = new HashMap<>();
-                List<String> updatedFields = new ArrayList<>();
-                if (request.getTitle() != null) {
-                    updates.put("title", request.getTitle());
-                    updatedFields.add("title");
-                }
-                if (request.getDescription() != null) {
-                    updates.put("description", request.getDescription());
-                    updatedFields.add("description");
-                }
-                if (request.getAvatar() != null) {
-                    updates.put("avatar", request.getAvatar());
-                    updatedFields.add("avatar");
+            // Aggiorna i campi nel nodo chats/{chatId}, nel chatMeta e nel chatUser di ogni partecipante
+            String chatPath = CHATS_PATH + "/" + chatId;
+            Map<String, Object> updates = new HashMap<>();
+            List<String> updatedFields = new ArrayList<>();
+            if (request.getTitle() != null) {
+                updates.put(chatPath + "/title", request.getTitle());
+                ChatMetaService.putField(updates, chatId, "title", request.getTitle());
+                updatedFields.add("title");
+            }
+            if (request.getDescription() != null) {
+                updates.put(chatPath + "/description", request.getDescription());
+                ChatMetaService.putField(updates, chatId, "description", request.getDescription());
+                updatedFields.add("description");
+            }
+            if (request.getAvatar() != null) {
+                updates.put(chatPath + "/avatar", request.getAvatar());
+                updatedFields.add("avatar");
+            }
+            if (chat.getParticipants() != null) {
+                for (String uid : chat.getParticipants()) {
+                    String userChatPath = USERS_PATH + "/" + uid + "/chatUser/" + chatId;
+                    if (request.getTitle() != null) updates.put(userChatPath + "/title", request.getTitle());
+                    if (request.getAvatar() != null) updates.put(userChatPath + "/avatar", request.getAvatar());
                 }
+            }
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
 
-                chatRef.updateChildrenAsync(updates).addListener(() -> {
-                    // Dopo l'aggiornamento del gruppo, aggiorna chatUser per ogni partecipante
-                    chatRef.child("participants").addListenerForSingleValueEvent(new ValueEventListener() {
-                        @Override
-                        public void onDataChange(DataSnapshot snapshot) {
-                            if (!snapshot.exists()) return;
-
-                            List<String> participantIds = new ArrayList<>();
-                            snapshot.getChildren().forEach(child -> {
-                                String uid = child.getValue(String.class);
-                                if (uid != null) participantIds.add(uid);
-                            });
-
-                            for (String uid : participantIds) {
-                                DatabaseReference userChatRef = firebaseService.getDatabaseReference()
-                                        .child("users")
-                                        .child(uid)
-                                        .child("chatUser")
-                                        .child(chatId);
-
-                                Map<String, Object> userChatUpdates = new HashMap<>();
-                                if (request.getTitle() != null) userChatUpdates.put("title", request.getTitle());
-                                if (request.getAvatar() != null) userChatUpdates.put("avatar", request.getAvatar());
-
-                                userChatRef.updateChildrenAsync(userChatUpdates);
-                            }
-
-                            // ✅ Notifica WebSocket solo dopo aver aggiornato tutti i nodi
-                            Map<String, Object> updateNotification = new HashMap<>();
-                            updateNotification.put("chatId", chatId);
-                            updateNotification.put("fieldsUpdated", updatedFields);
-
-                            messagingTemplate.convertAndSend("/topic/chats", updateNotification);
-                        }
+            return firebaseService.updateMulti(updates).thenRun(() -> {
+                // Notifica WebSocket solo dopo aver aggiornato tutti i nodi
+                Map<String, Object> updateNotification = new HashMap<>();
+                updateNotification.put("chatId", chatId);
+                updateNotification.put("fieldsUpdated", updatedFields);
 
-                        @Override
-                        public void onCancelled(DatabaseError error) {
-                            System.err.println("Errore nel recupero dei partecipanti: " + error.getMessage());
-                        }
-                    });
-                }, Runnable::run);
-            }
+                messagingTemplate.convertAndSend("/topic/chats", updateNotification);
+            });
+        });
+    }
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                throw new RuntimeException("Errore Firebase: " + error.getMessage());
+    /**
+     * Reads a group chat, without its messages.
+     *
+     * @param chatId The ID of the chat.
+     * @param notGroupMessage The message of the exception if the chat is not a group.
+     * @return A CompletableFuture with the chat; it fails with IllegalArgumentException if the chat does not exist or is not a group.
+     */
+    private CompletableFuture<Chat> getGroupChat(String chatId, String notGroupMessage) {
+        return getChatById(chatId).thenApply(response -> {
+            Chat chat = response.map(ChatResponse::getChat)
+                    .orElseThrow(() -> new IllegalArgumentException("Chat non trovata."));
+            if (!"group".equals(chat.getType())) {
+                throw new IllegalArgumentException(notGroupMessage);
             }
+            return chat;
         });
     }
 
-    public void updateUserRole(String chatId, RoleUpdateRequest request) {
-        DatabaseReference chatRef = firebaseService.getDatabaseReference()
-                .child("chats")
-                .child(chatId);
-
-        chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    throw new IllegalArgumentException("Chat non trovata.");
-                }
-
-                String type = snapshot.child("type").getValue(String.class);
-                if (!"group".equals(type)) {
-                    throw new IllegalArgumentException("Solo le chat di gruppo possono essere modificate.");
-                }
+    private static boolean isGroupAdmin(Chat chat, String userId) {
+        return userId != null && (userId.equals(chat.getCreator())
+                || (chat.getAdmin() != null && chat.getAdmin().containsValue(userId)));
+    }
 
-                String creator = snapshot.child("creator").getValue(String.class);
-                String requesterId = request.getRequesterId();
-                String targetUserId = request.getTargetUserId();
-                String newRole = request.getNewRole();
+    /**
+     * Promotes a member of a group to admin, or demotes an admin to member. Only the creator can manage the roles.
+     *
+     * @param chatId The ID of the group chat.
+     * @param request The target user, the new role ("admin" or "member") and the ID of the requester.
+     * @return A CompletableFuture completed once the admins are updated; it fails with IllegalArgumentException
+     *         if the chat is not a group or the role is not valid, and with SecurityException if the requester is not the creator.
+     */
+    public CompletableFuture<Void> updateUserRole(String chatId, RoleUpdateRequest request) {
+        return getGroupChat(chatId, "Solo le chat di gruppo possono essere modificate.").thenCompose(chat -> {
+            String targetUserId = request.getTargetUserId();
+            String newRole = request.getNewRole();
 
-                if (!Objects.equals(requesterId, creator)) {
-                    throw new SecurityException("Solo il creatore può gestire i ruoli.");
-                }
+            if (!Objects.equals(request.getRequesterId(), chat.getCreator())) {
+                throw new SecurityException("Solo il creatore può gestire i ruoli.");
+            }
 
-                DataSnapshot adminSnapshot = snapshot.child("admin");
-                Map<String, Object> updatedAdminMap = new HashMap<>();
-                if (adminSnapshot.exists()) {
-                    for (DataSnapshot entry : adminSnapshot.getChildren()) {
-                        updatedAdminMap.put(entry.getKey(), entry.getValue());
-                    }
-                }
+            Map<String, Object> updatedAdminMap = chat.getAdmin() != null ? new HashMap<>(chat.getAdmin()) : new HashMap<>();
 
-                // ⚙️ Promozione o rimozione
-                if ("admin".equals(newRole)) {
-                    // Aggiungi targetUserId alla mappa se non già presente
-                    if (!updatedAdminMap.containsValue(targetUserId)) {
-                        updatedAdminMap.put(UUID.randomUUID().toString(), targetUserId);
-                    }
-                } else if ("member".equals(newRole)) {
-                    // Rimuovi targetUserId dalla mappa admin
-                    updatedAdminMap.entrySet().removeIf(entry -> Objects.equals(entry.getValue(), targetUserId));
-                } else {
-                    throw new IllegalArgumentException("Ruolo non valido: " + newRole);
+            // ⚙️ Promozione o rimozione
+            if ("admin".equals(newRole)) {
+                // Aggiungi targetUserId alla mappa se non già presente
+                if (!updatedAdminMap.containsValue(targetUserId)) {
+                    updatedAdminMap.put(UUID.randomUUID().toString(), targetUserId);
                 }
-
-                Map<String, Object> updatePayload = new HashMap<>();
-                updatePayload.put("admin", updatedAdminMap);
-
-                chatRef.updateChildrenAsync(updatePayload);
+            } else if ("member".equals(newRole)) {
+                // Rimuovi targetUserId dalla mappa admin
+                updatedAdminMap.entrySet().removeIf(entry -> Objects.equals(entry.getValue(), targetUserId));
+            } else {
+                throw new IllegalArgumentException("Ruolo non valido: " + newRole);
             }
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                throw new RuntimeException("Errore Firebase: " + error.getMessage());
-            }
+            Map<String, Object> updates = new HashMap<>();
+            updates.put(CHATS_PATH + "/" + chatId + "/admin", updatedAdminMap);
+            ChatMetaService.putField(updates, chatId, "admin", updatedAdminMap);
+            return firebaseService.updateMulti(updates);
         });
     }
 
-    public void removeUserFromGroup(String chatId, String targetUserId, String requesterId) {
-        DatabaseReference chatRef = firebaseService.getDatabaseReference()
-                .child("chats")
-                .child(chatId);
-
-        chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    throw new IllegalArgumentException("Chat non trovata.");
-                }
-
-                String type = snapshot.child("type").getValue(String.class);
-                if (!"group".equals(type)) {
-                    throw new IllegalArgumentException("Operazione valida solo per gruppi.");
-                }
-
-                String creator = snapshot.child("creator").getValue(String.class);
-                List<String> participants = new ArrayList<>();
-                snapshot.child("participants").getChildren().forEach(p -> {
-                    String id = p.getValue(String.class);
-                    if (id != null) participants.add(id);
-                });
-
-                Map<String, Object> adminMap = new HashMap<>();
-                snapshot.child("admin").getChildren().forEach(a -> {
-                    adminMap.put(a.getKey(), a.getValue(String.class));
-                });
+    /**
+     * Removes a user from a group, or lets a member leave it. The creator can remove anyone, an admin
+     * only the members; the creator cannot be removed.
+     *
+     * @param chatId The ID of the group chat.
+     * @param targetUserId The ID of the user to remove.
+     * @param requesterId The ID of the user making the request.
+     * @return A CompletableFuture completed once the user is removed; it fails with IllegalArgumentException
+     *         if the chat is not a group, and with SecurityException if the requester cannot remove the user.
+     */
+    public CompletableFuture<Void> removeUserFromGroup(String chatId, String targetUserId, String requesterId) {
+        return getGroupChat(chatId, "Operazione valida solo per gruppi.").thenCompose(chat -> {
+            String creator = chat.getCreator();
+            List<String> participants = chat.getParticipants() != null ? chat.getParticipants() : Collections.emptyList();
+            Map<String, Object> adminMap = chat.getAdmin() != null ? new HashMap<>(chat.getAdmin()) : new HashMap<>();
+
+            // ❌ Non si può rimuovere il creatore
+            if (targetUserId.equals(creator)) {
+                throw new SecurityException("Non è possibile rimuovere il creatore.");
+            }
 
-                boolean isRequesterCreator = requesterId.equals(creator);
-                boolean isRequesterAdmin = adminMap.containsValue(requesterId);
+            // 🔒 Controlli permessi
+            if (!requesterId.equals(targetUserId)) {
                 boolean isTargetAdmin = adminMap.containsValue(targetUserId);
-
-                // ❌ Non si può rimuovere il creatore
-                if (targetUserId.equals(creator)) {
-                    throw new SecurityException("Non è possibile rimuovere il creatore.");
-                }
-
-                // 🔒 Controlli permessi
-                if (!requesterId.equals(targetUserId)) {
-                    if (isRequesterCreator) {
-                        System.out.println("[DEBUG] Il creatore ha autorizzazione implicita per rimuovere utenti.");
-                    } else if (isRequesterAdmin && !isTargetAdmin) {
-                        System.out.println("[DEBUG] L'admin ha autorizzazione per rimuovere un membro.");
-                    } else {
-                        throw new SecurityException("Non hai i permessi per rimuovere questo utente.");
-                    }
-                }
-
-                // Se il target è il creatore che sta uscendo, elimina tutta la chat
-                if (targetUserId.equals(creator) && requesterId.equals(creator)) {
-                    Map<String, Object> deleteMap = new HashMap<>();
-                    deleteMap.put("chats/" + chatId, null);
-                    for (String uid : participants) {
-                        deleteMap.put("users/" + uid + "/chatUser/" + chatId, null);
-                    }
-                    firebaseService.updateMulti(deleteMap);
-                    messagingTemplate.convertAndSend("/topic/chats", Map.of("chatId", chatId));
-                    return;
+                if (!requesterId.equals(creator) && !(adminMap.containsValue(requesterId) && !isTargetAdmin)) {
+                    throw new SecurityException("Non hai i permessi per rimuovere questo utente.");
                 }
+            }
 
-                // Altrimenti: rimozione utente dal gruppo
-                Map<String, Object> updates = new HashMap<>();
-
-                // Aggiorna nodo chat → rimuovi da participants
-                List<String> updatedParticipants = new ArrayList<>(participants);
-                updatedParticipants.remove(targetUserId);
-                updates.put("chats/" + chatId + "/participants", updatedParticipants);
+            Map<String, Object> updates = new HashMap<>();
 
-                // Aggiorna nodo chat → rimuovi da admin se presente
-                adminMap.entrySet().removeIf(e -> e.getValue().equals(targetUserId));
-                updates.put("chats/" + chatId + "/admin", adminMap);
+            // Aggiorna nodo chat → rimuovi da participants
+            List<String> updatedParticipants = new ArrayList<>(participants);
+            updatedParticipants.remove(targetUserId);
+            updates.put("chats/" + chatId + "/participants", updatedParticipants);
+            ChatMetaService.putParticipants(updates, chatId, updatedParticipants);
 
-                // Rimuovi nodo utente
-                updates.put("users/" + targetUserId + "/chatUser/" + chatId, null);
+            // Aggiorna nodo chat → rimuovi da admin se presente
+            adminMap.entrySet().removeIf(e -> Objects.equals(e.getValue(), targetUserId));
+            updates.put("chats/" + chatId + "/admin", adminMap);
+            ChatMetaService.putField(updates, chatId, "admin", adminMap);
 
-                firebaseService.updateMulti(updates);
-                messagingTemplate.convertAndSend("/topic/chats", Map.of("chatId", chatId));
-            }
+            // Rimuovi nodo utente
+            updates.put("users/" + targetUserId + "/chatUser/" + chatId, null);
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                throw new RuntimeException("Errore Firebase: " + error.getMessage());
-            }
+            return firebaseService.updateMulti(updates)
+                    .thenRun(() -> messagingTemplate.convertAndSend("/topic/chats", Map.of("chatId", chatId)));
         });
     }
 
-    public void deleteGroupChat(String chatId, String requesterId) {
-        DatabaseReference chatRef = firebaseService.getDatabaseReference()
-                .child("chats")
-                .child(chatId);
-
-        chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    throw new IllegalArgumentException("Chat non trovata.");
-                }
-
-                String type = snapshot.child("type").getValue(String.class);
-                if (!"group".equals(type)) {
-                    throw new IllegalArgumentException("Solo le chat di gruppo possono essere eliminate.");
-                }
-
-                String creator = snapshot.child("creator").getValue(String.class);
-                if (!creator.equals(requesterId)) {
-                    throw new SecurityException("Solo il creatore può eliminare il gruppo.");
-                }
-
-                List<String> participants = new ArrayList<>();
-                snapshot.child("participants").getChildren().forEach(p -> {
-                    String id = p.getValue(String.class);
-                    if (id != null) participants.add(id);
-                });
+    /**
+     * Deletes a group with the chat entries of its participants. Only the creator can delete it.
+     *
+     * @param chatId The ID of the group chat.
+     * @param requesterId The ID of the user making the request.
+     * @return A CompletableFuture completed once the group is deleted; it fails with IllegalArgumentException
+     *         if the chat is not a group, and with SecurityException if the requester is not the creator.
+     */
+    public CompletableFuture<Void> deleteGroupChat(String chatId, String requesterId) {
+        return getGroupChat(chatId, "Solo le chat di gruppo possono essere eliminate.").thenCompose(chat -> {
+            if (!Objects.equals(chat.getCreator(), requesterId)) {
+                throw new SecurityException("Solo il creatore può eliminare il gruppo.");
+            }
 
-                Map<String, Object> deleteMap = new HashMap<>();
-                deleteMap.put("chats/" + chatId, null);
-                for (String uid : participants) {
+            Map<String, Object> deleteMap = new HashMap<>();
+            deleteMap.put("chats/" + chatId, null);
+            ChatMetaService.putDeleted(deleteMap, chatId);
+            if (chat.getParticipants() != null) {
+                for (String uid : chat.getParticipants()) {
                     deleteMap.put("users/" + uid + "/chatUser/" + chatId, null);
                 }
-
-                firebaseService.updateMulti(deleteMap);
             }
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                throw new RuntimeException("Errore Firebase: " + error.getMessage());
-            }
+            return firebaseService.updateMulti(deleteMap);
         });
     }
 
-    public void addUserToGroup(String chatId, String newUserId, String requesterId) {
-        DatabaseReference chatRef = firebaseService.getDatabaseReference()
-                .child("chats")
-                .child(chatId);
-
-        chatRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) throw new IllegalArgumentException("Gruppo non trovato.");
-
-                String type = snapshot.child("type").getValue(String.class);
-                if (!"group".equals(type)) throw new IllegalArgumentException("Non è un gruppo.");
-
-                String creator = snapshot.child("creator").getValue(String.class);
-                Map<String, Object> adminMap = new HashMap<>();
-                snapshot.child("admin").getChildren().forEach(a -> {
-                    adminMap.put(a.getKey(), a.getValue(String.class));
-                });
-
-                boolean isAdmin = requesterId.equals(creator) || adminMap.containsValue(requesterId);
-                if (!isAdmin) throw new SecurityException("Non hai i permessi.");
-
-                List<String> currentParticipants = new ArrayList<>();
-                snapshot.child("participants").getChildren().forEach(p -> {
-                    String uid = p.getValue(String.class);
-                    if (uid != null) currentParticipants.add(uid);
-                });
-
-                if (currentParticipants.contains(newUserId)) {
-                    throw new IllegalArgumentException("Utente già nel gruppo.");
-                }
-
-                currentParticipants.add(newUserId);
+    /**
+     * Adds a user to a group and creates their chat entry. Only the creator and the admins can add users.
+     *
+     * @param chatId The ID of the group chat.
+     * @param newUserId The ID of the user to add.
+     * @param requesterId The ID of the user making the request.
+     * @return A CompletableFuture completed once the user is added; it fails with IllegalArgumentException
+     *         if the chat is not a group or the user is already in it, and with SecurityException if the requester is not an admin.
+     */
+    public CompletableFuture<Void> addUserToGroup(String chatId, String newUserId, String requesterId) {
+        return getGroupChat(chatId, "Non è un gruppo.").thenCompose(chat -> {
+            if (!isGroupAdmin(chat, requesterId)) throw new SecurityException("Non hai i permessi.");
+
+            List<String> currentParticipants = chat.getParticipants() != null
+                    ? new ArrayList<>(chat.getParticipants()) : new ArrayList<>();
+            if (currentParticipants.contains(newUserId)) {
+                throw new IllegalArgumentException("Utente già nel gruppo.");
+            }
 
-                Map<String, Object> updates = new HashMap<>();
-                updates.put("chats/" + chatId + "/participants", currentParticipants);
+            currentParticipants.add(newUserId);
 
-                // Aggiorna nodo utente
-                String title = snapshot.child("title").getValue(String.class);
-                String avatar = snapshot.child("avatar").getValue(String.class);
-                String now = LocalDateTime.now().toString();
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("chats/" + chatId + "/participants", currentParticipants);
+            ChatMetaService.putParticipants(updates, chatId, currentParticipants);
 
-                User.ChatInfo info = new User.ChatInfo(
-                        "", title != null ? title : "Group", now, 0, "system",
-                        title != null ? title : "Group", avatar,
-                        "group" // 👈 aggiunto
-                );
+            // Aggiorna nodo utente
+            String title = chat.getTitle();
+            String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
-                updates.put("users/" + newUserId + "/chatUser/" + chatId, info);
+            User.ChatInfo info = new User.ChatInfo(
+                    "", title != null ? title : "Group", now, 0, "system",
+                    title != null ? title : "Group", chat.getAvatar(),
+                    "group" // 👈 aggiunto
+            );
 
-                firebaseService.updateMulti(updates);
-            }
+            updates.put("users/" + newUserId + "/chatUser/" + chatId, info);
 
-            @Override
-            public void onCancelled(DatabaseError error) {
-                throw new RuntimeException("Errore Firebase: " + error.getMessage());
-            }
+            return firebaseService.updateMulti(updates);
         });
     }
 
@@ -912,6 +874,7 @@ public class ChatService {
                     List<CompletableFuture<Void>> deletes = new ArrayList<>();
 
                     deletes.add(firebaseService.delete("chats/" + chatId));
+                    deletes.add(firebaseService.delete(ChatMetaService.CHAT_META_PATH + "/" + chatId));
 
                     for (String uid : participants) {
                         String userChatPath = String.format("users/%s/chatUser/%s", uid, chatId);
@@ -0,0 +1,70 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.service.cache.SyncedValueCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves user IDs to display names by reading only users/{uid}/username.
+ * Names are kept in a bounded in-memory cache; each cached name is followed by a listener
+ * on its username child, so a renamed user is picked up without reloading the users node.
+ */
+@Service
+public class DisplayNameResolver {
+
+    private final SyncedValueCache<String> usernameCache;
+
+    @Autowired
+    public DisplayNameResolver(FirebaseService firebaseService,
+                               @Value("${bicochat.cache.usernames.max-size:10000}") int maxSize) {
+        this.usernameCache = new SyncedValueCache<>(
+                firebaseService.getStorageBackend(),
+                uid -> "users/" + uid + "/username",
+                snapshot -> snapshot.getValue(String.class),
+                maxSize);
+    }
+
+    /**
+     * Resolves the display name of a single user.
+     *
+     * @param uid The user ID.
+     * @return A CompletableFuture with the username, or null if the user has none.
+     */
+    public CompletableFuture<String> resolve(String uid) {
+        return usernameCache.get(uid);
+    }
+
+    /**
+     * Resolves the display names of several users in parallel.
+     *
+     * @param uids The user IDs.
+     * @return A CompletableFuture with a map from user ID to username (users without a name are left out).
+     */
+    public CompletableFuture<Map<String, String>> resolveAll(Collection<String> uids) {
+        Map<String, CompletableFuture<String>> futures = new HashMap<>();
+        for (String uid : new LinkedHashSet<>(uids)) {
+            if (uid != null && !uid.isBlank()) {
+                futures.put(uid, resolve(uid));
+            }
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<String, String> names = new HashMap<>();
+                    futures.forEach((uid, future) -> {
+                        String name = future.join();
+                        if (name != null) {
+                            names.put(uid, name);
+                        }
+                    });
+                    return names;
+                });
+    }
+}
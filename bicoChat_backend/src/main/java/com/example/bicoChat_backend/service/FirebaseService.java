@@ -2,36 +2,196 @@ package com.example.bicoChat_backend.service;
 
 import com.google.firebase.auth.UserRecord;
 import com.google.firebase.database.*;
+import com.example.bicoChat_backend.service.batch.WriteBatcher;
+import com.example.bicoChat_backend.service.metrics.StorageMetrics;
+import com.example.bicoChat_backend.service.storage.FirebaseStorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * FirebaseService class provides methods to interact with Firebase Realtime Database.
  * It includes functions for getting, setting, updating, deleting, and listening to data changes in Firebase.
+ * Concurrent reads of the same path are coalesced into a single Firebase round trip.
+ *
+ * The path-based operations go through a StorageBackend (see bicochat.storage.type), which is Firebase
+ * by default and can be an in-memory or JPA store. The methods taking or returning Firebase types
+ * (getDatabaseReference, get(path) as DataSnapshot, query(Query), listenToUsersChanges) only work with
+ * the Firebase backend; the services use the path-based operations only.
+ * The bean is registered by FirebaseCacheConfig, as this class or as CachingFirebaseService.
  */
-@Service
 public class FirebaseService {
 
     private final DatabaseReference databaseReference;
+    private final StorageBackend storageBackend;
+
+    // Single-value reads currently waiting for Firebase, by path
+    private final ConcurrentHashMap<String, CompletableFuture<StorageSnapshot>> inFlightReads = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedReads = new AtomicLong();
+
+    // Opt-in write batching: 0 = every write is sent on its own
+    @Value("${bicochat.firebase.write-batch.window-ms:0}")
+    private long writeBatchWindowMs = 0;
+
+    @Value("${bicochat.firebase.write-batch.max-ops:100}")
+    private int writeBatchMaxOps = 100;
+
+    private WriteBatcher writeBatcher; // null when batching is disabled
+
+    @Autowired(required = false)
+    private StorageMetrics storageMetrics; // null when built outside Spring (e.g. in unit tests)
+
+    /**
+     * Where the futures returned by this service are completed (and so where their continuations run):
+     * false = directly on the Firebase SDK event thread, true = on a new virtual thread per callback,
+     * so slow continuations do not hold up the delivery of every other Firebase event.
+     */
+    @Value("${bicochat.firebase.callbacks-on-virtual-threads:${spring.threads.virtual.enabled:false}}")
+    private boolean callbacksOnVirtualThreads = false;
+
+    private Executor callbackExecutor = Runnable::run;
 
-    @Autowired
     public FirebaseService(DatabaseReference databaseReference) {
+        this(databaseReference, new FirebaseStorageBackend(databaseReference));
+    }
+
+    /**
+     * @param databaseReference The Firebase root, for the methods that need Firebase itself (null if there is none).
+     * @param storageBackend The store behind the path-based operations.
+     */
+    public FirebaseService(@Nullable DatabaseReference databaseReference, StorageBackend storageBackend) {
         this.databaseReference = databaseReference;
+        this.storageBackend = storageBackend;
+    }
+
+    /**
+     * Creates a service without Firebase, e.g. on an InMemoryStorageBackend for tests and benchmarks.
+     *
+     * @param storageBackend The store behind the path-based operations.
+     */
+    public FirebaseService(StorageBackend storageBackend) {
+        this(null, storageBackend);
+    }
+
+    /**
+     * Sets up the callback executor and, when bicochat.firebase.write-batch.window-ms is greater than 0,
+     * the write batcher.
+     */
+    @PostConstruct
+    public void initExecution() {
+        if (callbacksOnVirtualThreads) {
+            callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            System.out.println("[LOG - FirebaseService] Firebase callbacks handed off to virtual threads");
+        }
+        if (storageMetrics != null) {
+            storageMetrics.registerCoalescedReads(this, FirebaseService::getCoalescedReadCount);
+        }
+        initWriteBatcher();
+    }
+
+    private void initWriteBatcher() {
+        if (writeBatchWindowMs > 0) {
+            writeBatcher = new WriteBatcher(this::sendMulti, writeBatchWindowMs, writeBatchMaxOps);
+            System.out.println("[LOG - FirebaseService] Write batching enabled (window: " + writeBatchWindowMs
+                    + " ms, max ops: " + writeBatchMaxOps + ")");
+        }
+    }
+
+    /**
+     * Commits the writes still buffered by the batcher, then shuts down the callback executor
+     * (after the batcher, whose last writes may still complete on it).
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (writeBatcher != null) {
+            writeBatcher.shutdown();
+        }
+        if (callbackExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Returns the executor on which Firebase callbacks continue (the SDK event thread itself by default).
+     *
+     * @return The callback Executor.
+     */
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * Wraps a listener so that its callbacks run on the callback executor instead of the SDK event thread.
+     * Meant for single-value listeners doing slow work; listeners of ordered event streams
+     * (e.g. child events) should not be wrapped, since the executor does not preserve their order.
+     *
+     * @param listener The listener to wrap.
+     * @return A listener that hands every callback off to the callback executor.
+     */
+    public ValueEventListener offEventThread(ValueEventListener listener) {
+        return new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                callbackExecutor.execute(() -> listener.onDataChange(snapshot));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                callbackExecutor.execute(() -> listener.onCancelled(error));
+            }
+        };
+    }
+
+    /**
+     * Returns the write batcher, or null when batching is disabled.
+     *
+     * @return The WriteBatcher in use.
+     */
+    public WriteBatcher getWriteBatcher() {
+        return writeBatcher;
     }
 
     /**
      * Returns the Firebase Database reference object for direct access.
      *
-     * @return Firebase DatabaseReference.
+     * @return Firebase DatabaseReference, or null when the storage backend is not Firebase.
      */
     public DatabaseReference getDatabaseReference() {
         return databaseReference;
     }
 
+    /**
+     * Returns the store behind the path-based operations.
+     *
+     * @return The StorageBackend in use.
+     */
+    public StorageBackend getStorageBackend() {
+        return storageBackend;
+    }
+
     /**
      * Get data from Firebase at the specified path and convert to the given type.
      *
@@ -41,21 +201,7 @@ public class FirebaseService {
      * @return CompletableFuture with the result.
      */
     public <T> CompletableFuture<T> get(String path, Class<T> valueType) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-
-        databaseReference.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                future.complete(dataSnapshot.getValue(valueType));
-            }
-
-            @Override
-            public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(error.toException());
-            }
-        });
-
-        return future;
+        return continueOnCallbackExecutor(readOnce(path), snapshot -> snapshot.getValue(valueType));
     }
 
     /**
@@ -67,17 +213,18 @@ public class FirebaseService {
      * @return CompletableFuture that completes when the operation is done.
      */
     public <T> CompletableFuture<Void> set(String path, T value) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+        return write(StorageMetrics.SET, path, value);
+    }
 
-        databaseReference.child(path).setValue(value, (error, ref) -> {
-            if (error != null) {
-                future.completeExceptionally(error.toException());
-            } else {
-                future.complete(null);
+    private CompletableFuture<Void> write(String operation, String path, Object value) {
+        return measured(operation, path, value, () -> {
+            forgetInFlightReads(Collections.singleton(path));
+            if (writeBatcher != null) {
+                return writeBatcher.write(Collections.singletonMap(normalizePath(path), value));
             }
-        });
 
-        return future;
+            return completeOnCallbackExecutor(storageBackend.set(path, value));
+        });
     }
 
     /**
@@ -87,21 +234,7 @@ public class FirebaseService {
      * @return CompletableFuture with boolean result indicating existence.
      */
     public CompletableFuture<Boolean> exists(String path) {
-        CompletableFuture<Boolean> future = new CompletableFuture<>();
-
-        databaseReference.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                future.complete(dataSnapshot.exists());
-            }
-
-            @Override
-            public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(error.toException());
-            }
-        });
-
-        return future;
+        return continueOnCallbackExecutor(readOnce(path), StorageSnapshot::exists);
     }
 
     /**
@@ -112,17 +245,17 @@ public class FirebaseService {
      * @return CompletableFuture that completes when the operation is done.
      */
     public CompletableFuture<Void> update(String path, Map<String, Object> updates) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-
-        databaseReference.child(path).updateChildren(updates, (error, ref) -> {
-            if (error != null) {
-                future.completeExceptionally(error.toException());
-            } else {
-                future.complete(null);
+        return measured(StorageMetrics.UPDATE, path, updates, () -> {
+            forgetInFlightReads(Collections.singleton(path));
+            if (writeBatcher != null) {
+                String base = normalizePath(path);
+                Map<String, Object> absolute = new LinkedHashMap<>();
+                updates.forEach((key, value) -> absolute.put(base.isEmpty() ? normalizePath(key) : base + "/" + normalizePath(key), value));
+                return writeBatcher.write(absolute);
             }
-        });
 
-        return future;
+            return completeOnCallbackExecutor(storageBackend.update(path, updates));
+        });
     }
 
     /**
@@ -132,7 +265,7 @@ public class FirebaseService {
      * @return CompletableFuture that completes when the operation is done.
      */
     public CompletableFuture<Void> delete(String path) {
-        return set(path, null);
+        return write(StorageMetrics.DELETE, path, null);
     }
 
     /**
@@ -144,22 +277,7 @@ public class FirebaseService {
      * @return CompletableFuture with the result.
      */
     public <T> CompletableFuture<T> getWithTypeIndicator(String path, GenericTypeIndicator<T> typeIndicator) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-
-        databaseReference.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot dataSnapshot) {
-                T value = dataSnapshot.getValue(typeIndicator);
-                future.complete(value);
-            }
-
-            @Override
-            public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(error.toException());
-            }
-        });
-
-        return future;
+        return continueOnCallbackExecutor(readOnce(path), snapshot -> snapshot.getValue(typeIndicator));
     }
 
     /**
@@ -169,18 +287,53 @@ public class FirebaseService {
      * @return CompletableFuture that completes when the operation is done.
      */
     public CompletableFuture<Void> updateMulti(Map<String, Object> updates) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+        Supplier<CompletableFuture<Void>> call = () -> {
+            if (writeBatcher != null) {
+                forgetInFlightReads(updates.keySet());
+                Map<String, Object> normalized = new LinkedHashMap<>();
+                updates.forEach((key, value) -> normalized.put(normalizePath(key), value));
+                return writeBatcher.write(normalized);
+            }
+            return sendMulti(updates);
+        };
+        if (storageMetrics == null) {
+            return call.get();
+        }
+        String pathTag = storageMetrics.pathTag(updates.keySet());
+        storageMetrics.recordPayload(StorageMetrics.UPDATE_MULTI, pathTag, updates);
+        return storageMetrics.record(StorageMetrics.UPDATE_MULTI, pathTag, call);
+    }
 
-        // Use the updateChildren method to apply updates to multiple paths simultaneously
-        databaseReference.updateChildren(updates, (error, ref) -> {
-            if (error != null) {
-                future.completeExceptionally(error.toException());
-            } else {
-                future.complete(null);
+    /**
+     * Sends a multi-path update to Firebase right away.
+     *
+     * @param updates Map of updates to apply.
+     * @return CompletableFuture that completes when the operation is done.
+     */
+    private CompletableFuture<Void> sendMulti(Map<String, Object> updates) {
+        // Also called by the batcher: reads issued while the batch was buffered must not be joined after it is sent
+        forgetInFlightReads(updates.keySet());
+        // All the paths are applied atomically by the backend
+        return completeOnCallbackExecutor(storageBackend.updateMulti(updates));
+    }
+
+    /**
+     * Atomically adds a delta to the numeric value at the given path, using a transaction.
+     * Concurrent increments of the same path are never lost; a missing value counts as 0.
+     *
+     * @param path Firebase database path.
+     * @param delta Amount to add (can be negative).
+     * @return CompletableFuture with the value after the increment.
+     */
+    public CompletableFuture<Long> increment(String path, long delta) {
+        return measured(StorageMetrics.INCREMENT, path, null, () -> {
+            forgetInFlightReads(Collections.singleton(path));
+            if (writeBatcher != null) {
+                writeBatcher.flush(); // Buffered writes (e.g. a reset of the same counter) must reach Firebase first
             }
-        });
 
-        return future;
+            return completeOnCallbackExecutor(storageBackend.increment(path, delta));
+        });
     }
 
     /**
@@ -209,9 +362,102 @@ public class FirebaseService {
      * @return CompletableFuture with the DataSnapshot result.
      */
     public CompletableFuture<DataSnapshot> get(String path) {
+        return continueOnCallbackExecutor(readOnce(path), StorageSnapshot::toDataSnapshot);
+    }
+
+    /**
+     * Retrieves data at the given path as a StorageSnapshot, whatever the backend.
+     *
+     * @param path Database path.
+     * @return CompletableFuture with the snapshot of the path.
+     */
+    public CompletableFuture<StorageSnapshot> getSnapshot(String path) {
+        return continueOnCallbackExecutor(readOnce(path), snapshot -> snapshot);
+    }
+
+    /**
+     * Runs an ordered query on the children of a path once, whatever the backend.
+     *
+     * @param path Database path of the parent.
+     * @param query Ordering, range and limit.
+     * @return CompletableFuture with the snapshot of the parent, holding the matching children in query order.
+     */
+    public CompletableFuture<StorageSnapshot> query(String path, StorageQuery query) {
+        return continueOnCallbackExecutor(measuredRead(StorageMetrics.QUERY, path, () -> storageBackend.query(path, query)), snapshot -> snapshot);
+    }
+
+    /**
+     * Listens to the value at a path, whatever the backend. The listener gets the current value first,
+     * then every change, on the event thread of the backend.
+     *
+     * @param path Database path.
+     * @param listener The listener.
+     * @return The registration, to remove the listener.
+     */
+    public StorageBackend.Registration listen(String path, StorageBackend.ValueListener listener) {
+        return storageBackend.addValueListener(path, listener);
+    }
+
+    /**
+     * Listens to the children of a path, whatever the backend.
+     *
+     * @param path Database path of the parent.
+     * @param listener The listener.
+     * @return The registration, to remove the listener.
+     */
+    public StorageBackend.Registration listenToChildren(String path, StorageBackend.ChildListener listener) {
+        return storageBackend.addChildListener(path, listener);
+    }
+
+    /**
+     * Runs an action once, after the listeners already attached on a path have received the current data
+     * (the backends deliver events in order, so the first value of a listener attached now comes after them),
+     * as addListenerForSingleValueEvent does on Firebase.
+     *
+     * @param path Database path the other listeners are attached to.
+     * @param action The action, run on the event thread of the backend, also if the read fails.
+     */
+    public void afterInitialEvents(String path, Runnable action) {
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<StorageBackend.Registration> registration = new AtomicReference<>();
+        StorageBackend.ValueListener listener = new StorageBackend.ValueListener() {
+            @Override
+            public void onValue(StorageSnapshot snapshot) {
+                finish();
+            }
+
+            @Override
+            public void onError(Exception error) {
+                System.err.println("[LOG - FirebaseService] Error on /" + path + ": " + error.getMessage());
+                finish();
+            }
+
+            private void finish() {
+                if (done.compareAndSet(false, true)) {
+                    action.run();
+                }
+                StorageBackend.Registration current = registration.get();
+                if (current != null) {
+                    current.remove();
+                }
+            }
+        };
+        registration.set(storageBackend.addValueListener(path, listener));
+        if (done.get()) {
+            registration.get().remove(); // The value came before the registration was returned
+        }
+    }
+
+    /**
+     * Runs a query (e.g. orderByChild + limitToLast) once and returns its result.
+     *
+     * @param query The Firebase query.
+     * @return CompletableFuture with the DataSnapshot of the matching children.
+     */
+    public CompletableFuture<DataSnapshot> query(Query query) {
         CompletableFuture<DataSnapshot> future = new CompletableFuture<>();
 
-        databaseReference.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot dataSnapshot) {
                 future.complete(dataSnapshot);
@@ -223,9 +469,153 @@ public class FirebaseService {
             }
         });
 
+        return continueOnCallbackExecutor(future, dataSnapshot -> dataSnapshot);
+    }
+
+    /**
+     * Returns how many reads were served by joining an identical read already in flight.
+     *
+     * @return Number of coalesced reads since startup.
+     */
+    public long getCoalescedReadCount() {
+        return coalescedReads.get();
+    }
+
+    /**
+     * Applies a function to the result of a Firebase future on the callback executor.
+     * On the event thread a plain thenApply is used: thenApplyAsync with a direct executor would
+     * nest the completion of every dependent, and a read shared by many callers would overflow the stack.
+     *
+     * @param future The Firebase future.
+     * @param function The function to apply.
+     * @return CompletableFuture with the result of the function.
+     */
+    protected <T, U> CompletableFuture<U> continueOnCallbackExecutor(CompletableFuture<T> future, Function<T, U> function) {
+        return callbacksOnVirtualThreads ? future.thenApplyAsync(function, callbackExecutor) : future.thenApply(function);
+    }
+
+    /**
+     * Completes a future of the backend on the callback executor, like the Firebase write callbacks.
+     *
+     * @param backendFuture The future returned by the backend.
+     * @return A future completed with the same outcome on the callback executor.
+     */
+    private <T> CompletableFuture<T> completeOnCallbackExecutor(CompletableFuture<T> backendFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        backendFuture.whenComplete(completer(future));
+        return future;
+    }
+
+    private <T> BiConsumer<T, Throwable> completer(CompletableFuture<T> future) {
+        return (value, error) -> callbackExecutor.execute(() -> {
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                future.complete(value);
+            }
+        });
+    }
+
+    /**
+     * Runs an operation under the metrics (see StorageMetrics), if there are any.
+     *
+     * @param payload The value written, recorded as the payload size (null for none).
+     */
+    private <T> CompletableFuture<T> measured(String operation, String path, Object payload, Supplier<CompletableFuture<T>> call) {
+        if (storageMetrics == null) {
+            return call.get();
+        }
+        String pathTag = storageMetrics.pathTag(path);
+        if (payload != null) {
+            storageMetrics.recordPayload(operation, pathTag, payload);
+        }
+        return storageMetrics.record(operation, pathTag, call);
+    }
+
+    /**
+     * Runs a read of the backend under the metrics, recording the size of what was read.
+     */
+    private CompletableFuture<StorageSnapshot> measuredRead(String operation, String path, Supplier<CompletableFuture<StorageSnapshot>> call) {
+        if (storageMetrics == null) {
+            return call.get();
+        }
+        String pathTag = storageMetrics.pathTag(path);
+        CompletableFuture<StorageSnapshot> future = storageMetrics.record(operation, pathTag, call);
+        if (!storageMetrics.isRecordingPayloads()) {
+            return future;
+        }
+        return future.thenApply(snapshot -> {
+            storageMetrics.recordPayload(operation, pathTag, snapshot.getValue());
+            return snapshot;
+        });
+    }
+
+    private static String normalizePath(String path) {
+        String normalized = path;
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * Reads the given path once. Concurrent reads of the same path share a single
+     * backend read: only the first caller goes to the database, the others join its future.
+     * A read only joins a request that is still pending, never one that has already completed,
+     * and never one issued before a write to the same path, an ancestor or a descendant (see forgetInFlightReads).
+     *
+     * @param path Firebase database path.
+     * @return CompletableFuture with the snapshot, shared by all the callers of this round trip.
+     */
+    private CompletableFuture<StorageSnapshot> readOnce(String path) {
+        String key = normalizePath(path);
+        CompletableFuture<StorageSnapshot> future = new CompletableFuture<>();
+        CompletableFuture<StorageSnapshot> inFlight = inFlightReads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            coalescedReads.incrementAndGet();
+            return inFlight;
+        }
+
+        measuredRead(StorageMetrics.GET, path, () -> storageBackend.read(path)).whenComplete((snapshot, error) -> {
+            inFlightReads.remove(key, future); // Later reads start a new round trip
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                future.complete(snapshot); // Callers continue on the callback executor (see continueOnCallbackExecutor)
+            }
+        });
+
         return future;
     }
 
+    /**
+     * Stops sharing the pending reads that overlap the written paths, so a read issued after a write never
+     * joins a round trip that started before it. The pending reads still complete for their own callers.
+     *
+     * @param writtenPaths The paths about to be written.
+     */
+    private void forgetInFlightReads(Collection<String> writtenPaths) {
+        if (inFlightReads.isEmpty()) {
+            return;
+        }
+        for (String writtenPath : writtenPaths) {
+            String written = normalizePath(writtenPath);
+            inFlightReads.keySet().removeIf(read -> overlaps(read, written));
+        }
+    }
+
+    private static boolean overlaps(String path, String other) {
+        if (path.isEmpty() || other.isEmpty() || path.equals(other)) {
+            return true;
+        }
+        return path.length() > other.length()
+                ? path.startsWith(other) && path.charAt(other.length()) == '/'
+                : other.startsWith(path) && other.charAt(path.length()) == '/';
+    }
+
     /**
      * Initializes a user in Firebase if they do not already exist.
      *
@@ -233,30 +623,25 @@ public class FirebaseService {
      */
     public void initializeUserIfMissing(UserRecord userRecord) {
         String uid = userRecord.getUid();
-        DatabaseReference userRef = databaseReference.child("users/" + uid);
-
-        userRef.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(DataSnapshot snapshot) {
-                if (!snapshot.exists()) {
-                    Map<String, Object> userData = getStringObjectMap(userRecord);
-                    userData.put("email", userRecord.getEmail());
-                    userRef.setValueAsync(userData);
-                    System.out.println("User created on Realtime DB: " + uid);
-                } else {
-                    String dbEmail = snapshot.child("email").getValue(String.class);
-                    String authEmail = userRecord.getEmail();
-                    if (authEmail != null && (dbEmail == null || !authEmail.equals(dbEmail))) {
-                        userRef.child("email").setValueAsync(authEmail);
-                    }
-                    System.out.println("User already present on Realtime DB: " + uid);
-                }
+        String userPath = "users/" + uid;
+
+        getSnapshot(userPath).thenCompose(snapshot -> {
+            if (!snapshot.exists()) {
+                Map<String, Object> userData = getStringObjectMap(userRecord);
+                userData.put("email", userRecord.getEmail());
+                System.out.println("User created on Realtime DB: " + uid);
+                return set(userPath, userData);
             }
-
-            @Override
-            public void onCancelled(DatabaseError error) {
-                System.err.println("Error during user handling: " + error.getMessage());
+            System.out.println("User already present on Realtime DB: " + uid);
+            String dbEmail = snapshot.child("email").getValue(String.class);
+            String authEmail = userRecord.getEmail();
+            if (authEmail != null && (dbEmail == null || !authEmail.equals(dbEmail))) {
+                return set(userPath + "/email", authEmail);
             }
+            return CompletableFuture.<Void>completedFuture(null);
+        }).exceptionally(error -> {
+            System.err.println("Error during user handling: " + error.getMessage());
+            return null;
         });
     }
 
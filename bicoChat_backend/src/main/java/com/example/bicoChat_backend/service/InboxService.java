@@ -0,0 +1,171 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.dto.response.InboxEntryResponse;
+import com.example.bicoChat_backend.dto.response.InboxPageResponse;
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.inbox.UserInbox;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for the per-user chat inbox. The first request for a user attaches a child listener on
+ * users/{uid}/chatUser and a value listener on users/{uid}/hiddenChats; from then on the user's
+ * UserInbox is updated incrementally by the storage backend and pages are served from memory, without
+ * reading the data of any other user. The least recently used inboxes are dropped (and their
+ * listeners removed) when more than max-users inboxes are kept.
+ */
+@Service
+public class InboxService {
+
+    private static final String USERS_PATH = "users";
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Value("${bicochat.inbox.max-users:10000}")
+    private int maxUsers = 10000;
+
+    private final LinkedHashMap<String, Listened> inboxes = new LinkedHashMap<>(16, 0.75f, true); // Access order, for LRU eviction
+
+    /**
+     * Retrieves one page of the chats of a user, most recent first, hidden chats excluded.
+     *
+     * @param userId The ID of the user.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of chats in the page.
+     * @return A CompletableFuture containing the page and the cursor of the next one (null on the last page).
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public CompletableFuture<InboxPageResponse> getInbox(String userId, String cursor, int limit) {
+        String[] position = cursor != null ? PageCursor.decode(cursor) : new String[]{null, null};
+
+        return inboxOf(userId).thenApply(inbox -> {
+            List<Map.Entry<String, User.ChatInfo>> entries = inbox.page(position[0], position[1], limit);
+
+            // One entry more than the limit means there is a next page
+            String nextCursor = null;
+            if (entries.size() > limit) {
+                entries = entries.subList(0, limit);
+                Map.Entry<String, User.ChatInfo> last = entries.get(limit - 1);
+                nextCursor = PageCursor.encode(last.getValue().getTimestamp(), last.getKey());
+            }
+
+            List<InboxEntryResponse> chats = new ArrayList<>();
+            entries.forEach(entry -> chats.add(new InboxEntryResponse(entry.getKey(), entry.getValue())));
+            return new InboxPageResponse(chats, nextCursor);
+        });
+    }
+
+    /**
+     * @return The number of inboxes currently kept in memory.
+     */
+    public int size() {
+        synchronized (inboxes) {
+            return inboxes.size();
+        }
+    }
+
+    private CompletableFuture<UserInbox> inboxOf(String userId) {
+        Listened listened;
+        synchronized (inboxes) {
+            listened = inboxes.get(userId);
+            if (listened == null) {
+                listened = new Listened();
+                inboxes.put(userId, listened);
+                attach(userId, listened);
+                evictIfNeeded();
+            }
+        }
+        return listened.ready;
+    }
+
+    private void attach(String userId, Listened listened) {
+        String userPath = USERS_PATH + "/" + userId;
+
+        listened.chatRegistration = firebaseService.listenToChildren(userPath + "/chatUser", new StorageBackend.ChildListener() {
+            @Override
+            public void onChildAdded(StorageSnapshot child) {
+                listened.inbox.put(child.getKey(), child.getValue(User.ChatInfo.class));
+            }
+
+            @Override
+            public void onChildChanged(StorageSnapshot child) {
+                listened.inbox.put(child.getKey(), child.getValue(User.ChatInfo.class));
+            }
+
+            @Override
+            public void onChildRemoved(StorageSnapshot child) {
+                listened.inbox.remove(child.getKey());
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fail(userId, listened, error);
+            }
+        });
+
+        listened.hiddenRegistration = firebaseService.listen(userPath + "/hiddenChats", new StorageBackend.ValueListener() {
+            @Override
+            public void onValue(StorageSnapshot snapshot) {
+                Set<String> hidden = new HashSet<>();
+                snapshot.getChildren().forEach(child -> hidden.add(child.getKey()));
+                listened.inbox.setHiddenChats(hidden);
+                listened.hiddenLoaded.complete(null);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fail(userId, listened, error);
+            }
+        });
+
+        // Marks the end of the initial load, once the existing chats have been added
+        firebaseService.afterInitialEvents(userPath + "/chatUser",
+                () -> listened.hiddenLoaded.thenRun(() -> listened.ready.complete(listened.inbox)));
+    }
+
+    private void fail(String userId, Listened listened, Exception error) {
+        System.err.println("[LOG - InboxService] Error on users/" + userId + ": " + error.getMessage());
+        listened.ready.completeExceptionally(error);
+        synchronized (inboxes) {
+            if (inboxes.remove(userId, listened)) {
+                listened.detach();
+            }
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Listened>> it = inboxes.entrySet().iterator();
+        while (inboxes.size() > maxUsers && it.hasNext()) {
+            Listened eldest = it.next().getValue();
+            it.remove();
+            eldest.detach();
+        }
+    }
+
+    /**
+     * Inbox of a user together with the listeners that keep it up to date.
+     */
+    private static class Listened {
+        private final UserInbox inbox = new UserInbox();
+        private final CompletableFuture<Void> hiddenLoaded = new CompletableFuture<>();
+        private final CompletableFuture<UserInbox> ready = new CompletableFuture<>();
+        private volatile StorageBackend.Registration chatRegistration;
+        private volatile StorageBackend.Registration hiddenRegistration;
+
+        private void detach() {
+            if (chatRegistration != null) {
+                chatRegistration.remove();
+            }
+            if (hiddenRegistration != null) {
+                hiddenRegistration.remove();
+            }
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.bicoChat_backend.service;
 
+import com.example.bicoChat_backend.dto.response.MessagePageResponse;
 import com.example.bicoChat_backend.dto.response.MessageResponse;
 import com.example.bicoChat_backend.model.Message;
-import com.google.firebase.database.GenericTypeIndicator;
+import com.example.bicoChat_backend.service.media.MediaService;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
@@ -27,9 +30,21 @@ public class MessageService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private ParticipantService participantService;
+
+    @Autowired
+    private DisplayNameResolver displayNameResolver;
+
+    @Autowired
+    private ReadStateService readStateService;
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private MediaService mediaService;
+
     /**
      * Retrieves all messages from a given chat.
      *
@@ -81,17 +96,17 @@ public class MessageService {
     }
 
     /**
-     * Retrieves all messages from a chat, sorted by timestamp.
+     * Retrieves all messages from a chat, sorted by timestamp, with the read flags taken from the read watermarks.
      *
      * @param chatId the chat ID
      * @return a CompletableFuture containing a list of Message objects
      */
     public CompletableFuture<List<Message>> getMessagesByChatId(String chatId) {
         return chatService.getMessagesMap(chatId)
-                .thenApply(messagesMap -> {
-                    if (messagesMap == null) return Collections.emptyList();
+                .thenCombine(readStateService.getWatermarks(chatId), (messagesMap, watermarks) -> {
+                    if (messagesMap == null) return Collections.<Message>emptyList();
 
-                    return messagesMap.entrySet().stream()
+                    List<Message> messages = messagesMap.entrySet().stream()
                             .map(entry -> {
                                 Message message = entry.getValue();
                                 message.setId(entry.getKey());
@@ -99,11 +114,62 @@ public class MessageService {
                             })
                             .sorted(Comparator.comparing(Message::getTimestamp))
                             .collect(Collectors.toList());
+                    ReadStateService.applyReadFlags(messages, watermarks); // After the IDs: equal timestamps are ordered by key
+                    return messages;
                 });
     }
 
+    /**
+     * Retrieves one page of the message history of a chat, ordered by timestamp.
+     * Only the requested page is downloaded: the query uses orderByChild("timestamp") with limitToLast,
+     * and endAt(timestamp, key) of the cursor for the older pages.
+     *
+     * @param chatId the chat ID
+     * @param cursor the nextCursor of the previous page, or null for the latest messages
+     * @param pageSize the maximum number of messages in the page
+     * @return a CompletableFuture containing the messages (oldest first) and the cursor of the older page
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public CompletableFuture<MessagePageResponse> getMessagesPage(String chatId, String cursor, int pageSize) {
+        StorageQuery query = new StorageQuery().orderByChild("timestamp");
+
+        String[] position = cursor != null ? PageCursor.decode(cursor) : null;
+        if (position != null) {
+            // endAt is inclusive: the message of the cursor comes back too and is dropped below
+            query.endAt(position[0], position[1]).limitToLast(pageSize + 2);
+        } else {
+            query.limitToLast(pageSize + 1);
+        }
+
+        String messagesPath = CHATS_PATH + "/" + chatId + "/messages";
+        return firebaseService.query(messagesPath, query).thenCombine(readStateService.getWatermarks(chatId), (snapshot, watermarks) -> {
+            List<Message> messages = new ArrayList<>();
+            for (StorageSnapshot child : snapshot.getChildren()) {
+                if (position != null && position[1].equals(child.getKey())) {
+                    continue;
+                }
+                Message message = child.getValue(Message.class);
+                if (message != null) {
+                    message.setId(child.getKey());
+                    messages.add(message);
+                }
+            }
+
+            // One message more than the page means there are older messages
+            String nextCursor = null;
+            if (messages.size() > pageSize) {
+                messages = new ArrayList<>(messages.subList(messages.size() - pageSize, messages.size()));
+                nextCursor = PageCursor.encode(messages.get(0).getTimestamp(), messages.get(0).getId());
+            }
+            ReadStateService.applyReadFlags(messages, watermarks);
+            return new MessagePageResponse(messages, nextCursor);
+        });
+    }
+
     /**
      * Sends a new message to a chat and updates the chat participants with the latest message details.
+     * The message and every participant's chatUser summary are committed in a single multi-path update;
+     * the unread counters are then incremented atomically, one transaction per participant, all in parallel.
      *
      * @param chatId the chat ID
      * @param message the message to be sent
@@ -114,73 +180,73 @@ public class MessageService {
         String timestamp = message.getTimestamp();
         String content = message.getContent();
         String sender = message.getSender();
-        String image = message.getImage(); // new field
-
-        CompletableFuture<Void> saveMessageFuture =
-                firebaseService.set("chats/" + chatId + "/messages/" + messageId, message);
-
-        GenericTypeIndicator<List<String>> typeIndicator = new GenericTypeIndicator<>() {};
-        CompletableFuture<List<String>> participantsFuture =
-                firebaseService.getWithTypeIndicator("chats/" + chatId + "/participants", typeIndicator);
-
-        CompletableFuture<Map<String, Map<String, Object>>> usersFuture =
-                firebaseService.getWithTypeIndicator("users", new GenericTypeIndicator<>() {});
-
-        return CompletableFuture.allOf(saveMessageFuture, participantsFuture, usersFuture)
-                .thenCompose(ignore -> {
-                    List<String> participants = participantsFuture.join();
-                    Map<String, Map<String, Object>> usersMap = usersFuture.join();
-
-                    List<CompletableFuture<Void>> updates = new ArrayList<>();
 
+        // A Base64 image is moved to the media store first, so the message only keeps its reference
+        CompletableFuture<String> imageFuture = message.getImage() != null
+                ? mediaService.offload(message.getImage())
+                : CompletableFuture.completedFuture(null);
+
+        return imageFuture
+                .thenCompose(image -> {
+                    message.setImage(image);
+                    return participantService.getParticipants(chatId);
+                })
+                .thenCompose(participants -> {
+                    // Only individual chats are named after the other participant
+                    CompletableFuture<Map<String, String>> namesFuture = participants.size() == 2
+                            ? displayNameResolver.resolveAll(participants)
+                            : CompletableFuture.completedFuture(Collections.emptyMap());
+                    return namesFuture.thenApply(names -> Map.entry(participants, names));
+                })
+                .thenCompose(resolved -> {
+                    List<String> participants = resolved.getKey();
+                    Map<String, String> names = resolved.getValue();
+
+                    Map<String, Object> updates = new HashMap<>();
+                    updates.put(CHATS_PATH + "/" + chatId + "/messages/" + messageId, message);
+
+                    ChatMetaService.putLastMessage(updates, chatId, content, sender, timestamp);
+
+                    List<String> recipients = new ArrayList<>();
                     for (String uid : participants) {
                         if (uid == null || uid.isBlank()) continue;
-
-                        String userChatPath = String.format("users/%s/chatUser/%s", uid, chatId);
-                        String unreadCountPath = String.format("users/%s/chatUser/%s/unreadCount", uid, chatId);
+                        recipients.add(uid);
 
                         String name = "Chat";
                         if (participants.size() == 2) {
                             String otherId = participants.stream().filter(p -> !p.equals(uid)).findFirst().orElse(null);
-                            if (otherId != null && usersMap.containsKey(otherId)) {
-                                name = (String) usersMap.get(otherId).get("username");
+                            if (otherId != null && names.containsKey(otherId)) {
+                                name = names.get(otherId);
                             }
                         }
 
-                        Map<String, Object> chatUserUpdate = new HashMap<>();
-                        chatUserUpdate.put("name", name);
-                        chatUserUpdate.put("lastMessage", content);
-                        chatUserUpdate.put("lastUser", sender);
-                        chatUserUpdate.put("timestamp", timestamp);
-
-                        CompletableFuture<Void> updateFuture = firebaseService.get(unreadCountPath, Long.class)
-                                .thenCompose(currentUnread -> {
-                                    long newCount = (currentUnread != null) ? currentUnread + 1 : 1;
-                                    chatUserUpdate.put("unreadCount", newCount);
-                                    return firebaseService.update(userChatPath, chatUserUpdate);
-                                });
-
-                        updates.add(updateFuture);
+                        String userChatPath = String.format("users/%s/chatUser/%s", uid, chatId);
+                        updates.put(userChatPath + "/name", name);
+                        updates.put(userChatPath + "/lastMessage", content);
+                        updates.put(userChatPath + "/lastUser", sender);
+                        updates.put(userChatPath + "/timestamp", timestamp);
                     }
 
-                    return CompletableFuture.allOf(updates.toArray(new CompletableFuture[0]))
-                            .thenApply(done -> {
-                                Map<String, Object> updateNotification = new HashMap<>();
-                                updateNotification.put("chatId", chatId);
-                                updateNotification.put("fieldsUpdated", List.of("lastMessage", "lastUser", "timestamp"));
-
-                                messagingTemplate.convertAndSend("/topic/chats", updateNotification);
-
-                                Map<String, Object> response = new HashMap<>();
-                                response.put("id", messageId);
-                                response.put("chatId", chatId);
-                                response.put("content", content);
-                                response.put("sender", sender);
-                                response.put("timestamp", timestamp);
-                                response.put("image", image); // included in the response
-
-                                return response;
-                            });
+                    // The counters are best effort: a failed increment does not fail the stored message
+                    return firebaseService.updateMulti(updates)
+                            .thenCompose(saved -> ChatService.incrementUnreadCounts(firebaseService, chatId, recipients));
+                })
+                .thenApply(done -> {
+                    Map<String, Object> updateNotification = new HashMap<>();
+                    updateNotification.put("chatId", chatId);
+                    updateNotification.put("fieldsUpdated", List.of("lastMessage", "lastUser", "timestamp"));
+
+                    messagingTemplate.convertAndSend("/topic/chats", updateNotification);
+
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("id", messageId);
+                    response.put("chatId", chatId);
+                    response.put("content", content);
+                    response.put("sender", sender);
+                    response.put("timestamp", timestamp);
+                    response.put("image", message.getImage()); // included in the response
+
+                    return response;
                 });
     }
 
@@ -193,7 +259,7 @@ public class MessageService {
      */
     public CompletableFuture<Message> getMessageById(String chatId, String messageId) {
         String path = CHATS_PATH + "/" + chatId + "/messages/" + messageId;
-        return firebaseService.get(path).thenApply(snapshot -> {
+        return firebaseService.getSnapshot(path).thenApply(snapshot -> {
             if (!snapshot.exists()) {
                 throw new RuntimeException("Message not found");
             }
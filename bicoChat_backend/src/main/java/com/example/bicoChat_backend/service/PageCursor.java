@@ -0,0 +1,43 @@
+package com.example.bicoChat_backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursors of the paginated endpoints: the sort value and the key of the last item
+ * of a page, encoded as URL-safe Base64 so clients treat them as plain tokens.
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    /**
+     * Encodes the position of an item.
+     *
+     * @param sortValue The value the items are sorted by (e.g. the timestamp), null is encoded as empty.
+     * @param key The key of the item, which breaks ties between equal sort values.
+     * @return The cursor.
+     */
+    public static String encode(String sortValue, String key) {
+        String value = sortValue != null ? sortValue : "";
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + "|" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created by encode.
+     *
+     * @param cursor The cursor.
+     * @return Array with the sort value and the key.
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static String[] decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8); // Throws IllegalArgumentException if malformed
+        int separator = decoded.indexOf('|');
+        if (separator < 0 || separator == decoded.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new String[]{decoded.substring(0, separator), decoded.substring(separator + 1)};
+    }
+}
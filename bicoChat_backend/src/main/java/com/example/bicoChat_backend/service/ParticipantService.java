@@ -0,0 +1,48 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.service.cache.SyncedValueCache;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service that keeps the participants of the recently used chats in memory.
+ * Each cached list is kept in sync by a Firebase listener on chats/{chatId}/participants,
+ * so adding or removing a member is reflected without any explicit invalidation.
+ */
+@Service
+public class ParticipantService {
+
+    private static final GenericTypeIndicator<List<String>> PARTICIPANTS_TYPE = new GenericTypeIndicator<List<String>>() {};
+
+    private final SyncedValueCache<List<String>> participantsCache;
+
+    @Autowired
+    public ParticipantService(FirebaseService firebaseService,
+                              @Value("${bicochat.cache.participants.max-size:10000}") int maxSize) {
+        this.participantsCache = new SyncedValueCache<>(
+                firebaseService.getStorageBackend(),
+                chatId -> "chats/" + chatId + "/participants",
+                snapshot -> {
+                    List<String> participants = snapshot.getValue(PARTICIPANTS_TYPE);
+                    return participants != null ? Collections.unmodifiableList(participants) : null; // Shared by all callers
+                },
+                maxSize);
+    }
+
+    /**
+     * Retrieves the participants of a chat, from memory when the chat is already cached.
+     *
+     * @param chatId The ID of the chat.
+     * @return A CompletableFuture with the participant IDs (empty if the chat does not exist).
+     */
+    public CompletableFuture<List<String>> getParticipants(String chatId) {
+        return participantsCache.get(chatId)
+                .thenApply(participants -> participants != null ? participants : Collections.emptyList());
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.dto.response.PresenceEvent;
+import com.example.bicoChat_backend.dto.response.UserResponse;
+import com.google.firebase.database.GenericTypeIndicator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the online status of the users in memory, fed by the WebSocket sessions, by heartbeats and by
+ * the statuses the users choose.
+ *
+ * A user is online while they have an open STOMP session (the CONNECT frame carries a "uid" header) or
+ * have sent a heartbeat within timeout-ms; the sweep marks them offline only after that grace period,
+ * so a page reload does not make them flicker. A status chosen with setStatus (e.g. "busy") does not
+ * expire: it is kept until the user changes it or connects again after going offline.
+ * Every change is published right away on /topic/presence as a PresenceEvent, and written to
+ * presence/{uid} with the other changes of the last debounce-ms in one multi-path update (the last status
+ * of a user wins). The stored statuses are read back at startup. The users node is not written, so a
+ * status change no longer triggers the full /topic/users broadcast; the user endpoints overlay these statuses.
+ */
+@Service
+public class PresenceService {
+
+    public static final String PRESENCE_PATH = "presence";
+    public static final String ONLINE = "online";
+    public static final String OFFLINE = "offline";
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${bicochat.presence.timeout-ms:30000}")
+    private long timeoutMs = 30000;
+
+    @Value("${bicochat.presence.debounce-ms:2000}")
+    private long debounceMs = 2000;
+
+    private final Map<String, Presence> presences = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>(); // STOMP session ID -> uid
+
+    // Status changes not written yet, by uid
+    private final Map<String, Map<String, Object>> pendingWrites = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushTimer;
+    private ScheduledExecutorService scheduler;
+
+    private static class Presence {
+        String status = OFFLINE;
+        boolean chosen; // Set with setStatus, not derived from the sessions: never expired by the sweep
+        long lastSeen = System.currentTimeMillis();
+        final Set<String> sessions = new HashSet<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loadStoredStatuses();
+    }
+
+    /**
+     * Reads back the statuses written to presence/{uid} before the restart. Users already seen since
+     * startup keep their current status; a stored status derived from sessions expires after timeout-ms
+     * unless the client reconnects.
+     */
+    private void loadStoredStatuses() {
+        firebaseService.getWithTypeIndicator(PRESENCE_PATH, new GenericTypeIndicator<Map<String, Map<String, Object>>>() {})
+                .thenAccept(stored -> {
+                    if (stored == null) return;
+                    stored.forEach((uid, value) -> {
+                        if (value == null || !(value.get("status") instanceof String status)) return;
+                        Presence presence = new Presence();
+                        presence.status = status;
+                        presence.chosen = Boolean.TRUE.equals(value.get("chosen"));
+                        presences.putIfAbsent(uid, presence);
+                    });
+                    System.out.println("[LOG - PresenceService] " + stored.size() + " stored statuses loaded");
+                })
+                .exceptionally(error -> {
+                    System.err.println("[LOG - PresenceService] Error reading the stored statuses: " + error.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Writes the pending status changes before shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    @EventListener
+    public void onSessionConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String uid = accessor.getFirstNativeHeader("uid");
+        if (uid != null && !uid.isBlank() && accessor.getSessionId() != null) {
+            connected(accessor.getSessionId(), uid);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        disconnected(event.getSessionId());
+    }
+
+    /**
+     * Records a new session of a user, who becomes online.
+     */
+    public void connected(String sessionId, String uid) {
+        sessionUsers.put(sessionId, uid);
+        Presence presence = presences.computeIfAbsent(uid, key -> new Presence());
+        synchronized (presence) {
+            presence.sessions.add(sessionId);
+            presence.lastSeen = System.currentTimeMillis();
+            if (OFFLINE.equals(presence.status)) {
+                change(uid, presence, ONLINE, false);
+            }
+        }
+    }
+
+    /**
+     * Records the end of a session. The user stays online for the grace period, in case they reconnect.
+     */
+    public void disconnected(String sessionId) {
+        String uid = sessionUsers.remove(sessionId);
+        Presence presence = uid != null ? presences.get(uid) : null;
+        if (presence == null) return;
+        synchronized (presence) {
+            presence.sessions.remove(sessionId);
+            presence.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records a heartbeat of a user, who is online for at least another timeout-ms.
+     * A status chosen by the user (e.g. "busy") is kept.
+     *
+     * @param sessionId The STOMP session the heartbeat came from, or null for heartbeats over HTTP.
+     * @param uid The user ID.
+     */
+    public void heartbeat(String sessionId, String uid) {
+        if (sessionId != null && !sessionUsers.containsKey(sessionId)) {
+            connected(sessionId, uid); // The CONNECT frame did not say who the user is
+            return;
+        }
+        Presence presence = presences.computeIfAbsent(uid, key -> new Presence());
+        synchronized (presence) {
+            presence.lastSeen = System.currentTimeMillis();
+            if (OFFLINE.equals(presence.status)) {
+                change(uid, presence, ONLINE, false);
+            }
+        }
+    }
+
+    /**
+     * Sets the status chosen by a user (e.g. "busy", or "offline" on logout). It is kept without
+     * sessions or heartbeats, until the user chooses another one or connects again after going offline.
+     */
+    public void setStatus(String uid, String status) {
+        if (uid == null || status == null || status.isBlank()) return;
+        Presence presence = presences.computeIfAbsent(uid, key -> new Presence());
+        synchronized (presence) {
+            presence.lastSeen = System.currentTimeMillis();
+            if (!Objects.equals(presence.status, status) || !presence.chosen) {
+                change(uid, presence, status, true);
+            }
+        }
+    }
+
+    /**
+     * @return The current status of a user, or null if they have not been seen since startup and have no stored status.
+     */
+    public String getStatus(String uid) {
+        Presence presence = presences.get(uid);
+        if (presence == null) return null;
+        synchronized (presence) {
+            return presence.status;
+        }
+    }
+
+    /**
+     * @return The status of every user seen since startup or with a stored status, by uid.
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> statuses = new HashMap<>();
+        presences.forEach((uid, presence) -> {
+            synchronized (presence) {
+                statuses.put(uid, presence.status);
+            }
+        });
+        return statuses;
+    }
+
+    /**
+     * Replaces the status in users/{uid}/status with the current one, for the users whose status is known here.
+     * The others (never connected with a uid and without a status in presence/{uid}) keep the stored status.
+     */
+    public <C extends Collection<UserResponse>> C applyTo(C users) {
+        users.forEach(this::applyTo);
+        return users;
+    }
+
+    public UserResponse applyTo(UserResponse user) {
+        if (user != null && user.getUser() != null) {
+            String status = getStatus(user.getId());
+            if (status != null) {
+                user.getUser().setStatus(status);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Marks offline the users without sessions that have not been seen for timeout-ms, unless they chose their status.
+     */
+    @Scheduled(fixedDelayString = "${bicochat.presence.sweep-interval-ms:5000}")
+    public void sweep() {
+        long expired = System.currentTimeMillis() - timeoutMs;
+        presences.forEach((uid, presence) -> {
+            synchronized (presence) {
+                if (!presence.chosen && presence.sessions.isEmpty() && presence.lastSeen < expired && !OFFLINE.equals(presence.status)) {
+                    change(uid, presence, OFFLINE, false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publishes a status change and queues its write. Called holding the lock of the presence.
+     */
+    private void change(String uid, Presence presence, String status, boolean chosen) {
+        boolean statusChanged = !Objects.equals(presence.status, status);
+        presence.status = status;
+        presence.chosen = chosen;
+        if (statusChanged) {
+            messagingTemplate.convertAndSend("/topic/presence", new PresenceEvent(uid, status));
+        }
+
+        Map<String, Object> value = new HashMap<>();
+        value.put("status", status);
+        value.put("chosen", chosen);
+        value.put("lastChanged", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        synchronized (pendingWrites) {
+            pendingWrites.put(uid, value);
+            if (flushTimer == null) {
+                flushTimer = scheduler.schedule(this::flush, debounceMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes all the pending status changes in one multi-path update.
+     */
+    public void flush() {
+        Map<String, Object> updates = new HashMap<>();
+        synchronized (pendingWrites) {
+            flushTimer = null;
+            pendingWrites.forEach((uid, value) -> updates.put(PRESENCE_PATH + "/" + uid, value));
+            pendingWrites.clear();
+        }
+        if (updates.isEmpty()) return;
+
+        firebaseService.updateMulti(updates).exceptionally(error -> {
+            System.err.println("[LOG - PresenceService] Error writing " + updates.size() + " status changes: " + error.getMessage());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.model.ReadMark;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service for the per-user read watermarks stored at chatReads/{chatId}/{uid}.
+ * A watermark is the newest message the user has read (its key and stored timestamp, see ReadMark):
+ * marking a chat as read is a single write, whatever the length of the history, and read receipts
+ * and unread counters are derived from it (a message is read by a user when it is not after their watermark).
+ */
+@Service
+public class ReadStateService {
+
+    public static final String CHAT_READS_PATH = "chatReads"; // Firebase path of the read watermarks
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    /**
+     * Adds the new watermark of a user to a multi-path update.
+     *
+     * @param updates The multi-path update being built.
+     * @param chatId The ID of the chat.
+     * @param userId The ID of the user who read the chat.
+     * @param mark The newest message the user has read.
+     */
+    public static void putWatermark(Map<String, Object> updates, String chatId, String userId, ReadMark mark) {
+        updates.put(CHAT_READS_PATH + "/" + chatId + "/" + userId, mark.toMap());
+    }
+
+    /**
+     * Retrieves the newest message of a chat, in the order of the message queries, as a watermark.
+     *
+     * @param chatId The ID of the chat.
+     * @return A CompletableFuture containing the watermark of the newest message (null if the chat has no messages).
+     */
+    public CompletableFuture<ReadMark> getNewestMark(String chatId) {
+        return firebaseService.query("chats/" + chatId + "/messages",
+                        new StorageQuery().orderByChild("timestamp").limitToLast(1))
+                .thenApply(snapshot -> {
+                    ReadMark newest = null;
+                    for (StorageSnapshot message : snapshot.getChildren()) {
+                        Object timestamp = message.child("timestamp").getValue();
+                        if (timestamp instanceof String) {
+                            newest = new ReadMark(message.getKey(), (String) timestamp);
+                        }
+                    }
+                    return newest;
+                });
+    }
+
+    /**
+     * Retrieves the watermarks of every user of a chat.
+     *
+     * @param chatId The ID of the chat.
+     * @return A CompletableFuture containing the map from user ID to watermark (empty if nobody has read the chat).
+     */
+    public CompletableFuture<Map<String, ReadMark>> getWatermarks(String chatId) {
+        GenericTypeIndicator<Map<String, Object>> typeIndicator = new GenericTypeIndicator<Map<String, Object>>() {};
+        return firebaseService.getWithTypeIndicator(CHAT_READS_PATH + "/" + chatId, typeIndicator)
+                .thenApply(ReadStateService::toMarks);
+    }
+
+    /**
+     * Retrieves the watermarks of every chat.
+     *
+     * @return A CompletableFuture containing the map from chat ID to the watermarks of its users.
+     */
+    public CompletableFuture<Map<String, Map<String, ReadMark>>> getAllWatermarks() {
+        GenericTypeIndicator<Map<String, Map<String, Object>>> typeIndicator = new GenericTypeIndicator<Map<String, Map<String, Object>>>() {};
+        return firebaseService.getWithTypeIndicator(CHAT_READS_PATH, typeIndicator)
+                .thenApply(ReadStateService::toMarksByChat);
+    }
+
+    /**
+     * Converts the stored watermarks of a chat, dropping the values that are not watermarks.
+     *
+     * @param stored The values stored under chatReads/{chatId}, by user ID (may be null).
+     * @return The map from user ID to watermark.
+     */
+    public static Map<String, ReadMark> toMarks(Map<String, Object> stored) {
+        Map<String, ReadMark> marks = new HashMap<>();
+        if (stored != null) {
+            stored.forEach((uid, value) -> {
+                ReadMark mark = ReadMark.from(value);
+                if (mark != null) {
+                    marks.put(uid, mark);
+                }
+            });
+        }
+        return marks;
+    }
+
+    /**
+     * Converts the stored watermarks of every chat.
+     *
+     * @param stored The values stored under chatReads, by chat ID (may be null).
+     * @return The map from chat ID to the watermarks of its users.
+     */
+    public static Map<String, Map<String, ReadMark>> toMarksByChat(Map<String, Map<String, Object>> stored) {
+        Map<String, Map<String, ReadMark>> marks = new HashMap<>();
+        if (stored != null) {
+            stored.forEach((chatId, chatMarks) -> marks.put(chatId, toMarks(chatMarks)));
+        }
+        return marks;
+    }
+
+    /**
+     * Sets the read flag of the messages from the watermarks: a message is read once a user
+     * other than its sender has read the chat up to it. Messages already stored with read=true stay read.
+     *
+     * @param messages The messages of one chat.
+     * @param watermarks The watermarks of the chat.
+     */
+    public static void applyReadFlags(Collection<Message> messages, Map<String, ReadMark> watermarks) {
+        if (watermarks == null || watermarks.isEmpty()) {
+            return;
+        }
+        for (Message message : messages) {
+            if (message == null || message.isRead() || message.getTimestamp() == null) {
+                continue;
+            }
+            for (Map.Entry<String, ReadMark> watermark : watermarks.entrySet()) {
+                if (!watermark.getKey().equals(message.getSender())
+                        && watermark.getValue() != null
+                        && watermark.getValue().covers(message.getId(), message.getTimestamp())) {
+                    message.setRead(true);
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.bicoChat_backend.service;
+
+import com.example.bicoChat_backend.model.ReadMark;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Job that recomputes the unread counters (users/{uid}/chatUser/{chatId}/unreadCount) from the
+ * read watermarks stored at chatReads/{chatId}/{uid} (the newest message the user has read, see ReadMark).
+ * The counter of a participant is the number of messages after their watermark, counted with
+ * the same rule as the live increments; only the counters that drifted are written back.
+ *
+ * Only the messages newer than the oldest watermark of a chat are downloaded. Participants without
+ * a watermark are left untouched. An increment that lands while a chat is being reconciled can be
+ * overwritten, and the next run corrects it.
+ */
+@Service
+public class UnreadReconciliationService {
+
+    private static final String USERS_PATH = "users";
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private ParticipantService participantService;
+
+    @Value("${bicochat.unread.reconcile.enabled:false}")
+    private boolean enabled = false;
+
+    /**
+     * Runs the reconciliation of every chat with watermarks, when enabled.
+     */
+    @Scheduled(fixedDelayString = "${bicochat.unread.reconcile.interval-ms:3600000}",
+            initialDelayString = "${bicochat.unread.reconcile.interval-ms:3600000}")
+    public void scheduledReconcile() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        reconcileAll().whenComplete((corrected, error) -> {
+            if (error != null) {
+                System.err.println("[LOG - UnreadReconciliationService] Reconciliation failed: " + error.getMessage());
+            } else {
+                System.out.println("[LOG - UnreadReconciliationService] " + corrected + " unread counters corrected in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        });
+    }
+
+    /**
+     * Reconciles the unread counters of every chat that has at least one read watermark.
+     *
+     * @return A CompletableFuture containing the number of counters corrected.
+     */
+    public CompletableFuture<Integer> reconcileAll() {
+        GenericTypeIndicator<Map<String, Map<String, Object>>> typeIndicator = new GenericTypeIndicator<Map<String, Map<String, Object>>>() {};
+
+        return firebaseService.getWithTypeIndicator(ReadStateService.CHAT_READS_PATH, typeIndicator)
+                .thenApply(ReadStateService::toMarksByChat)
+                .thenCompose(watermarksByChat -> {
+                    if (watermarksByChat == null || watermarksByChat.isEmpty()) {
+                        return CompletableFuture.completedFuture(0);
+                    }
+
+                    // One chat at a time, so the job never holds the messages of many chats in memory
+                    CompletableFuture<Integer> total = CompletableFuture.completedFuture(0);
+                    for (Map.Entry<String, Map<String, ReadMark>> entry : watermarksByChat.entrySet()) {
+                        total = total.thenCompose(sum -> reconcile(entry.getKey(), entry.getValue())
+                                .thenApply(corrected -> sum + corrected));
+                    }
+                    return total;
+                });
+    }
+
+    /**
+     * Reconciles the unread counters of the participants of one chat.
+     *
+     * @param chatId The ID of the chat.
+     * @return A CompletableFuture containing the number of counters corrected.
+     */
+    public CompletableFuture<Integer> reconcileChat(String chatId) {
+        GenericTypeIndicator<Map<String, Object>> typeIndicator = new GenericTypeIndicator<Map<String, Object>>() {};
+
+        return firebaseService.getWithTypeIndicator(ReadStateService.CHAT_READS_PATH + "/" + chatId, typeIndicator)
+                .thenCompose(watermarks -> reconcile(chatId, ReadStateService.toMarks(watermarks)));
+    }
+
+    private CompletableFuture<Integer> reconcile(String chatId, Map<String, ReadMark> watermarks) {
+        if (watermarks == null || watermarks.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return participantService.getParticipants(chatId).thenCompose(participants -> {
+            // Watermarks of users who left the chat are ignored
+            Map<String, ReadMark> active = new HashMap<>();
+            for (String uid : participants) {
+                if (watermarks.get(uid) != null) {
+                    active.put(uid, watermarks.get(uid));
+                }
+            }
+            if (active.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+
+            String oldest = Collections.min(active.values().stream().map(ReadMark::getTimestamp).toList());
+            return firebaseService.query("chats/" + chatId + "/messages",
+                            new StorageQuery().orderByChild("timestamp").startAt(oldest))
+                    .thenCompose(messages -> {
+                        Map<String, String> timestamps = new LinkedHashMap<>(); // Message key -> timestamp
+                        for (StorageSnapshot message : messages.getChildren()) {
+                            Object timestamp = message.child("timestamp").getValue();
+                            if (timestamp != null) {
+                                timestamps.put(message.getKey(), timestamp.toString());
+                            }
+                        }
+                        return correctCounters(chatId, active, timestamps);
+                    });
+        });
+    }
+
+    private CompletableFuture<Integer> correctCounters(String chatId, Map<String, ReadMark> watermarks, Map<String, String> timestamps) {
+        Map<String, CompletableFuture<Long>> current = new HashMap<>();
+        for (String uid : watermarks.keySet()) {
+            current.put(uid, firebaseService.get(counterPath(uid, chatId), Long.class));
+        }
+
+        return CompletableFuture.allOf(current.values().toArray(new CompletableFuture[0])).thenCompose(v -> {
+            Map<String, Object> updates = new HashMap<>();
+            watermarks.forEach((uid, watermark) -> {
+                long expected = timestamps.entrySet().stream()
+                        .filter(message -> !watermark.covers(message.getKey(), message.getValue()))
+                        .count();
+                Long stored = current.get(uid).join();
+                if (stored != null && stored != expected) { // No counter means no chatUser entry to fix
+                    updates.put(counterPath(uid, chatId), expected);
+                }
+            });
+
+            if (updates.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+            return firebaseService.updateMulti(updates).thenApply(done -> updates.size());
+        });
+    }
+
+    private static String counterPath(String uid, String chatId) {
+        return USERS_PATH + "/" + uid + "/chatUser/" + chatId + "/unreadCount";
+    }
+}
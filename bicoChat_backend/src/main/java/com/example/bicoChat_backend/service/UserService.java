@@ -2,6 +2,8 @@ package com.example.bicoChat_backend.service;
 
 import com.example.bicoChat_backend.dto.response.UserResponse;
 import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.model.UserPatch;
+import com.example.bicoChat_backend.service.media.MediaService;
 import com.google.firebase.database.GenericTypeIndicator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -17,6 +19,12 @@ public class UserService {
     @Autowired
     private FirebaseService firebaseService;
 
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private ReadStateService readStateService; // Read watermarks of the chats
+
     /**
      * Constructor for UserService class.
      *
@@ -65,19 +73,6 @@ public class UserService {
                 });
     }
 
-    /**
-     * Updates the status of a user.
-     *
-     * @param userId The ID of the user to update
-     * @param status The new status for the user
-     * @return A CompletableFuture indicating the success or failure of the operation
-     */
-    public CompletableFuture<Void> updateUserStatus(String userId, String status) {
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", status);
-        return firebaseService.update(USERS_PATH + "/" + userId, updates);
-    }
-
     /**
      * Adds a new user to the Firebase database.
      *
@@ -111,44 +106,35 @@ public class UserService {
     }
 
     /**
-     * Marks a chat as read for all participants.
+     * Marks a chat as read for all participants: their unread counters are reset and their
+     * read watermarks (chatReads/{chatId}/{uid}) moved to the newest message, in a single multi-path update.
+     * Only the newest message is read and no message is written, so the cost does not depend on the history.
      *
      * @param chatId The ID of the chat to mark as read
      * @return A CompletableFuture indicating the success or failure of the operation
      */
     public CompletableFuture<Void> markChatAsRead(String chatId) {
-        // Retrieve the participants of the chat
+        // Retrieve the participants of the chat and its newest message
         return firebaseService.getWithTypeIndicator("chats/" + chatId + "/participants", new GenericTypeIndicator<List<String>>() {})
-                .thenCompose(participants -> {
+                .thenCombine(readStateService.getNewestMark(chatId), (participants, newest) -> {
                     System.out.println("Participants for chat " + chatId + ": " + participants);
                     if (participants == null || participants.isEmpty()) {
                         throw new RuntimeException("No participants found for chat " + chatId);
                     }
 
-                    // Create updates for all participants (set unreadCount to 0)
+                    // Create updates for all participants (set unreadCount to 0 and move the watermark)
                     Map<String, Object> updates = new HashMap<>();
                     for (String participantId : participants) {
-                        String participantPath = USERS_PATH + "/" + participantId + "/chatUser/" + chatId + "/unreadCount";
-                        updates.put(participantPath, 0);  // Set unreadCount to 0 for all participants
+                        new UserPatch().chatField(chatId, "unreadCount", 0)  // Set unreadCount to 0 for all participants
+                                .putInto(updates, USERS_PATH, participantId);
+                        if (newest != null) {
+                            ReadStateService.putWatermark(updates, chatId, participantId, newest);
+                        }
                     }
-
-                    // Also update the chat messages, setting "read" to true
-                    return firebaseService.getWithTypeIndicator("chats/" + chatId + "/messages", new GenericTypeIndicator<Map<String, Map<String, Object>>>() {})
-                            .thenCompose(messages -> {
-                                Map<String, Object> messagesUpdates = new HashMap<>();
-                                if (messages != null) {
-                                    messages.forEach((messageId, messageData) -> {
-                                        if (messageData != null && !Boolean.TRUE.equals(messageData.get("read"))) {
-                                            messagesUpdates.put("chats/" + chatId + "/messages/" + messageId + "/read", true);
-                                        }
-                                    });
-                                }
-                                updates.putAll(messagesUpdates);  // Add updates to messages
-
-                                // Apply all updates in a single operation
-                                return firebaseService.updateMulti(updates);
-                            });
-                });
+                    return updates;
+                })
+                // Apply all updates in a single operation
+                .thenCompose(firebaseService::updateMulti);
     }
 
     /**
@@ -173,91 +159,143 @@ public class UserService {
         return firebaseService.update("users/" + uid, updates);
     }
 
+    /**
+     * Applies a partial update to a user: only the paths recorded in the patch are written,
+     * with a single multi-path update, so the rest of the document (avatar, chats, friends) is
+     * neither downloaded nor rewritten.
+     *
+     * @param uid The ID of the user to update
+     * @param patch The fields to change
+     * @return A CompletableFuture indicating the success or failure of the operation
+     */
+    public CompletableFuture<Void> patchUser(String uid, UserPatch patch) {
+        return patchUsers(Collections.singletonMap(uid, patch));
+    }
+
+    /**
+     * Applies partial updates to several users in one multi-path update, so either all of them
+     * are written or none is.
+     *
+     * @param patches The patches to apply, by user ID
+     * @return A CompletableFuture indicating the success or failure of the operation
+     */
+    public CompletableFuture<Void> patchUsers(Map<String, UserPatch> patches) {
+        Map<String, Object> updates = new HashMap<>();
+        patches.forEach((uid, patch) -> patch.putInto(updates, USERS_PATH, uid));
+        if (updates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return firebaseService.updateMulti(updates);
+    }
+
     /**
      * Updates the profile of a user, including their first name, last name, and avatar.
+     * The profile fields and the titles of the user's individual chats seen by the other
+     * participants are written together, as one multi-path update.
      *
      * @param userId The ID of the user to update
      * @param firstName The user's first name
      * @param lastName The user's last name
      * @param avatar The user's avatar
+     * @return A CompletableFuture indicating the success or failure of the operation
      */
-    public void updateUserProfile(String userId, String firstName, String lastName, String avatar) {
+    public CompletableFuture<Void> updateUserProfile(String userId, String firstName, String lastName, String avatar) {
         String username = firstName + " " + lastName;
 
-        firebaseService.get("users/" + userId, User.class).thenAccept(existingUser -> {
-            if (existingUser != null) {
-                existingUser.setFirstName(firstName);
-                existingUser.setLastName(lastName);
-                existingUser.setUsername(username);
-                existingUser.setAvatar(avatar);
+        return userExists(userId).thenCompose(exists -> {
+            if (!exists) {
+                return CompletableFuture.completedFuture(null);
+            }
+            // A Base64 avatar is moved to the media store, only its reference is written
+            CompletableFuture<String> avatarFuture = avatar != null
+                    ? mediaService.offload(avatar)
+                    : CompletableFuture.completedFuture(null);
+            return avatarFuture.thenCompose(avatarValue -> saveUserProfile(userId, firstName, lastName, username, avatarValue));
+        });
+    }
 
-                firebaseService.set("users/" + userId, existingUser);
+    /**
+     * Writes the profile fields and renames the user's individual chats for the other participants.
+     */
+    private CompletableFuture<Void> saveUserProfile(String userId, String firstName, String lastName, String username, String avatar) {
+        // Retrieve all user's chats, and for each individual one the participants to rename it for
+        return getUserChats(userId).thenCompose(chatUserMap -> {
+            Map<String, CompletableFuture<List<String>>> individualChats = new HashMap<>();
+            for (String chatId : chatUserMap.keySet()) {
+                individualChats.put(chatId, firebaseService.get("chats/" + chatId + "/type", String.class)
+                        .thenCompose(chatType -> "group".equals(chatType)
+                                ? CompletableFuture.<List<String>>completedFuture(null)
+                                : firebaseService.getWithTypeIndicator("chats/" + chatId + "/participants", new GenericTypeIndicator<List<String>>() {})));
+            }
 
-                // Retrieve all user's chats
-                firebaseService.getWithTypeIndicator("users/" + userId + "/chatUser", new GenericTypeIndicator<Map<String, User.ChatInfo>>() {})
-                        .thenAccept(chatUserMap -> {
-                            if (chatUserMap != null) {
-                                chatUserMap.keySet().forEach(chatId -> {
+            return CompletableFuture.allOf(individualChats.values().toArray(new CompletableFuture[0]))
+                    .thenCompose(v -> {
+                        Map<String, UserPatch> patches = new HashMap<>();
+                        patches.put(userId, new UserPatch()
+                                .firstName(firstName)
+                                .lastName(lastName)
+                                .username(username)
+                                .avatar(avatar));
 
-                                    // For each chat, check if it's an individual chat
-                                    firebaseService.get("chats/" + chatId + "/type", String.class)
-                                            .thenAccept(chatType -> {
-                                                if (!"group".equals(chatType)) {
-                                                    // Retrieve the participants of the chat
-                                                    firebaseService.getWithTypeIndicator("chats/" + chatId + "/participants", new GenericTypeIndicator<List<String>>() {})
-                                                            .thenAccept(participants -> {
-                                                                if (participants != null) {
-                                                                    for (String otherUid : participants) {
-                                                                        if (!otherUid.equals(userId)) {
-                                                                            String path = "users/" + otherUid + "/chatUser/" + chatId + "/title";
-                                                                            firebaseService.set(path, username);
-                                                                        }
-                                                                    }
-                                                                }
-                                                            });
-                                                }
-                                            });
-                                });
+                        individualChats.forEach((chatId, future) -> {
+                            List<String> participants = future.join();
+                            if (participants == null) return;
+                            for (String otherUid : participants) {
+                                if (!otherUid.equals(userId)) {
+                                    patches.computeIfAbsent(otherUid, uid -> new UserPatch())
+                                            .chatField(chatId, "title", username);
+                                }
                             }
                         });
-            }
+
+                        return patchUsers(patches);
+                    });
         });
     }
 
+    /**
+     * Hides a chat behind a PIN, writing only hiddenChats/{chatId} of the user.
+     *
+     * @param userId The ID of the user
+     * @param chatId The ID of the chat to hide
+     * @param pin The PIN protecting the chat
+     * @return A CompletableFuture indicating the success or failure of the operation
+     */
     public CompletableFuture<Void> hideChat(String userId, String chatId, String pin) {
-        return getUserById(userId)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isEmpty()) {
+        return userExists(userId)
+                .thenCompose(exists -> {
+                    if (!exists) {
                         return CompletableFuture.failedFuture(new IllegalArgumentException("User not found"));
                     }
-                    User user = optionalUser.get().getUser();
-                    Map<String, Map<String, Object>> hiddenChats = user.getHiddenChats();
-                    if (hiddenChats == null) hiddenChats = new HashMap<>();
-                    Map<String, Object> chatPinInfo = new HashMap<>();
-                    chatPinInfo.put("pin", pin);
-                    hiddenChats.put(chatId, chatPinInfo);
-                    user.setHiddenChats(hiddenChats);
-                    return firebaseService.set(USERS_PATH + "/" + userId, user);
+                    return patchUser(userId, new UserPatch().hideChat(chatId, pin));
                 });
     }
 
+    /**
+     * Makes a hidden chat visible again, deleting only hiddenChats/{chatId} of the user.
+     *
+     * @param userId The ID of the user
+     * @param chatId The ID of the chat to unhide
+     * @return A CompletableFuture indicating the success or failure of the operation
+     */
     public CompletableFuture<Void> unhideChat(String userId, String chatId) {
-        return getUserById(userId)
-                .thenCompose(optionalUser -> {
-                    if (optionalUser.isEmpty()) {
+        return userExists(userId)
+                .thenCompose(exists -> {
+                    if (!exists) {
                         return CompletableFuture.failedFuture(new IllegalArgumentException("User not found"));
                     }
-                    User user = optionalUser.get().getUser();
-                    Map<String, Map<String, Object>> hiddenChats = user.getHiddenChats();
-                    if (hiddenChats != null && hiddenChats.containsKey(chatId)) {
-                        hiddenChats.remove(chatId);
-                        user.setHiddenChats(hiddenChats);
-                        return firebaseService.set(USERS_PATH + "/" + userId, user);
-                    }
-                    return CompletableFuture.completedFuture(null);
+                    return patchUser(userId, new UserPatch().unhideChat(chatId));
                 });
     }
 
+    /**
+     * Checks whether a user exists by reading only its email, which every stored user has,
+     * instead of the whole document.
+     */
+    private CompletableFuture<Boolean> userExists(String userId) {
+        return firebaseService.exists(USERS_PATH + "/" + userId + "/email");
+    }
+
     public CompletableFuture<Boolean> verifyHiddenChatPin(String userId, String chatId, String pin) {
         return getUserById(userId)
                 .thenApply(optionalUser -> {
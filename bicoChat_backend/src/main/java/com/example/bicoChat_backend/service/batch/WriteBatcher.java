@@ -0,0 +1,160 @@
+package com.example.bicoChat_backend.service.batch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Buffers Firebase writes for a short window and commits them as one multi-path update.
+ * A batch is committed when the window expires, when it reaches maxOps paths, or when a new
+ * write touches an ancestor or descendant of a buffered path (Firebase rejects multi-path updates
+ * with overlapping paths, so the buffered writes are committed first).
+ *
+ * Batches are committed one after the other in call order, so writes to the same path keep their order;
+ * a later write of an already buffered path replaces its value. Every caller's future completes when
+ * the batch containing its write is committed.
+ *
+ * A batch is one atomic update, so its writes succeed or fail together: if any write of the batch is
+ * rejected (e.g. by a security rule or an invalid value), the futures of all the callers in that batch fail
+ * with the same error, including callers whose own writes were valid, and none of the writes is applied.
+ * The failed writes are not retried one by one: a retry could land after a later batch writing the same
+ * path and overwrite its newer value. Callers that cannot tell their write from the others should not use
+ * the batcher for writes that can be rejected (it is off while bicochat.firebase.write-batch.window-ms is 0).
+ */
+public class WriteBatcher {
+
+    private final Function<Map<String, Object>, CompletableFuture<Void>> committer; // Sends one multi-path update
+    private final long windowMs;
+    private final int maxOps;
+    private final ScheduledExecutorService scheduler;
+
+    private LinkedHashMap<String, Object> pending = new LinkedHashMap<>();
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private ScheduledFuture<?> timer;
+
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+
+    public WriteBatcher(Function<Map<String, Object>, CompletableFuture<Void>> committer, long windowMs, int maxOps) {
+        this.committer = committer;
+        this.windowMs = Math.max(1, windowMs);
+        this.maxOps = Math.max(1, maxOps);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "firebase-write-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a group of path/value writes to the current batch; they are always committed together.
+     *
+     * @param updates Map from absolute path to value (null deletes the path).
+     * @return CompletableFuture that completes when the batch is committed, or fails, with the error of the
+     *         whole batch, if any write of the batch is rejected.
+     */
+    public CompletableFuture<Void> write(Map<String, Object> updates) {
+        if (updates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            for (String path : updates.keySet()) {
+                if (overlapsPending(path)) {
+                    flushLocked();
+                    break;
+                }
+            }
+
+            pending.putAll(updates);
+            waiters.add(future);
+            writeCount.incrementAndGet();
+
+            if (pending.size() >= maxOps) {
+                flushLocked();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Commits the buffered writes now, if any.
+     */
+    public synchronized void flush() {
+        flushLocked();
+    }
+
+    /**
+     * Commits the buffered writes and stops the window timer.
+     */
+    public void shutdown() {
+        flush();
+        scheduler.shutdown();
+    }
+
+    /**
+     * @return Number of multi-path updates sent so far.
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return Number of writes accepted so far (each call of write counts as one).
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    private boolean overlapsPending(String path) {
+        for (String pendingPath : pending.keySet()) {
+            if (path.startsWith(pendingPath + "/") || pendingPath.startsWith(path + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flushLocked() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> batch = pending;
+        List<CompletableFuture<Void>> batchWaiters = waiters;
+        pending = new LinkedHashMap<>();
+        waiters = new ArrayList<>();
+        batchCount.incrementAndGet();
+
+        // Sent while holding the lock, so batches reach Firebase in the order they were closed
+        CompletableFuture<Void> commit;
+        try {
+            commit = committer.apply(batch);
+        } catch (RuntimeException e) {
+            commit = CompletableFuture.failedFuture(e);
+        }
+        commit.whenComplete((result, error) -> {
+            for (CompletableFuture<Void> waiter : batchWaiters) {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(null);
+                }
+            }
+        });
+    }
+}
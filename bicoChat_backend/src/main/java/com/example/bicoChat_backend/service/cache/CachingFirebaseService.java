@@ -0,0 +1,167 @@
+package com.example.bicoChat_backend.service.cache;
+
+import com.example.bicoChat_backend.config.firebase.FirebaseCacheProperties;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.example.bicoChat_backend.service.storage.ValueMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.GenericTypeIndicator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FirebaseService decorator that serves get, getWithTypeIndicator and exists from memory
+ * for the paths below the configured prefixes (e.g. users/{uid}, chats/{chatId}).
+ *
+ * Every cached path is followed by a value listener of the storage backend, so any change made in the
+ * database (by this server or by anyone else) replaces the cached value; no explicit invalidation
+ * on writes is needed. Each prefix has its own SyncedValueCache (the same listener-synced Caffeine
+ * cache used by ParticipantService and DisplayNameResolver) with a TTL and a maximum size.
+ * The cache keeps the raw value and converts a copy of it at every read, so
+ * callers never share (or modify) the cached objects.
+ */
+public class CachingFirebaseService extends FirebaseService {
+
+    private final List<PrefixCache> caches = new ArrayList<>(); // Longest prefix first
+
+    /**
+     * @param databaseReference The Firebase root, for the methods that need Firebase itself (null if there is none).
+     * @param storageBackend The store behind the service, the one selected by bicochat.storage.type.
+     * @param policies TTL and maximum size of the cache, by path prefix.
+     */
+    public CachingFirebaseService(DatabaseReference databaseReference, StorageBackend storageBackend,
+                                  Map<String, FirebaseCacheProperties.Policy> policies) {
+        super(databaseReference, storageBackend);
+        policies.forEach((prefix, policy) -> caches.add(new PrefixCache(normalize(prefix), policy, storageBackend)));
+        caches.sort(Comparator.comparingInt((PrefixCache cache) -> cache.prefix.length()).reversed());
+        System.out.println("[LOG - CachingFirebaseService] Read cache enabled for prefixes: " + policies.keySet());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String path, Class<T> valueType) {
+        PrefixCache cache = cacheFor(path);
+        if (cache == null) {
+            return super.get(path, valueType);
+        }
+        return continueOnCallbackExecutor(cache.load(normalize(path)),
+                raw -> ValueMapper.convert(copy(raw), valueType));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getWithTypeIndicator(String path, GenericTypeIndicator<T> typeIndicator) {
+        PrefixCache cache = cacheFor(path);
+        if (cache == null) {
+            return super.getWithTypeIndicator(path, typeIndicator);
+        }
+        return continueOnCallbackExecutor(cache.load(normalize(path)),
+                raw -> ValueMapper.convert(copy(raw), typeIndicator));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String path) {
+        PrefixCache cache = cacheFor(path);
+        if (cache == null) {
+            return super.exists(path);
+        }
+        return continueOnCallbackExecutor(cache.load(normalize(path)), raw -> raw != null);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of each cached prefix.
+     *
+     * @return Map from prefix to its Caffeine statistics.
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        for (PrefixCache cache : caches) {
+            stats.put(cache.prefix, cache.entries.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the number of paths currently cached below each prefix.
+     *
+     * @return Map from prefix to its estimated size.
+     */
+    public Map<String, Long> getCacheSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (PrefixCache cache : caches) {
+            sizes.put(cache.prefix, cache.entries.size());
+        }
+        return sizes;
+    }
+
+    /**
+     * Drops every cached path and removes all listeners.
+     */
+    public void invalidateAll() {
+        caches.forEach(cache -> cache.entries.invalidateAll());
+    }
+
+    private PrefixCache cacheFor(String path) {
+        String normalized = normalize(path);
+        for (PrefixCache cache : caches) {
+            // The prefix node itself (e.g. the whole "users" node) is never cached
+            if (normalized.startsWith(cache.prefix + "/")) {
+                return cache;
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String path) {
+        String normalized = path.trim();
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * Deep copy of a raw Firebase value (nested maps and lists, immutable leaves).
+     */
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object raw) {
+        if (raw instanceof Map) {
+            Map<String, Object> copy = new HashMap<>();
+            ((Map<String, Object>) raw).forEach((key, value) -> copy.put(key, copy(value)));
+            return copy;
+        }
+        if (raw instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            ((List<Object>) raw).forEach(value -> copy.add(copy(value)));
+            return copy;
+        }
+        return raw;
+    }
+
+    /**
+     * Cache of the paths below one prefix.
+     */
+    private static class PrefixCache {
+        private final String prefix;
+        private final SyncedValueCache<Object> entries;
+
+        private PrefixCache(String prefix, FirebaseCacheProperties.Policy policy, StorageBackend storageBackend) {
+            this.prefix = prefix;
+            this.entries = new SyncedValueCache<>(storageBackend, path -> path, StorageSnapshot::getValue,
+                    policy.getMaxSize(), policy.getTtl());
+        }
+
+        private CompletableFuture<Object> load(String path) {
+            return entries.get(path);
+        }
+    }
+}
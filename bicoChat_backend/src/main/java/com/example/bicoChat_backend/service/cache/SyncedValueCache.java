@@ -0,0 +1,136 @@
+package com.example.bicoChat_backend.service.cache;
+
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of Firebase values, each one kept up to date by its own value listener.
+ * The first get of a key attaches the listener and waits for the first value; later gets are
+ * answered from memory, and Firebase pushes every change of the value into the cache.
+ * Entries are held in a Caffeine cache (W-TinyLFU eviction, optional TTL); when an entry is
+ * evicted or expires its listener is removed.
+ *
+ * @param <T> Type of the cached values.
+ */
+public class SyncedValueCache<T> {
+
+    private final StorageBackend storageBackend;
+    private final Function<String, String> pathForKey; // Maps a cache key to its Firebase path
+    private final Function<StorageSnapshot, T> decoder; // Converts the snapshot of a path to the cached value
+
+    private final Cache<String, Entry<T>> entries;
+
+    public SyncedValueCache(StorageBackend storageBackend, Function<String, String> pathForKey,
+                            Function<StorageSnapshot, T> decoder, long maxSize) {
+        this(storageBackend, pathForKey, decoder, maxSize, null);
+    }
+
+    /**
+     * @param storageBackend The store whose values are cached.
+     * @param pathForKey Maps a cache key to its path.
+     * @param decoder Converts the snapshot of a path to the cached value.
+     * @param maxSize Maximum number of cached keys.
+     * @param ttl How long an entry stays cached after it was loaded (null = until it is evicted).
+     */
+    public SyncedValueCache(StorageBackend storageBackend, Function<String, String> pathForKey,
+                            Function<StorageSnapshot, T> decoder, long maxSize, Duration ttl) {
+        this.storageBackend = storageBackend;
+        this.pathForKey = pathForKey;
+        this.decoder = decoder;
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .executor(Runnable::run) // Evictions only remove a listener, no need for a separate thread
+                .recordStats();
+        if (ttl != null) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.entries = builder
+                .removalListener((String key, Entry<T> entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.detach();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the value for the given key, loading it and attaching its listener if it is not cached yet.
+     *
+     * @param key The cache key.
+     * @return CompletableFuture with the current value (null if nothing is stored at the path).
+     */
+    public CompletableFuture<T> get(String key) {
+        return entries.get(key, this::attach).value;
+    }
+
+    /**
+     * Drops the given key from the cache and removes its listener.
+     *
+     * @param key The cache key.
+     */
+    public void invalidate(String key) {
+        entries.invalidate(key);
+    }
+
+    /**
+     * Drops every key and removes all listeners.
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * @return The number of keys currently cached.
+     */
+    public long size() {
+        entries.cleanUp();
+        return entries.estimatedSize();
+    }
+
+    /**
+     * @return The hit, miss and eviction counters of the cache.
+     */
+    public CacheStats stats() {
+        return entries.stats();
+    }
+
+    private Entry<T> attach(String key) {
+        Entry<T> entry = new Entry<>();
+        entry.registration = storageBackend.addValueListener(pathForKey.apply(key), new StorageBackend.ValueListener() {
+            @Override
+            public void onValue(StorageSnapshot snapshot) {
+                T value = decoder.apply(snapshot);
+                if (!entry.value.complete(value)) {
+                    entry.value = CompletableFuture.completedFuture(value); // Pushed change of a cached value
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                entry.value.completeExceptionally(error);
+                entries.asMap().remove(key, entry);
+            }
+        });
+        return entry;
+    }
+
+    private static class Entry<T> {
+        private volatile CompletableFuture<T> value = new CompletableFuture<>();
+        private volatile StorageBackend.Registration registration;
+
+        private void detach() {
+            if (registration != null) {
+                registration.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bicoChat_backend.service.inbox;
+
+import com.example.bicoChat_backend.model.User;
+
+import java.util.*;
+
+/**
+ * In-memory inbox of one user: the chatUser entries sorted by timestamp, newest first.
+ * Entries are added, replaced and removed one at a time as Firebase reports child events,
+ * so an update costs O(log n) and reading a page never re-sorts the whole list.
+ * Hidden chats are kept in the structure and skipped when a page is read.
+ */
+public class UserInbox {
+
+    // Newest first; entries without timestamp last; the chat ID breaks ties
+    private static final Comparator<Item> ORDER = Comparator
+            .comparing((Item item) -> item.timestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(item -> item.chatId);
+
+    private final Map<String, Item> byChat = new HashMap<>();
+    private final TreeSet<Item> sorted = new TreeSet<>(ORDER);
+    private Set<String> hiddenChats = Collections.emptySet();
+
+    /**
+     * Adds or replaces the entry of a chat.
+     */
+    public synchronized void put(String chatId, User.ChatInfo chatInfo) {
+        Item previous = byChat.remove(chatId);
+        if (previous != null) {
+            sorted.remove(previous);
+        }
+        if (chatInfo != null) {
+            Item item = new Item(chatId, chatInfo);
+            byChat.put(chatId, item);
+            sorted.add(item);
+        }
+    }
+
+    /**
+     * Removes the entry of a chat.
+     */
+    public synchronized void remove(String chatId) {
+        put(chatId, null);
+    }
+
+    /**
+     * Replaces the set of chats the user has hidden.
+     */
+    public synchronized void setHiddenChats(Set<String> hiddenChats) {
+        this.hiddenChats = hiddenChats != null ? new HashSet<>(hiddenChats) : Collections.emptySet();
+    }
+
+    /**
+     * Returns up to limit visible entries that come after the given position.
+     *
+     * @param afterTimestamp Timestamp of the last entry of the previous page (ignored if afterChatId is null).
+     * @param afterChatId Chat ID of the last entry of the previous page, or null for the first page.
+     * @param limit Maximum number of entries.
+     * @return The entries of the page, plus one more if there are further entries.
+     */
+    public synchronized List<Map.Entry<String, User.ChatInfo>> page(String afterTimestamp, String afterChatId, int limit) {
+        NavigableSet<Item> remaining = sorted;
+        if (afterChatId != null) {
+            String timestamp = afterTimestamp == null || afterTimestamp.isEmpty() ? null : afterTimestamp;
+            remaining = sorted.tailSet(new Item(afterChatId, timestamp), false);
+        }
+
+        List<Map.Entry<String, User.ChatInfo>> page = new ArrayList<>();
+        for (Item item : remaining) {
+            if (hiddenChats.contains(item.chatId)) {
+                continue;
+            }
+            page.add(Map.entry(item.chatId, item.chatInfo));
+            if (page.size() > limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return The number of entries, hidden chats included.
+     */
+    public synchronized int size() {
+        return byChat.size();
+    }
+
+    private static class Item {
+        private final String chatId;
+        private final String timestamp;
+        private final User.ChatInfo chatInfo;
+
+        private Item(String chatId, User.ChatInfo chatInfo) {
+            this.chatId = chatId;
+            this.timestamp = chatInfo.getTimestamp();
+            this.chatInfo = chatInfo;
+        }
+
+        private Item(String chatId, String timestamp) {
+            this.chatId = chatId;
+            this.timestamp = timestamp;
+            this.chatInfo = null;
+        }
+    }
+}
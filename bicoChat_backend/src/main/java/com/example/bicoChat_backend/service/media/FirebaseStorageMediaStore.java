@@ -0,0 +1,89 @@
+package com.example.bicoChat_backend.service.media;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.Storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.UUID;
+
+/**
+ * MediaStore backed by a Firebase Storage (Google Cloud Storage) bucket: every file is the object media/{hash}.
+ * Streamed uploads go to media/uploads/{random} first and are copied under their hash inside the bucket.
+ */
+public class FirebaseStorageMediaStore implements MediaStore {
+
+    private static final String PREFIX = "media/";
+
+    private final Bucket bucket;
+
+    public FirebaseStorageMediaStore(Bucket bucket) {
+        this.bucket = bucket;
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        Blob blob = bucket.get(PREFIX + hash);
+        return blob != null && blob.exists();
+    }
+
+    @Override
+    public void put(String hash, byte[] content, String contentType) {
+        bucket.create(PREFIX + hash, content, contentType);
+    }
+
+    @Override
+    public StoredMedia get(String hash) {
+        Blob blob = bucket.get(PREFIX + hash);
+        if (blob == null || !blob.exists()) {
+            return null;
+        }
+        return new StoredMedia(hash, blob.getContent(), blob.getContentType());
+    }
+
+    @Override
+    public PendingUpload startUpload() {
+        Storage storage = bucket.getStorage();
+        BlobId temp = BlobId.of(bucket.getName(), PREFIX + "uploads/" + UUID.randomUUID());
+        WriteChannel channel = storage.writer(BlobInfo.newBuilder(temp).build());
+        OutputStream output = Channels.newOutputStream(channel);
+        return new PendingUpload() {
+            @Override
+            public OutputStream getOutputStream() {
+                return output;
+            }
+
+            @Override
+            public boolean commit(String hash, String contentType) throws IOException {
+                output.close();
+                try {
+                    if (exists(hash)) {
+                        return false;
+                    }
+                    BlobInfo target = BlobInfo.newBuilder(BlobId.of(bucket.getName(), PREFIX + hash))
+                            .setContentType(contentType)
+                            .build();
+                    storage.copy(Storage.CopyRequest.newBuilder().setSource(temp).setTarget(target).build()).getResult();
+                    return true;
+                } finally {
+                    storage.delete(temp);
+                }
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    output.close();
+                    storage.delete(temp);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("[LOG - FirebaseStorageMediaStore] Could not delete " + temp.getName() + ": " + e.getMessage());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bicoChat_backend.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * MediaStore on the local filesystem, for tests and local runs: every file is {dir}/{hash},
+ * with its MIME type in {dir}/{hash}.type.
+ */
+public class LocalMediaStore implements MediaStore {
+
+    private final Path directory;
+
+    public LocalMediaStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(directory.resolve(hash));
+    }
+
+    @Override
+    public void put(String hash, byte[] content, String contentType) throws IOException {
+        Files.writeString(directory.resolve(hash + ".type"), contentType, StandardCharsets.UTF_8);
+
+        // Written to a temporary file first, so a file with this hash is never seen half written
+        Path temp = Files.createTempFile(directory, hash, ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, directory.resolve(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public StoredMedia get(String hash) throws IOException {
+        Path file = directory.resolve(hash);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Path typeFile = directory.resolve(hash + ".type");
+        String contentType = Files.exists(typeFile)
+                ? Files.readString(typeFile, StandardCharsets.UTF_8)
+                : "application/octet-stream";
+        return new StoredMedia(hash, Files.readAllBytes(file), contentType);
+    }
+
+    @Override
+    public PendingUpload startUpload() throws IOException {
+        Path temp = Files.createTempFile(directory, "upload", ".tmp");
+        OutputStream output = Files.newOutputStream(temp);
+        return new PendingUpload() {
+            @Override
+            public OutputStream getOutputStream() {
+                return output;
+            }
+
+            @Override
+            public boolean commit(String hash, String contentType) throws IOException {
+                output.close();
+                if (exists(hash)) {
+                    Files.deleteIfExists(temp);
+                    return false;
+                }
+                Files.writeString(directory.resolve(hash + ".type"), contentType, StandardCharsets.UTF_8);
+                Files.move(temp, directory.resolve(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            }
+
+            @Override
+            public void abort() {
+                try {
+                    output.close();
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    System.err.println("[LOG - LocalMediaStore] Could not delete " + temp + ": " + e.getMessage());
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.bicoChat_backend.service.media;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Stores images content-addressed by their SHA-256, so that the database only keeps a short
+ * reference ("media:{hash}") instead of the Base64 content. Identical files are stored once.
+ *
+ * With bicochat.media.offload-inline=true, the Base64 images written by the existing endpoints
+ * (avatars, group avatars, message images) are moved to the store and replaced by their reference;
+ * clients then load them from GET /api/media/{hash}.
+ *
+ * Every newly stored image is also handed to a ThumbnailPipeline, which stores its bounded-size variants
+ * ({hash}_{size}) next to it; they are served by GET /api/media/{hash}?size={size}.
+ */
+@Service
+public class MediaService {
+
+    public static final String REFERENCE_PREFIX = "media:";
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final MediaStore mediaStore;
+
+    // The stores do blocking I/O, which must not run on the Firebase event thread or the request threads
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${bicochat.media.offload-inline:false}")
+    private boolean offloadInline = false;
+
+    @Value("${bicochat.media.max-bytes:10485760}")
+    private long maxBytes = 10 * 1024 * 1024;
+
+    @Value("${bicochat.media.thumbnail.sizes:64,256}")
+    private List<Integer> thumbnailSizes = List.of(64, 256);
+
+    @Value("${bicochat.media.thumbnail.threads:2}")
+    private int thumbnailThreads = 2;
+
+    @Value("${bicochat.media.thumbnail.queue-capacity:32}")
+    private int thumbnailQueueCapacity = 32;
+
+    @Value("${bicochat.media.thumbnail.max-pixels:40000000}")
+    private long thumbnailMaxPixels = 40_000_000;
+
+    private ThumbnailPipeline thumbnails;
+
+    @Autowired
+    public MediaService(MediaStore mediaStore) {
+        this.mediaStore = mediaStore;
+    }
+
+    /**
+     * Starts the thumbnail pipeline with the configured sizes, threads and queue capacity.
+     */
+    @PostConstruct
+    public void initThumbnails() {
+        thumbnails = new ThumbnailPipeline(mediaStore, thumbnailSizes, thumbnailThreads, thumbnailQueueCapacity, thumbnailMaxPixels);
+    }
+
+    /**
+     * Stops the thumbnail pipeline and the I/O executor; the tasks already submitted still complete.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (thumbnails != null) {
+            thumbnails.shutdown();
+        }
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * Stores an image, unless a file with the same content is already stored.
+     *
+     * @param content The image bytes.
+     * @return A CompletableFuture with the SHA-256 of the content, in hexadecimal.
+     * @throws IllegalArgumentException (in the future) if the content is empty, too large, or not a PNG, JPEG, GIF or WebP image.
+     */
+    public CompletableFuture<String> store(byte[] content) {
+        if (content == null || content.length == 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Empty file"));
+        }
+        if (content.length > maxBytes) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("File larger than " + maxBytes + " bytes"));
+        }
+        String contentType = detectImageType(content);
+        if (contentType == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unsupported file type"));
+        }
+
+        String hash = sha256(content);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (!mediaStore.exists(hash)) {
+                    mediaStore.put(hash, content, contentType);
+                    submitThumbnails(hash, content, contentType);
+                }
+                return hash;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    /**
+     * Stores an image read from a stream, unless a file with the same content is already stored.
+     * The bytes are hashed while they are copied to the store, so the file is never held in memory;
+     * the copy stops as soon as the size limit is passed. Runs on the calling thread, which must be
+     * the one owning the stream (e.g. the request thread for an upload).
+     *
+     * @param input The image bytes; not closed.
+     * @return The SHA-256 of the content, in hexadecimal.
+     * @throws IllegalArgumentException if the content is empty, too large, or not a PNG, JPEG, GIF or WebP image.
+     * @throws IOException if reading the stream or writing the store fails.
+     */
+    public String store(InputStream input) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(input);
+        in.mark(16);
+        byte[] header = in.readNBytes(12);
+        in.reset();
+        if (header.length == 0) {
+            throw new IllegalArgumentException("Empty file");
+        }
+        String contentType = detectImageType(header);
+        if (contentType == null) {
+            throw new IllegalArgumentException("Unsupported file type");
+        }
+
+        MessageDigest digest = newSha256();
+        MediaStore.PendingUpload upload = mediaStore.startUpload();
+        try {
+            OutputStream output = upload.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("File larger than " + maxBytes + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (upload.commit(hash, contentType)) {
+                submitThumbnails(hash);
+            }
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The largest file accepted, in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Loads a stored file.
+     *
+     * @param hash The SHA-256 of the content, in hexadecimal.
+     * @return A CompletableFuture with the file, or null if the hash is malformed or unknown.
+     */
+    public CompletableFuture<StoredMedia> load(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return loadKey(hash);
+    }
+
+    /**
+     * Loads a thumbnail of a stored file. A thumbnail that is missing (e.g. because the pipeline was busy
+     * when the original was stored) is generated now; if the pipeline is still full, the original is returned.
+     *
+     * @param hash The SHA-256 of the original, in hexadecimal.
+     * @param size The size of the thumbnail, one of supportedSizes().
+     * @return A CompletableFuture with the thumbnail (its hash is {hash}_{size}) or the original,
+     *         or null if the hash is malformed or unknown.
+     */
+    public CompletableFuture<StoredMedia> load(String hash, int size) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String variantKey = ThumbnailPipeline.variantKey(hash, size);
+        return loadKey(variantKey).thenCompose(variant -> {
+            if (variant != null) {
+                return CompletableFuture.completedFuture(variant);
+            }
+            return load(hash).thenCompose(original -> {
+                if (original == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return thumbnails.submit(hash, original.getContent(), original.getContentType())
+                        .thenCompose(v -> loadKey(variantKey))
+                        .handle((generated, error) -> generated != null ? generated : original);
+            });
+        });
+    }
+
+    /**
+     * @return true if thumbnails of this size are produced.
+     */
+    public boolean supportsSize(int size) {
+        return thumbnails.supports(size);
+    }
+
+    public List<Integer> supportedSizes() {
+        return thumbnails.getSizes();
+    }
+
+    private CompletableFuture<StoredMedia> loadKey(String key) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return mediaStore.get(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, ioExecutor);
+    }
+
+    private void submitThumbnails(String hash, byte[] content, String contentType) {
+        logThumbnailFailure(hash, thumbnails.submit(hash, content, contentType));
+    }
+
+    private void submitThumbnails(String hash) {
+        logThumbnailFailure(hash, thumbnails.submit(hash));
+    }
+
+    private static void logThumbnailFailure(String hash, CompletableFuture<Void> generation) {
+        generation.exceptionally(error -> {
+            // Rejected when the queue is full: they will be made on the first request instead
+            System.err.println("[LOG - MediaService] Thumbnails of " + hash + " not generated now: " + error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Moves an inline Base64 image (optionally as a data URL) to the store and returns its reference.
+     * The value is returned unchanged when offloading is disabled, when it is null or already a
+     * reference, or when it is not a Base64 image.
+     *
+     * @param value The value about to be written in the database.
+     * @return A CompletableFuture with the value to write instead.
+     */
+    public CompletableFuture<String> offload(String value) {
+        if (!offloadInline || value == null || value.isEmpty() || isReference(value)) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        byte[] content = decodeBase64(value);
+        if (content == null || content.length > maxBytes || detectImageType(content) == null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        return store(content).thenApply(MediaService::toReference);
+    }
+
+    public static boolean isReference(String value) {
+        return value != null && value.startsWith(REFERENCE_PREFIX);
+    }
+
+    public static String toReference(String hash) {
+        return REFERENCE_PREFIX + hash;
+    }
+
+    /**
+     * @return The hash of a reference, or null if the value is not a reference.
+     */
+    public static String hashOf(String reference) {
+        return isReference(reference) ? reference.substring(REFERENCE_PREFIX.length()) : null;
+    }
+
+    public static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(newSha256().digest(content));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Recognizes the supported image formats from their first bytes; the declared type is not trusted,
+     * since the files are served back with the detected one.
+     *
+     * @return The MIME type of the image, or null if it is not a PNG, JPEG, GIF or WebP image.
+     */
+    public static String detectImageType(byte[] content) {
+        if (startsWith(content, 0, 0x89, 'P', 'N', 'G')) return "image/png";
+        if (startsWith(content, 0, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(content, 0, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(content, 0, 'R', 'I', 'F', 'F') && startsWith(content, 8, 'W', 'E', 'B', 'P')) return "image/webp";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] content, int offset, int... prefix) {
+        if (content.length < offset + prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if ((content[offset + i] & 0xFF) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] decodeBase64(String value) {
+        String base64 = value;
+        if (base64.startsWith("data:")) {
+            int comma = base64.indexOf(',');
+            if (comma < 0 || !base64.substring(0, comma).endsWith(";base64")) return null;
+            base64 = base64.substring(comma + 1);
+        }
+        try {
+            return Base64.getMimeDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bicoChat_backend.service.media;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Storage of media files (avatars, message images) addressed by the SHA-256 of their content.
+ * Since the key is derived from the content, a file is written once and never changes.
+ * The thumbnails of a file are stored next to it, under the key {hash}_{size}.
+ */
+public interface MediaStore {
+
+    /**
+     * @param hash The SHA-256 of the content, in hexadecimal (or {hash}_{size} for a thumbnail).
+     * @return true if a file with this hash is already stored.
+     */
+    boolean exists(String hash) throws IOException;
+
+    /**
+     * Stores a file under its hash.
+     *
+     * @param hash The SHA-256 of the content, in hexadecimal (or {hash}_{size} for a thumbnail).
+     * @param content The content of the file.
+     * @param contentType The MIME type of the file.
+     */
+    void put(String hash, byte[] content, String contentType) throws IOException;
+
+    /**
+     * @param hash The SHA-256 of the content, in hexadecimal (or {hash}_{size} for a thumbnail).
+     * @return The stored file, or null if there is none with this hash.
+     */
+    StoredMedia get(String hash) throws IOException;
+
+    /**
+     * Starts writing a file whose hash is not known yet: the content is streamed to a temporary location
+     * and moved under its hash by commit, so it never has to be held in memory.
+     */
+    PendingUpload startUpload() throws IOException;
+
+    /**
+     * A file being streamed into the store.
+     */
+    interface PendingUpload {
+
+        /**
+         * @return The stream the content is written to.
+         */
+        OutputStream getOutputStream();
+
+        /**
+         * Closes the stream and stores the content under its hash; if a file with this hash
+         * is already stored, the temporary copy is dropped instead.
+         *
+         * @return true if the file was stored, false if it was already there.
+         */
+        boolean commit(String hash, String contentType) throws IOException;
+
+        /**
+         * Drops the temporary copy.
+         */
+        void abort();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bicoChat_backend.service.media;
+
+/**
+ * A media file read from a MediaStore.
+ */
+public class StoredMedia {
+
+    private final String hash;
+    private final byte[] content;
+    private final String contentType;
+
+    public StoredMedia(String hash, byte[] content, String contentType) {
+        this.hash = hash;
+        this.content = content;
+        this.contentType = contentType;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
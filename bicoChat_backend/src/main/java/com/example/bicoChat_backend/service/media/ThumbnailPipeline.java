@@ -0,0 +1,242 @@
+package com.example.bicoChat_backend.service.media;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces the thumbnails of the stored images: each image is decoded once and scaled so that its longest
+ * side fits every configured size, and each thumbnail is stored next to the original as {hash}_{size}.
+ * Opaque images are encoded as JPEG, images with transparency as PNG. For the sizes the image already fits in,
+ * and for images that cannot be decoded here (e.g. WebP, which ImageIO does not read), the original itself is
+ * stored as the variant, so every size can always be served from its own key.
+ *
+ * The work runs on a fixed pool of threads with a bounded queue. When the queue is full a submission is
+ * rejected right away instead of waiting, so a burst of large uploads never holds up the request threads;
+ * the thumbnails of a rejected image are generated later, on the first request of one of them.
+ */
+public class ThumbnailPipeline {
+
+    private final MediaStore mediaStore;
+    private final List<Integer> sizes;
+    private final long maxPixels; // Larger images are not decoded at all
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong generatedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public ThumbnailPipeline(MediaStore mediaStore, List<Integer> sizes, int threads, int queueCapacity, long maxPixels) {
+        this.mediaStore = mediaStore;
+        this.sizes = List.copyOf(sizes);
+        this.maxPixels = maxPixels;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                Math.max(1, threads), Math.max(1, threads),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-thumbnails-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return true if thumbnails of this size are produced.
+     */
+    public boolean supports(int size) {
+        return sizes.contains(size);
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public static String variantKey(String hash, int size) {
+        return hash + "_" + size;
+    }
+
+    /**
+     * Queues the generation of every thumbnail of an image.
+     *
+     * @param hash The hash of the original.
+     * @param content The content of the original.
+     * @param contentType The MIME type of the original.
+     * @return A CompletableFuture that completes when the thumbnails are stored, or fails with
+     *         RejectedExecutionException right away if the queue is full.
+     */
+    public CompletableFuture<Void> submit(String hash, byte[] content, String contentType) {
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    generate(hash, content, contentType);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Queues the generation of every thumbnail of an image already in the store; the original is read
+     * by the worker, so the caller does not have to hold it in memory.
+     *
+     * @param hash The hash of the original.
+     * @return A CompletableFuture that completes when the thumbnails are stored, or fails with
+     *         RejectedExecutionException right away if the queue is full.
+     */
+    public CompletableFuture<Void> submit(String hash) {
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    StoredMedia original = mediaStore.get(hash);
+                    if (original != null) {
+                        generate(hash, original.getContent(), original.getContentType());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void generate(String hash, byte[] content, String contentType) throws IOException {
+        BufferedImage original = decode(content);
+        int longestSide = original != null ? Math.max(original.getWidth(), original.getHeight()) : 0;
+
+        for (int size : sizes) {
+            String key = variantKey(hash, size);
+            if (mediaStore.exists(key)) {
+                continue;
+            }
+            if (original == null || size >= longestSide) {
+                mediaStore.put(key, content, contentType);
+                continue;
+            }
+            boolean alpha = original.getColorModel().hasAlpha();
+            byte[] thumbnail = encode(scale(original, size, alpha), alpha);
+            mediaStore.put(key, thumbnail, alpha ? "image/png" : "image/jpeg");
+            generatedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Decodes an image, after checking from its header that it is not too large to hold in memory.
+     *
+     * @return The image, or null if no installed reader understands it, it is corrupt or it is larger than maxPixels.
+     */
+    private BufferedImage decode(byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scales an image so that its longest side is maxSide, halving it step by step first
+     * so that large reductions stay smooth with bilinear interpolation.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxSide, boolean alpha) {
+        double ratio = (double) maxSide / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean alpha) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.85f);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @return The number of thumbnails stored since startup.
+     */
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    /**
+     * @return The number of images whose thumbnails were not queued because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
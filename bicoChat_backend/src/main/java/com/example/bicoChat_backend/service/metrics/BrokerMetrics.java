@@ -0,0 +1,479 @@
+package com.example.bicoChat_backend.service.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters of the STOMP broker (see WebSocketConfig), also served by the stomp actuator endpoint:
+ * - bicochat.websocket.sessions and bicochat.websocket.subscriptions (per destination);
+ * - bicochat.websocket.messages and bicochat.websocket.bytes: frames and payload bytes per destination and direction.
+ *   Outbound counts every copy delivered to a subscriber: one push to a topic with 100 subscribers counts 100;
+ * - bicochat.websocket.channel.*: queue, active threads, pool size and saturation of the client inbound and
+ *   outbound channel executors;
+ * - bicochat.websocket.slow-sends: deliveries to a session that took longer than slow-send-ms,
+ *   bicochat.websocket.slow-consumers: sessions with a slow delivery in the last slow-window-ms,
+ *   bicochat.websocket.dropped-sessions: sessions closed because their send buffer or send time limit was exceeded.
+ *
+ * Destinations with a key are templated (/topic/messages/{chatId}); after max-destinations the rest are "other".
+ * Without a MeterRegistry bean the meters are no-ops, and the stomp endpoint still reports the counts kept here.
+ */
+@Component
+public class BrokerMetrics {
+
+    public static final String INBOUND = "inbound";
+    public static final String OUTBOUND = "outbound";
+
+    static final String OTHER = "other";
+    static final String NONE = "none";
+
+    // Destinations ending with a key, by prefix
+    private static final Map<String, String> KEYED_DESTINATIONS = Map.of(
+            "/topic/messages/", "/topic/messages/{chatId}");
+
+    private final MeterRegistry registry;
+    private final int maxDestinations;
+    private final long slowSendNanos;
+    private final long slowWindowNanos;
+
+    private final Set<String> knownDestinations = ConcurrentHashMap.newKeySet();
+    // sessionId -> subscriptionId -> destination tag
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Traffic> inbound = new ConcurrentHashMap<>();
+    private final Map<String, Traffic> outbound = new ConcurrentHashMap<>();
+    // sessionId -> System.nanoTime() of its last slow delivery
+    private final Map<String, Long> slowSessions = new ConcurrentHashMap<>();
+    private final LongAdder slowSends = new LongAdder();
+    private final LongAdder droppedSessions = new LongAdder();
+    private final Map<String, ChannelPool> channels = new LinkedHashMap<>();
+    private final Timer sendTimer;
+    private final ThreadLocal<Long> handleStart = new ThreadLocal<>();
+
+    private long lastReadNanos = System.nanoTime();
+
+    @Autowired
+    public BrokerMetrics(ObjectProvider<MeterRegistry> registry,
+                         @Qualifier("clientInboundChannelExecutor") ObjectProvider<TaskExecutor> inboundExecutor,
+                         @Qualifier("clientOutboundChannelExecutor") ObjectProvider<TaskExecutor> outboundExecutor,
+                         @Value("${bicochat.metrics.websocket.max-destinations:100}") int maxDestinations,
+                         @Value("${bicochat.metrics.websocket.slow-send-ms:500}") long slowSendMs,
+                         @Value("${bicochat.metrics.websocket.slow-window-ms:60000}") long slowWindowMs) {
+        this(registry.getIfAvailable(CompositeMeterRegistry::new), inboundExecutor, outboundExecutor, // An empty composite records nothing
+                maxDestinations, slowSendMs, slowWindowMs);
+    }
+
+    public BrokerMetrics(MeterRegistry registry,
+                         ObjectProvider<TaskExecutor> inboundExecutor,
+                         ObjectProvider<TaskExecutor> outboundExecutor,
+                         int maxDestinations, long slowSendMs, long slowWindowMs) {
+        this.registry = registry;
+        this.maxDestinations = maxDestinations;
+        this.slowSendNanos = TimeUnit.MILLISECONDS.toNanos(slowSendMs);
+        this.slowWindowNanos = TimeUnit.MILLISECONDS.toNanos(slowWindowMs);
+
+        // The executors are resolved on the first read: they are created after the WebSocketConfig that uses this bean
+        channels.put(INBOUND, new ChannelPool(inboundExecutor));
+        channels.put(OUTBOUND, new ChannelPool(outboundExecutor));
+        channels.forEach(this::registerChannel);
+
+        Gauge.builder("bicochat.websocket.sessions", sessions, Map::size)
+                .description("Open STOMP sessions")
+                .register(registry);
+        Gauge.builder("bicochat.websocket.slow-consumers", this, BrokerMetrics::getSlowConsumerCount)
+                .description("Sessions with a delivery slower than slow-send-ms in the last slow-window-ms")
+                .register(registry);
+        FunctionCounter.builder("bicochat.websocket.slow-sends", slowSends, LongAdder::sum)
+                .description("Deliveries to a session slower than slow-send-ms")
+                .register(registry);
+        FunctionCounter.builder("bicochat.websocket.dropped-sessions", droppedSessions, LongAdder::sum)
+                .description("Sessions closed because their send buffer or send time limit was exceeded")
+                .register(registry);
+        sendTimer = Timer.builder("bicochat.websocket.send")
+                .description("Time to hand a frame to a session on the clientOutboundChannel")
+                .register(registry);
+    }
+
+    /**
+     * Returns the interceptor of the clientInboundChannel: it follows the sessions and subscriptions and counts the
+     * frames sent by the clients.
+     */
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                onInbound(message);
+                return message;
+            }
+        };
+    }
+
+    /**
+     * Returns the interceptor of the clientOutboundChannel: it counts the frames delivered to each destination and
+     * times their delivery to the sessions.
+     */
+    public ExecutorChannelInterceptor outboundInterceptor() {
+        return new ExecutorChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                MessageHeaders headers = message.getHeaders();
+                if (SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE) {
+                    traffic(outbound, OUTBOUND, destinationTag(SimpMessageHeaderAccessor.getDestination(headers)))
+                            .add(payloadSize(message.getPayload()));
+                }
+                return message;
+            }
+
+            @Override
+            public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+                handleStart.set(System.nanoTime());
+                return message;
+            }
+
+            @Override
+            public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+                Long start = handleStart.get();
+                handleStart.remove();
+                if (start != null) {
+                    sent(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Decorates the WebSocket handler to count the sessions closed for exceeding their send limits
+     * (SESSION_NOT_RELIABLE, see ConcurrentWebSocketSessionDecorator).
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                if (closeStatus.equalsCode(CloseStatus.SESSION_NOT_RELIABLE)) {
+                    droppedSessions.increment();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Returns the tag of a destination: keys replaced by a placeholder, "other" once max-destinations are known.
+     */
+    public String destinationTag(String destination) {
+        if (destination == null) {
+            return NONE;
+        }
+        String tag = destination;
+        for (Map.Entry<String, String> keyed : KEYED_DESTINATIONS.entrySet()) {
+            if (destination.startsWith(keyed.getKey())) {
+                tag = keyed.getValue();
+                break;
+            }
+        }
+        if (knownDestinations.contains(tag)) {
+            return tag;
+        }
+        if (knownDestinations.size() >= maxDestinations) {
+            return OTHER;
+        }
+        knownDestinations.add(tag);
+        return tag;
+    }
+
+    /**
+     * Returns the sessions with a slow delivery in the last slow-window-ms.
+     */
+    public int getSlowConsumerCount() {
+        long now = System.nanoTime();
+        slowSessions.values().removeIf(lastSlow -> now - lastSlow > slowWindowNanos);
+        return slowSessions.size();
+    }
+
+    /**
+     * Describes the broker for the stomp actuator endpoint. The rates are averaged since the previous call.
+     *
+     * @return Sessions, channels, slow consumers and destinations, the busiest outbound destinations first.
+     */
+    public synchronized Map<String, Object> describe() {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - lastReadNanos, 1) / 1e9;
+        lastReadNanos = now;
+
+        Map<String, Object> channelStats = new LinkedHashMap<>();
+        channels.forEach((name, pool) -> channelStats.put(name, pool.describe()));
+
+        Set<String> destinations = new TreeSet<>(subscriptions.keySet());
+        destinations.addAll(inbound.keySet());
+        destinations.addAll(outbound.keySet());
+        List<Map<String, Object>> destinationStats = new ArrayList<>();
+        for (String destination : destinations) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("destination", destination);
+            AtomicInteger subscribed = subscriptions.get(destination);
+            stats.put("subscriptions", subscribed != null ? subscribed.get() : 0);
+            stats.put(INBOUND, describe(inbound.get(destination), seconds));
+            stats.put(OUTBOUND, describe(outbound.get(destination), seconds));
+            destinationStats.add(stats);
+        }
+        destinationStats.sort(Comparator.comparingDouble(stats -> -outboundBytesPerSecond(stats)));
+
+        Map<String, Object> broker = new LinkedHashMap<>();
+        broker.put("sessions", sessions.size());
+        broker.put("slowConsumers", getSlowConsumerCount());
+        broker.put("slowSends", slowSends.sum());
+        broker.put("droppedSessions", droppedSessions.sum());
+        broker.put("channels", channelStats);
+        broker.put("rateWindowSeconds", seconds);
+        broker.put("destinations", destinationStats);
+        return broker;
+    }
+
+    private void onInbound(Message<?> message) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (type == null || sessionId == null) {
+            return;
+        }
+        switch (type) {
+            case CONNECT -> sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>());
+            case SUBSCRIBE -> {
+                String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+                String destination = destinationTag(SimpMessageHeaderAccessor.getDestination(headers));
+                if (subscriptionId != null
+                        && sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination) == null) {
+                    subscriptionCount(destination).incrementAndGet();
+                }
+            }
+            case UNSUBSCRIBE -> {
+                Map<String, String> subscribed = sessions.get(sessionId);
+                String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+                String destination = subscribed != null && subscriptionId != null ? subscribed.remove(subscriptionId) : null;
+                if (destination != null) {
+                    subscriptionCount(destination).decrementAndGet();
+                }
+            }
+            case DISCONNECT -> {
+                // Sent by the client and again when the connection closes: only the first one finds the session
+                Map<String, String> subscribed = sessions.remove(sessionId);
+                if (subscribed != null) {
+                    subscribed.values().forEach(destination -> subscriptionCount(destination).decrementAndGet());
+                }
+                slowSessions.remove(sessionId);
+            }
+            case MESSAGE -> traffic(inbound, INBOUND, destinationTag(SimpMessageHeaderAccessor.getDestination(headers)))
+                    .add(payloadSize(message.getPayload()));
+            default -> {
+            }
+        }
+    }
+
+    private void sent(String sessionId, long nanos) {
+        sendTimer.record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > slowSendNanos) {
+            slowSends.increment();
+            // A session that disconnected meanwhile is not tracked again
+            if (sessionId != null && sessions.containsKey(sessionId)) {
+                slowSessions.put(sessionId, System.nanoTime());
+            }
+        }
+    }
+
+    private AtomicInteger subscriptionCount(String destination) {
+        return subscriptions.computeIfAbsent(destination, name -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("bicochat.websocket.subscriptions", count, AtomicInteger::get)
+                    .description("STOMP subscriptions per destination")
+                    .tag("destination", name)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    private Traffic traffic(Map<String, Traffic> byDestination, String direction, String destination) {
+        return byDestination.computeIfAbsent(destination, name -> {
+            Traffic traffic = new Traffic();
+            FunctionCounter.builder("bicochat.websocket.messages", traffic.messages, LongAdder::sum)
+                    .description("STOMP MESSAGE frames per destination")
+                    .tag("direction", direction)
+                    .tag("destination", name)
+                    .register(registry);
+            FunctionCounter.builder("bicochat.websocket.bytes", traffic.bytes, LongAdder::sum)
+                    .description("Payload bytes of the STOMP MESSAGE frames per destination")
+                    .baseUnit("bytes")
+                    .tag("direction", direction)
+                    .tag("destination", name)
+                    .register(registry);
+            return traffic;
+        });
+    }
+
+    private void registerChannel(String name, ChannelPool pool) {
+        channelGauge("bicochat.websocket.channel.queued", "Tasks waiting in the channel executor queue", name, pool,
+                executor -> executor.getQueue().size());
+        channelGauge("bicochat.websocket.channel.active", "Threads of the channel executor running a task", name, pool,
+                ThreadPoolExecutor::getActiveCount);
+        channelGauge("bicochat.websocket.channel.pool-size", "Threads of the channel executor", name, pool,
+                ThreadPoolExecutor::getPoolSize);
+        channelGauge("bicochat.websocket.channel.saturation", "Active threads over the threads the channel executor can use",
+                name, pool, ChannelPool::saturation);
+        FunctionCounter.builder("bicochat.websocket.channel.completed", pool,
+                        channelPool -> channelPool.read(ThreadPoolExecutor::getCompletedTaskCount))
+                .description("Tasks completed by the channel executor")
+                .tag("channel", name)
+                .register(registry);
+    }
+
+    private void channelGauge(String meter, String description, String name, ChannelPool pool,
+                              ToDoubleFunction<ThreadPoolExecutor> value) {
+        Gauge.builder(meter, pool, channelPool -> channelPool.read(value))
+                .description(description)
+                .tag("channel", name)
+                .register(registry);
+    }
+
+    private static Map<String, Object> describe(Traffic traffic, double seconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long messages = traffic != null ? traffic.messages.sum() : 0;
+        long bytes = traffic != null ? traffic.bytes.sum() : 0;
+        stats.put("messages", messages);
+        stats.put("bytes", bytes);
+        stats.put("messagesPerSecond", traffic != null ? (messages - traffic.readMessages) / seconds : 0.0);
+        stats.put("bytesPerSecond", traffic != null ? (bytes - traffic.readBytes) / seconds : 0.0);
+        if (traffic != null) {
+            traffic.readMessages = messages;
+            traffic.readBytes = bytes;
+        }
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double outboundBytesPerSecond(Map<String, Object> stats) {
+        return (double) ((Map<String, Object>) stats.get(OUTBOUND)).get("bytesPerSecond");
+    }
+
+    private static long payloadSize(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (payload instanceof String string) {
+            return string.length();
+        }
+        return 0;
+    }
+
+    /**
+     * Frames and payload bytes of one destination in one direction.
+     */
+    private static final class Traffic {
+
+        final LongAdder messages = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        // Totals at the previous describe(), guarded by the BrokerMetrics lock
+        long readMessages;
+        long readBytes;
+
+        void add(long size) {
+            messages.increment();
+            bytes.add(size);
+        }
+    }
+
+    /**
+     * The thread pool behind a channel, resolved on first use.
+     */
+    private static final class ChannelPool {
+
+        private final ObjectProvider<TaskExecutor> provider;
+        private volatile ThreadPoolExecutor executor;
+
+        ChannelPool(ObjectProvider<TaskExecutor> provider) {
+            this.provider = provider;
+        }
+
+        double read(ToDoubleFunction<ThreadPoolExecutor> value) {
+            ThreadPoolExecutor pool = executor();
+            return pool != null ? value.applyAsDouble(pool) : Double.NaN;
+        }
+
+        /**
+         * Active threads over the threads the pool can use: with an unbounded queue (the default of the channels)
+         * the pool never grows past its core size, otherwise it grows up to its maximum size.
+         */
+        static double saturation(ThreadPoolExecutor pool) {
+            BlockingQueue<Runnable> queue = pool.getQueue();
+            boolean unbounded = (long) queue.remainingCapacity() + queue.size() >= Integer.MAX_VALUE;
+            int limit = unbounded ? pool.getCorePoolSize() : pool.getMaximumPoolSize();
+            return limit > 0 ? (double) pool.getActiveCount() / limit : 0;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            ThreadPoolExecutor pool = executor();
+            if (pool == null) {
+                stats.put("available", false);
+                return stats;
+            }
+            stats.put("queued", pool.getQueue().size());
+            stats.put("active", pool.getActiveCount());
+            stats.put("poolSize", pool.getPoolSize());
+            stats.put("corePoolSize", pool.getCorePoolSize());
+            stats.put("maxPoolSize", pool.getMaximumPoolSize());
+            stats.put("saturation", saturation(pool));
+            stats.put("completed", pool.getCompletedTaskCount());
+            return stats;
+        }
+
+        private ThreadPoolExecutor executor() {
+            ThreadPoolExecutor pool = executor;
+            if (pool == null) {
+                try {
+                    if (provider.getIfAvailable() instanceof ThreadPoolTaskExecutor threadPool) {
+                        pool = threadPool.getThreadPoolExecutor();
+                        executor = pool;
+                    }
+                } catch (RuntimeException e) {
+                    return null; // Not created or not initialized yet
+                }
+            }
+            return pool;
+        }
+    }
+}
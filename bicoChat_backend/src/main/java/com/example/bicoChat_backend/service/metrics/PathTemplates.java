@@ -0,0 +1,88 @@
+package com.example.bicoChat_backend.service.metrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns database paths into templates for the metric tags, replacing the keys of the known collections
+ * with a placeholder: users/u1/chatUser/c9/unreadCount becomes users/{uid}/chatUser/{chatId}/unreadCount.
+ * After maxTemplates distinct templates every new one is reported as "other", so an unknown collection
+ * cannot flood the metrics with one series per key.
+ */
+public class PathTemplates {
+
+    static final String OTHER = "other";
+    static final String ROOT = "/";
+
+    // The children of these nodes are keys, named after what they identify
+    private static final Map<String, String> KEYS_UNDER = Map.ofEntries(
+            Map.entry("users", "{uid}"),
+            Map.entry("chats", "{chatId}"),
+            Map.entry("chatMeta", "{chatId}"),
+            Map.entry("chatReads", "{chatId}"),
+            Map.entry("presence", "{uid}"),
+            Map.entry("chatUser", "{chatId}"),
+            Map.entry("hiddenChats", "{chatId}"),
+            Map.entry("friends", "{uid}"),
+            Map.entry("friendRequests", "{uid}"),
+            Map.entry("messages", "{messageId}"),
+            Map.entry("participants", "{index}"));
+
+    private final int maxTemplates;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+
+    public PathTemplates(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    /**
+     * Returns the template of a path.
+     *
+     * @param path The database path, with or without leading and trailing slashes.
+     * @return The template, "/" for the root, or "other" once the limit of templates is reached.
+     */
+    public String template(String path) {
+        return template(path, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the template of the first segments of a path.
+     *
+     * @param path The database path.
+     * @param depth How many segments to keep.
+     * @return The template of the truncated path.
+     */
+    public String template(String path, int depth) {
+        String[] segments = path.split("/");
+        StringBuilder template = new StringBuilder();
+        String parent = null;
+        boolean parentIsChatRead = false;
+        int kept = 0;
+        for (String segment : segments) {
+            if (segment.isEmpty()) continue;
+            if (kept == depth) break;
+
+            String placeholder = parent != null ? KEYS_UNDER.get(parent) : null;
+            if (parentIsChatRead) {
+                placeholder = "{uid}"; // chatReads/{chatId}/{uid}
+            }
+            parentIsChatRead = "chatReads".equals(parent) && placeholder != null;
+
+            if (kept > 0) template.append('/');
+            template.append(placeholder != null ? placeholder : segment);
+            parent = placeholder != null ? null : segment; // A key is never a collection itself
+            kept++;
+        }
+
+        String result = template.isEmpty() ? ROOT : template.toString();
+        if (known.contains(result)) {
+            return result;
+        }
+        if (known.size() >= maxTemplates) {
+            return OTHER;
+        }
+        known.add(result);
+        return result;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bicoChat_backend.service.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint /actuator/stomp: the state of the STOMP broker (see BrokerMetrics.describe).
+ * Exposed with management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "stomp")
+public class StompEndpoint {
+
+    private final BrokerMetrics brokerMetrics;
+
+    public StompEndpoint(BrokerMetrics brokerMetrics) {
+        this.brokerMetrics = brokerMetrics;
+    }
+
+    /**
+     * Returns the sessions, the channel executors, the slow consumers and the traffic per destination.
+     *
+     * @return The broker state, serialized as JSON.
+     */
+    @ReadOperation
+    public Map<String, Object> broker() {
+        return brokerMetrics.describe();
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.bicoChat_backend.service.metrics;
+
+import com.example.bicoChat_backend.service.storage.ValueMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters of the FirebaseService operations, tagged by operation and path template (see PathTemplates):
+ * - bicochat.storage.operations: timer from the call to the completion of the returned future (tag outcome);
+ * - bicochat.storage.payload: size of the values written and read, in bytes (estimated as JSON);
+ * - bicochat.storage.in-flight: operations started and not completed yet, per operation;
+ * - bicochat.storage.errors: failed operations, tagged by exception.
+ *
+ * Histograms for the Prometheus percentiles are off by default and can be turned on with
+ * management.metrics.distribution.percentiles-histogram.bicochat.storage=true.
+ * Without a MeterRegistry bean (e.g. metrics auto-configuration excluded) the meters are no-ops.
+ */
+@Component
+public class StorageMetrics {
+
+    public static final String GET = "get";
+    public static final String SET = "set";
+    public static final String UPDATE = "update";
+    public static final String UPDATE_MULTI = "updateMulti";
+    public static final String DELETE = "delete";
+    public static final String INCREMENT = "increment";
+    public static final String QUERY = "query";
+
+    private final MeterRegistry registry;
+    private final PathTemplates pathTemplates;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    // Sizing a payload walks the whole value, which can be turned off on very large trees
+    @Value("${bicochat.metrics.storage.payload-sizes:true}")
+    private boolean payloadSizes = true;
+
+    @Autowired
+    public StorageMetrics(ObjectProvider<MeterRegistry> registry,
+                          @Value("${bicochat.metrics.storage.max-path-templates:500}") int maxPathTemplates) {
+        this(registry.getIfAvailable(CompositeMeterRegistry::new), maxPathTemplates); // An empty composite records nothing
+    }
+
+    public StorageMetrics(MeterRegistry registry, int maxPathTemplates) {
+        this.registry = registry;
+        this.pathTemplates = new PathTemplates(maxPathTemplates);
+    }
+
+    /**
+     * Returns the path tag of a single-path operation.
+     */
+    public String pathTag(String path) {
+        return pathTemplates.template(path);
+    }
+
+    /**
+     * Returns the path tag of a multi-path update: the distinct templates of the first two segments
+     * of its paths, e.g. "chatMeta/{chatId}+chats/{chatId}+users/{uid}".
+     */
+    public String pathTag(Collection<String> paths) {
+        TreeSet<String> templates = new TreeSet<>();
+        for (String path : paths) {
+            templates.add(pathTemplates.template(path, 2));
+        }
+        return templates.isEmpty() ? PathTemplates.ROOT : String.join("+", templates);
+    }
+
+    /**
+     * Runs an operation and records its duration, outcome and in-flight count.
+     *
+     * @param operation The operation name (e.g. StorageMetrics.GET).
+     * @param pathTag The path tag (see pathTag).
+     * @param call Starts the operation.
+     * @return The future of the operation.
+     */
+    public <T> CompletableFuture<T> record(String operation, String pathTag, Supplier<CompletableFuture<T>> call) {
+        AtomicInteger running = inFlight(operation);
+        running.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        // The result completes on the thread that completed the operation, once the meters are recorded
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> {
+            running.decrementAndGet();
+            sample.stop(Timer.builder("bicochat.storage.operations")
+                    .description("FirebaseService operations, from the call to the completion of the future")
+                    .tag("operation", operation)
+                    .tag("path", pathTag)
+                    .tag("outcome", error == null ? "success" : "error")
+                    .register(registry));
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Counter.builder("bicochat.storage.errors")
+                        .description("Failed FirebaseService operations")
+                        .tag("operation", operation)
+                        .tag("path", pathTag)
+                        .tag("exception", cause.getClass().getSimpleName())
+                        .register(registry)
+                        .increment();
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Exposes a count kept by the caller as bicochat.storage.coalesced-reads.
+     *
+     * @param owner The object holding the count.
+     * @param count Reads the count from the owner.
+     */
+    public <T> void registerCoalescedReads(T owner, ToDoubleFunction<T> count) {
+        FunctionCounter.builder("bicochat.storage.coalesced-reads", owner, count)
+                .description("Reads served by joining an identical read already in flight")
+                .register(registry);
+    }
+
+    /**
+     * Tells whether payload sizes are recorded (bicochat.metrics.storage.payload-sizes).
+     */
+    public boolean isRecordingPayloads() {
+        return payloadSizes;
+    }
+
+    /**
+     * Records the size of a value written or read.
+     *
+     * @param operation The operation name.
+     * @param pathTag The path tag.
+     * @param value The value: plain Java types (maps, lists, strings, numbers, booleans) or model objects.
+     */
+    public void recordPayload(String operation, String pathTag, Object value) {
+        if (!payloadSizes) {
+            return;
+        }
+        DistributionSummary.builder("bicochat.storage.payload")
+                .description("Size of the values written and read by FirebaseService, estimated as JSON")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("path", pathTag)
+                .register(registry)
+                .record(PayloadSize.estimate(value));
+    }
+
+    private AtomicInteger inFlight(String operation) {
+        return inFlight.computeIfAbsent(operation, name -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("bicochat.storage.in-flight", count, AtomicInteger::get)
+                    .description("FirebaseService operations started and not completed yet")
+                    .tag("operation", name)
+                    .register(registry);
+            return count;
+        });
+    }
+
+    /**
+     * Estimates the JSON size of a value without serializing it.
+     */
+    static final class PayloadSize {
+
+        private PayloadSize() {
+        }
+
+        static long estimate(Object value) {
+            if (value == null) {
+                return 4;
+            }
+            if (value instanceof String string) {
+                return string.length() + 2L;
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return String.valueOf(value).length();
+            }
+            if (value instanceof Map<?, ?> map) {
+                long size = 2 + Math.max(map.size() - 1, 0); // {} and the commas between the entries
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += String.valueOf(entry.getKey()).length() + 3L + estimate(entry.getValue()); // "key":value
+                }
+                return size;
+            }
+            if (value instanceof Collection<?> collection) {
+                long size = 2 + Math.max(collection.size() - 1, 0); // [] and the commas between the elements
+                for (Object element : collection) {
+                    size += estimate(element);
+                }
+                return size;
+            }
+            // A model object: sized as the map Firebase would store
+            try {
+                return estimate(ValueMapper.toPlain(value));
+            } catch (RuntimeException e) {
+                return 0; // Not serializable: the write itself fails
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bicoChat_backend.service.storage;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StorageSnapshot backed by a Firebase DataSnapshot; every accessor delegates to it.
+ */
+public class FirebaseSnapshot implements StorageSnapshot {
+
+    private final DataSnapshot snapshot;
+
+    public FirebaseSnapshot(DataSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public String getKey() {
+        return snapshot.getKey();
+    }
+
+    @Override
+    public boolean exists() {
+        return snapshot.exists();
+    }
+
+    @Override
+    public Object getValue() {
+        return snapshot.getValue();
+    }
+
+    @Override
+    public <T> T getValue(Class<T> valueType) {
+        return snapshot.getValue(valueType);
+    }
+
+    @Override
+    public <T> T getValue(GenericTypeIndicator<T> typeIndicator) {
+        return snapshot.getValue(typeIndicator);
+    }
+
+    @Override
+    public StorageSnapshot child(String path) {
+        return new FirebaseSnapshot(snapshot.child(path));
+    }
+
+    @Override
+    public Iterable<StorageSnapshot> getChildren() {
+        List<StorageSnapshot> children = new ArrayList<>();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            children.add(new FirebaseSnapshot(child));
+        }
+        return children;
+    }
+
+    @Override
+    public DataSnapshot toDataSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bicoChat_backend.service.storage;
+
+import com.google.firebase.database.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * StorageBackend on the Firebase Realtime Database. Futures and listeners are completed on the
+ * Firebase SDK event thread, as with the SDK itself.
+ */
+public class FirebaseStorageBackend implements StorageBackend {
+
+    private final DatabaseReference databaseReference;
+
+    public FirebaseStorageBackend(DatabaseReference databaseReference) {
+        this.databaseReference = databaseReference;
+    }
+
+    public DatabaseReference getDatabaseReference() {
+        return databaseReference;
+    }
+
+    @Override
+    public CompletableFuture<StorageSnapshot> read(String path) {
+        return readOnce(databaseReference.child(path));
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String path, Object value) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        databaseReference.child(path).setValue(value, (error, ref) -> completeWrite(future, error));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String path, Map<String, Object> updates) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        databaseReference.child(path).updateChildren(updates, (error, ref) -> completeWrite(future, error));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> updateMulti(Map<String, Object> updates) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        databaseReference.updateChildren(updates, (error, ref) -> completeWrite(future, error));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(String path, long delta) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+
+        databaseReference.child(path).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData currentData) {
+                Long current = currentData.getValue(Long.class);
+                currentData.setValue((current != null ? current : 0L) + delta);
+                return Transaction.success(currentData);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot currentData) {
+                if (error != null) {
+                    future.completeExceptionally(error.toException());
+                } else {
+                    future.complete(currentData != null ? currentData.getValue(Long.class) : null);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<StorageSnapshot> query(String path, StorageQuery query) {
+        DatabaseReference reference = databaseReference.child(path);
+        Query firebaseQuery = query.getOrderByChild() != null ? reference.orderByChild(query.getOrderByChild()) : reference.orderByKey();
+        if (query.hasStart()) {
+            firebaseQuery = startAt(firebaseQuery, query.getStartValue(), query.getStartKey());
+        }
+        if (query.hasEnd()) {
+            firebaseQuery = endAt(firebaseQuery, query.getEndValue(), query.getEndKey());
+        }
+        if (query.getLimitToFirst() != null) {
+            firebaseQuery = firebaseQuery.limitToFirst(query.getLimitToFirst());
+        }
+        if (query.getLimitToLast() != null) {
+            firebaseQuery = firebaseQuery.limitToLast(query.getLimitToLast());
+        }
+        return readOnce(firebaseQuery);
+    }
+
+    @Override
+    public Registration addValueListener(String path, ValueListener listener) {
+        DatabaseReference reference = databaseReference.child(path);
+        ValueEventListener firebaseListener = new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                listener.onValue(new FirebaseSnapshot(snapshot));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        };
+        reference.addValueEventListener(firebaseListener);
+        return () -> reference.removeEventListener(firebaseListener);
+    }
+
+    @Override
+    public Registration addChildListener(String path, ChildListener listener) {
+        DatabaseReference reference = databaseReference.child(path);
+        ChildEventListener firebaseListener = new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                listener.onChildAdded(new FirebaseSnapshot(snapshot));
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                listener.onChildChanged(new FirebaseSnapshot(snapshot));
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+                listener.onChildRemoved(new FirebaseSnapshot(snapshot));
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                // Only the order changed: nothing to report
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        };
+        reference.addChildEventListener(firebaseListener);
+        return () -> reference.removeEventListener(firebaseListener);
+    }
+
+    private static CompletableFuture<StorageSnapshot> readOnce(Query query) {
+        CompletableFuture<StorageSnapshot> future = new CompletableFuture<>();
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                future.complete(new FirebaseSnapshot(snapshot));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                future.completeExceptionally(error.toException());
+            }
+        });
+        return future;
+    }
+
+    private static void completeWrite(CompletableFuture<Void> future, DatabaseError error) {
+        if (error != null) {
+            future.completeExceptionally(error.toException());
+        } else {
+            future.complete(null);
+        }
+    }
+
+    private static Query startAt(Query query, Object value, String key) {
+        if (value instanceof Boolean b) return key != null ? query.startAt(b, key) : query.startAt(b);
+        if (value instanceof Number n) return key != null ? query.startAt(n.doubleValue(), key) : query.startAt(n.doubleValue());
+        String s = value != null ? value.toString() : null;
+        return key != null ? query.startAt(s, key) : query.startAt(s);
+    }
+
+    private static Query endAt(Query query, Object value, String key) {
+        if (value instanceof Boolean b) return key != null ? query.endAt(b, key) : query.endAt(b);
+        if (value instanceof Number n) return key != null ? query.endAt(n.doubleValue(), key) : query.endAt(n.doubleValue());
+        String s = value != null ? value.toString() : null;
+        return key != null ? query.endAt(s, key) : query.endAt(s);
+    }
+}
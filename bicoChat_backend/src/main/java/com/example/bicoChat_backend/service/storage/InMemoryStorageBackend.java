@@ -0,0 +1,54 @@
+package com.example.bicoChat_backend.service.storage;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * StorageBackend holding the whole tree in memory, for tests, benchmarks and load tests without Firebase.
+ * Reads run concurrently under a read lock, writes under the write lock, so a multi-path update is
+ * atomic. Both run on the calling thread and the returned futures are already complete; only the
+ * listener events are delivered asynchronously. Nothing survives a restart.
+ */
+public class InMemoryStorageBackend extends LocalStorageBackend {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Object root; // Canonical tree, null when empty
+
+    public InMemoryStorageBackend() {
+        super(Runnable::run, Runnable::run);
+    }
+
+    @Override
+    protected Object readTree(String[] segments) {
+        lock.readLock().lock();
+        try {
+            return TreeValues.copy(TreeValues.get(root, segments));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void writeTree(Map<String, Object> updates) {
+        lock.writeLock().lock();
+        try {
+            updates.forEach((path, value) -> root = TreeValues.put(root, TreeValues.segments(path), 0, value));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected long incrementTree(String[] segments, long delta) {
+        lock.writeLock().lock();
+        try {
+            Object current = TreeValues.get(root, segments);
+            long value = (current instanceof Number number ? number.longValue() : 0L) + delta;
+            root = TreeValues.put(root, segments, 0, value);
+            return value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bicoChat_backend.service.storage;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * StorageBackend keeping the tree in a relational database through JPA (the embedded H2 database by
+ * default, or any spring.datasource), one row per leaf (see StorageEntry). Unlike InMemoryStorageBackend
+ * the data can outlive the process, with a file-based spring.datasource.url.
+ *
+ * Every write runs in its own transaction on a single writer thread, so writes are applied in call
+ * order and an increment never races another write; reads run in parallel on virtual threads.
+ */
+public class JpaStorageBackend extends LocalStorageBackend {
+
+    private final StorageEntryRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService writer;
+    private final ExecutorService readers;
+
+    public JpaStorageBackend(StorageEntryRepository repository, PlatformTransactionManager transactionManager) {
+        this(repository, transactionManager,
+                Executors.newVirtualThreadPerTaskExecutor(),
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "storage-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    private JpaStorageBackend(StorageEntryRepository repository, PlatformTransactionManager transactionManager,
+                              ExecutorService readers, ExecutorService writer) {
+        super(readers, writer);
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readers = readers;
+        this.writer = writer;
+    }
+
+    @Override
+    protected Object readTree(String[] segments) {
+        String path = String.join("/", segments);
+        List<StorageEntry> entries = transactionTemplate.execute(status -> loadSubtree(path));
+        return assemble(path, entries);
+    }
+
+    @Override
+    protected void writeTree(Map<String, Object> updates) {
+        transactionTemplate.executeWithoutResult(status -> updates.forEach(this::replace));
+    }
+
+    @Override
+    protected long incrementTree(String[] segments, long delta) {
+        // Read and write can be separate transactions: no other write runs in between on the writer thread
+        Object current = readTree(segments);
+        long value = (current instanceof Number number ? number.longValue() : 0L) + delta;
+        String path = String.join("/", segments);
+        transactionTemplate.executeWithoutResult(status -> replace(path, value));
+        return value;
+    }
+
+    /**
+     * Stops the reader and writer threads and the event thread.
+     */
+    @Override
+    public void shutdown() {
+        writer.shutdown();
+        readers.shutdown();
+        super.shutdown();
+    }
+
+    private List<StorageEntry> loadSubtree(String path) {
+        return path.isEmpty() ? repository.findAll() : repository.findSubtree(path, likePrefix(path));
+    }
+
+    /**
+     * Replaces the subtree at a path: removes its leaves and the leaves on its ancestors, then inserts the new leaves.
+     */
+    private void replace(String path, Object value) {
+        if (path.isEmpty()) {
+            repository.deleteAllInBatch();
+        } else {
+            repository.deleteSubtree(path, likePrefix(path));
+            List<String> ancestors = new ArrayList<>();
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                ancestors.add(path.substring(0, slash));
+            }
+            if (!ancestors.isEmpty()) {
+                repository.deleteAllByIdInBatch(ancestors);
+            }
+        }
+
+        List<StorageEntry> leaves = new ArrayList<>();
+        flatten(path, value, leaves);
+        repository.saveAll(leaves);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String path, Object value, List<StorageEntry> leaves) {
+        if (value instanceof Map<?, ?> map) {
+            ((Map<String, Object>) map).forEach((key, child) -> flatten(path.isEmpty() ? key : path + "/" + key, child, leaves));
+        } else if (value != null) {
+            leaves.add(new StorageEntry(path, value));
+        }
+    }
+
+    private static Object assemble(String path, List<StorageEntry> entries) {
+        Object tree = null;
+        int offset = path.isEmpty() ? 0 : path.length() + 1;
+        for (StorageEntry entry : entries) {
+            String relative = entry.getPath().length() > offset ? entry.getPath().substring(offset) : "";
+            tree = TreeValues.put(tree, TreeValues.segments(relative), 0, entry.getLeaf());
+        }
+        return tree;
+    }
+
+    private static String likePrefix(String path) {
+        return path.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "/%";
+    }
+}
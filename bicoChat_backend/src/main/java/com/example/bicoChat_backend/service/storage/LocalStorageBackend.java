@@ -0,0 +1,359 @@
+package com.example.bicoChat_backend.service.storage;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Base of the backends that keep the tree in this process. Subclasses only read a subtree and apply
+ * a set of non-overlapping writes atomically; queries, increments and listeners are built on that.
+ *
+ * Listener events are delivered one at a time on a dedicated thread ("storage-events"), like the
+ * Firebase SDK event thread, in the order the writes were applied. A listener reads its path once, when
+ * it is attached; after that every write is routed only to the listeners on or under (or above) the
+ * written paths, with the written values, and each of them patches what it saw last along those paths.
+ * So the cost of a write depends on what was written, not on the size of the listened subtrees.
+ * The values given to the listeners are shared between events and must not be modified.
+ */
+public abstract class LocalStorageBackend implements StorageBackend {
+
+    private final Executor readExecutor;
+    private final Executor writeExecutor;
+    private final ExecutorService eventExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<ValueRegistration> valueRegistrations = new CopyOnWriteArrayList<>();
+    private final List<ChildRegistration> childRegistrations = new CopyOnWriteArrayList<>();
+    private final Object writeOrder = new Object(); // Writes and their events are queued in the same order
+
+    /**
+     * @param readExecutor Where reads run (e.g. Runnable::run to read on the calling thread).
+     * @param writeExecutor Where writes run.
+     */
+    protected LocalStorageBackend(Executor readExecutor, Executor writeExecutor) {
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Reads the canonical value at a path.
+     *
+     * @param segments The segments of the path (none for the root).
+     * @return A copy of the value that the caller owns, or null.
+     */
+    protected abstract Object readTree(String[] segments);
+
+    /**
+     * Applies canonical values atomically: readers see all of them or none.
+     *
+     * @param updates The values by normalized path (null removes the path); the paths do not overlap.
+     */
+    protected abstract void writeTree(Map<String, Object> updates);
+
+    /**
+     * Adds a delta to the number at a path atomically.
+     *
+     * @return The value after the increment.
+     */
+    protected abstract long incrementTree(String[] segments, long delta);
+
+    @Override
+    public CompletableFuture<StorageSnapshot> read(String path) {
+        String normalized = TreeValues.normalizePath(path);
+        return supply(readExecutor, () -> snapshot(normalized, readTree(TreeValues.segments(normalized))));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String path, Map<String, Object> updates) {
+        String base = TreeValues.normalizePath(path);
+        Map<String, Object> absolute = new LinkedHashMap<>();
+        updates.forEach((key, value) -> {
+            String child = TreeValues.normalizePath(key);
+            absolute.put(base.isEmpty() ? child : base + "/" + child, value);
+        });
+        return updateMulti(absolute);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateMulti(Map<String, Object> updates) {
+        Map<String, Object> canonical = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                String path = TreeValues.normalizePath(update.getKey());
+                for (String other : canonical.keySet()) {
+                    if (TreeValues.overlaps(path, other)) {
+                        throw new IllegalArgumentException("Path " + path + " overlaps " + other + " in the same update");
+                    }
+                }
+                canonical.put(path, TreeValues.canonical(update.getValue()));
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (canonical.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return supply(writeExecutor, () -> {
+            synchronized (writeOrder) {
+                // The listeners get their own copy: writeTree may keep the canonical values and modify them later
+                Map<String, Object> written = hasListeners(canonical.keySet()) ? copyValues(canonical) : null;
+                writeTree(canonical);
+                if (written != null) {
+                    notifyListeners(written);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(String path, long delta) {
+        String normalized = TreeValues.normalizePath(path);
+        return supply(writeExecutor, () -> {
+            synchronized (writeOrder) {
+                long value = incrementTree(TreeValues.segments(normalized), delta);
+                notifyListeners(Map.of(normalized, value));
+                return value;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<StorageSnapshot> query(String path, StorageQuery query) {
+        String normalized = TreeValues.normalizePath(path);
+        return supply(readExecutor, () -> snapshot(normalized, TreeValues.query(readTree(TreeValues.segments(normalized)), query)));
+    }
+
+    @Override
+    public Registration addValueListener(String path, ValueListener listener) {
+        ValueRegistration registration = new ValueRegistration(TreeValues.normalizePath(path), listener);
+        valueRegistrations.add(registration);
+        eventExecutor.execute(registration::deliverInitial);
+        return () -> {
+            registration.removed = true;
+            valueRegistrations.remove(registration);
+        };
+    }
+
+    @Override
+    public Registration addChildListener(String path, ChildListener listener) {
+        ChildRegistration registration = new ChildRegistration(TreeValues.normalizePath(path), listener);
+        childRegistrations.add(registration);
+        eventExecutor.execute(registration::deliverInitial);
+        return () -> {
+            registration.removed = true;
+            childRegistrations.remove(registration);
+        };
+    }
+
+    /**
+     * Stops the event thread; pending events are dropped.
+     */
+    public void shutdown() {
+        eventExecutor.shutdownNow();
+    }
+
+    private boolean hasListeners(Collection<String> changedPaths) {
+        for (ValueRegistration registration : valueRegistrations) {
+            if (overlapsAny(registration.path, changedPaths)) return true;
+        }
+        for (ChildRegistration registration : childRegistrations) {
+            if (overlapsAny(registration.path, changedPaths)) return true;
+        }
+        return false;
+    }
+
+    private static Map<String, Object> copyValues(Map<String, Object> values) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        values.forEach((path, value) -> copy.put(path, TreeValues.copy(value)));
+        return copy;
+    }
+
+    /**
+     * Queues the written values for the listeners on overlapping paths.
+     *
+     * @param written The written canonical values by normalized path, not modified afterwards.
+     */
+    private void notifyListeners(Map<String, Object> written) {
+        for (ValueRegistration registration : valueRegistrations) {
+            if (overlapsAny(registration.path, written.keySet())) {
+                eventExecutor.execute(() -> registration.apply(written));
+            }
+        }
+        for (ChildRegistration registration : childRegistrations) {
+            if (overlapsAny(registration.path, written.keySet())) {
+                eventExecutor.execute(() -> registration.apply(written));
+            }
+        }
+    }
+
+    private static boolean overlapsAny(String path, Collection<String> changedPaths) {
+        for (String changed : changedPaths) {
+            if (TreeValues.overlaps(path, changed)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return The segments of a path below a base path (which is the path itself or one of its ancestors).
+     */
+    private static String[] relative(String[] base, String[] path) {
+        return Arrays.copyOfRange(path, base.length, path.length);
+    }
+
+    private static StorageSnapshot snapshot(String normalizedPath, Object value) {
+        int slash = normalizedPath.lastIndexOf('/');
+        String key = normalizedPath.isEmpty() ? null : normalizedPath.substring(slash + 1);
+        return new ValueSnapshot(key, value);
+    }
+
+    private static <T> CompletableFuture<T> supply(Executor executor, Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e); // Rejected by an executor that was shut down
+        }
+    }
+
+    // Listener state is only touched on the event thread
+    private class ValueRegistration {
+        private final String path;
+        private final String[] segments;
+        private final ValueListener listener;
+        private volatile boolean removed;
+        private boolean delivered; // Writes queued before the first read are already in it
+        private Object last;
+
+        private ValueRegistration(String path, ValueListener listener) {
+            this.path = path;
+            this.segments = TreeValues.segments(path);
+            this.listener = listener;
+        }
+
+        private void deliverInitial() {
+            if (removed) return;
+            try {
+                last = readTree(segments);
+                delivered = true;
+                listener.onValue(snapshot(path, last));
+            } catch (RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+
+        private void apply(Map<String, Object> written) {
+            if (removed || !delivered) return;
+            try {
+                Object current = last;
+                boolean changed = false;
+                for (Map.Entry<String, Object> write : written.entrySet()) {
+                    if (!TreeValues.overlaps(path, write.getKey())) continue;
+                    String[] writeSegments = TreeValues.segments(write.getKey());
+                    // Written on or under the listened path only that branch changes; written above it,
+                    // its new value is a part of the written value
+                    String[] below = writeSegments.length >= segments.length ? relative(segments, writeSegments) : null;
+                    Object next = below != null
+                            ? write.getValue()
+                            : TreeValues.get(write.getValue(), relative(writeSegments, segments));
+                    Object previous = below != null ? TreeValues.get(current, below) : current;
+                    if (Objects.equals(previous, next)) continue;
+                    current = below != null ? TreeValues.with(current, below, 0, next) : next;
+                    changed = true;
+                }
+                if (!changed) return;
+                last = current;
+                listener.onValue(snapshot(path, current));
+            } catch (RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+    }
+
+    private class ChildRegistration {
+        private final String path;
+        private final String[] segments;
+        private final ChildListener listener;
+        private volatile boolean removed;
+        private boolean delivered;
+        private final Map<String, Object> last = new HashMap<>(); // Children by key, shared with the events
+
+        private ChildRegistration(String path, ChildListener listener) {
+            this.path = path;
+            this.segments = TreeValues.segments(path);
+            this.listener = listener;
+        }
+
+        private void deliverInitial() {
+            if (removed) return;
+            try {
+                replaceChildren(readTree(segments));
+                delivered = true;
+            } catch (RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+
+        private void apply(Map<String, Object> written) {
+            if (removed || !delivered) return;
+            try {
+                applyWrites(written);
+            } catch (RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+
+        private void applyWrites(Map<String, Object> written) {
+            for (Map.Entry<String, Object> write : written.entrySet()) {
+                if (!TreeValues.overlaps(path, write.getKey())) continue;
+                String[] writeSegments = TreeValues.segments(write.getKey());
+                if (writeSegments.length > segments.length) {
+                    // Written under one child: only that child changes
+                    String[] below = relative(segments, writeSegments);
+                    Object previous = last.get(below[0]);
+                    if (Objects.equals(TreeValues.get(previous, Arrays.copyOfRange(below, 1, below.length)), write.getValue())) continue;
+                    changeChild(below[0], previous, TreeValues.with(previous, below, 1, write.getValue()));
+                } else {
+                    // The listened node itself was written: compare its children with the written ones
+                    replaceChildren(TreeValues.get(write.getValue(), relative(writeSegments, segments)));
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void replaceChildren(Object node) {
+            Map<String, Object> children = node instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+            for (Map.Entry<String, Object> child : children.entrySet()) {
+                Object previous = last.get(child.getKey());
+                if (!child.getValue().equals(previous)) {
+                    changeChild(child.getKey(), previous, child.getValue());
+                }
+            }
+            for (String key : new ArrayList<>(last.keySet())) {
+                if (!children.containsKey(key)) {
+                    changeChild(key, last.get(key), null);
+                }
+            }
+        }
+
+        private void changeChild(String key, Object previous, Object current) {
+            if (current == null) {
+                last.remove(key);
+                listener.onChildRemoved(new ValueSnapshot(key, previous));
+            } else if (previous == null) {
+                last.put(key, current);
+                listener.onChildAdded(new ValueSnapshot(key, current));
+            } else {
+                last.put(key, current);
+                listener.onChildChanged(new ValueSnapshot(key, current));
+            }
+        }
+    }
+}
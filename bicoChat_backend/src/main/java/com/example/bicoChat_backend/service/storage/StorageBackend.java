@@ -0,0 +1,137 @@
+package com.example.bicoChat_backend.service.storage;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations of a JSON tree database that FirebaseService is built on: reads, writes, atomic
+ * increments, ordered queries and listeners, all addressed by slash-separated paths ("users/u1/status").
+ *
+ * FirebaseStorageBackend talks to the Firebase Realtime Database; InMemoryStorageBackend and
+ * JpaStorageBackend keep the tree in this process, so the services can run (e.g. in load tests and
+ * benchmarks) without a Firebase project. The values written follow the Firebase rules: models are
+ * converted to maps (by the SDK, or with ValueMapper in the local backends), lists are stored as maps
+ * keyed by index, and writing null (or an empty map) removes the path.
+ */
+public interface StorageBackend {
+
+    /**
+     * Reads the value at a path once.
+     *
+     * @param path Database path.
+     * @return A CompletableFuture with the snapshot of the path (not existing if nothing is stored there).
+     */
+    CompletableFuture<StorageSnapshot> read(String path);
+
+    /**
+     * Replaces the value at a path.
+     *
+     * @param path Database path.
+     * @param value The new value, or null to remove the path.
+     * @return A CompletableFuture that completes when the write is committed.
+     */
+    default CompletableFuture<Void> set(String path, Object value) {
+        return updateMulti(Collections.singletonMap(path, value));
+    }
+
+    /**
+     * Writes some children of a path, leaving the others as they are.
+     *
+     * @param path Database path.
+     * @param updates The children to write, by relative path.
+     * @return A CompletableFuture that completes when the write is committed.
+     */
+    CompletableFuture<Void> update(String path, Map<String, Object> updates);
+
+    /**
+     * Writes several paths atomically: either all of them are written or none.
+     *
+     * @param updates The values to write, by absolute path; the paths must not overlap.
+     * @return A CompletableFuture that completes when the write is committed.
+     */
+    CompletableFuture<Void> updateMulti(Map<String, Object> updates);
+
+    /**
+     * Removes the value at a path.
+     *
+     * @param path Database path.
+     * @return A CompletableFuture that completes when the write is committed.
+     */
+    default CompletableFuture<Void> delete(String path) {
+        return set(path, null);
+    }
+
+    /**
+     * Atomically adds a delta to the number at a path; a missing value counts as 0.
+     *
+     * @param path Database path.
+     * @param delta Amount to add (can be negative).
+     * @return A CompletableFuture with the value after the increment.
+     */
+    CompletableFuture<Long> increment(String path, long delta);
+
+    /**
+     * Reads the children of a path that match a query, in query order.
+     *
+     * @param path Database path of the parent.
+     * @param query Ordering, range and limit.
+     * @return A CompletableFuture with the snapshot of the parent, holding only the matching children.
+     */
+    CompletableFuture<StorageSnapshot> query(String path, StorageQuery query);
+
+    /**
+     * Listens to the value at a path. The listener gets the current value first, then every change.
+     *
+     * @param path Database path.
+     * @param listener The listener.
+     * @return The registration, to remove the listener.
+     */
+    Registration addValueListener(String path, ValueListener listener);
+
+    /**
+     * Listens to the children of a path. The listener gets an "added" event for every existing child first,
+     * then one event per added, changed or removed child.
+     *
+     * @param path Database path of the parent.
+     * @param listener The listener.
+     * @return The registration, to remove the listener.
+     */
+    Registration addChildListener(String path, ChildListener listener);
+
+    /**
+     * Receives the value of a listened path.
+     */
+    interface ValueListener {
+
+        void onValue(StorageSnapshot snapshot);
+
+        default void onError(Exception error) {
+            System.err.println("[LOG - StorageBackend] Listener cancelled: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Receives the changes of the children of a listened path.
+     */
+    interface ChildListener {
+
+        void onChildAdded(StorageSnapshot child);
+
+        void onChildChanged(StorageSnapshot child);
+
+        void onChildRemoved(StorageSnapshot child);
+
+        default void onError(Exception error) {
+            System.err.println("[LOG - StorageBackend] Listener cancelled: " + error.getMessage());
+        }
+    }
+
+    /**
+     * A listener attached with addValueListener or addChildListener.
+     */
+    interface Registration {
+
+        void remove();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bicoChat_backend.service.storage;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * One leaf of the tree kept by JpaStorageBackend: the full path of the leaf and its value as text.
+ * Objects are not stored; they exist as long as some leaf lies below them.
+ */
+@Entity
+@Table(name = "storage_entry")
+public class StorageEntry implements Persistable<String> {
+
+    public static final String STRING = "s";
+    public static final String LONG = "l";
+    public static final String DOUBLE = "d";
+    public static final String BOOLEAN = "b";
+
+    @Id
+    @Column(length = 1024)
+    private String path;
+
+    @Column(length = 1, nullable = false)
+    private String type;
+
+    @Lob
+    @Column(name = "leaf_value", nullable = false)
+    private String value;
+
+    @Transient
+    private boolean isNew = true; // Leaves are always inserted after removing the old ones, never merged
+
+    protected StorageEntry() {
+    }
+
+    public StorageEntry(String path, Object leaf) {
+        this.path = path;
+        this.value = leaf.toString();
+        if (leaf instanceof Long) {
+            this.type = LONG;
+        } else if (leaf instanceof Double) {
+            this.type = DOUBLE;
+        } else if (leaf instanceof Boolean) {
+            this.type = BOOLEAN;
+        } else {
+            this.type = STRING;
+        }
+    }
+
+    @Override
+    public String getId() {
+        return path;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The value with its original type (String, Long, Double or Boolean).
+     */
+    public Object getLeaf() {
+        return switch (type) {
+            case LONG -> Long.parseLong(value);
+            case DOUBLE -> Double.parseDouble(value);
+            case BOOLEAN -> Boolean.parseBoolean(value);
+            default -> value;
+        };
+    }
+}
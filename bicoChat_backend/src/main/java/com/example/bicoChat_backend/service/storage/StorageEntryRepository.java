@@ -0,0 +1,22 @@
+package com.example.bicoChat_backend.service.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Leaves of the JpaStorageBackend tree. A subtree is the leaf at its path plus every leaf whose path
+ * starts with "{path}/"; the prefix is a LIKE pattern escaped with '!' (see JpaStorageBackend).
+ */
+public interface StorageEntryRepository extends JpaRepository<StorageEntry, String> {
+
+    @Query("select e from StorageEntry e where e.path = :path or e.path like :prefix escape '!'")
+    List<StorageEntry> findSubtree(@Param("path") String path, @Param("prefix") String prefix);
+
+    @Modifying
+    @Query("delete from StorageEntry e where e.path = :path or e.path like :prefix escape '!'")
+    int deleteSubtree(@Param("path") String path, @Param("prefix") String prefix);
+}
@@ -0,0 +1,110 @@
+package com.example.bicoChat_backend.service.storage;
+
+/**
+ * An ordered query on the children of a path, with the semantics of the Firebase queries:
+ * children are ordered by the value of one of their fields (orderByChild) or by key, ties broken by key;
+ * startAt/endAt bound the range (inclusive, optionally on the key too) and limitToFirst/limitToLast
+ * keep the first or last children of the range.
+ *
+ * Example: new StorageQuery().orderByChild("timestamp").limitToLast(50)
+ */
+public class StorageQuery {
+
+    private String orderByChild; // null = order by key
+    private Object startValue;
+    private String startKey;
+    private boolean hasStart;
+    private Object endValue;
+    private String endKey;
+    private boolean hasEnd;
+    private Integer limitToFirst;
+    private Integer limitToLast;
+
+    public StorageQuery orderByChild(String child) {
+        this.orderByChild = child;
+        return this;
+    }
+
+    public StorageQuery orderByKey() {
+        this.orderByChild = null;
+        return this;
+    }
+
+    public StorageQuery startAt(Object value) {
+        return startAt(value, null);
+    }
+
+    /**
+     * @param value Smallest value (or key, when ordering by key).
+     * @param key Smallest key among the children with that value; null for all of them.
+     */
+    public StorageQuery startAt(Object value, String key) {
+        this.startValue = value;
+        this.startKey = key;
+        this.hasStart = true;
+        return this;
+    }
+
+    public StorageQuery endAt(Object value) {
+        return endAt(value, null);
+    }
+
+    /**
+     * @param value Largest value (or key, when ordering by key).
+     * @param key Largest key among the children with that value; null for all of them.
+     */
+    public StorageQuery endAt(Object value, String key) {
+        this.endValue = value;
+        this.endKey = key;
+        this.hasEnd = true;
+        return this;
+    }
+
+    public StorageQuery limitToFirst(int limit) {
+        this.limitToFirst = limit;
+        this.limitToLast = null;
+        return this;
+    }
+
+    public StorageQuery limitToLast(int limit) {
+        this.limitToLast = limit;
+        this.limitToFirst = null;
+        return this;
+    }
+
+    public String getOrderByChild() {
+        return orderByChild;
+    }
+
+    public boolean hasStart() {
+        return hasStart;
+    }
+
+    public Object getStartValue() {
+        return startValue;
+    }
+
+    public String getStartKey() {
+        return startKey;
+    }
+
+    public boolean hasEnd() {
+        return hasEnd;
+    }
+
+    public Object getEndValue() {
+        return endValue;
+    }
+
+    public String getEndKey() {
+        return endKey;
+    }
+
+    public Integer getLimitToFirst() {
+        return limitToFirst;
+    }
+
+    public Integer getLimitToLast() {
+        return limitToLast;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bicoChat_backend.service.storage;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+
+/**
+ * The value of a path as read from a StorageBackend, with the same accessors as a Firebase DataSnapshot.
+ */
+public interface StorageSnapshot {
+
+    /**
+     * @return The last segment of the path, or null for the root.
+     */
+    String getKey();
+
+    boolean exists();
+
+    /**
+     * @return The value as plain Java types (Map, List, String, Long, Double, Boolean), or null.
+     */
+    Object getValue();
+
+    <T> T getValue(Class<T> valueType);
+
+    <T> T getValue(GenericTypeIndicator<T> typeIndicator);
+
+    StorageSnapshot child(String path);
+
+    /**
+     * @return The children, in key order or, for the result of a query, in query order.
+     */
+    Iterable<StorageSnapshot> getChildren();
+
+    /**
+     * @return The Firebase snapshot behind this one.
+     * @throws UnsupportedOperationException if the snapshot does not come from Firebase.
+     */
+    default DataSnapshot toDataSnapshot() {
+        throw new UnsupportedOperationException("Only available with the Firebase storage backend");
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.bicoChat_backend.service.storage;
+
+
+import java.util.*;
+
+/**
+ * Helpers for the JSON trees kept by the local storage backends.
+ *
+ * A stored tree is "canonical": objects are TreeMaps in Firebase key order without null or empty children,
+ * numbers are Long (integral values) or Double, and the other leaves are String or Boolean. Lists are stored
+ * as maps keyed by index and turned back into lists when read, as Firebase does.
+ */
+final class TreeValues {
+
+    /**
+     * Firebase key order: keys that are 32-bit integers first, numerically, then the others as strings.
+     */
+    static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Integer intA = parseIndex(a);
+        Integer intB = parseIndex(b);
+        if (intA != null && intB != null) return Integer.compare(intA, intB);
+        if (intA != null) return -1;
+        if (intB != null) return 1;
+        return a.compareTo(b);
+    };
+
+    private TreeValues() {
+    }
+
+    static String normalizePath(String path) {
+        String normalized = path != null ? path : "";
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    static String[] segments(String normalizedPath) {
+        return normalizedPath.isEmpty() ? new String[0] : normalizedPath.split("/+");
+    }
+
+    /**
+     * @return true if one of the paths is the other or one of its ancestors.
+     */
+    static boolean overlaps(String a, String b) {
+        return a.isEmpty() || b.isEmpty() || a.equals(b) || a.startsWith(b + "/") || b.startsWith(a + "/");
+    }
+
+    /**
+     * Converts a value about to be written to its canonical form.
+     *
+     * @param value The value, as given to set/update (models are converted with ValueMapper).
+     * @return The canonical value, or null if the value removes the path.
+     */
+    static Object canonical(Object value) {
+        return canonicalPlain(ValueMapper.toPlain(value));
+    }
+
+    private static Object canonicalPlain(Object plain) {
+        if (plain == null) {
+            return null;
+        }
+        if (plain instanceof Map<?, ?> map) {
+            TreeMap<String, Object> tree = new TreeMap<>(KEY_ORDER);
+            map.forEach((key, child) -> {
+                Object canonicalChild = canonicalPlain(child);
+                if (canonicalChild != null) tree.put(key.toString(), canonicalChild);
+            });
+            return tree.isEmpty() ? null : tree;
+        }
+        if (plain instanceof List<?> list) {
+            TreeMap<String, Object> tree = new TreeMap<>(KEY_ORDER);
+            for (int i = 0; i < list.size(); i++) {
+                Object canonicalChild = canonicalPlain(list.get(i));
+                if (canonicalChild != null) tree.put(String.valueOf(i), canonicalChild);
+            }
+            return tree.isEmpty() ? null : tree;
+        }
+        if (plain instanceof Double || plain instanceof Float) {
+            double number = ((Number) plain).doubleValue();
+            if (number == Math.rint(number) && Math.abs(number) < 0x1p63) {
+                return (long) number;
+            }
+            return number;
+        }
+        if (plain instanceof Number number) {
+            return number.longValue();
+        }
+        return plain; // String or Boolean
+    }
+
+    /**
+     * @return A copy of a canonical value that the caller can modify.
+     */
+    @SuppressWarnings("unchecked")
+    static Object copy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            TreeMap<String, Object> tree = new TreeMap<>(KEY_ORDER);
+            ((Map<String, Object>) map).forEach((key, child) -> tree.put(key, copy(child)));
+            return tree;
+        }
+        return value;
+    }
+
+    /**
+     * @return The canonical value at the given path below a node (not copied), or null.
+     */
+    static Object get(Object node, String[] segments) {
+        Object current = node;
+        for (String segment : segments) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(segment);
+        }
+        return current;
+    }
+
+    /**
+     * Writes a canonical value at the given path below a node, modifying the node in place.
+     * Leaves on the way are replaced by objects, and objects left empty by a removal are removed too.
+     *
+     * @return The node after the write (a new one if the node was a leaf or null), or null if it is now empty.
+     */
+    @SuppressWarnings("unchecked")
+    static Object put(Object node, String[] segments, int index, Object value) {
+        if (index == segments.length) {
+            return value;
+        }
+        TreeMap<String, Object> map = node instanceof TreeMap<?, ?> ? (TreeMap<String, Object>) node : new TreeMap<>(KEY_ORDER);
+        Object child = put(map.get(segments[index]), segments, index + 1, value);
+        if (child == null) {
+            map.remove(segments[index]);
+        } else {
+            map.put(segments[index], child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    /**
+     * Like put, but leaves the node unchanged: the objects on the path are copied (shallowly) and the
+     * rest of the tree is shared, so values handed to listeners can be updated without copying them whole.
+     *
+     * @return The new node, or null if it is empty.
+     */
+    @SuppressWarnings("unchecked")
+    static Object with(Object node, String[] segments, int index, Object value) {
+        if (index == segments.length) {
+            return value;
+        }
+        TreeMap<String, Object> map = node instanceof TreeMap<?, ?> ? new TreeMap<>((TreeMap<String, Object>) node) : new TreeMap<>(KEY_ORDER);
+        Object child = with(map.get(segments[index]), segments, index + 1, value);
+        if (child == null) {
+            map.remove(segments[index]);
+        } else {
+            map.put(segments[index], child);
+        }
+        return map.isEmpty() ? null : map;
+    }
+
+    /**
+     * Converts a canonical value to the types returned by Firebase: HashMaps, and ArrayLists for the
+     * objects whose keys are indexes (when at least half of the indexes up to the largest are used).
+     */
+    @SuppressWarnings("unchecked")
+    static Object toFirebaseValue(Object value) {
+        if (!(value instanceof Map<?, ?>)) {
+            return value;
+        }
+        Map<String, Object> map = (Map<String, Object>) value;
+        int maxIndex = -1;
+        boolean allIndexes = true;
+        for (String key : map.keySet()) {
+            Integer index = parseIndex(key);
+            if (index == null || index < 0) {
+                allIndexes = false;
+                break;
+            }
+            maxIndex = Math.max(maxIndex, index);
+        }
+        if (allIndexes && maxIndex < 2 * map.size()) {
+            List<Object> list = new ArrayList<>(Collections.nCopies(maxIndex + 1, null));
+            map.forEach((key, child) -> list.set(Integer.parseInt(key), toFirebaseValue(child)));
+            return list;
+        }
+        Map<String, Object> result = new HashMap<>();
+        map.forEach((key, child) -> result.put(key, toFirebaseValue(child)));
+        return result;
+    }
+
+    /**
+     * Runs a query on the children of a canonical node.
+     *
+     * @return The matching children in query order.
+     */
+    @SuppressWarnings("unchecked")
+    static LinkedHashMap<String, Object> query(Object node, StorageQuery query) {
+        List<Map.Entry<String, Object>> children = new ArrayList<>();
+        if (node instanceof Map<?, ?> map) {
+            children.addAll(((Map<String, Object>) map).entrySet());
+        }
+
+        String orderBy = query.getOrderByChild();
+        Comparator<Map.Entry<String, Object>> order = orderBy != null
+                ? Comparator.<Map.Entry<String, Object>, Object>comparing(entry -> childValue(entry.getValue(), orderBy), TreeValues::compareValues)
+                        .thenComparing(Map.Entry::getKey, KEY_ORDER)
+                : Map.Entry.comparingByKey(KEY_ORDER);
+        children.sort(order);
+
+        List<Map.Entry<String, Object>> inRange = new ArrayList<>();
+        for (Map.Entry<String, Object> child : children) {
+            if (query.hasStart() && compareToBound(child, orderBy, query.getStartValue(), query.getStartKey(), true) < 0) continue;
+            if (query.hasEnd() && compareToBound(child, orderBy, query.getEndValue(), query.getEndKey(), false) > 0) continue;
+            inRange.add(child);
+        }
+
+        int from = 0;
+        int to = inRange.size();
+        if (query.getLimitToFirst() != null) {
+            to = Math.min(to, query.getLimitToFirst());
+        }
+        if (query.getLimitToLast() != null) {
+            from = Math.max(0, to - query.getLimitToLast());
+        }
+
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> child : inRange.subList(from, to)) {
+            result.put(child.getKey(), copy(child.getValue()));
+        }
+        return result;
+    }
+
+    private static int compareToBound(Map.Entry<String, Object> child, String orderBy, Object boundValue, String boundKey, boolean start) {
+        if (orderBy == null) {
+            return KEY_ORDER.compare(child.getKey(), boundValue != null ? boundValue.toString() : "");
+        }
+        int byValue = compareValues(childValue(child.getValue(), orderBy), canonical(boundValue));
+        if (byValue != 0 || boundKey == null) {
+            return byValue;
+        }
+        return KEY_ORDER.compare(child.getKey(), boundKey);
+    }
+
+    private static Object childValue(Object child, String orderBy) {
+        Object value = get(child, segments(normalizePath(orderBy)));
+        return value instanceof Map<?, ?> ? MAP_RANK : value;
+    }
+
+    private static final Object MAP_RANK = new Object(); // Objects sort after every leaf
+
+    /**
+     * Firebase value order: null, false, true, numbers, strings, objects.
+     */
+    static int compareValues(Object a, Object b) {
+        int rankA = rank(a);
+        int rankB = rank(b);
+        if (rankA != rankB) return Integer.compare(rankA, rankB);
+        return switch (rankA) {
+            case 1 -> Boolean.compare((Boolean) a, (Boolean) b);
+            case 2 -> Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            case 3 -> ((String) a).compareTo((String) b);
+            default -> 0;
+        };
+    }
+
+    private static int rank(Object value) {
+        if (value == null) return 0;
+        if (value instanceof Boolean) return 1;
+        if (value instanceof Number) return 2;
+        if (value instanceof String) return 3;
+        return 4;
+    }
+
+    private static Integer parseIndex(String key) {
+        if (key.isEmpty() || key.length() > 10 || (key.length() > 1 && key.charAt(0) == '0')) {
+            return null;
+        }
+        for (int i = key.charAt(0) == '-' ? 1 : 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) return null;
+        }
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
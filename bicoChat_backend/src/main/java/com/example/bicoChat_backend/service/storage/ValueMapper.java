@@ -0,0 +1,66 @@
+package com.example.bicoChat_backend.service.storage;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.database.GenericTypeIndicator;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * Converts between the models and the plain values of a database tree (maps, lists, strings, numbers,
+ * booleans) with Jackson, the mapper that already reads and writes the models in the REST API, instead of
+ * the SDK-internal Firebase class mapper. Unknown fields are ignored, as Firebase does.
+ */
+public final class ValueMapper {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private ValueMapper() {
+    }
+
+    /**
+     * Converts a model to plain Java types; plain values are returned as they are.
+     *
+     * @param value The value, possibly null.
+     * @return Maps, lists, strings, numbers and booleans.
+     */
+    public static Object toPlain(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        }
+        return MAPPER.convertValue(value, Object.class);
+    }
+
+    /**
+     * Converts a plain value to a model.
+     *
+     * @param value The plain value, possibly null.
+     * @param valueType The model class.
+     * @return The model, or null for a null value.
+     */
+    public static <T> T convert(Object value, Class<T> valueType) {
+        return value == null ? null : MAPPER.convertValue(value, valueType);
+    }
+
+    /**
+     * Converts a plain value to a generic type, e.g. new GenericTypeIndicator&lt;Map&lt;String, Chat&gt;&gt;() {}.
+     *
+     * @param value The plain value, possibly null.
+     * @param typeIndicator The anonymous subclass naming the type.
+     * @return The converted value, or null for a null value.
+     */
+    public static <T> T convert(Object value, GenericTypeIndicator<T> typeIndicator) {
+        return value == null ? null : MAPPER.convertValue(value, javaType(typeIndicator));
+    }
+
+    private static JavaType javaType(GenericTypeIndicator<?> typeIndicator) {
+        Type superclass = typeIndicator.getClass().getGenericSuperclass();
+        if (!(superclass instanceof ParameterizedType parameterized)) {
+            throw new IllegalArgumentException("GenericTypeIndicator must be subclassed with its type, e.g. new GenericTypeIndicator<Map<String, Chat>>() {}");
+        }
+        return MAPPER.getTypeFactory().constructType(parameterized.getActualTypeArguments()[0]);
+    }
+}
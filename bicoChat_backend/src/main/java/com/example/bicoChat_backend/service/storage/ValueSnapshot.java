@@ -0,0 +1,69 @@
+package com.example.bicoChat_backend.service.storage;
+
+import com.google.firebase.database.GenericTypeIndicator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StorageSnapshot of a canonical value read from a local backend. The typed getters convert the value
+ * with ValueMapper, which reads the models with the same Jackson annotations as the REST API.
+ */
+public class ValueSnapshot implements StorageSnapshot {
+
+    private final String key;
+    private final Object value; // Canonical, never modified (listener values are shared); a LinkedHashMap keeps the order of a query
+
+    ValueSnapshot(String key, Object value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean exists() {
+        return value != null;
+    }
+
+    @Override
+    public Object getValue() {
+        return TreeValues.toFirebaseValue(value);
+    }
+
+    @Override
+    public <T> T getValue(Class<T> valueType) {
+        return ValueMapper.convert(getValue(), valueType);
+    }
+
+    @Override
+    public <T> T getValue(GenericTypeIndicator<T> typeIndicator) {
+        return ValueMapper.convert(getValue(), typeIndicator);
+    }
+
+    @Override
+    public StorageSnapshot child(String path) {
+        String[] segments = TreeValues.segments(TreeValues.normalizePath(path));
+        String childKey = segments.length > 0 ? segments[segments.length - 1] : key;
+        return new ValueSnapshot(childKey, TreeValues.get(value, segments));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterable<StorageSnapshot> getChildren() {
+        List<StorageSnapshot> children = new ArrayList<>();
+        if (value instanceof Map<?, ?> map) {
+            ((Map<String, Object>) map).forEach((childKey, child) -> children.add(new ValueSnapshot(childKey, child)));
+        }
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        return "ValueSnapshot{key=" + key + ", value=" + value + "}";
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.metrics.BrokerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BrokerMetricsTest {
+
+    private MeterRegistry registry;
+    private ThreadPoolTaskExecutor outboundExecutor;
+    private BrokerMetrics brokerMetrics;
+    private ChannelInterceptor inbound;
+    private ExecutorChannelInterceptor outbound;
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final MessageHandler handler = mock(MessageHandler.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        outboundExecutor = new ThreadPoolTaskExecutor();
+        outboundExecutor.setCorePoolSize(1);
+        outboundExecutor.initialize();
+
+        ObjectProvider<TaskExecutor> inboundProvider = mock(ObjectProvider.class);
+        ObjectProvider<TaskExecutor> outboundProvider = mock(ObjectProvider.class);
+        when(outboundProvider.getIfAvailable()).thenReturn(outboundExecutor);
+
+        // Deliveries slower than 1 ms are slow
+        brokerMetrics = new BrokerMetrics(registry, inboundProvider, outboundProvider, 100, 1, 60_000);
+        inbound = brokerMetrics.inboundInterceptor();
+        outbound = brokerMetrics.outboundInterceptor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        outboundExecutor.shutdown();
+    }
+
+    @Test
+    public void testSubscriptions_PerDestinationUntilDisconnect() {
+        // Setup
+        inbound.preSend(frame(SimpMessageType.CONNECT, "s1", null, null, null), channel);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub0", "/topic/chats", null), channel);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s1", "sub1", "/topic/messages/chat1", null), channel);
+        inbound.preSend(frame(SimpMessageType.CONNECT, "s2", null, null, null), channel);
+        inbound.preSend(frame(SimpMessageType.SUBSCRIBE, "s2", "sub0", "/topic/messages/chat2", null), channel);
+
+        // Verify: one series for all the chats
+        assertEquals(2, registry.get("bicochat.websocket.sessions").gauge().value());
+        assertEquals(2, subscriptions("/topic/messages/{chatId}"));
+        assertEquals(1, subscriptions("/topic/chats"));
+
+        // Execute: the client disconnects, then the connection closes
+        inbound.preSend(frame(SimpMessageType.DISCONNECT, "s1", null, null, null), channel);
+        inbound.preSend(frame(SimpMessageType.DISCONNECT, "s1", null, null, null), channel);
+        inbound.preSend(frame(SimpMessageType.UNSUBSCRIBE, "s2", "sub0", null, null), channel);
+
+        // Verify
+        assertEquals(1, registry.get("bicochat.websocket.sessions").gauge().value());
+        assertEquals(0, subscriptions("/topic/messages/{chatId}"));
+        assertEquals(0, subscriptions("/topic/chats"));
+    }
+
+    @Test
+    public void testTraffic_CountsEveryDelivery() {
+        // Execute: one push to /topic/chats delivered to two sessions, one message sent by a client
+        outbound.preSend(frame(SimpMessageType.MESSAGE, "s1", "sub0", "/topic/chats", new byte[100]), channel);
+        outbound.preSend(frame(SimpMessageType.MESSAGE, "s2", "sub0", "/topic/chats", new byte[100]), channel);
+        outbound.preSend(frame(SimpMessageType.HEARTBEAT, "s1", null, null, new byte[0]), channel);
+        inbound.preSend(frame(SimpMessageType.MESSAGE, "s1", null, "/app/chat", new byte[10]), channel);
+
+        // Verify
+        assertEquals(2, registry.get("bicochat.websocket.messages")
+                .tags("direction", "outbound", "destination", "/topic/chats").functionCounter().count());
+        assertEquals(200, registry.get("bicochat.websocket.bytes")
+                .tags("direction", "outbound", "destination", "/topic/chats").functionCounter().count());
+        assertEquals(10, registry.get("bicochat.websocket.bytes")
+                .tags("direction", "inbound", "destination", "/app/chat").functionCounter().count());
+
+        Map<String, Object> broker = brokerMetrics.describe();
+        List<?> destinations = (List<?>) broker.get("destinations");
+        Map<?, ?> busiest = (Map<?, ?>) destinations.get(0);
+        assertEquals("/topic/chats", busiest.get("destination"));
+        assertEquals(200L, ((Map<?, ?>) busiest.get("outbound")).get("bytes"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWithoutMeterRegistry_EndpointStillCounts() {
+        // Setup: no MeterRegistry bean
+        ObjectProvider<MeterRegistry> noRegistry = mock(ObjectProvider.class);
+        when(noRegistry.getIfAvailable(any())).thenCallRealMethod();
+        BrokerMetrics withoutRegistry = new BrokerMetrics(noRegistry, mock(ObjectProvider.class), mock(ObjectProvider.class), 100, 500, 60_000);
+
+        // Execute
+        withoutRegistry.outboundInterceptor()
+                .preSend(frame(SimpMessageType.MESSAGE, "s1", "sub0", "/topic/chats", new byte[100]), channel);
+
+        // Verify
+        List<?> destinations = (List<?>) withoutRegistry.describe().get("destinations");
+        assertEquals(100L, ((Map<?, ?>) ((Map<?, ?>) destinations.get(0)).get("outbound")).get("bytes"));
+    }
+
+    @Test
+    public void testSlowSend_MarksTheSessionAsSlowConsumer() throws Exception {
+        // Setup
+        inbound.preSend(frame(SimpMessageType.CONNECT, "s1", null, null, null), channel);
+        Message<byte[]> message = frame(SimpMessageType.MESSAGE, "s1", "sub0", "/topic/users", new byte[10]);
+
+        // Execute: the session takes 5 ms to accept the frame
+        outbound.beforeHandle(message, channel, handler);
+        Thread.sleep(5);
+        outbound.afterMessageHandled(message, channel, handler, null);
+
+        // Verify
+        assertEquals(1, registry.get("bicochat.websocket.slow-sends").functionCounter().count());
+        assertEquals(1, registry.get("bicochat.websocket.slow-consumers").gauge().value());
+
+        // Execute: a disconnected session is no longer a slow consumer
+        inbound.preSend(frame(SimpMessageType.DISCONNECT, "s1", null, null, null), channel);
+
+        // Verify
+        assertEquals(0, registry.get("bicochat.websocket.slow-consumers").gauge().value());
+    }
+
+    @Test
+    public void testChannelGauges_QueueAndSaturation() throws Exception {
+        // Setup: the only thread is busy and two tasks wait
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        outboundExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        outboundExecutor.execute(() -> { });
+        outboundExecutor.execute(() -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Verify
+        assertEquals(2, registry.get("bicochat.websocket.channel.queued").tags("channel", "outbound").gauge().value());
+        assertEquals(1, registry.get("bicochat.websocket.channel.saturation").tags("channel", "outbound").gauge().value());
+        assertTrue(Double.isNaN(registry.get("bicochat.websocket.channel.queued").tags("channel", "inbound").gauge().value()));
+
+        release.countDown();
+    }
+
+    private double subscriptions(String destination) {
+        return registry.get("bicochat.websocket.subscriptions").tags("destination", destination).gauge().value();
+    }
+
+    private static Message<byte[]> frame(SimpMessageType type, String sessionId, String subscriptionId, String destination, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload != null ? payload : new byte[0], accessor.getMessageHeaders());
+    }
+}
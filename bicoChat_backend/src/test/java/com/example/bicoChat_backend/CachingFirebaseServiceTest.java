@@ -0,0 +1,118 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.config.firebase.FirebaseCacheProperties;
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.cache.CachingFirebaseService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingFirebaseServiceTest {
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private StorageBackend.Registration firstRegistration;
+
+    @Mock
+    private StorageBackend.Registration secondRegistration;
+
+    private CachingFirebaseService firebaseService;
+
+    @BeforeEach
+    public void setUp() {
+        firebaseService = new CachingFirebaseService(null, storageBackend,
+                Map.of("users", new FirebaseCacheProperties.Policy(Duration.ofMinutes(1), 1)));
+    }
+
+    @Test
+    public void testGet_ServedFromMemoryAndRefreshedByListener() {
+        // Setup
+        when(storageBackend.addValueListener(eq("users/u1"), any())).thenReturn(firstRegistration);
+
+        // Execute: the first read attaches the listener
+        CompletableFuture<User> first = firebaseService.get("/users/u1", User.class);
+        ArgumentCaptor<StorageBackend.ValueListener> listenerCaptor = ArgumentCaptor.forClass(StorageBackend.ValueListener.class);
+        verify(storageBackend).addValueListener(eq("users/u1"), listenerCaptor.capture());
+        listenerCaptor.getValue().onValue(snapshotOf(userValue("alice")));
+
+        User loaded = first.join();
+        assertEquals("alice", loaded.getUsername());
+        loaded.setUsername("modified by the caller");
+
+        // A second read is a hit and does not see the caller's modification
+        assertEquals("alice", firebaseService.get("users/u1", User.class).join().getUsername());
+        assertTrue(firebaseService.exists("users/u1").join());
+
+        // A change pushed by the backend replaces the cached value
+        listenerCaptor.getValue().onValue(snapshotOf(userValue("alice b.")));
+        assertEquals("alice b.", firebaseService.get("users/u1", User.class).join().getUsername());
+
+        // Verify
+        verify(storageBackend, times(1)).addValueListener(anyString(), any());
+        verify(storageBackend, never()).read(anyString());
+        CacheStats stats = firebaseService.getCacheStats().get("users");
+        assertEquals(1, stats.missCount());
+        assertEquals(3, stats.hitCount());
+    }
+
+    @Test
+    public void testGet_EvictionRemovesListener() {
+        // Setup
+        when(storageBackend.addValueListener(eq("users/u1"), any())).thenReturn(firstRegistration);
+        when(storageBackend.addValueListener(eq("users/u2"), any())).thenReturn(secondRegistration);
+
+        // Execute: the prefix holds one entry, so caching u2 evicts one of the two
+        firebaseService.get("users/u1", User.class);
+        firebaseService.get("users/u2", User.class);
+
+        // Verify
+        assertEquals(1L, firebaseService.getCacheSizes().get("users"));
+        assertEquals(1, firebaseService.getCacheStats().get("users").evictionCount());
+        int removed = mockingDetails(firstRegistration).getInvocations().size()
+                + mockingDetails(secondRegistration).getInvocations().size();
+        assertEquals(1, removed);
+    }
+
+    @Test
+    public void testGet_UncachedPrefixReadsBackend() {
+        // Setup
+        when(storageBackend.read("friendRequests/u1")).thenReturn(new CompletableFuture<>());
+
+        // Execute
+        firebaseService.get("friendRequests/u1", Object.class);
+
+        // Verify
+        verify(storageBackend).read("friendRequests/u1");
+        verify(storageBackend, never()).addValueListener(anyString(), any());
+    }
+
+    private Map<String, Object> userValue(String username) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("username", username);
+        value.put("status", "online");
+        return value;
+    }
+
+    private StorageSnapshot snapshotOf(Object value) {
+        StorageSnapshot snapshot = mock(StorageSnapshot.class);
+        when(snapshot.getValue()).thenReturn(value);
+        return snapshot;
+    }
+}
@@ -5,24 +5,32 @@ import com.example.bicoChat_backend.controller.ChatController;
 import com.example.bicoChat_backend.dto.request.CreateGroupRequest;
 import com.example.bicoChat_backend.dto.request.GroupUpdateRequest;
 import com.example.bicoChat_backend.dto.request.RoleUpdateRequest;
+import com.example.bicoChat_backend.dto.response.ChatEvent;
 import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.dto.response.ChatSnapshotResponse;
 import com.example.bicoChat_backend.model.Chat;
 import com.example.bicoChat_backend.service.ChatService;
 import com.example.bicoChat_backend.service.FirebaseService;
 import com.example.bicoChat_backend.service.UserService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ChatControllerTest {
@@ -58,7 +66,7 @@ public class ChatControllerTest {
         when(chatService.getAllChats()).thenReturn(CompletableFuture.completedFuture(mockChats));
 
         // Act
-        List<ChatResponse> result = chatController.getAllChats();
+        List<ChatResponse> result = chatController.getAllChats().join().getBody();
 
         // Assert
         assertEquals(2, result.size());
@@ -76,7 +84,7 @@ public class ChatControllerTest {
         );
 
         // Act
-        ResponseEntity<ChatResponse> response = chatController.getChatById(chatId);
+        ResponseEntity<ChatResponse> response = chatController.getChatById(chatId).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -84,6 +92,20 @@ public class ChatControllerTest {
         verify(chatService, times(1)).getChatById(chatId);
     }
 
+    @Test
+    public void testGetChatById_TimeoutReturns504() {
+        // Arrange: Firebase never answers
+        String chatId = "chat123";
+        ReflectionTestUtils.setField(chatController, "chatTimeoutMs", 20L);
+        when(chatService.getChatById(chatId)).thenReturn(new CompletableFuture<>());
+
+        // Act
+        ResponseEntity<ChatResponse> response = chatController.getChatById(chatId).join();
+
+        // Assert
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, response.getStatusCode());
+    }
+
     @Test
     public void testGetChatById_NotFound() throws Exception {
         // Arrange
@@ -94,7 +116,7 @@ public class ChatControllerTest {
         );
 
         // Act
-        ResponseEntity<ChatResponse> response = chatController.getChatById(chatId);
+        ResponseEntity<ChatResponse> response = chatController.getChatById(chatId).join();
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -174,10 +196,10 @@ public class ChatControllerTest {
         request.setTitle("Updated Group Name");
         request.setRequesterId("admin1");
 
-        doNothing().when(chatService).updateGroupInfo(chatId, request);
+        when(chatService.updateGroupInfo(chatId, request)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
-        ResponseEntity<String> response = chatController.updateGroupInfo(chatId, request);
+        ResponseEntity<String> response = chatController.updateGroupInfo(chatId, request).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -193,10 +215,11 @@ public class ChatControllerTest {
         request.setTitle("Updated Group Name");
         request.setRequesterId("regularUser");
 
-        doThrow(new SecurityException("No permission")).when(chatService).updateGroupInfo(chatId, request);
+        when(chatService.updateGroupInfo(chatId, request))
+                .thenReturn(CompletableFuture.failedFuture(new SecurityException("No permission")));
 
         // Act
-        ResponseEntity<String> response = chatController.updateGroupInfo(chatId, request);
+        ResponseEntity<String> response = chatController.updateGroupInfo(chatId, request).join();
 
         // Assert
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
@@ -213,10 +236,10 @@ public class ChatControllerTest {
         request.setTargetUserId("user1");
         request.setNewRole("admin");
 
-        doNothing().when(chatService).updateUserRole(chatId, request);
+        when(chatService.updateUserRole(chatId, request)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
-        ResponseEntity<String> response = chatController.updateUserRole(chatId, request);
+        ResponseEntity<String> response = chatController.updateUserRole(chatId, request).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -231,10 +254,10 @@ public class ChatControllerTest {
         String targetUserId = "user1";
         String requesterId = "admin1";
 
-        doNothing().when(chatService).removeUserFromGroup(chatId, targetUserId, requesterId);
+        when(chatService.removeUserFromGroup(chatId, targetUserId, requesterId)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
-        ResponseEntity<String> response = chatController.removeUserFromGroup(chatId, targetUserId, requesterId);
+        ResponseEntity<String> response = chatController.removeUserFromGroup(chatId, targetUserId, requesterId).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -248,10 +271,10 @@ public class ChatControllerTest {
         String chatId = "group123";
         String requesterId = "creator1";
 
-        doNothing().when(chatService).deleteGroupChat(chatId, requesterId);
+        when(chatService.deleteGroupChat(chatId, requesterId)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
-        ResponseEntity<String> response = chatController.deleteGroupChat(chatId, requesterId);
+        ResponseEntity<String> response = chatController.deleteGroupChat(chatId, requesterId).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -265,10 +288,11 @@ public class ChatControllerTest {
         String chatId = "group123";
         String requesterId = "regularUser";
 
-        doThrow(new SecurityException("Permission denied")).when(chatService).deleteGroupChat(chatId, requesterId);
+        when(chatService.deleteGroupChat(chatId, requesterId))
+                .thenReturn(CompletableFuture.failedFuture(new SecurityException("Permission denied")));
 
         // Act
-        ResponseEntity<String> response = chatController.deleteGroupChat(chatId, requesterId);
+        ResponseEntity<String> response = chatController.deleteGroupChat(chatId, requesterId).join();
 
         // Assert
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
@@ -283,10 +307,10 @@ public class ChatControllerTest {
         String userId = "newUser";
         String requesterId = "admin1";
 
-        doNothing().when(chatService).addUserToGroup(chatId, userId, requesterId);
+        when(chatService.addUserToGroup(chatId, userId, requesterId)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Act
-        ResponseEntity<String> response = chatController.addUserToGroup(chatId, userId, requesterId);
+        ResponseEntity<String> response = chatController.addUserToGroup(chatId, userId, requesterId).join();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -365,4 +389,79 @@ public class ChatControllerTest {
         assertTrue(response.getBody());
         verify(userService, times(1)).verifyHiddenChatPin(userId, chatId, pin);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDeltaChatListener_PublishesOnlyChangedChat() {
+        // Arrange
+        ReflectionTestUtils.setField(chatController, "chatsMode", "delta");
+
+        Chat chat = new Chat();
+        chat.setType("individual");
+        chat.setMessages(new HashMap<>());
+        StorageSnapshot chatSnapshot = mock(StorageSnapshot.class);
+        when(chatSnapshot.getKey()).thenReturn("chat123");
+        when(chatSnapshot.getValue(Chat.class)).thenReturn(chat);
+
+        // Act
+        chatController.initFirebaseChatListener();
+
+        ArgumentCaptor<StorageBackend.ChildListener> listenerCaptor = ArgumentCaptor.forClass(StorageBackend.ChildListener.class);
+        verify(firebaseService).listenToChildren(eq("chats"), listenerCaptor.capture());
+        listenerCaptor.getValue().onChildChanged(chatSnapshot);
+
+        // Assert
+        ArgumentCaptor<Object> payloadCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/chats"), payloadCaptor.capture());
+        ChatEvent event = (ChatEvent) payloadCaptor.getValue();
+        assertEquals(ChatEvent.Type.CHANGED, event.getType());
+        assertEquals("chat123", event.getChatId());
+        assertEquals(1, event.getSeq());
+        assertNull(event.getChat().getMessages());
+        verify(chatService, never()).getAllChats();
+    }
+
+    @Test
+    public void testDeltaChatListener_SkipsInitialLoad() {
+        // Arrange
+        ReflectionTestUtils.setField(chatController, "chatsMode", "delta");
+
+        StorageSnapshot existingChat = mock(StorageSnapshot.class);
+        StorageSnapshot newChat = mock(StorageSnapshot.class);
+        when(newChat.getKey()).thenReturn("newChat");
+        when(newChat.getValue(Chat.class)).thenReturn(new Chat());
+
+        // Act
+        chatController.initFirebaseChatListener();
+
+        ArgumentCaptor<StorageBackend.ChildListener> childCaptor = ArgumentCaptor.forClass(StorageBackend.ChildListener.class);
+        ArgumentCaptor<Runnable> initialLoadCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(firebaseService).listenToChildren(eq("chats"), childCaptor.capture());
+        verify(firebaseService).afterInitialEvents(eq("chats"), initialLoadCaptor.capture());
+
+        childCaptor.getValue().onChildAdded(existingChat);   // initial load
+        initialLoadCaptor.getValue().run();
+        childCaptor.getValue().onChildAdded(newChat);        // real addition
+
+        // Assert
+        ArgumentCaptor<Object> payloadCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/chats"), payloadCaptor.capture());
+        ChatEvent event = (ChatEvent) payloadCaptor.getValue();
+        assertEquals(ChatEvent.Type.ADDED, event.getType());
+        assertEquals("newChat", event.getChatId());
+    }
+
+    @Test
+    public void testGetChatsSnapshot() {
+        // Arrange
+        List<ChatResponse> summaries = List.of(new ChatResponse("chat1", new Chat()));
+        when(chatService.getChatSummaries()).thenReturn(CompletableFuture.completedFuture(summaries));
+
+        // Act
+        ChatSnapshotResponse snapshot = chatController.getChatsSnapshot().join();
+
+        // Assert
+        assertEquals(0, snapshot.getSeq());
+        assertEquals(1, snapshot.getChats().size());
+        verify(chatService, times(1)).getChatSummaries();
+    }
+}
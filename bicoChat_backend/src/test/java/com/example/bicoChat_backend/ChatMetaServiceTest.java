@@ -0,0 +1,104 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.response.ChatSummaryResponse;
+import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.model.ChatMeta;
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.service.ChatMetaService;
+import com.example.bicoChat_backend.service.FirebaseService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatMetaServiceTest {
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @InjectMocks
+    private ChatMetaService chatMetaService;
+
+    @Test
+    public void testGetSummaries_MostRecentFirst() {
+        // Setup
+        ChatMeta older = meta("Old", "2025-05-01T09:00:00");
+        ChatMeta newer = meta("New", "2025-05-01T10:00:00");
+        ChatMeta empty = meta(null, null);
+        when(firebaseService.getWithTypeIndicator(eq("chatMeta"), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("c1", older, "c2", newer, "c3", empty)));
+
+        // Execute
+        List<ChatSummaryResponse> summaries = chatMetaService.getSummaries().join();
+
+        // Verify: only chatMeta is read, never the chats with their messages
+        assertEquals(List.of("c2", "c1", "c3"), summaries.stream().map(ChatSummaryResponse::getId).toList());
+        assertEquals("New", summaries.get(0).getLastMessage());
+        verify(firebaseService, never()).getWithTypeIndicator(eq("chats"), any());
+    }
+
+    @Test
+    public void testRebuild_IndexesLastMessage() {
+        // Setup
+        Chat chat = new Chat("Friends", "group", List.of("user1", "user2"));
+        chat.setCreator("user1");
+        chat.setMessages(Map.of(
+                "m1", new Message("First", "user1", "2025-05-01T09:00:00", false, null),
+                "m2", new Message("Second", "user2", "2025-05-01T10:00:00", false, null)));
+        when(firebaseService.getWithTypeIndicator(eq("chats"), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("c1", chat)));
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        int count = chatMetaService.rebuild().join();
+
+        // Verify
+        assertEquals(1, count);
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService).updateMulti(updatesCaptor.capture());
+        Map<String, Object> updates = updatesCaptor.getValue();
+        assertEquals("Friends", updates.get("chatMeta/c1/title"));
+        assertEquals(List.of("user1", "user2"), updates.get("chatMeta/c1/participants"));
+        assertEquals("Second", updates.get("chatMeta/c1/lastMessage"));
+        assertEquals("user2", updates.get("chatMeta/c1/lastUser"));
+        assertEquals("user1", updates.get("chatMeta/c1/creator"));
+        assertEquals(ChatMetaService.CHAT_META_VERSION, updates.get("chatMetaVersion"));
+    }
+
+    @Test
+    public void testBackfill_RebuildsAnOutdatedIndex() {
+        // Setup: an index written before it kept every field of the chats
+        when(firebaseService.get("chatMetaVersion", Long.class)).thenReturn(CompletableFuture.completedFuture(1L));
+        when(firebaseService.getWithTypeIndicator(eq("chats"), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("c1", new Chat("Friends", "group", List.of("user1")))));
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        chatMetaService.backfillIfMissing();
+
+        // Verify
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService).updateMulti(updatesCaptor.capture());
+        assertEquals("Friends", updatesCaptor.getValue().get("chatMeta/c1/name"));
+        assertEquals(ChatMetaService.CHAT_META_VERSION, updatesCaptor.getValue().get("chatMetaVersion"));
+    }
+
+    private static ChatMeta meta(String lastMessage, String lastActivity) {
+        ChatMeta meta = new ChatMeta();
+        meta.setType("group");
+        meta.setLastMessage(lastMessage);
+        meta.setLastActivity(lastActivity);
+        return meta;
+    }
+}
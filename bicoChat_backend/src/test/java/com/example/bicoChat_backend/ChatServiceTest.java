@@ -0,0 +1,204 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.request.GroupUpdateRequest;
+import com.example.bicoChat_backend.dto.request.RoleUpdateRequest;
+import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.service.ChatMetaService;
+import com.example.bicoChat_backend.service.ChatService;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ChatServiceTest {
+
+    private InMemoryStorageBackend backend;
+    private FirebaseService firebaseService;
+    private ChatService chatService;
+    private SimpMessagingTemplate messagingTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        backend = new InMemoryStorageBackend();
+        firebaseService = new FirebaseService(backend);
+        chatService = new ChatService();
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        ReflectionTestUtils.setField(chatService, "firebaseService", firebaseService);
+        ReflectionTestUtils.setField(chatService, "messagingTemplate", messagingTemplate);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        backend.shutdown();
+    }
+
+    @Test
+    public void testGetChatById_AllFieldsWithoutMessages() {
+        // Setup
+        Chat chat = new Chat();
+        chat.setName("Team");
+        chat.setDescription("Weekly sync");
+        chat.setType("group");
+        chat.setParticipants(List.of("user1", "user2"));
+        chat.setCreator("user1");
+        chat.setAvatar("media:abc");
+        chat.setMessages(Map.of("m1", new Message("Hello", "user1", "2025-05-01T10:00:00", false, null)));
+        storeChat("chat1", chat);
+
+        // Execute
+        Optional<ChatResponse> response = chatService.getChatById("chat1").join();
+
+        // Verify
+        assertTrue(response.isPresent());
+        Chat read = response.get().getChat();
+        assertEquals("Team", read.getName());
+        assertEquals("Weekly sync", read.getDescription());
+        assertEquals("group", read.getType());
+        assertEquals(List.of("user1", "user2"), read.getParticipants());
+        assertEquals("user1", read.getCreator());
+        assertEquals("media:abc", read.getAvatar());
+        assertNull(read.getMessages());
+        assertFalse(chatService.getChatById("missing").join().isPresent());
+    }
+
+    @Test
+    public void testGetChatSummaries_ChatsOfTheIndexWithoutMessages() {
+        // Setup
+        Chat chat = new Chat();
+        chat.setName("Team");
+        chat.setParticipants(List.of("user1", "user2"));
+        chat.setMessages(Map.of("m1", new Message("Hello", "user1", "2025-05-01T10:00:00", false, null)));
+        storeChat("chat1", chat);
+        storeChat("chat0", groupChat());
+
+        // Execute: the chats node is gone, the summaries only need chatMeta
+        firebaseService.delete("chats").join();
+        List<ChatResponse> chats = chatService.getChatSummaries().join();
+
+        // Verify
+        assertEquals(List.of("chat0", "chat1"), chats.stream().map(ChatResponse::getId).toList());
+        assertEquals("Team", chats.get(1).getChat().getName());
+        assertEquals(List.of("user1", "user2"), chats.get(1).getChat().getParticipants());
+        assertEquals(Map.of("a1", "user2"), chats.get(0).getChat().getAdmin());
+        assertNull(chats.get(1).getChat().getMessages());
+    }
+
+    @Test
+    public void testUpdateGroupInfo_ChatSummaryAndEntriesInOneUpdate() {
+        // Setup
+        storeChat("group1", groupChat());
+        GroupUpdateRequest request = new GroupUpdateRequest();
+        request.setTitle("New title");
+        request.setDescription("New description");
+        request.setRequesterId("user2"); // Admin, not the creator
+
+        // Execute
+        chatService.updateGroupInfo("group1", request).join();
+
+        // Verify: the update is stored when the future completes, then clients are notified
+        assertEquals("New title", firebaseService.get("chats/group1/title", String.class).join());
+        assertEquals("New description", firebaseService.get("chats/group1/description", String.class).join());
+        assertEquals("New title", firebaseService.get("chatMeta/group1/title", String.class).join());
+        assertEquals("New title", firebaseService.get("users/user1/chatUser/group1/title", String.class).join());
+        assertEquals("New title", firebaseService.get("users/user3/chatUser/group1/title", String.class).join());
+        verify(messagingTemplate).convertAndSend(eq("/topic/chats"), any(Object.class));
+    }
+
+    @Test
+    public void testUpdateGroupInfo_FailsForNonAdmin() {
+        // Setup
+        storeChat("group1", groupChat());
+        GroupUpdateRequest request = new GroupUpdateRequest();
+        request.setTitle("New title");
+        request.setRequesterId("user3");
+
+        // Execute
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> chatService.updateGroupInfo("group1", request).join());
+
+        // Verify
+        assertInstanceOf(SecurityException.class, exception.getCause());
+        assertEquals("Team", firebaseService.get("chats/group1/title", String.class).join());
+        verifyNoInteractions(messagingTemplate);
+    }
+
+    @Test
+    public void testRemoveUserFromGroup_AdminRemovesMemberButNotAdmin() {
+        // Setup
+        storeChat("group1", groupChat());
+        firebaseService.set("users/user3/chatUser/group1/title", "Team").join();
+
+        // Execute
+        chatService.removeUserFromGroup("group1", "user3", "user2").join();
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> chatService.removeUserFromGroup("group1", "user1", "user2").join());
+
+        // Verify
+        assertEquals(List.of("user1", "user2"), firebaseService.get("chats/group1/participants", List.class).join());
+        assertFalse(firebaseService.exists("users/user3/chatUser/group1").join());
+        assertInstanceOf(SecurityException.class, exception.getCause());
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/chats"), any(Object.class));
+    }
+
+    @Test
+    public void testAddUserToGroupAndUpdateRole() {
+        // Setup
+        storeChat("group1", groupChat());
+        RoleUpdateRequest request = new RoleUpdateRequest();
+        request.setRequesterId("user1");
+        request.setTargetUserId("user4");
+        request.setNewRole("admin");
+
+        // Execute
+        chatService.addUserToGroup("group1", "user4", "user2").join();
+        chatService.updateUserRole("group1", request).join();
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> chatService.addUserToGroup("group1", "user4", "user1").join());
+
+        // Verify
+        assertEquals(List.of("user1", "user2", "user3", "user4"),
+                firebaseService.get("chats/group1/participants", List.class).join());
+        assertEquals("Team", firebaseService.get("users/user4/chatUser/group1/title", String.class).join());
+        assertTrue(firebaseService.get("chats/group1/admin", Map.class).join().containsValue("user4"));
+        assertTrue(firebaseService.get("chatMeta/group1/admin", Map.class).join().containsValue("user4"));
+        assertEquals(List.of("user1", "user2", "user3", "user4"),
+                firebaseService.get("chatMeta/group1/participants", List.class).join());
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    /**
+     * Stores a chat with its summary, as the services write them.
+     */
+    private void storeChat(String chatId, Chat chat) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("chats/" + chatId, chat);
+        ChatMetaService.putChat(updates, chatId, chat);
+        firebaseService.updateMulti(updates).join();
+    }
+
+    private static Chat groupChat() {
+        Chat chat = new Chat();
+        chat.setTitle("Team");
+        chat.setType("group");
+        chat.setCreator("user1");
+        chat.setAdmin(Map.of("a1", "user2"));
+        chat.setParticipants(List.of("user1", "user2", "user3"));
+        chat.setMessages(Map.of("m1", new Message("Hello", "user1", "2025-05-01T10:00:00", false, null)));
+        return chat;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.controller.ChatController;
+import com.example.bicoChat_backend.dto.response.ChatResponse;
+import com.example.bicoChat_backend.model.Chat;
+import com.example.bicoChat_backend.service.ChatService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Load test of GET /api/chats/{chatId} with a fixed number of request threads (as Tomcat's pool)
+ * and a slow Firebase (every read answers after FIREBASE_LATENCY_MS).
+ * It compares the async endpoint with the previous behaviour, where the request thread waited for the read.
+ * Its assertion depends on wall-clock throughput, so it only runs on demand.
+ *
+ * Run with: mvn test -Dtest=ControllerLoadTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ControllerLoadTest {
+
+    private static final int REQUEST_THREADS = 8;
+    private static final int REQUESTS = 200;
+    private static final long FIREBASE_LATENCY_MS = 25;
+
+    private ExecutorService requestThreads;
+    private ChatController chatController;
+
+    @BeforeEach
+    public void setUp() {
+        requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+
+        ChatService chatService = mock(ChatService.class);
+        when(chatService.getChatById(anyString())).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+                () -> Optional.of(new ChatResponse(invocation.getArgument(0), new Chat())),
+                CompletableFuture.delayedExecutor(FIREBASE_LATENCY_MS, TimeUnit.MILLISECONDS)));
+
+        chatController = new ChatController();
+        ReflectionTestUtils.setField(chatController, "chatService", chatService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        requestThreads.shutdownNow();
+    }
+
+    @Test
+    public void testGetChatById_AsyncThroughputWithFixedThreads() throws Exception {
+        // Blocking: the request thread waits for Firebase, as before
+        double blocking = run(chatId -> CompletableFuture.completedFuture(chatController.getChatById(chatId).join()));
+
+        // Async: the request thread only starts the read and is released
+        double async = run(chatId -> chatController.getChatById(chatId));
+
+        System.out.printf("[LOG - ControllerLoadTest] %d requests, %d threads, %d ms latency: blocking %.0f req/s, async %.0f req/s%n",
+                REQUESTS, REQUEST_THREADS, FIREBASE_LATENCY_MS, blocking, async);
+
+        // With blocking threads throughput is capped at REQUEST_THREADS / latency
+        assertTrue(async > blocking * 3, "async endpoint should not be limited by the thread pool");
+    }
+
+    private double run(Function<String, CompletableFuture<ResponseEntity<ChatResponse>>> endpoint) throws Exception {
+        List<CompletableFuture<ResponseEntity<ChatResponse>>> responses = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            String chatId = "chat" + i;
+            responses.add(CompletableFuture.supplyAsync(() -> endpoint.apply(chatId), requestThreads)
+                    .thenCompose(response -> response));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        for (CompletableFuture<ResponseEntity<ChatResponse>> response : responses) {
+            assertEquals(200, response.join().getStatusCode().value());
+        }
+        return REQUESTS / seconds;
+    }
+}
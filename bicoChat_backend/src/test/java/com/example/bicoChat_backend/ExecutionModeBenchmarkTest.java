@@ -0,0 +1,135 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.GenericTypeIndicator;
+import com.google.firebase.database.ValueEventListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares the p99 latency of list-chats and send-message with the Firebase callbacks continuing on the
+ * SDK event thread (default) or handed off to virtual threads, under 1000 concurrent clients.
+ * Firebase is simulated by a single event thread that answers every request after FIREBASE_LATENCY_MS;
+ * each request then does CALLBACK_WORK_MS of blocking work in its continuation, as the listener bodies do.
+ *
+ * Run with: mvn test -Dtest=ExecutionModeBenchmarkTest -Dbenchmark=true [-Dclients=1000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ExecutionModeBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("clients", 1000);
+    private static final int REQUESTS_PER_CLIENT = 5;
+    private static final long FIREBASE_LATENCY_MS = 5;
+    private static final long CALLBACK_WORK_MS = 1;
+
+    private static final GenericTypeIndicator<Map<String, Object>> CHATS_TYPE = new GenericTypeIndicator<Map<String, Object>>() {};
+
+    @Test
+    public void testCompareExecutionModes() throws Exception {
+        Map<String, long[]> eventThread = runMode(false);
+        Map<String, long[]> virtual = runMode(true);
+
+        for (String operation : eventThread.keySet()) {
+            System.out.printf("[LOG - ExecutionModeBenchmark] %-12s event-thread p50 %6.1f ms p99 %7.1f ms | virtual p50 %6.1f ms p99 %7.1f ms%n",
+                    operation,
+                    percentile(eventThread.get(operation), 50), percentile(eventThread.get(operation), 99),
+                    percentile(virtual.get(operation), 50), percentile(virtual.get(operation), 99));
+            assertTrue(percentile(virtual.get(operation), 99) < percentile(eventThread.get(operation), 99));
+        }
+    }
+
+    private Map<String, long[]> runMode(boolean virtualThreads) throws Exception {
+        ScheduledExecutorService firebaseEventThread = Executors.newSingleThreadScheduledExecutor();
+        try {
+            FirebaseService firebaseService = new FirebaseService(simulatedFirebase(firebaseEventThread));
+            ReflectionTestUtils.setField(firebaseService, "callbacksOnVirtualThreads", virtualThreads);
+            firebaseService.initExecution();
+
+            Map<String, long[]> results = new HashMap<>();
+            results.put("list-chats", runClients(chatId -> firebaseService.getWithTypeIndicator("chats", CHATS_TYPE)
+                    .thenApply(this::blockingWork)));
+            results.put("send-message", runClients(chatId -> firebaseService.updateMulti(
+                            Map.of("chats/" + chatId + "/messages/msg" + System.nanoTime(), Map.of("content", "hi")))
+                    .thenApply(this::blockingWork)));
+            return results;
+        } finally {
+            firebaseEventThread.shutdownNow();
+        }
+    }
+
+    private long[] runClients(Function<String, CompletableFuture<?>> request) throws Exception {
+        List<CompletableFuture<long[]>> clients = new ArrayList<>();
+        try (var clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                String chatId = "chat" + c;
+                clients.add(CompletableFuture.supplyAsync(() -> {
+                    long[] latencies = new long[REQUESTS_PER_CLIENT];
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long start = System.nanoTime();
+                        request.apply(chatId).join();
+                        latencies[r] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }, clientThreads));
+            }
+            CompletableFuture.allOf(clients.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+        }
+
+        long[] all = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        for (int c = 0; c < CLIENTS; c++) {
+            System.arraycopy(clients.get(c).join(), 0, all, c * REQUESTS_PER_CLIENT, REQUESTS_PER_CLIENT);
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    private <T> T blockingWork(T value) {
+        try {
+            Thread.sleep(CALLBACK_WORK_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    private static double percentile(long[] sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private DatabaseReference simulatedFirebase(ScheduledExecutorService eventThread) {
+        DatabaseReference reference = mock(DatabaseReference.class, withSettings().stubOnly());
+        DataSnapshot snapshot = mock(DataSnapshot.class, withSettings().stubOnly());
+        when(snapshot.getValue(any(GenericTypeIndicator.class))).thenReturn(Map.of("chat1", Map.of("type", "group")));
+        when(reference.child(anyString())).thenReturn(reference);
+        doAnswer(invocation -> {
+            ValueEventListener listener = invocation.getArgument(0);
+            eventThread.schedule(() -> listener.onDataChange(snapshot), FIREBASE_LATENCY_MS, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(reference).addListenerForSingleValueEvent(any(ValueEventListener.class));
+        doAnswer(invocation -> {
+            DatabaseReference.CompletionListener listener = invocation.getArgument(1);
+            eventThread.schedule(() -> listener.onComplete(null, reference), FIREBASE_LATENCY_MS, TimeUnit.MILLISECONDS);
+            return null;
+        }).when(reference).updateChildren(anyMap(), any(DatabaseReference.CompletionListener.class));
+        return reference;
+    }
+}
@@ -9,11 +9,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -168,6 +178,157 @@ public class FirebaseServiceTest {
         verify(childReference).addListenerForSingleValueEvent(any(ValueEventListener.class));
     }
 
+    @Test
+    public void testGet_ConcurrentReadsAreCoalesced() {
+        // Setup
+        String testPath = "chats/chat123";
+        ArgumentCaptor<ValueEventListener> listenerCaptor = ArgumentCaptor.forClass(ValueEventListener.class);
+
+        // Execute: three reads while the first one is still pending
+        CompletableFuture<String> first = firebaseService.get(testPath, String.class);
+        CompletableFuture<String> second = firebaseService.get("/" + testPath, String.class);
+        CompletableFuture<Boolean> exists = firebaseService.exists(testPath);
+
+        verify(childReference, times(1)).addListenerForSingleValueEvent(listenerCaptor.capture());
+        when(dataSnapshot.getValue(String.class)).thenReturn("value");
+        when(dataSnapshot.exists()).thenReturn(true);
+        listenerCaptor.getValue().onDataChange(dataSnapshot);
+
+        // Verify: one round trip answered every caller
+        assertEquals("value", first.join());
+        assertEquals("value", second.join());
+        assertTrue(exists.join());
+        assertEquals(2, firebaseService.getCoalescedReadCount());
+
+        // A read issued after completion goes to Firebase again
+        firebaseService.get(testPath, String.class);
+        verify(childReference, times(2)).addListenerForSingleValueEvent(any(ValueEventListener.class));
+    }
+
+    @Test
+    public void testGet_ReadsAfterAWriteDoNotJoinEarlierReads() {
+        // Setup: two reads still pending
+        firebaseService.get("chats/chat1/title", String.class);
+        firebaseService.get("users/u2", String.class);
+
+        // Execute: a write to an ancestor of the first path, then a write to an unrelated path
+        firebaseService.set("chats/chat1", Map.of("title", "New"));
+        firebaseService.get("chats/chat1/title", String.class);
+        firebaseService.updateMulti(Map.of("users/u1/status", "online"));
+        firebaseService.get("users/u2", String.class);
+
+        // Verify: the read after the write goes to Firebase again, the unrelated read is still shared
+        verify(childReference, times(3)).addListenerForSingleValueEvent(any(ValueEventListener.class));
+        assertEquals(1, firebaseService.getCoalescedReadCount());
+    }
+
+    @Test
+    public void testGet_ReadsAfterABufferedWriteDoNotJoinEarlierReads() {
+        // Setup: batching with a window long enough to keep the write buffered
+        ReflectionTestUtils.setField(firebaseService, "writeBatchWindowMs", 60_000L);
+        firebaseService.initExecution();
+        firebaseService.get("chats/chat1", String.class);
+
+        // Execute
+        firebaseService.set("chats/chat1/title", "New");
+        firebaseService.get("chats/chat1", String.class);
+
+        // Verify
+        verify(childReference, times(2)).addListenerForSingleValueEvent(any(ValueEventListener.class));
+        assertEquals(0, firebaseService.getCoalescedReadCount());
+        firebaseService.shutdown();
+    }
+
+    @Test
+    public void testShutdown_ClosesTheCallbackExecutor() {
+        // Setup: callbacks handed off to their own executor
+        ReflectionTestUtils.setField(firebaseService, "callbacksOnVirtualThreads", true);
+        firebaseService.initExecution();
+        ArgumentCaptor<ValueEventListener> listenerCaptor = ArgumentCaptor.forClass(ValueEventListener.class);
+        CompletableFuture<String> result = firebaseService.get("chats", String.class);
+        verify(childReference).addListenerForSingleValueEvent(listenerCaptor.capture());
+        when(dataSnapshot.getValue(String.class)).thenReturn("value");
+        listenerCaptor.getValue().onDataChange(dataSnapshot);
+        assertEquals("value", result.join());
+
+        // Execute
+        firebaseService.shutdown();
+
+        // Verify
+        assertTrue(((ExecutorService) firebaseService.getCallbackExecutor()).isShutdown());
+    }
+
+    @Test
+    public void testGet_ManyCoalescedReadersComplete() {
+        // Setup: thousands of callers waiting on the same read
+        ArgumentCaptor<ValueEventListener> listenerCaptor = ArgumentCaptor.forClass(ValueEventListener.class);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            results.add(firebaseService.get("chats", String.class));
+        }
+        verify(childReference, times(1)).addListenerForSingleValueEvent(listenerCaptor.capture());
+        when(dataSnapshot.getValue(String.class)).thenReturn("value");
+
+        // Execute
+        listenerCaptor.getValue().onDataChange(dataSnapshot);
+
+        // Verify: every caller is completed
+        assertTrue(results.stream().allMatch(result -> "value".equals(result.join())));
+    }
+
+    @Test
+    public void testIncrement_NoLostUpdatesUnder100ParallelSenders() throws InterruptedException {
+        // Setup: a simulated server that commits a transaction only if the value it read is still current
+        AtomicLong stored = new AtomicLong();
+        doAnswer(invocation -> {
+            Transaction.Handler handler = invocation.getArgument(0);
+            while (true) {
+                long seen = stored.get();
+                AtomicReference<Object> written = new AtomicReference<>();
+                MutableData data = mock(MutableData.class, call -> {
+                    if (call.getMethod().getName().equals("getValue")) return seen;
+                    if (call.getMethod().getName().equals("setValue")) written.set(call.getArgument(0));
+                    return null;
+                });
+                handler.doTransaction(data);
+                Thread.yield(); // Widen the window between read and commit
+                if (stored.compareAndSet(seen, (Long) written.get())) {
+                    DataSnapshot committed = mock(DataSnapshot.class, call -> written.get());
+                    handler.onComplete(null, true, committed);
+                    return null;
+                }
+            }
+        }).when(childReference).runTransaction(any(Transaction.Handler.class));
+
+        // Execute: 100 senders bump the same counter at once
+        int senders = 100;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Long>> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < senders; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                results.add(firebaseService.increment("users/user1/chatUser/chat123/unreadCount", 1));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Verify: every increment is counted and each caller saw a distinct value
+        assertEquals(senders, stored.get());
+        Set<Long> values = new HashSet<>();
+        results.forEach(result -> values.add(result.join()));
+        assertEquals(senders, values.size());
+    }
+
     @Test
     public void testListenToUsersChanges() {
         // Setup
@@ -0,0 +1,224 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStorageBackendTest {
+
+    private InMemoryStorageBackend backend;
+    private FirebaseService firebaseService;
+
+    @BeforeEach
+    public void setUp() {
+        backend = new InMemoryStorageBackend();
+        firebaseService = new FirebaseService(backend);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        backend.shutdown();
+    }
+
+    @Test
+    public void testSetAndGet_ConvertsModelsLikeFirebase() {
+        // Setup
+        Message message = new Message();
+        message.setSender("user1");
+        message.setContent("Hello");
+        message.setTimestamp("2025-05-01T10:00:00");
+
+        // Execute
+        firebaseService.set("chats/chat1/messages/m1", message).join();
+        firebaseService.set("chats/chat1/participants", List.of("user1", "user2")).join();
+
+        // Verify
+        Message read = firebaseService.get("chats/chat1/messages/m1", Message.class).join();
+        assertEquals("user1", read.getSender());
+        assertEquals("Hello", read.getContent());
+        List<String> participants = firebaseService.getWithTypeIndicator("chats/chat1/participants",
+                new GenericTypeIndicator<List<String>>() {}).join();
+        assertEquals(List.of("user1", "user2"), participants);
+        assertTrue(firebaseService.exists("chats/chat1").join());
+        assertFalse(firebaseService.exists("chats/chat2").join());
+    }
+
+    @Test
+    public void testUpdateAndDelete_KeepOtherChildren() {
+        // Setup
+        firebaseService.set("users/u1", Map.of("username", "alice", "status", "online")).join();
+
+        // Execute
+        firebaseService.update("users/u1", Map.of("status", "offline", "bio", "Hi")).join();
+        firebaseService.delete("users/u1/bio").join();
+
+        // Verify
+        Map<String, Object> user = firebaseService.getWithTypeIndicator("users/u1", new GenericTypeIndicator<Map<String, Object>>() {}).join();
+        assertEquals(Map.of("username", "alice", "status", "offline"), user);
+
+        // Removing the last child removes the parent too
+        firebaseService.updateMulti(mapOf("users/u1/username", null, "users/u1/status", null)).join();
+        assertFalse(firebaseService.exists("users/u1").join());
+    }
+
+    @Test
+    public void testUpdateMulti_RejectsOverlappingPaths() {
+        // Execute
+        CompletionException error = assertThrows(CompletionException.class, () ->
+                firebaseService.updateMulti(Map.of("users/u1", Map.of("a", 1), "users/u1/b", 2)).join());
+
+        // Verify: nothing written
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertFalse(firebaseService.exists("users").join());
+    }
+
+    @Test
+    public void testIncrement_IsAtomic() {
+        // Execute: 8 threads, 500 increments each
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            for (int i = 0; i < 500; i++) {
+                firebaseService.increment("counters/c1", 1).join();
+            }
+        });
+
+        // Verify
+        assertEquals(4000L, firebaseService.get("counters/c1", Long.class).join());
+    }
+
+    @Test
+    public void testQuery_OrdersByChildAndLimits() {
+        // Setup
+        for (int i = 1; i <= 5; i++) {
+            firebaseService.set("chats/chat1/messages/m" + i, Map.of("timestamp", "2025-05-01T10:0" + (6 - i) + ":00")).join();
+        }
+
+        // Execute: the three latest, then the three up to m3
+        StorageSnapshot latest = firebaseService.query("chats/chat1/messages",
+                new StorageQuery().orderByChild("timestamp").limitToLast(3)).join();
+        StorageSnapshot older = firebaseService.query("chats/chat1/messages",
+                new StorageQuery().orderByChild("timestamp").endAt("2025-05-01T10:03:00", "m3").limitToLast(3)).join();
+
+        // Verify: oldest first
+        assertEquals(List.of("m3", "m2", "m1"), keys(latest));
+        assertEquals(List.of("m5", "m4", "m3"), keys(older));
+    }
+
+    @Test
+    public void testListeners_ReceiveCurrentValueThenChanges() throws Exception {
+        // Setup
+        firebaseService.set("chats/chat1/title", "Old").join();
+        List<Object> values = new CopyOnWriteArrayList<>();
+        List<String> childEvents = new CopyOnWriteArrayList<>();
+        CountDownLatch initial = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(4);
+
+        StorageBackend.Registration valueRegistration = firebaseService.listen("chats/chat1/title", snapshot -> {
+            values.add(snapshot.getValue());
+            initial.countDown();
+            done.countDown();
+        });
+        firebaseService.listenToChildren("chats", new StorageBackend.ChildListener() {
+            @Override
+            public void onChildAdded(StorageSnapshot child) {
+                childEvents.add("added " + child.getKey());
+                initial.countDown();
+                done.countDown();
+            }
+
+            @Override
+            public void onChildChanged(StorageSnapshot child) {
+                childEvents.add("changed " + child.getKey());
+                initial.countDown();
+                done.countDown();
+            }
+
+            @Override
+            public void onChildRemoved(StorageSnapshot child) {
+                childEvents.add("removed " + child.getKey());
+            }
+        });
+
+        // Execute: a change after the current values were delivered
+        assertTrue(initial.await(5, TimeUnit.SECONDS));
+        firebaseService.set("chats/chat1/title", "New").join();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        valueRegistration.remove();
+        firebaseService.set("chats/chat1/title", "Newer").join();
+
+        // Verify
+        assertEquals(List.of("Old", "New"), values);
+        assertEquals("added chat1", childEvents.get(0));
+        assertTrue(childEvents.contains("changed chat1"));
+    }
+
+    @Test
+    public void testListeners_PatchedWithTheWrittenPathsOnly() throws Exception {
+        // Setup
+        firebaseService.set("chats/chat1", mapOf("title", "One", "messages", Map.of("m1", "Hi"))).join();
+        firebaseService.set("chats/chat2/title", "Two").join();
+        LinkedBlockingQueue<String> events = new LinkedBlockingQueue<>();
+        firebaseService.listen("chats/chat1", snapshot -> events.add("value " + snapshot.getValue()));
+        firebaseService.listenToChildren("chats", new StorageBackend.ChildListener() {
+            @Override
+            public void onChildAdded(StorageSnapshot child) {
+                events.add("added " + child.getKey());
+            }
+
+            @Override
+            public void onChildChanged(StorageSnapshot child) {
+                events.add("changed " + child.getKey() + " " + child.child("messages").getValue());
+            }
+
+            @Override
+            public void onChildRemoved(StorageSnapshot child) {
+                events.add("removed " + child.getKey());
+            }
+        });
+        assertTrue(events.poll(5, TimeUnit.SECONDS).startsWith("value"));
+        assertEquals("added chat1", events.poll(5, TimeUnit.SECONDS));
+        assertEquals("added chat2", events.poll(5, TimeUnit.SECONDS));
+
+        // Execute: a write below chat1, a write that changes nothing, a write above both listeners
+        firebaseService.set("chats/chat1/messages/m2", "Hello").join();
+        firebaseService.set("chats/chat2/title", "Two").join();
+        firebaseService.set("chats", Map.of("chat2", Map.of("title", "Two"))).join();
+
+        // Verify
+        String value = events.poll(5, TimeUnit.SECONDS);
+        assertTrue(value.contains("m1=Hi") && value.contains("m2=Hello"), value);
+        assertEquals("changed chat1 {m1=Hi, m2=Hello}", events.poll(5, TimeUnit.SECONDS));
+        assertEquals("value null", events.poll(5, TimeUnit.SECONDS));
+        assertEquals("removed chat1", events.poll(5, TimeUnit.SECONDS));
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private static List<String> keys(StorageSnapshot snapshot) {
+        List<String> keys = new ArrayList<>();
+        snapshot.getChildren().forEach(child -> keys.add(child.getKey()));
+        return keys;
+    }
+
+    private static Map<String, Object> mapOf(String k1, Object v1, String k2, Object v2) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+}
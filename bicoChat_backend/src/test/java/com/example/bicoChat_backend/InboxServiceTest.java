@@ -0,0 +1,189 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.response.InboxEntryResponse;
+import com.example.bicoChat_backend.dto.response.InboxPageResponse;
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.InboxService;
+import com.example.bicoChat_backend.service.storage.StorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InboxServiceTest {
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @InjectMocks
+    private InboxService inboxService;
+
+    @Test
+    public void testGetInbox_ReadyAfterInitialLoadAndHiddenChats() {
+        // Setup
+        UserRefs user1 = userRefs("user1");
+
+        // Execute
+        CompletableFuture<InboxPageResponse> page = inboxService.getInbox("user1", null, 10);
+
+        // Verify: one child listener, one hidden chats listener and one end-of-load listener
+        StorageBackend.ChildListener chatListener = user1.chatListener();
+        StorageBackend.ValueListener hiddenListener = user1.hiddenListener();
+        Runnable initialLoad = user1.initialLoad();
+
+        chatListener.onChildAdded(chatSnapshot("c1", "2025-05-01T09:00:00"));
+        chatListener.onChildAdded(chatSnapshot("c2", "2025-05-01T11:00:00"));
+        chatListener.onChildAdded(chatSnapshot("c3", "2025-05-01T10:00:00"));
+        initialLoad.run();
+        assertFalse(page.isDone()); // Hidden chats not loaded yet
+
+        hiddenListener.onValue(hiddenSnapshot("c3"));
+        assertTrue(page.isDone());
+        assertEquals(List.of("c2", "c1"), ids(page.join()));
+        assertNull(page.join().getNextCursor());
+    }
+
+    @Test
+    public void testGetInbox_ListenersKeepInboxUpToDate() {
+        // Setup
+        UserRefs user1 = userRefs("user1");
+        inboxService.getInbox("user1", null, 10);
+        StorageBackend.ChildListener chatListener = user1.chatListener();
+        StorageBackend.ValueListener hiddenListener = user1.hiddenListener();
+        chatListener.onChildAdded(chatSnapshot("c1", "2025-05-01T09:00:00"));
+        chatListener.onChildAdded(chatSnapshot("c2", "2025-05-01T10:00:00"));
+        user1.initialLoad().run();
+        hiddenListener.onValue(hiddenSnapshot());
+
+        // Execute: a new message in c1, c2 removed, c3 added and hidden
+        chatListener.onChildChanged(chatSnapshot("c1", "2025-05-01T12:00:00"));
+        chatListener.onChildRemoved(chatSnapshot("c2", null));
+        chatListener.onChildAdded(chatSnapshot("c3", "2025-05-01T11:00:00"));
+        chatListener.onChildAdded(chatSnapshot("c4", "2025-05-01T08:00:00"));
+        hiddenListener.onValue(hiddenSnapshot("c3"));
+        InboxPageResponse page = inboxService.getInbox("user1", null, 1).join();
+
+        // Verify: served from memory, the listeners are attached only once
+        assertEquals(List.of("c1"), ids(page));
+        assertNotNull(page.getNextCursor());
+        assertEquals(List.of("c4"), ids(inboxService.getInbox("user1", page.getNextCursor(), 1).join()));
+        verify(firebaseService, times(1)).listenToChildren(eq("users/user1/chatUser"), any());
+        verify(firebaseService, times(1)).listen(eq("users/user1/hiddenChats"), any());
+        assertEquals(1, inboxService.size());
+    }
+
+    @Test
+    public void testGetInbox_CancelledListenerFailsAndDropsInbox() {
+        // Setup
+        UserRefs user1 = userRefs("user1");
+        CompletableFuture<InboxPageResponse> page = inboxService.getInbox("user1", null, 10);
+        StorageBackend.ChildListener chatListener = user1.chatListener();
+        IllegalStateException error = new IllegalStateException("Permission denied");
+
+        // Execute
+        chatListener.onError(error);
+
+        // Verify: the listeners are removed and the next request attaches new ones
+        CompletionException exception = assertThrows(CompletionException.class, page::join);
+        assertSame(error, exception.getCause());
+        verify(user1.chatRegistration).remove();
+        verify(user1.hiddenRegistration).remove();
+        assertEquals(0, inboxService.size());
+
+        inboxService.getInbox("user1", null, 10);
+        verify(firebaseService, times(2)).listenToChildren(eq("users/user1/chatUser"), any());
+    }
+
+    @Test
+    public void testGetInbox_EvictsLeastRecentlyUsedInbox() {
+        // Setup
+        ReflectionTestUtils.setField(inboxService, "maxUsers", 2);
+        UserRefs user1 = userRefs("user1");
+        UserRefs user2 = userRefs("user2");
+        UserRefs user3 = userRefs("user3");
+        inboxService.getInbox("user1", null, 10);
+        inboxService.getInbox("user2", null, 10);
+
+        // Execute: user1 is used again, so user2 is the least recently used
+        inboxService.getInbox("user1", null, 10);
+        inboxService.getInbox("user3", null, 10);
+
+        // Verify
+        assertEquals(2, inboxService.size());
+        verify(user2.chatRegistration).remove();
+        verify(user2.hiddenRegistration).remove();
+        verify(user1.chatRegistration, never()).remove();
+        verify(user3.chatRegistration, never()).remove();
+    }
+
+    private UserRefs userRefs(String userId) {
+        String userPath = "users/" + userId;
+        StorageBackend.Registration chatRegistration = mock(StorageBackend.Registration.class);
+        StorageBackend.Registration hiddenRegistration = mock(StorageBackend.Registration.class);
+        lenient().when(firebaseService.listenToChildren(eq(userPath + "/chatUser"), any())).thenReturn(chatRegistration);
+        lenient().when(firebaseService.listen(eq(userPath + "/hiddenChats"), any())).thenReturn(hiddenRegistration);
+        return new UserRefs(firebaseService, userPath, chatRegistration, hiddenRegistration);
+    }
+
+    private static StorageSnapshot chatSnapshot(String chatId, String timestamp) {
+        StorageSnapshot snapshot = mock(StorageSnapshot.class);
+        when(snapshot.getKey()).thenReturn(chatId);
+        if (timestamp != null) {
+            when(snapshot.getValue(User.ChatInfo.class))
+                    .thenReturn(new User.ChatInfo("Hi", "Chat", timestamp, 0, "user1", "Chat", null, "individual"));
+        }
+        return snapshot;
+    }
+
+    private static StorageSnapshot hiddenSnapshot(String... chatIds) {
+        List<StorageSnapshot> children = new ArrayList<>();
+        for (String chatId : chatIds) {
+            StorageSnapshot child = mock(StorageSnapshot.class);
+            when(child.getKey()).thenReturn(chatId);
+            children.add(child);
+        }
+        StorageSnapshot snapshot = mock(StorageSnapshot.class);
+        when(snapshot.getChildren()).thenReturn(children);
+        return snapshot;
+    }
+
+    private static List<String> ids(InboxPageResponse page) {
+        return page.getChats().stream().map(InboxEntryResponse::getId).toList();
+    }
+
+    private record UserRefs(FirebaseService firebaseService, String userPath,
+                            StorageBackend.Registration chatRegistration, StorageBackend.Registration hiddenRegistration) {
+
+        StorageBackend.ChildListener chatListener() {
+            ArgumentCaptor<StorageBackend.ChildListener> captor = ArgumentCaptor.forClass(StorageBackend.ChildListener.class);
+            verify(firebaseService, atLeastOnce()).listenToChildren(eq(userPath + "/chatUser"), captor.capture());
+            return captor.getValue();
+        }
+
+        StorageBackend.ValueListener hiddenListener() {
+            ArgumentCaptor<StorageBackend.ValueListener> captor = ArgumentCaptor.forClass(StorageBackend.ValueListener.class);
+            verify(firebaseService, atLeastOnce()).listen(eq(userPath + "/hiddenChats"), captor.capture());
+            return captor.getValue();
+        }
+
+        Runnable initialLoad() {
+            ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+            verify(firebaseService, atLeastOnce()).afterInitialEvents(eq(userPath + "/chatUser"), captor.capture());
+            return captor.getValue();
+        }
+    }
+}
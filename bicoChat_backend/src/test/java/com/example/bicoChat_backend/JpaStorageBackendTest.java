@@ -0,0 +1,100 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.storage.JpaStorageBackend;
+import com.example.bicoChat_backend.service.storage.StorageEntryRepository;
+import com.example.bicoChat_backend.service.storage.StorageQuery;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import com.google.firebase.database.GenericTypeIndicator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the JPA backend on the embedded H2 database. The backend commits its own transactions
+ * on its own threads, so the test itself runs outside of a transaction.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JpaStorageBackendTest {
+
+    @Autowired
+    private StorageEntryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JpaStorageBackend backend;
+    private FirebaseService firebaseService;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAllInBatch();
+        backend = new JpaStorageBackend(repository, transactionManager);
+        firebaseService = new FirebaseService(backend);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        backend.shutdown();
+    }
+
+    @Test
+    public void testWriteAndRead_OneRowPerLeaf() {
+        // Execute
+        firebaseService.set("users/u1", Map.of("username", "alice", "chatUser", Map.of("chat1", Map.of("unreadCount", 2)))).join();
+        firebaseService.update("users/u1", Map.of("status", "online")).join();
+        firebaseService.increment("users/u1/chatUser/chat1/unreadCount", 3).join();
+
+        // Verify
+        Map<String, Object> user = firebaseService.getWithTypeIndicator("users/u1", new GenericTypeIndicator<Map<String, Object>>() {}).join();
+        assertEquals("alice", user.get("username"));
+        assertEquals("online", user.get("status"));
+        assertEquals(5L, firebaseService.get("users/u1/chatUser/chat1/unreadCount", Long.class).join());
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    public void testSet_ReplacesSubtreeAndLeafAncestors() {
+        // Setup
+        firebaseService.set("chats/chat_1/title", "Old").join();
+        firebaseService.set("chats/chat_10/title", "Other").join(); // "_" must not match any character in the prefix
+
+        // Execute
+        firebaseService.set("chats/chat_1", Map.of("type", "group")).join();
+        firebaseService.set("chats/chat_1/type/extra", "x").join(); // Replaces the leaf "type" with an object
+
+        // Verify
+        assertNull(firebaseService.get("chats/chat_1/title", String.class).join());
+        assertEquals("Other", firebaseService.get("chats/chat_10/title", String.class).join());
+        assertEquals("x", firebaseService.get("chats/chat_1/type/extra", String.class).join());
+    }
+
+    @Test
+    public void testQuery_OrdersByChild() {
+        // Setup
+        firebaseService.updateMulti(Map.of(
+                "chats/c/messages/a", Map.of("timestamp", "3"),
+                "chats/c/messages/b", Map.of("timestamp", "1"),
+                "chats/c/messages/c", Map.of("timestamp", "2"))).join();
+
+        // Execute
+        StorageSnapshot result = firebaseService.query("chats/c/messages", new StorageQuery().orderByChild("timestamp").limitToFirst(2)).join();
+
+        // Verify
+        List<String> keys = new ArrayList<>();
+        result.getChildren().forEach(child -> keys.add(child.getKey()));
+        assertEquals(List.of("b", "c"), keys);
+    }
+}
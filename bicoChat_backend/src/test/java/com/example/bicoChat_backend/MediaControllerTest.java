@@ -0,0 +1,188 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.controller.MediaController;
+import com.example.bicoChat_backend.service.media.MediaService;
+import com.example.bicoChat_backend.service.media.StoredMedia;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MediaControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Mock
+    private MediaService mediaService;
+
+    @InjectMocks
+    private MediaController mediaController;
+
+    @Test
+    public void testDownload_CacheHeaders() {
+        // Setup
+        byte[] content = {1, 2, 3};
+        when(mediaService.load(HASH))
+                .thenReturn(CompletableFuture.completedFuture(new StoredMedia(HASH, content, "image/png")));
+
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, null, null).join();
+
+        // Verify
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(content, response.getBody());
+        assertEquals("\"" + HASH + "\"", response.getHeaders().getETag());
+        assertEquals(MediaType.IMAGE_PNG, response.getHeaders().getContentType());
+        assertTrue(response.getHeaders().getCacheControl().contains("max-age=31536000"));
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+    }
+
+    @Test
+    public void testDownload_NotModified() {
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, null, "\"" + HASH + "\"").join();
+
+        // Verify: answered without reading the file
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verifyNoInteractions(mediaService);
+    }
+
+    @Test
+    public void testDownload_NotFound() {
+        // Setup
+        when(mediaService.load(HASH)).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, null, null).join();
+
+        // Verify
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testDownload_Thumbnail() {
+        // Setup
+        byte[] content = {1, 2};
+        when(mediaService.supportsSize(64)).thenReturn(true);
+        when(mediaService.load(HASH, 64))
+                .thenReturn(CompletableFuture.completedFuture(new StoredMedia(HASH + "_64", content, "image/jpeg")));
+
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, 64, null).join();
+
+        // Verify
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"" + HASH + "_64\"", response.getHeaders().getETag());
+        assertEquals(MediaType.IMAGE_JPEG, response.getHeaders().getContentType());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+    }
+
+    @Test
+    public void testDownload_ThumbnailNotReady() {
+        // Setup: the pipeline is full, the original is served instead
+        when(mediaService.supportsSize(64)).thenReturn(true);
+        when(mediaService.load(HASH, 64))
+                .thenReturn(CompletableFuture.completedFuture(new StoredMedia(HASH, new byte[]{1}, "image/png")));
+
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, 64, null).join();
+
+        // Verify: not cached for good, the thumbnail will replace it
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"" + HASH + "\"", response.getHeaders().getETag());
+        assertFalse(response.getHeaders().getCacheControl().contains("immutable"));
+    }
+
+    @Test
+    public void testDownload_UnsupportedSize() {
+        // Setup
+        when(mediaService.supportsSize(100)).thenReturn(false);
+
+        // Execute
+        ResponseEntity<byte[]> response = mediaController.download(HASH, 100, null).join();
+
+        // Verify
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(mediaService, never()).load(anyString(), anyInt());
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        // Setup
+        byte[] content = {1, 2, 3};
+        when(mediaService.getMaxBytes()).thenReturn(1024L);
+        when(mediaService.store(any(InputStream.class))).thenReturn(HASH);
+
+        // Execute
+        ResponseEntity<Object> response = mediaController.upload(new MockMultipartFile("file", content));
+
+        // Verify
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) response.getBody();
+        assertEquals(HASH, body.get("hash"));
+        assertEquals("media:" + HASH, body.get("ref"));
+        assertEquals("/api/media/" + HASH, body.get("url"));
+    }
+
+    @Test
+    public void testUpload_Rejected() throws Exception {
+        // Setup
+        when(mediaService.getMaxBytes()).thenReturn(1024L);
+        when(mediaService.store(any(InputStream.class)))
+                .thenThrow(new IllegalArgumentException("Unsupported file type"));
+
+        // Execute
+        ResponseEntity<Object> response = mediaController.upload(new MockMultipartFile("file", new byte[]{1}));
+
+        // Verify
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testUploadStream() throws Exception {
+        // Setup
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/media/stream");
+        request.setContentType("image/png");
+        request.setContent(new byte[]{1, 2, 3});
+        when(mediaService.getMaxBytes()).thenReturn(1024L);
+        when(mediaService.store(any(InputStream.class))).thenReturn(HASH);
+
+        // Execute
+        ResponseEntity<Object> response = mediaController.uploadStream(request);
+
+        // Verify
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("media:" + HASH, ((Map<?, ?>) response.getBody()).get("ref"));
+    }
+
+    @Test
+    public void testUploadStream_DeclaredTooLarge() throws Exception {
+        // Setup
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/media/stream");
+        request.setContent(new byte[2048]);
+        when(mediaService.getMaxBytes()).thenReturn(1024L);
+
+        // Execute
+        ResponseEntity<Object> response = mediaController.uploadStream(request);
+
+        // Verify: refused without reading the body
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+        verify(mediaService, never()).store(any(InputStream.class));
+    }
+}
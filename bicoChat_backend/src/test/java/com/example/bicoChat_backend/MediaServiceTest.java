@@ -0,0 +1,159 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.media.LocalMediaStore;
+import com.example.bicoChat_backend.service.media.MediaService;
+import com.example.bicoChat_backend.service.media.MediaStore;
+import com.example.bicoChat_backend.service.media.StoredMedia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MediaServiceTest {
+
+    // Smallest valid PNG header followed by some data
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3, 4};
+
+    @TempDir
+    Path directory;
+
+    private MediaStore mediaStore;
+    private MediaService mediaService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        mediaStore = spy(new LocalMediaStore(directory));
+        mediaService = new MediaService(mediaStore);
+        ReflectionTestUtils.setField(mediaService, "offloadInline", true);
+        ReflectionTestUtils.setField(mediaService, "thumbnailSizes", List.of()); // Covered by ThumbnailPipelineTest
+        mediaService.initThumbnails();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mediaService.shutdown();
+    }
+
+    @Test
+    public void testStore_ContentAddressedAndDeduplicated() throws Exception {
+        // Execute
+        String first = mediaService.store(PNG).join();
+        String second = mediaService.store(PNG.clone()).join();
+
+        // Verify: same content, same hash, written once
+        assertEquals(MediaService.sha256(PNG), first);
+        assertEquals(first, second);
+        verify(mediaStore, times(1)).put(eq(first), any(byte[].class), eq("image/png"));
+        assertArrayEquals(PNG, Files.readAllBytes(directory.resolve(first)));
+    }
+
+    @Test
+    public void testStore_RejectsNonImages() {
+        // Execute & Verify
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> mediaService.store("<html><script>alert(1)</script></html>".getBytes()).join());
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        assertEquals(0, directory.toFile().list().length);
+    }
+
+    @Test
+    public void testStoreStream() throws Exception {
+        // Setup: a large image, streamed
+        byte[] large = new byte[300 * 1024];
+        System.arraycopy(PNG, 0, large, 0, PNG.length);
+
+        // Execute
+        String hash = mediaService.store(new ByteArrayInputStream(large));
+        String again = mediaService.store(new ByteArrayInputStream(large));
+
+        // Verify: same hash as the in-memory path, stored once, no temporary file left
+        assertEquals(MediaService.sha256(large), hash);
+        assertEquals(hash, again);
+        assertArrayEquals(large, Files.readAllBytes(directory.resolve(hash)));
+        assertEquals("image/png", mediaStore.get(hash).getContentType());
+        try (var files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void testStoreStream_TooLarge() throws Exception {
+        // Setup
+        ReflectionTestUtils.setField(mediaService, "maxBytes", 1024L);
+        byte[] large = new byte[4096];
+        System.arraycopy(PNG, 0, large, 0, PNG.length);
+
+        // Execute & Verify: the upload is aborted and nothing is left behind
+        assertThrows(IllegalArgumentException.class, () -> mediaService.store(new ByteArrayInputStream(large)));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testStoreStream_RejectsNonImages() {
+        // Execute & Verify
+        assertThrows(IllegalArgumentException.class,
+                () -> mediaService.store(new ByteArrayInputStream("hello".getBytes())));
+        assertThrows(IllegalArgumentException.class,
+                () -> mediaService.store(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void testLoad() {
+        // Setup
+        String hash = mediaService.store(PNG).join();
+
+        // Execute
+        StoredMedia media = mediaService.load(hash).join();
+
+        // Verify
+        assertNotNull(media);
+        assertArrayEquals(PNG, media.getContent());
+        assertEquals("image/png", media.getContentType());
+        assertNull(mediaService.load("0".repeat(64)).join());
+        assertNull(mediaService.load("../../etc/passwd").join());
+    }
+
+    @Test
+    public void testOffload_Base64AndDataUrl() {
+        // Setup
+        String base64 = Base64.getEncoder().encodeToString(PNG);
+        String reference = MediaService.toReference(MediaService.sha256(PNG));
+
+        // Execute & Verify: both forms end up as the same short reference
+        assertEquals(reference, mediaService.offload(base64).join());
+        assertEquals(reference, mediaService.offload("data:image/png;base64," + base64).join());
+        assertEquals(reference, mediaService.offload(reference).join());
+    }
+
+    @Test
+    public void testOffload_LeavesOtherValuesUnchanged() {
+        // Execute & Verify
+        assertNull(mediaService.offload(null).join());
+        assertEquals("https://example.com/a.png", mediaService.offload("https://example.com/a.png").join());
+        assertEquals("not an image", mediaService.offload("not an image").join());
+    }
+
+    @Test
+    public void testOffload_Disabled() {
+        // Setup
+        ReflectionTestUtils.setField(mediaService, "offloadInline", false);
+        String base64 = Base64.getEncoder().encodeToString(PNG);
+
+        // Execute & Verify
+        assertEquals(base64, mediaService.offload(base64).join());
+        assertEquals(0, directory.toFile().list().length);
+    }
+}
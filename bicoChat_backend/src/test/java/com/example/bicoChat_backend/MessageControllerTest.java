@@ -1,14 +1,18 @@
 package com.example.bicoChat_backend;
 
 import com.example.bicoChat_backend.controller.MessageController;
+import com.example.bicoChat_backend.dto.response.MessageEvent;
 import com.example.bicoChat_backend.model.Message;
 import com.example.bicoChat_backend.service.ChatService;
 import com.example.bicoChat_backend.service.FirebaseService;
 import com.example.bicoChat_backend.service.MessageService;
+import com.example.bicoChat_backend.service.storage.FirebaseStorageBackend;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.ChildEventListener;
-import org.junit.jupiter.api.BeforeEach;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -19,6 +23,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -61,9 +66,8 @@ public class MessageControllerTest {
     private final String SENDER = "user1";
     private final String CONTENT = "Hello, world!";
 
-    @BeforeEach
-    void setUp() {
-        when(firebaseService.getDatabaseReference()).thenReturn(databaseReference);
+    private void useFirebaseBackend() {
+        when(firebaseService.getStorageBackend()).thenReturn(new FirebaseStorageBackend(databaseReference));
         when(databaseReference.child("chats")).thenReturn(chatsRef);
     }
 
@@ -71,10 +75,131 @@ public class MessageControllerTest {
     void testInitFirebaseMessageListener() {
         // Since this method is called via @PostConstruct and mostly sets up listeners,
         // we'll verify that the Firebase reference was accessed correctly
+        useFirebaseBackend();
         messageController.initFirebaseMessageListener();
 
-        verify(firebaseService).getDatabaseReference();
+        verify(firebaseService).getStorageBackend();
         verify(databaseReference).child("chats");
         verify(chatsRef).addChildEventListener(any(ChildEventListener.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMessageListener_PublishesSingleMessageEvents() {
+        // Setup: attach the per-chat listener
+        useFirebaseBackend();
+        DatabaseReference chatRef = mock(DatabaseReference.class);
+        DatabaseReference messagesRef = mock(DatabaseReference.class);
+        when(chatSnapshot.getKey()).thenReturn(CHAT_ID);
+        when(chatSnapshot.getRef()).thenReturn(chatRef);
+        when(chatRef.child("messages")).thenReturn(messagesRef);
+        ReflectionTestUtils.setField(messageController, "messagesBootstrap", "replay");
+
+        messageController.initFirebaseMessageListener();
+
+        ArgumentCaptor<ChildEventListener> chatsCaptor = ArgumentCaptor.forClass(ChildEventListener.class);
+        verify(chatsRef).addChildEventListener(chatsCaptor.capture());
+        chatsCaptor.getValue().onChildAdded(chatSnapshot, null);
+
+        ArgumentCaptor<ChildEventListener> messagesCaptor = ArgumentCaptor.forClass(ChildEventListener.class);
+        verify(messagesRef).addChildEventListener(messagesCaptor.capture());
+
+        Message added = new Message(CONTENT, SENDER, LocalDateTime.now().toString(), false, null);
+        DataSnapshot addedSnapshot = mock(DataSnapshot.class);
+        when(addedSnapshot.getKey()).thenReturn(MESSAGE_ID);
+        when(addedSnapshot.getValue(Message.class)).thenReturn(added);
+
+        Message softDeleted = new Message("Message deleted", SENDER, LocalDateTime.now().toString(), false, null);
+        softDeleted.setDeleted(true);
+        DataSnapshot deletedSnapshot = mock(DataSnapshot.class);
+        when(deletedSnapshot.getKey()).thenReturn(MESSAGE_ID);
+        when(deletedSnapshot.getValue(Message.class)).thenReturn(softDeleted);
+
+        // Execute
+        messagesCaptor.getValue().onChildAdded(addedSnapshot, null);
+        messagesCaptor.getValue().onChildChanged(deletedSnapshot, null);
+
+        // Verify: one event per change, taken from the snapshot, with increasing seq
+        ArgumentCaptor<Object> payloadCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/messages/" + CHAT_ID), payloadCaptor.capture());
+        MessageEvent first = (MessageEvent) payloadCaptor.getAllValues().get(0);
+        MessageEvent second = (MessageEvent) payloadCaptor.getAllValues().get(1);
+
+        assertEquals(MessageEvent.Type.ADDED, first.getType());
+        assertEquals(MESSAGE_ID, first.getMessage().getId());
+        assertEquals(CONTENT, first.getMessage().getContent());
+        assertEquals(1, first.getSeq());
+        assertEquals(MessageEvent.Type.DELETED, second.getType());
+        assertEquals(2, second.getSeq());
+        verifyNoInteractions(messageService);
+    }
+
+    @Test
+    void testMessageListener_SinceNowSkipsHistoryOfExistingChats() {
+        // Setup
+        useFirebaseBackend();
+        DatabaseReference existingChatRef = mock(DatabaseReference.class);
+        DatabaseReference existingMessagesRef = mock(DatabaseReference.class);
+        Query orderedQuery = mock(Query.class);
+        Query sinceNowQuery = mock(Query.class);
+        when(chatSnapshot.getRef()).thenReturn(existingChatRef);
+        when(existingChatRef.child("messages")).thenReturn(existingMessagesRef);
+        when(existingMessagesRef.orderByChild("timestamp")).thenReturn(orderedQuery);
+        when(orderedQuery.startAt(anyString())).thenReturn(sinceNowQuery);
+
+        DataSnapshot newChatSnapshot = mock(DataSnapshot.class);
+        DatabaseReference newChatRef = mock(DatabaseReference.class);
+        DatabaseReference newMessagesRef = mock(DatabaseReference.class);
+        when(newChatSnapshot.getRef()).thenReturn(newChatRef);
+        when(newChatRef.child("messages")).thenReturn(newMessagesRef);
+
+        // Execute: a chat present at startup, end of bootstrap, then a chat created later
+        messageController.initFirebaseMessageListener();
+
+        ArgumentCaptor<ChildEventListener> chatsCaptor = ArgumentCaptor.forClass(ChildEventListener.class);
+        ArgumentCaptor<ValueEventListener> readyCaptor = ArgumentCaptor.forClass(ValueEventListener.class);
+        verify(chatsRef).addChildEventListener(chatsCaptor.capture());
+        verify(chatsRef).addListenerForSingleValueEvent(readyCaptor.capture());
+
+        chatsCaptor.getValue().onChildAdded(chatSnapshot, null);
+        readyCaptor.getValue().onDataChange(mock(DataSnapshot.class));
+        chatsCaptor.getValue().onChildAdded(newChatSnapshot, null);
+
+        // Verify: the existing chat is listened from now on, the new chat in full
+        verify(sinceNowQuery).addChildEventListener(any(ChildEventListener.class));
+        verify(existingMessagesRef, never()).addChildEventListener(any(ChildEventListener.class));
+        verify(newMessagesRef).addChildEventListener(any(ChildEventListener.class));
+        verify(newMessagesRef, never()).orderByChild(anyString());
+    }
+
+    @Test
+    void testStorageMessageListener_SinceNowSkipsHistoryOfExistingChats() {
+        // Setup: a chat with an old message, on the in-memory backend
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        FirebaseService storageService = new FirebaseService(backend);
+        ReflectionTestUtils.setField(messageController, "firebaseService", storageService);
+        String oldTimestamp = "2020-01-01T10:00:00";
+        storageService.set("chats/oldChat/messages/msgOld", new Message("Old", SENDER, oldTimestamp, false, null)).join();
+
+        try {
+            // Execute: end of bootstrap, then a new message in the old chat and a new chat with an old message
+            messageController.initFirebaseMessageListener();
+            CompletableFuture<Void> ready = new CompletableFuture<>();
+            storageService.afterInitialEvents("chats", () -> ready.complete(null));
+            ready.join();
+
+            storageService.set("chats/oldChat/messages/msgNew", new Message(CONTENT, SENDER, LocalDateTime.now().toString(), false, null)).join();
+            storageService.set("chats/newChat/messages/msgImported", new Message("Imported", SENDER, oldTimestamp, false, null)).join();
+
+            // Verify: only the new message of the old chat, and the whole new chat
+            ArgumentCaptor<Object> oldChatCaptor = ArgumentCaptor.forClass(Object.class);
+            verify(messagingTemplate, timeout(5000)).convertAndSend(eq("/topic/messages/oldChat"), oldChatCaptor.capture());
+            assertEquals("msgNew", ((MessageEvent) oldChatCaptor.getValue()).getMessage().getId());
+            ArgumentCaptor<Object> newChatCaptor = ArgumentCaptor.forClass(Object.class);
+            verify(messagingTemplate, timeout(5000)).convertAndSend(eq("/topic/messages/newChat"), newChatCaptor.capture());
+            assertEquals("msgImported", ((MessageEvent) newChatCaptor.getValue()).getMessage().getId());
+            verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/messages/oldChat"), any(Object.class));
+        } finally {
+            backend.shutdown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.response.MessagePageResponse;
+import com.example.bicoChat_backend.model.Message;
+import com.example.bicoChat_backend.model.ReadMark;
+import com.example.bicoChat_backend.service.ChatService;
+import com.example.bicoChat_backend.service.DisplayNameResolver;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.MessageService;
+import com.example.bicoChat_backend.service.ParticipantService;
+import com.example.bicoChat_backend.service.ReadStateService;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageServiceTest {
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @Mock
+    private ParticipantService participantService;
+
+    @Mock
+    private DisplayNameResolver displayNameResolver;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private ReadStateService readStateService;
+
+    @InjectMocks
+    private MessageService messageService;
+
+    private final String CHAT_ID = "chat123";
+
+    @Test
+    public void testSendMessage_SingleMultiPathWrite() {
+        // Setup
+        when(participantService.getParticipants(CHAT_ID))
+                .thenReturn(CompletableFuture.completedFuture(List.of("user1", "user2")));
+
+        when(displayNameResolver.resolveAll(List.of("user1", "user2")))
+                .thenReturn(CompletableFuture.completedFuture(Map.of("user1", "Alice", "user2", "Bob")));
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+        when(firebaseService.increment(anyString(), eq(1L))).thenReturn(CompletableFuture.completedFuture(1L));
+
+        Message message = new Message("Hello", "user1", "2025-05-01T10:00:00", false, null);
+
+        // Execute
+        Map<String, Object> response = messageService.sendMessage(CHAT_ID, message).join();
+
+        // Verify: message and summaries in one update, no per-user read-modify-write
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService, times(1)).updateMulti(updatesCaptor.capture());
+        Map<String, Object> updates = updatesCaptor.getValue();
+
+        assertSame(message, updates.get("chats/" + CHAT_ID + "/messages/" + response.get("id")));
+        assertEquals("Bob", updates.get("users/user1/chatUser/" + CHAT_ID + "/name"));
+        assertEquals("Alice", updates.get("users/user2/chatUser/" + CHAT_ID + "/name"));
+        assertEquals("Hello", updates.get("users/user2/chatUser/" + CHAT_ID + "/lastMessage"));
+        assertEquals("user1", updates.get("users/user2/chatUser/" + CHAT_ID + "/lastUser"));
+        assertEquals("Hello", updates.get("chatMeta/" + CHAT_ID + "/lastMessage"));
+        assertEquals("2025-05-01T10:00:00", updates.get("chatMeta/" + CHAT_ID + "/lastActivity"));
+
+        verify(firebaseService).increment("users/user1/chatUser/" + CHAT_ID + "/unreadCount", 1);
+        verify(firebaseService).increment("users/user2/chatUser/" + CHAT_ID + "/unreadCount", 1);
+        verify(firebaseService, never()).set(anyString(), any());
+        verify(firebaseService, never()).get(anyString(), eq(Long.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/chats"), any(Object.class));
+        verify(firebaseService, never()).getWithTypeIndicator(eq("users"), any());
+    }
+
+    @Test
+    public void testSendMessage_GroupChatSkipsNameLookup() {
+        // Setup
+        when(participantService.getParticipants(CHAT_ID))
+                .thenReturn(CompletableFuture.completedFuture(List.of("user1", "user2", "user3")));
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+        when(firebaseService.increment(anyString(), eq(1L))).thenReturn(CompletableFuture.completedFuture(1L));
+
+        Message message = new Message("Hi all", "user1", "2025-05-01T10:00:00", false, null);
+
+        // Execute
+        messageService.sendMessage(CHAT_ID, message).join();
+
+        // Verify
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService).updateMulti(updatesCaptor.capture());
+        assertEquals("Chat", updatesCaptor.getValue().get("users/user3/chatUser/" + CHAT_ID + "/name"));
+        verify(firebaseService, times(3)).increment(anyString(), eq(1L));
+        verifyNoInteractions(displayNameResolver);
+    }
+
+    @Test
+    public void testSendMessage_FailedIncrementDoesNotFailTheMessage() {
+        // Setup
+        when(participantService.getParticipants(CHAT_ID))
+                .thenReturn(CompletableFuture.completedFuture(List.of("user1", "user2", "user3")));
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+        when(firebaseService.increment(anyString(), eq(1L))).thenReturn(CompletableFuture.completedFuture(1L));
+        when(firebaseService.increment("users/user2/chatUser/" + CHAT_ID + "/unreadCount", 1))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Transaction aborted")));
+
+        Message message = new Message("Hi all", "user1", "2025-05-01T10:00:00", false, null);
+
+        // Execute
+        Map<String, Object> response = messageService.sendMessage(CHAT_ID, message).join();
+
+        // Verify: the message is stored and announced, the counter is left to the reconciliation
+        assertEquals(CHAT_ID, response.get("chatId"));
+        verify(firebaseService, times(3)).increment(anyString(), eq(1L));
+        verify(messagingTemplate).convertAndSend(eq("/topic/chats"), any(Object.class));
+    }
+
+    @Test
+    public void testGetMessagesPage_WalksBackWithCursor() {
+        // Setup: the chat has messages m1..m4, pages of 2
+        String messagesPath = "chats/" + CHAT_ID + "/messages";
+        when(readStateService.getWatermarks(CHAT_ID)) // user2 has read up to m3
+                .thenReturn(CompletableFuture.completedFuture(Map.of("user2", new ReadMark("m3", "2025-05-01T10:00:03"))));
+        StorageSnapshot latestMessages = messagesSnapshot(2, 3, 4);
+        StorageSnapshot olderMessages = messagesSnapshot(1, 2, 3);
+        when(firebaseService.query(eq(messagesPath), argThat(query -> query != null && !query.hasEnd()
+                && "timestamp".equals(query.getOrderByChild()) && query.getLimitToLast() == 3)))
+                .thenReturn(CompletableFuture.completedFuture(latestMessages));
+        when(firebaseService.query(eq(messagesPath), argThat(query -> query != null && query.hasEnd()
+                && "2025-05-01T10:00:03".equals(query.getEndValue()) && "m3".equals(query.getEndKey())
+                && query.getLimitToLast() == 4)))
+                .thenReturn(CompletableFuture.completedFuture(olderMessages));
+
+        // Execute
+        MessagePageResponse first = messageService.getMessagesPage(CHAT_ID, null, 2).join();
+        assertThrows(IllegalArgumentException.class, () -> messageService.getMessagesPage(CHAT_ID, "not|a|cursor", 2));
+        assertEquals(List.of("m3", "m4"), first.getMessages().stream().map(Message::getId).toList());
+        assertEquals(List.of(true, false), first.getMessages().stream().map(Message::isRead).toList());
+        assertNotNull(first.getNextCursor());
+
+        // The cursor points to m3; endAt is inclusive, so the query returns m3 too
+        MessagePageResponse second = messageService.getMessagesPage(CHAT_ID, first.getNextCursor(), 2).join();
+
+        // Verify: the cursor message is dropped and the oldest page has no cursor
+        assertEquals(List.of("m1", "m2"), second.getMessages().stream().map(Message::getId).toList());
+        assertNull(second.getNextCursor());
+        verify(firebaseService, never()).get(anyString(), any(Class.class));
+        verifyNoInteractions(chatService);
+    }
+
+    private static StorageSnapshot messagesSnapshot(int... numbers) {
+        List<StorageSnapshot> children = new ArrayList<>();
+        for (int number : numbers) {
+            StorageSnapshot child = mock(StorageSnapshot.class);
+            when(child.getKey()).thenReturn("m" + number);
+            lenient().when(child.getValue(Message.class)).thenReturn( // Not read for the cursor message
+                    new Message("Message " + number, "user1", "2025-05-01T10:00:0" + number, false, null));
+            children.add(child);
+        }
+        StorageSnapshot snapshot = mock(StorageSnapshot.class);
+        when(snapshot.getChildren()).thenReturn(children);
+        return snapshot;
+    }
+}
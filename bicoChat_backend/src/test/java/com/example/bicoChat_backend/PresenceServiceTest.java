@@ -0,0 +1,211 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.response.PresenceEvent;
+import com.example.bicoChat_backend.dto.response.UserResponse;
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.PresenceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PresenceServiceTest {
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private PresenceService presenceService;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(firebaseService.getWithTypeIndicator(eq("presence"), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Long debounce, so that the tests decide when the writes are flushed
+        ReflectionTestUtils.setField(presenceService, "debounceMs", 60_000L);
+        presenceService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        presenceService.shutdown();
+    }
+
+    @Test
+    public void testConnected_PublishesOnlineOnce() {
+        // Execute: two tabs of the same user
+        presenceService.connected("session1", "user1");
+        presenceService.connected("session2", "user1");
+
+        // Verify
+        ArgumentCaptor<Object> event = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/presence"), event.capture());
+        PresenceEvent presence = (PresenceEvent) event.getValue();
+        assertEquals("user1", presence.getUid());
+        assertEquals(PresenceService.ONLINE, presence.getStatus());
+        assertEquals(PresenceService.ONLINE, presenceService.getStatus("user1"));
+        verify(firebaseService, never()).updateMulti(anyMap());
+    }
+
+    @Test
+    public void testSweep_OfflineOnlyAfterTimeoutWithoutSessions() {
+        // Setup
+        presenceService.connected("session1", "user1");
+        presenceService.disconnected("session1");
+
+        // Execute: still within the grace period
+        presenceService.sweep();
+
+        // Verify
+        assertEquals(PresenceService.ONLINE, presenceService.getStatus("user1"));
+
+        // Execute: the grace period is over
+        ReflectionTestUtils.setField(presenceService, "timeoutMs", -1L);
+        presenceService.sweep();
+
+        // Verify
+        assertEquals(PresenceService.OFFLINE, presenceService.getStatus("user1"));
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/presence"), any(PresenceEvent.class));
+    }
+
+    @Test
+    public void testSweep_KeepsUsersWithOpenSessions() {
+        // Setup
+        ReflectionTestUtils.setField(presenceService, "timeoutMs", -1L);
+        presenceService.connected("session1", "user1");
+
+        // Execute
+        presenceService.sweep();
+
+        // Verify
+        assertEquals(PresenceService.ONLINE, presenceService.getStatus("user1"));
+    }
+
+    @Test
+    public void testSweep_KeepsChosenStatus() {
+        // Setup: a status chosen over HTTP, without any session
+        ReflectionTestUtils.setField(presenceService, "timeoutMs", -1L);
+        presenceService.setStatus("user1", "busy");
+
+        // Execute
+        presenceService.sweep();
+
+        // Verify
+        assertEquals("busy", presenceService.getStatus("user1"));
+    }
+
+    @Test
+    public void testConnected_AfterChosenOffline() {
+        // Setup: logout, then a new login
+        presenceService.setStatus("user1", PresenceService.OFFLINE);
+        presenceService.connected("session1", "user1");
+        presenceService.disconnected("session1");
+
+        // Execute
+        ReflectionTestUtils.setField(presenceService, "timeoutMs", -1L);
+        presenceService.sweep();
+
+        // Verify: online came from the session, so it expires
+        assertEquals(PresenceService.OFFLINE, presenceService.getStatus("user1"));
+    }
+
+    @Test
+    public void testHeartbeat_KeepsChosenStatus() {
+        // Setup
+        presenceService.setStatus("user1", "busy");
+
+        // Execute
+        presenceService.heartbeat(null, "user1");
+
+        // Verify
+        assertEquals("busy", presenceService.getStatus("user1"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFlush_CoalescesChangesInOneUpdate() {
+        // Setup
+        presenceService.setStatus("user1", "online");
+        presenceService.setStatus("user1", "busy");
+        presenceService.setStatus("user2", "online");
+
+        // Execute
+        presenceService.flush();
+
+        // Verify: one write, with the last status of each user, outside the users node
+        ArgumentCaptor<Map<String, Object>> updates = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService, times(1)).updateMulti(updates.capture());
+        assertEquals(2, updates.getValue().size());
+        assertEquals("busy", ((Map<String, Object>) updates.getValue().get("presence/user1")).get("status"));
+        assertEquals(true, ((Map<String, Object>) updates.getValue().get("presence/user1")).get("chosen"));
+        assertEquals("online", ((Map<String, Object>) updates.getValue().get("presence/user2")).get("status"));
+
+        // Execute: nothing pending
+        presenceService.flush();
+
+        // Verify
+        verify(firebaseService, times(1)).updateMulti(anyMap());
+    }
+
+    @Test
+    public void testApplyTo_OverlaysKnownStatus() {
+        // Setup
+        presenceService.connected("session1", "user1");
+        User online = new User();
+        online.setStatus("offline");
+        User unknown = new User();
+        unknown.setStatus("busy"); // Stored in the profile, the client never connected with its uid
+        List<UserResponse> users = List.of(new UserResponse("user1", online), new UserResponse("user2", unknown));
+
+        // Execute
+        presenceService.applyTo(users);
+
+        // Verify
+        assertEquals(PresenceService.ONLINE, online.getStatus());
+        assertEquals("busy", unknown.getStatus());
+    }
+
+    @Test
+    public void testInit_LoadsStoredStatuses() {
+        // Setup: statuses written before a restart
+        when(firebaseService.getWithTypeIndicator(eq("presence"), any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "user1", Map.of("status", "busy", "chosen", true),
+                "user2", Map.of("status", "online", "chosen", false))));
+
+        // Execute
+        ReflectionTestUtils.invokeMethod(presenceService, "loadStoredStatuses");
+
+        // Verify
+        assertEquals("busy", presenceService.getStatus("user1"));
+        assertEquals(PresenceService.ONLINE, presenceService.getStatus("user2"));
+
+        // Execute: the clients did not reconnect within the timeout
+        ReflectionTestUtils.setField(presenceService, "timeoutMs", -1L);
+        presenceService.sweep();
+
+        // Verify
+        assertEquals("busy", presenceService.getStatus("user1"));
+        assertEquals(PresenceService.OFFLINE, presenceService.getStatus("user2"));
+    }
+}
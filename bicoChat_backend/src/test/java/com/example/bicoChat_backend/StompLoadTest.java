@@ -0,0 +1,347 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.dto.response.MessageEvent;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.metrics.BrokerMetrics;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.cloud.StorageClient;
+import com.google.firebase.database.DatabaseReference;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load test of message delivery: POST /api/messages/{chatId}/send at a fixed rate, delivered over
+ * /ws (SockJS + STOMP) on /topic/messages/{chatId} to SESSIONS sessions subscribed across CHATS chats.
+ * The app runs on the in-memory storage backend, so the numbers measure the app and not Firebase.
+ *
+ * It reports the send-to-receive latency (HdrHistogram, measured from the time each send was scheduled, so a
+ * stalled sender does not hide the delay), the frames that never arrived or arrived out of sequence, and the CPU,
+ * heap and GC time of the JVM, which hosts the load generator as well as the app. The full latency
+ * distribution is written to target/stomp-load-latency.hgrm.
+ *
+ * Run with: mvn test -Dtest=StompLoadTest -Dloadtest=true [-Dsessions=200] [-Dchats=20] [-Drate=100] [-Dduration=30]
+ * Any application property can be set the same way, e.g. -Dbicochat.realtime.chats-mode=delta.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "bicochat.storage.type=memory",
+        "bicochat.media.store=local",
+        "bicochat.media.local-dir=target/loadtest-media",
+        "bicochat.chat-meta.backfill=false",
+        // Placeholders of the Firebase configuration, whose beans are mocked below
+        "PRIVATE_KEY_ID=unused", "PRIVATE_KEY=unused", "CLIENT_EMAIL=unused", "CLIENT_ID=unused",
+        "AUTH_URI=unused", "TOKEN_URI=unused", "AUTH_PROVIDER_X509_CERT_URL=unused", "CLIENT_X509_CERT_URL=unused",
+        "DATABASE_URL=unused", "EMAIL_USERNAME=unused", "EMAIL_ADDITIONAL_PSW=unused", "EMAIL_HOST=localhost", "EMAIL_PORT=25"
+})
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class StompLoadTest {
+
+    private static final int SESSIONS = Integer.getInteger("sessions", 200);
+    private static final int CHATS = Integer.getInteger("chats", 20);
+    private static final int RATE = Integer.getInteger("rate", 100); // Messages sent per second
+    private static final int DURATION_S = Integer.getInteger("duration", 30);
+    private static final long DRAIN_MS = 5000; // How long to wait for the last deliveries
+    private static final String CONTENT_PREFIX = "load-";
+
+    @MockitoBean
+    private FirebaseApp firebaseApp;
+
+    @MockitoBean
+    private FirebaseAuth firebaseAuth;
+
+    @MockitoBean
+    private DatabaseReference databaseReference;
+
+    @MockitoBean
+    private StorageClient storageClient;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private FirebaseService firebaseService;
+
+    @Autowired
+    private BrokerMetrics brokerMetrics;
+
+    private final ConcurrentHistogram latencies = new ConcurrentHistogram(3); // Microseconds
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong outOfSequence = new AtomicLong();
+    private final AtomicLong transportErrors = new AtomicLong();
+    private AtomicLongArray scheduledAt; // When each message was due to be sent, by index
+
+    @Test
+    public void testMessageDeliveryLatency() throws Exception {
+        seedChats();
+        List<StompSession> sessions = connectSessions();
+        int[] subscribers = new int[CHATS];
+        for (int s = 0; s < SESSIONS; s++) {
+            subscribers[s % CHATS]++;
+        }
+
+        int total = RATE * DURATION_S;
+        scheduledAt = new AtomicLongArray(total);
+        AtomicLong expected = new AtomicLong();
+        AtomicLong failedSends = new AtomicLong();
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[total];
+
+        HttpClient httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+        ResourceSampler sampler = new ResourceSampler();
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime();
+
+        sampler.start();
+        sender.scheduleAtFixedRate(() -> {
+            int i = next.getAndIncrement();
+            if (i >= total) return;
+            int chat = i % CHATS;
+            scheduledAt.set(i, start + i * periodNanos);
+            String body = "{\"content\":\"" + CONTENT_PREFIX + i + "\",\"sender\":\"" + userId(chat * 2) + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/messages/" + chatId(chat) + "/send"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            sends[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (error == null && response.statusCode() == 200) {
+                    expected.addAndGet(subscribers[chat]);
+                } else {
+                    failedSends.incrementAndGet();
+                }
+            });
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        while (next.get() < total) {
+            Thread.sleep(100);
+        }
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+        long sendSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        CompletableFuture.allOf(sends).exceptionally(error -> null).get(60, TimeUnit.SECONDS);
+
+        // Deliveries still in flight
+        long deadline = System.currentTimeMillis() + DRAIN_MS;
+        while (received.get() < expected.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        sampler.stop();
+        sessions.forEach(StompSession::disconnect);
+
+        report(total, sendSeconds, expected.get(), failedSends.get(), sampler);
+        assertTrue(received.get() > 0, "No message was delivered");
+    }
+
+    /**
+     * Creates CHATS individual chats between 2 * CHATS users.
+     */
+    private void seedChats() {
+        Map<String, Object> updates = new HashMap<>();
+        for (int c = 0; c < CHATS; c++) {
+            String first = userId(c * 2);
+            String second = userId(c * 2 + 1);
+            updates.put("users/" + first, Map.of("username", first, "email", first + "@example.com"));
+            updates.put("users/" + second, Map.of("username", second, "email", second + "@example.com"));
+            updates.put("chats/" + chatId(c), Map.of("type", "individual", "participants", List.of(first, second)));
+        }
+        firebaseService.updateMulti(updates).join();
+    }
+
+    private List<StompSession> connectSessions() throws Exception {
+        WebSocketStompClient stompClient = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+
+        List<CompletableFuture<StompSession>> connecting = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("uid", userId(s % (CHATS * 2)));
+            connecting.add(stompClient.connectAsync("http://localhost:" + port + "/ws", (WebSocketHttpHeaders) null, connectHeaders, new SessionHandler(s % CHATS)));
+        }
+        List<StompSession> sessions = new ArrayList<>();
+        for (CompletableFuture<StompSession> session : connecting) {
+            sessions.add(session.get(30, TimeUnit.SECONDS));
+        }
+        Thread.sleep(1000); // Lets the broker register the SUBSCRIBE frames sent on connect
+        return sessions;
+    }
+
+    /**
+     * Subscribes its session to one chat, and records the latency of every message sent by the test.
+     */
+    private class SessionHandler extends StompSessionHandlerAdapter {
+
+        private final int chat;
+        private final Map<String, Long> lastSeq = new ConcurrentHashMap<>();
+
+        private SessionHandler(int chat) {
+            this.chat = chat;
+        }
+
+        @Override
+        public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+            session.subscribe("/topic/messages/" + chatId(chat), this);
+        }
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return MessageEvent.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            long now = System.nanoTime();
+            MessageEvent event = (MessageEvent) payload;
+
+            Long previous = lastSeq.put(event.getChatId(), event.getSeq());
+            if (previous != null && event.getSeq() != previous + 1) {
+                outOfSequence.incrementAndGet();
+            }
+
+            String content = event.getMessage() != null ? event.getMessage().getContent() : null;
+            if (event.getType() != MessageEvent.Type.ADDED || content == null || !content.startsWith(CONTENT_PREFIX)) {
+                return;
+            }
+            long sentAt = scheduledAt.get(Integer.parseInt(content.substring(CONTENT_PREFIX.length())));
+            latencies.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(now - sentAt)));
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void handleException(StompSession session, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+            transportErrors.incrementAndGet();
+        }
+
+        @Override
+        public void handleTransportError(StompSession session, Throwable exception) {
+            transportErrors.incrementAndGet();
+        }
+    }
+
+    private void report(int total, long sendSeconds, long expected, long failedSends, ResourceSampler sampler) throws Exception {
+        Histogram snapshot = latencies.copy();
+        System.out.printf("[LOG - StompLoadTest] %d sessions on %d chats, %d messages in %d s (%.0f msg/s, target %d)%n",
+                SESSIONS, CHATS, total, sendSeconds, (double) total / sendSeconds, RATE);
+        System.out.printf("[LOG - StompLoadTest] latency p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, max %.1f ms%n",
+                snapshot.getValueAtPercentile(50) / 1000.0, snapshot.getValueAtPercentile(99) / 1000.0,
+                snapshot.getValueAtPercentile(99.9) / 1000.0, snapshot.getMaxValue() / 1000.0);
+        System.out.printf("[LOG - StompLoadTest] delivered %d of %d frames, dropped %d, out of sequence %d, failed sends %d, transport errors %d%n",
+                received.get(), expected, Math.max(0, expected - received.get()), outOfSequence.get(), failedSends, transportErrors.get());
+        System.out.printf("[LOG - StompLoadTest] process CPU avg %.0f%% max %.0f%%, heap used avg %d MB max %d MB, GC time %d ms%n",
+                sampler.averageCpu() * 100, sampler.maxCpu * 100, sampler.averageHeap() >> 20, sampler.maxHeap >> 20, sampler.gcMillis());
+        // Same as /actuator/stomp: first read, so the rates are averaged since the context started
+        System.out.println("[LOG - StompLoadTest] broker " + brokerMetrics.describe());
+
+        File output = new File("target/stomp-load-latency.hgrm");
+        output.getParentFile().mkdirs();
+        try (PrintStream out = new PrintStream(output)) {
+            snapshot.outputPercentileDistribution(out, 1000.0); // In milliseconds
+        }
+    }
+
+    /**
+     * Samples the CPU load and the heap of this JVM once per second.
+     */
+    private static class ResourceSampler {
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        private long gcStart;
+        private long gcEnd;
+        private double cpuSum;
+        private double maxCpu;
+        private long heapSum;
+        private long maxHeap;
+        private int samples;
+
+        void start() {
+            gcStart = gcTime();
+            executor.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+        }
+
+        void stop() throws InterruptedException {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            gcEnd = gcTime();
+        }
+
+        private synchronized void sample() {
+            double cpu = Math.max(0, os.getProcessCpuLoad());
+            long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            cpuSum += cpu;
+            maxCpu = Math.max(maxCpu, cpu);
+            heapSum += heap;
+            maxHeap = Math.max(maxHeap, heap);
+            samples++;
+        }
+
+        synchronized double averageCpu() {
+            return samples == 0 ? 0 : cpuSum / samples;
+        }
+
+        synchronized long averageHeap() {
+            return samples == 0 ? 0 : heapSum / samples;
+        }
+
+        long gcMillis() {
+            return gcEnd - gcStart;
+        }
+
+        private static long gcTime() {
+            long total = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, gc.getCollectionTime());
+            }
+            return total;
+        }
+    }
+
+    private static String userId(int index) {
+        return "loadUser" + index;
+    }
+
+    private static String chatId(int index) {
+        return "loadChat" + index;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.metrics.PathTemplates;
+import com.example.bicoChat_backend.service.metrics.StorageMetrics;
+import com.example.bicoChat_backend.service.storage.InMemoryStorageBackend;
+import com.google.firebase.database.GenericTypeIndicator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageMetricsTest {
+
+    private MeterRegistry registry;
+    private InMemoryStorageBackend backend;
+    private FirebaseService firebaseService;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        backend = new InMemoryStorageBackend();
+        firebaseService = new FirebaseService(backend);
+        ReflectionTestUtils.setField(firebaseService, "storageMetrics", new StorageMetrics(registry, 500));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        backend.shutdown();
+    }
+
+    @Test
+    public void testPathTemplates_ReplaceKeys() {
+        PathTemplates templates = new PathTemplates(500);
+
+        assertEquals("users/{uid}/chatUser/{chatId}/unreadCount", templates.template("users/u1/chatUser/chat9/unreadCount"));
+        assertEquals("chats/{chatId}/messages/{messageId}", templates.template("/chats/c1/messages/msg1/"));
+        assertEquals("chatReads/{chatId}/{uid}", templates.template("chatReads/c1/u2"));
+        assertEquals("users/{uid}", templates.template("users/u1/chatUser/chat9", 2));
+        assertEquals("/", templates.template(""));
+    }
+
+    @Test
+    public void testPathTemplates_LimitTemplates() {
+        PathTemplates templates = new PathTemplates(2);
+
+        templates.template("users/u1");
+        templates.template("chats/c1");
+
+        assertEquals("other", templates.template("unknown/a"));
+        assertEquals("users/{uid}", templates.template("users/u2"));
+    }
+
+    @Test
+    public void testOperations_TimedPerOperationAndTemplate() {
+        // Execute
+        firebaseService.set("users/u1/chatUser/chat1", Map.of("lastMessage", "Hi", "unreadCount", 1)).join();
+        firebaseService.set("users/u2/chatUser/chat1", Map.of("lastMessage", "Hi", "unreadCount", 0)).join();
+        firebaseService.getWithTypeIndicator("users/u1/chatUser/chat1", new GenericTypeIndicator<Map<String, Object>>() {}).join();
+        firebaseService.updateMulti(Map.of("chats/chat1/title", "Title", "users/u1/status", "online")).join();
+        firebaseService.delete("users/u2/chatUser/chat1").join();
+
+        // Verify
+        Timer sets = registry.get("bicochat.storage.operations")
+                .tags("operation", "set", "path", "users/{uid}/chatUser/{chatId}", "outcome", "success").timer();
+        assertEquals(2, sets.count());
+        assertEquals(1, registry.get("bicochat.storage.operations")
+                .tags("operation", "get", "path", "users/{uid}/chatUser/{chatId}").timer().count());
+        assertEquals(1, registry.get("bicochat.storage.operations")
+                .tags("operation", "updateMulti", "path", "chats/{chatId}+users/{uid}").timer().count());
+        assertEquals(1, registry.get("bicochat.storage.operations")
+                .tags("operation", "delete").timer().count());
+
+        // {"lastMessage":"Hi","unreadCount":1} is 36 bytes as JSON
+        assertEquals(36, registry.get("bicochat.storage.payload").tags("operation", "set").summary().max());
+        assertEquals(1, registry.get("bicochat.storage.payload").tags("operation", "get").summary().count());
+        assertEquals(0, registry.get("bicochat.storage.in-flight").tags("operation", "set").gauge().value());
+    }
+
+    @Test
+    public void testOperations_CountErrors() {
+        // Execute: overlapping paths are rejected by the backend
+        assertThrows(CompletionException.class, () ->
+                firebaseService.updateMulti(Map.of("users/u1", Map.of("a", 1), "users/u1/b", 2)).join());
+
+        // Verify
+        assertEquals(1, registry.get("bicochat.storage.errors")
+                .tags("operation", "updateMulti", "exception", "IllegalArgumentException").counter().count());
+        assertEquals(1, registry.get("bicochat.storage.operations")
+                .tags("operation", "updateMulti", "outcome", "error").timer().count());
+        assertEquals(0, registry.get("bicochat.storage.in-flight").tags("operation", "updateMulti").gauge().value());
+    }
+}
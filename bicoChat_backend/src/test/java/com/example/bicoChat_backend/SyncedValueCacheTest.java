@@ -0,0 +1,89 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.cache.SyncedValueCache;
+import com.example.bicoChat_backend.service.storage.FirebaseStorageBackend;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ValueEventListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SyncedValueCacheTest {
+
+    @Mock
+    private DatabaseReference rootReference;
+
+    @Mock
+    private DatabaseReference firstReference;
+
+    @Mock
+    private DatabaseReference secondReference;
+
+    private SyncedValueCache<String> cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new SyncedValueCache<>(new FirebaseStorageBackend(rootReference), key -> "users/" + key + "/username",
+                snapshot -> snapshot.getValue(String.class), 1);
+    }
+
+    @Test
+    public void testGet_LoadsOnceAndFollowsChanges() {
+        // Setup
+        when(rootReference.child("users/u1/username")).thenReturn(firstReference);
+
+        // Execute: first get attaches the listener
+        CompletableFuture<String> first = cache.get("u1");
+        ArgumentCaptor<ValueEventListener> listenerCaptor = ArgumentCaptor.forClass(ValueEventListener.class);
+        verify(firstReference).addValueEventListener(listenerCaptor.capture());
+        assertFalse(first.isDone());
+
+        listenerCaptor.getValue().onDataChange(snapshotOf("Alice"));
+        assertEquals("Alice", first.join());
+
+        // A change pushed by Firebase replaces the cached value
+        listenerCaptor.getValue().onDataChange(snapshotOf("Alice B."));
+        assertEquals("Alice B.", cache.get("u1").join());
+
+        // Verify: a single listener, no extra reads
+        verify(firstReference, times(1)).addValueEventListener(any(ValueEventListener.class));
+        verify(firstReference, never()).addListenerForSingleValueEvent(any(ValueEventListener.class));
+    }
+
+    @Test
+    public void testGet_EvictionRemovesListener() {
+        // Setup
+        when(rootReference.child("users/u1/username")).thenReturn(firstReference);
+        when(rootReference.child("users/u2/username")).thenReturn(secondReference);
+
+        // Execute: the cache holds one entry, so caching u2 evicts one of the two
+        cache.get("u1");
+        cache.get("u2");
+
+        // Verify
+        assertEquals(1L, cache.size());
+        assertEquals(1, cache.stats().evictionCount());
+        long removed = Stream.of(firstReference, secondReference)
+                .flatMap(reference -> mockingDetails(reference).getInvocations().stream())
+                .filter(invocation -> invocation.getMethod().getName().equals("removeEventListener"))
+                .count();
+        assertEquals(1, removed);
+    }
+
+    private DataSnapshot snapshotOf(String value) {
+        DataSnapshot snapshot = mock(DataSnapshot.class);
+        when(snapshot.getValue(String.class)).thenReturn(value);
+        return snapshot;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.media.LocalMediaStore;
+import com.example.bicoChat_backend.service.media.MediaStore;
+import com.example.bicoChat_backend.service.media.StoredMedia;
+import com.example.bicoChat_backend.service.media.ThumbnailPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThumbnailPipelineTest {
+
+    @TempDir
+    Path directory;
+
+    private ThumbnailPipeline pipeline;
+
+    @AfterEach
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerate_BoundedSizes() throws Exception {
+        // Setup
+        MediaStore store = new LocalMediaStore(directory);
+        pipeline = new ThumbnailPipeline(store, List.of(64, 256), 1, 4, 40_000_000);
+        byte[] original = png(800, 400, BufferedImage.TYPE_INT_RGB);
+
+        // Execute
+        pipeline.submit("abc", original, "image/png").join();
+
+        // Verify: the longest side fits the size, the aspect ratio is kept, opaque images become JPEG
+        StoredMedia small = store.get(ThumbnailPipeline.variantKey("abc", 64));
+        assertEquals("image/jpeg", small.getContentType());
+        BufferedImage smallImage = ImageIO.read(new ByteArrayInputStream(small.getContent()));
+        assertEquals(64, smallImage.getWidth());
+        assertEquals(32, smallImage.getHeight());
+
+        BufferedImage largeImage = ImageIO.read(new ByteArrayInputStream(store.get(ThumbnailPipeline.variantKey("abc", 256)).getContent()));
+        assertEquals(256, largeImage.getWidth());
+        assertEquals(128, largeImage.getHeight());
+        assertTrue(small.getContent().length < original.length);
+        assertEquals(2, pipeline.getGeneratedCount());
+    }
+
+    @Test
+    public void testGenerate_TransparencyKeptAsPng() throws Exception {
+        // Setup
+        MediaStore store = new LocalMediaStore(directory);
+        pipeline = new ThumbnailPipeline(store, List.of(64), 1, 4, 40_000_000);
+
+        // Execute
+        pipeline.submit("abc", png(300, 300, BufferedImage.TYPE_INT_ARGB), "image/png").join();
+
+        // Verify
+        StoredMedia thumbnail = store.get(ThumbnailPipeline.variantKey("abc", 64));
+        assertEquals("image/png", thumbnail.getContentType());
+        assertTrue(ImageIO.read(new ByteArrayInputStream(thumbnail.getContent())).getColorModel().hasAlpha());
+    }
+
+    @Test
+    public void testGenerate_SmallOrUndecodableImagesKeepTheOriginal() throws Exception {
+        // Setup
+        MediaStore store = new LocalMediaStore(directory);
+        pipeline = new ThumbnailPipeline(store, List.of(64), 1, 4, 40_000_000);
+        byte[] small = png(40, 20, BufferedImage.TYPE_INT_RGB);
+        byte[] corrupt = {(byte) 0x89, 'P', 'N', 'G', 0, 0, 0};
+
+        // Execute
+        pipeline.submit("small", small, "image/png").join();
+        pipeline.submit("corrupt", corrupt, "image/png").join();
+
+        // Verify
+        assertArrayEquals(small, store.get(ThumbnailPipeline.variantKey("small", 64)).getContent());
+        assertArrayEquals(corrupt, store.get(ThumbnailPipeline.variantKey("corrupt", 64)).getContent());
+        assertEquals(0, pipeline.getGeneratedCount());
+    }
+
+    @Test
+    public void testSubmit_RejectsWhenQueueIsFull() throws Exception {
+        // Setup: one worker blocked on the store and a queue of one
+        CountDownLatch release = new CountDownLatch(1);
+        MediaStore blockingStore = new LocalMediaStore(directory) {
+            @Override
+            public boolean exists(String hash) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        };
+        pipeline = new ThumbnailPipeline(blockingStore, List.of(64), 1, 1, 40_000_000);
+        byte[] image = png(200, 200, BufferedImage.TYPE_INT_RGB);
+
+        // Execute
+        CompletableFuture<Void> running = pipeline.submit("a", image, "image/png");
+        pipeline.submit("b", image, "image/png"); // Queued, or rejected if "a" is still in the queue
+        long start = System.nanoTime();
+        CompletableFuture<Void> rejected = pipeline.submit("c", image, "image/png");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Verify: rejected right away instead of blocking the caller
+        CompletionException exception = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        assertTrue(elapsedMs < 100);
+        assertTrue(pipeline.getRejectedCount() >= 1);
+
+        release.countDown();
+        running.join();
+    }
+
+    private static byte[] png(int width, int height, int type) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(type == BufferedImage.TYPE_INT_ARGB ? new Color(255, 0, 0, 128) : Color.BLUE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(width / 2, 0, width - width / 2, height);
+        graphics.dispose();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.ParticipantService;
+import com.example.bicoChat_backend.service.UnreadReconciliationService;
+import com.example.bicoChat_backend.service.storage.StorageSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UnreadReconciliationServiceTest {
+
+    @Mock
+    private FirebaseService firebaseService;
+
+    @Mock
+    private ParticipantService participantService;
+
+    @InjectMocks
+    private UnreadReconciliationService reconciliationService;
+
+    private final String CHAT_ID = "chat123";
+
+    @Test
+    public void testReconcileChat_CorrectsOnlyDriftedCounters() {
+        // Setup: user1 read up to m1, user2 up to m3; user3 has left the chat, user4 has a watermark
+        // from before the message keys were recorded
+        when(firebaseService.getWithTypeIndicator(eq("chatReads/" + CHAT_ID), any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of(
+                        "user1", Map.of("messageKey", "m1", "timestamp", "2025-05-01T10:00:00.000Z"),
+                        "user2", Map.of("messageKey", "m3", "timestamp", "2025-05-01T12:00:00.000Z"),
+                        "user3", Map.of("messageKey", "m0", "timestamp", "2025-05-01T08:00:00.000Z"),
+                        "user4", "2025-05-01T13:00:00")));
+        when(participantService.getParticipants(CHAT_ID))
+                .thenReturn(CompletableFuture.completedFuture(List.of("user1", "user2", "user4")));
+
+        // m4 has the same timestamp as m3 but comes after it, so user2 has not read it
+        StorageSnapshot messages = messagesSnapshot(
+                "m1", "2025-05-01T10:00:00.000Z",
+                "m2", "2025-05-01T11:00:00.000Z",
+                "m3", "2025-05-01T12:00:00.000Z",
+                "m4", "2025-05-01T12:00:00.000Z",
+                "m5", "2025-05-01T12:30:00.000Z");
+        when(firebaseService.query(eq("chats/" + CHAT_ID + "/messages"), argThat(query -> query != null
+                && "timestamp".equals(query.getOrderByChild()) && "2025-05-01T10:00:00.000Z".equals(query.getStartValue()))))
+                .thenReturn(CompletableFuture.completedFuture(messages));
+
+        when(firebaseService.get("users/user1/chatUser/" + CHAT_ID + "/unreadCount", Long.class))
+                .thenReturn(CompletableFuture.completedFuture(4L)); // Correct
+        when(firebaseService.get("users/user2/chatUser/" + CHAT_ID + "/unreadCount", Long.class))
+                .thenReturn(CompletableFuture.completedFuture(1L)); // Drifted, should be 2
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        int corrected = reconciliationService.reconcileChat(CHAT_ID).join();
+
+        // Verify
+        assertEquals(1, corrected);
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService).updateMulti(updatesCaptor.capture());
+        assertEquals(Map.of("users/user2/chatUser/" + CHAT_ID + "/unreadCount", 2L), updatesCaptor.getValue());
+        verify(firebaseService, never()).get(eq("users/user3/chatUser/" + CHAT_ID + "/unreadCount"), any());
+        verify(firebaseService, never()).get(eq("users/user4/chatUser/" + CHAT_ID + "/unreadCount"), any());
+    }
+
+    private static StorageSnapshot messagesSnapshot(String... keysAndTimestamps) {
+        List<StorageSnapshot> children = new ArrayList<>();
+        for (int i = 0; i < keysAndTimestamps.length; i += 2) {
+            StorageSnapshot child = mock(StorageSnapshot.class);
+            StorageSnapshot timestampSnapshot = mock(StorageSnapshot.class);
+            when(child.getKey()).thenReturn(keysAndTimestamps[i]);
+            when(child.child("timestamp")).thenReturn(timestampSnapshot);
+            when(timestampSnapshot.getValue()).thenReturn(keysAndTimestamps[i + 1]);
+            children.add(child);
+        }
+        StorageSnapshot snapshot = mock(StorageSnapshot.class);
+        when(snapshot.getChildren()).thenReturn(children);
+        return snapshot;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.service.inbox.UserInbox;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserInboxTest {
+
+    @Test
+    public void testPage_NewestFirstWithoutHiddenChats() {
+        // Setup
+        UserInbox inbox = new UserInbox();
+        inbox.put("c1", chatInfo("2025-05-01T09:00:00"));
+        inbox.put("c2", chatInfo("2025-05-01T11:00:00"));
+        inbox.put("c3", chatInfo("2025-05-01T10:00:00"));
+        inbox.put("c4", chatInfo(null));
+        inbox.setHiddenChats(Set.of("c3"));
+
+        // Execute
+        List<Map.Entry<String, User.ChatInfo>> page = inbox.page(null, null, 10);
+
+        // Verify
+        assertEquals(List.of("c2", "c1", "c4"), ids(page));
+    }
+
+    @Test
+    public void testPut_ChangeMovesChatToTop() {
+        // Setup
+        UserInbox inbox = new UserInbox();
+        inbox.put("c1", chatInfo("2025-05-01T09:00:00"));
+        inbox.put("c2", chatInfo("2025-05-01T10:00:00"));
+
+        // Execute: a new message in c1, then c2 is removed
+        inbox.put("c1", chatInfo("2025-05-01T12:00:00"));
+        inbox.put("c3", chatInfo("2025-05-01T11:00:00"));
+        inbox.remove("c2");
+
+        // Verify
+        assertEquals(List.of("c1", "c3"), ids(inbox.page(null, null, 10)));
+        assertEquals(2, inbox.size());
+    }
+
+    @Test
+    public void testPage_ContinuesAfterPosition() {
+        // Setup: c2 and c3 share the same timestamp, the chat ID breaks the tie
+        UserInbox inbox = new UserInbox();
+        inbox.put("c1", chatInfo("2025-05-01T12:00:00"));
+        inbox.put("c2", chatInfo("2025-05-01T11:00:00"));
+        inbox.put("c3", chatInfo("2025-05-01T11:00:00"));
+        inbox.put("c4", chatInfo("2025-05-01T10:00:00"));
+
+        // Execute
+        List<Map.Entry<String, User.ChatInfo>> first = inbox.page(null, null, 2);
+        List<Map.Entry<String, User.ChatInfo>> second = inbox.page("2025-05-01T11:00:00", "c2", 2);
+
+        // Verify: one extra entry signals a further page
+        assertEquals(List.of("c1", "c2", "c3"), ids(first));
+        assertEquals(List.of("c3", "c4"), ids(second));
+    }
+
+    private static User.ChatInfo chatInfo(String timestamp) {
+        return new User.ChatInfo("Hi", "Chat", timestamp, 0, "user1", "Chat", null, "individual");
+    }
+
+    private static List<String> ids(List<Map.Entry<String, User.ChatInfo>> page) {
+        return page.stream().map(Map.Entry::getKey).toList();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.model.UserPatch;
+import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.UserService;
+import com.example.bicoChat_backend.service.storage.ValueMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares the bytes sent to Firebase per operation when the whole User is set back (as before)
+ * and when only the changed paths are written by UserService.patchUser.
+ * The user has a Base64 avatar of AVATAR_BYTES and CHATS individual chats, each carrying the
+ * avatar of the other participant, as the chat entries do.
+ *
+ * Run with: mvn test -Dtest=UserPatchBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserPatchBenchmarkTest {
+
+    private static final int AVATAR_BYTES = 48 * 1024;
+    private static final int CHATS = 20;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testBytesWrittenPerOperation() throws Exception {
+        Map<String, long[]> results = new LinkedHashMap<>();
+
+        User user = sampleUser();
+        user.getHiddenChats().put("chat0", Map.of("pin", "1234"));
+        results.put("hideChat", new long[]{
+                bytes(user),
+                bytes(patchUpdates(new UserPatch().hideChat("chat0", "1234")))});
+
+        user = sampleUser();
+        user.getHiddenChats().remove("chat0");
+        results.put("unhideChat", new long[]{
+                bytes(user),
+                bytes(patchUpdates(new UserPatch().unhideChat("chat0")))});
+
+        user = sampleUser();
+        user.getChatUser().get("chat0").setUnreadCount(0);
+        results.put("markChatAsRead", new long[]{
+                bytes(user),
+                bytes(patchUpdates(new UserPatch().chatField("chat0", "unreadCount", 0)))});
+
+        user = sampleUser();
+        user.getChatUser().put("chatNew", chatInfo("New chat"));
+        results.put("addChatRef", new long[]{
+                bytes(user),
+                bytes(patchUpdates(new UserPatch().chat("chatNew", chatInfo("New chat"))))});
+
+        user = sampleUser();
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setUsername("John Doe");
+        results.put("updateProfile", new long[]{
+                bytes(user),
+                bytes(patchUpdates(new UserPatch().firstName("John").lastName("Doe").username("John Doe").avatar(user.getAvatar())))});
+
+        for (Map.Entry<String, long[]> result : results.entrySet()) {
+            long whole = result.getValue()[0];
+            long patch = result.getValue()[1];
+            System.out.printf("[LOG - UserPatchBenchmark] %-14s set(User) %8d bytes | patch %7d bytes (%.1fx less)%n",
+                    result.getKey(), whole, patch, (double) whole / patch);
+            assertTrue(patch < whole);
+        }
+
+        // Without the avatar in the patch, every operation writes a few hundred bytes at most
+        assertTrue(results.get("hideChat")[1] < 1024);
+        assertTrue(results.get("markChatAsRead")[1] < 1024);
+
+        // Only the changed paths are written
+        assertEquals(Map.of("users/user123/chatUser/chat0/unreadCount", 0),
+                patchUpdates(new UserPatch().chatField("chat0", "unreadCount", 0)));
+    }
+
+    /**
+     * @return The multi-path update UserService.patchUser sends to Firebase for the patch.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> patchUpdates(UserPatch patch) {
+        FirebaseService firebaseService = mock(FirebaseService.class);
+        when(firebaseService.updateMulti(anyMap())).thenReturn(CompletableFuture.completedFuture(null));
+        new UserService(firebaseService).patchUser("user123", patch).join();
+
+        ArgumentCaptor<Map<String, Object>> updatesCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(firebaseService).updateMulti(updatesCaptor.capture());
+        return updatesCaptor.getValue();
+    }
+
+    private long bytes(Object value) throws Exception {
+        // Firebase serializes the value as plain JSON before sending it
+        return objectMapper.writeValueAsString(ValueMapper.toPlain(value)).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private User sampleUser() {
+        User user = new User("user123", "Mario Rossi", "Mario", "Rossi", avatar());
+        user.setEmail("mario.rossi@example.com");
+        user.setBio("Hello!");
+        for (int i = 0; i < CHATS; i++) {
+            user.getChatUser().put("chat" + i, chatInfo("Friend " + i));
+        }
+        return user;
+    }
+
+    private User.ChatInfo chatInfo(String name) {
+        return new User.ChatInfo("Last message", name, "2025-01-01T10:00:00", 3, "friend",
+                name, avatar(), "individual");
+    }
+
+    private String avatar() {
+        return "A".repeat(AVATAR_BYTES);
+    }
+}
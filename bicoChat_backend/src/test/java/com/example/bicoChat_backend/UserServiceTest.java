@@ -1,9 +1,13 @@
 package com.example.bicoChat_backend;
 
 import com.example.bicoChat_backend.dto.response.UserResponse;
+import com.example.bicoChat_backend.model.ReadMark;
 import com.example.bicoChat_backend.model.User;
+import com.example.bicoChat_backend.model.UserPatch;
 import com.example.bicoChat_backend.service.FirebaseService;
+import com.example.bicoChat_backend.service.ReadStateService;
 import com.example.bicoChat_backend.service.UserService;
+import com.example.bicoChat_backend.service.media.MediaService;
 import com.google.firebase.database.GenericTypeIndicator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -27,6 +32,12 @@ public class UserServiceTest {
     @Mock
     private FirebaseService firebaseService;
 
+    @Mock
+    private MediaService mediaService;
+
+    @Mock
+    private ReadStateService readStateService;
+
     private UserService userService;
 
     @Captor
@@ -35,6 +46,8 @@ public class UserServiceTest {
     @BeforeEach
     public void setUp() {
         userService = new UserService(firebaseService);
+        ReflectionTestUtils.setField(userService, "mediaService", mediaService);
+        ReflectionTestUtils.setField(userService, "readStateService", readStateService);
     }
 
     @Test
@@ -101,23 +114,6 @@ public class UserServiceTest {
         verify(firebaseService).getWithTypeIndicator(eq("users"), any(GenericTypeIndicator.class));
     }
 
-    @Test
-    public void testUpdateUserStatus() {
-        // Setup
-        String userId = "user123";
-        String newStatus = "away";
-        when(firebaseService.update(anyString(), anyMap()))
-                .thenReturn(CompletableFuture.completedFuture(null));
-
-        // Execute
-        userService.updateUserStatus(userId, newStatus);
-
-        // Verify
-        verify(firebaseService).update(eq("users/" + userId), mapCaptor.capture());
-        Map<String, Object> capturedMap = mapCaptor.getValue();
-        assertEquals(newStatus, capturedMap.get("status"));
-    }
-
     @Test
     public void testAddUser() {
         // Setup
@@ -193,20 +189,14 @@ public class UserServiceTest {
         // Setup
         String chatId = "chat123";
         List<String> participants = Arrays.asList("user1", "user2");
-        Map<String, Map<String, Object>> messages = new HashMap<>();
-        Map<String, Object> message1 = new HashMap<>();
-        message1.put("read", false);
-        messages.put("msg1", message1);
 
         // Mock participants
         when(firebaseService.getWithTypeIndicator(eq("chats/" + chatId + "/participants"), any(GenericTypeIndicator.class)))
                 .thenReturn(CompletableFuture.completedFuture(participants));
 
-        // Mock messages
-        when(firebaseService.getWithTypeIndicator(eq("chats/" + chatId + "/messages"), any(GenericTypeIndicator.class)))
-                .thenReturn(CompletableFuture.completedFuture(messages));
-
-        // Mock updateMulti
+        // Mock the newest message and updateMulti
+        when(readStateService.getNewestMark(chatId))
+                .thenReturn(CompletableFuture.completedFuture(new ReadMark("m9", "2025-05-01T10:00:00.000Z")));
         when(firebaseService.updateMulti(anyMap()))
                 .thenReturn(CompletableFuture.completedFuture(null));
 
@@ -214,15 +204,19 @@ public class UserServiceTest {
         CompletableFuture<Void> future = userService.markChatAsRead(chatId);
         future.get(); // wait for completion
 
-        // Verify
+        // Verify: counters reset and watermarks moved, the messages are never loaded
         verify(firebaseService).getWithTypeIndicator(eq("chats/" + chatId + "/participants"), any(GenericTypeIndicator.class));
-        verify(firebaseService).getWithTypeIndicator(eq("chats/" + chatId + "/messages"), any(GenericTypeIndicator.class));
+        verify(firebaseService, never()).getWithTypeIndicator(eq("chats/" + chatId + "/messages"), any(GenericTypeIndicator.class));
         verify(firebaseService).updateMulti(mapCaptor.capture());
 
         Map<String, Object> updates = mapCaptor.getValue();
+        assertEquals(4, updates.size());
         assertEquals(0, updates.get("users/user1/chatUser/chat123/unreadCount"));
         assertEquals(0, updates.get("users/user2/chatUser/chat123/unreadCount"));
-        assertEquals(true, updates.get("chats/chat123/messages/msg1/read"));
+        // The watermark is the stored key and timestamp of the newest message, not the server time
+        Map<String, Object> watermark = Map.of("messageKey", "m9", "timestamp", "2025-05-01T10:00:00.000Z");
+        assertEquals(watermark, updates.get("chatReads/chat123/user1"));
+        assertEquals(watermark, updates.get("chatReads/chat123/user2"));
     }
 
     @Test
@@ -231,6 +225,7 @@ public class UserServiceTest {
         String chatId = "chatWithNoParticipants";
         when(firebaseService.getWithTypeIndicator(eq("chats/" + chatId + "/participants"), any(GenericTypeIndicator.class)))
                 .thenReturn(CompletableFuture.completedFuture(null));
+        when(readStateService.getNewestMark(chatId)).thenReturn(CompletableFuture.completedFuture(null));
 
         // Execute & Verify
         CompletableFuture<Void> future = userService.markChatAsRead(chatId);
@@ -309,7 +304,7 @@ public class UserServiceTest {
     }
 
     @Test
-    public void testUpdateUserProfile() {
+    public void testUpdateUserProfile() throws ExecutionException, InterruptedException {
         // Setup
         String userId = "user123";
         String firstName = "John";
@@ -317,13 +312,13 @@ public class UserServiceTest {
         String avatar = "avatar_url";
         String fullName = "John Doe";
 
-        User mockUser = new User();
-        mockUser.setUsername("oldUsername");
+        when(firebaseService.exists(eq("users/" + userId + "/email")))
+                .thenReturn(CompletableFuture.completedFuture(true));
 
-        when(firebaseService.get(eq("users/" + userId), eq(User.class)))
-                .thenReturn(CompletableFuture.completedFuture(mockUser));
+        when(mediaService.offload(avatar))
+                .thenReturn(CompletableFuture.completedFuture(avatar));
 
-        when(firebaseService.set(anyString(), any(User.class)))
+        when(firebaseService.updateMulti(anyMap()))
                 .thenReturn(CompletableFuture.completedFuture(null));
 
         Map<String, User.ChatInfo> chatUserMap = new HashMap<>();
@@ -341,10 +336,96 @@ public class UserServiceTest {
                 .thenReturn(CompletableFuture.completedFuture(participants));
 
         // Execute
-        userService.updateUserProfile(userId, firstName, lastName, avatar);
+        userService.updateUserProfile(userId, firstName, lastName, avatar).get();
+
+        // Verify: the profile fields and the chat title of the other user in one update, the User is never set back
+        verify(firebaseService, never()).get(eq("users/" + userId), eq(User.class));
+        verify(firebaseService, never()).set(anyString(), any());
+        verify(firebaseService).updateMulti(mapCaptor.capture());
+
+        Map<String, Object> updates = mapCaptor.getValue();
+        assertEquals(5, updates.size());
+        assertEquals(firstName, updates.get("users/user123/firstName"));
+        assertEquals(lastName, updates.get("users/user123/lastName"));
+        assertEquals(fullName, updates.get("users/user123/username"));
+        assertEquals(avatar, updates.get("users/user123/avatar"));
+        assertEquals(fullName, updates.get("users/otherUser/chatUser/chat1/title"));
+    }
 
+    @Test
+    public void testPatchUser() throws ExecutionException, InterruptedException {
+        // Setup
+        when(firebaseService.updateMulti(anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
-        // Verify chat title update for other user
-        verify(firebaseService).set(eq("users/otherUser/chatUser/chat1/title"), eq(fullName));
+        // Execute
+        userService.patchUser("user123", new UserPatch().bio("Hello").chatField("chat1", "unreadCount", 0)).get();
+
+        // Verify
+        verify(firebaseService).updateMulti(mapCaptor.capture());
+        Map<String, Object> updates = mapCaptor.getValue();
+        assertEquals(2, updates.size());
+        assertEquals("Hello", updates.get("users/user123/bio"));
+        assertEquals(0, updates.get("users/user123/chatUser/chat1/unreadCount"));
+    }
+
+    @Test
+    public void testPatchUser_Empty() throws ExecutionException, InterruptedException {
+        // Execute
+        userService.patchUser("user123", new UserPatch()).get();
+
+        // Verify
+        verifyNoInteractions(firebaseService);
+    }
+
+    @Test
+    public void testHideChat() throws ExecutionException, InterruptedException {
+        // Setup
+        when(firebaseService.exists(eq("users/user123/email")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(firebaseService.updateMulti(anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        userService.hideChat("user123", "chat123", "1234").get();
+
+        // Verify: only the hidden chat entry is written
+        verify(firebaseService, never()).set(anyString(), any());
+        verify(firebaseService).updateMulti(mapCaptor.capture());
+        Map<String, Object> updates = mapCaptor.getValue();
+        assertEquals(1, updates.size());
+        assertEquals(Map.of("pin", "1234"), updates.get("users/user123/hiddenChats/chat123"));
+    }
+
+    @Test
+    public void testHideChat_UserNotFound() {
+        // Setup
+        when(firebaseService.exists(eq("users/ghost/email")))
+                .thenReturn(CompletableFuture.completedFuture(false));
+
+        // Execute & Verify
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> userService.hideChat("ghost", "chat123", "1234").get());
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        verify(firebaseService, never()).updateMulti(anyMap());
+    }
+
+    @Test
+    public void testUnhideChat() throws ExecutionException, InterruptedException {
+        // Setup
+        when(firebaseService.exists(eq("users/user123/email")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        when(firebaseService.updateMulti(anyMap()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // Execute
+        userService.unhideChat("user123", "chat123").get();
+
+        // Verify: the hidden chat entry is deleted
+        verify(firebaseService).updateMulti(mapCaptor.capture());
+        Map<String, Object> updates = mapCaptor.getValue();
+        assertEquals(1, updates.size());
+        assertTrue(updates.containsKey("users/user123/hiddenChats/chat123"));
+        assertNull(updates.get("users/user123/hiddenChats/chat123"));
     }
-}
\ No newline at end of file
+}
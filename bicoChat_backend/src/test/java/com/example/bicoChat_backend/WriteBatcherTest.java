@@ -0,0 +1,97 @@
+package com.example.bicoChat_backend;
+
+import com.example.bicoChat_backend.service.batch.WriteBatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBatcherTest {
+
+    private final List<Map<String, Object>> commits = new ArrayList<>();
+    private final List<CompletableFuture<Void>> commitResults = new ArrayList<>();
+
+    private CompletableFuture<Void> commit(Map<String, Object> updates) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        commits.add(updates);
+        commitResults.add(result);
+        return result;
+    }
+
+    @Test
+    public void testWrite_MergesUntilMaxOps() {
+        // Setup: long window, so only maxOps closes the batch
+        WriteBatcher batcher = new WriteBatcher(this::commit, 60_000, 3);
+
+        // Execute
+        CompletableFuture<Void> first = batcher.write(Map.of("users/u1/status", "online"));
+        CompletableFuture<Void> second = batcher.write(Map.of("users/u2/status", "offline"));
+        assertTrue(commits.isEmpty());
+        CompletableFuture<Void> third = batcher.write(Map.of("users/u1/chatUser/c1/unreadCount", 0));
+
+        // Verify: one multi-path update, futures complete with it
+        assertEquals(1, commits.size());
+        assertEquals(3, commits.get(0).size());
+        assertFalse(first.isDone());
+        commitResults.get(0).complete(null);
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        assertEquals(1, batcher.getBatchCount());
+        assertEquals(3, batcher.getWriteCount());
+    }
+
+    @Test
+    public void testWrite_OverlappingPathFlushesInOrder() {
+        // Setup
+        WriteBatcher batcher = new WriteBatcher(this::commit, 60_000, 100);
+
+        // Execute: the second write touches an ancestor of a buffered path
+        batcher.write(Map.of("users/u1/chatUser/c1/unreadCount", 0));
+        batcher.write(Map.of("users/u1/chatUser/c1/unreadCount", 1)); // Same path: replaces the value
+        batcher.write(Map.of("users/u1/chatUser/c1", Map.of("unreadCount", 5)));
+        batcher.flush();
+
+        // Verify
+        assertEquals(2, commits.size());
+        assertEquals(Map.of("users/u1/chatUser/c1/unreadCount", 1), commits.get(0));
+        assertEquals(Map.of("users/u1/chatUser/c1", Map.of("unreadCount", 5)), commits.get(1));
+    }
+
+    @Test
+    public void testWrite_CommittedWhenWindowExpires() throws Exception {
+        // Setup
+        CompletableFuture<Map<String, Object>> committed = new CompletableFuture<>();
+        WriteBatcher batcher = new WriteBatcher(updates -> {
+            committed.complete(updates);
+            return CompletableFuture.failedFuture(new IllegalStateException("write rejected"));
+        }, 5, 100);
+
+        // Execute
+        CompletableFuture<Void> write = batcher.write(Map.of("users/u1/status", "online"));
+
+        // Verify: the timer closes the batch and the failure reaches the caller
+        assertEquals(Map.of("users/u1/status", "online"), committed.get(5, TimeUnit.SECONDS));
+        assertThrows(Exception.class, () -> write.get(5, TimeUnit.SECONDS));
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testWrite_FailedBatchFailsEveryCaller() {
+        // Setup
+        WriteBatcher batcher = new WriteBatcher(this::commit, 60_000, 2);
+
+        // Execute: one of the two writes is rejected, which rejects the whole update
+        CompletableFuture<Void> valid = batcher.write(Map.of("users/u1/status", "online"));
+        CompletableFuture<Void> rejected = batcher.write(Map.of("users/u2/status", "invalid"));
+        commitResults.get(0).completeExceptionally(new RuntimeException("Permission denied"));
+
+        // Verify: both callers see the error of the batch, nothing is retried
+        assertTrue(valid.isCompletedExceptionally());
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(1, commits.size());
+    }
+}
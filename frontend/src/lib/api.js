@@ -12,6 +12,9 @@ import { Client } from "@stomp/stompjs";
 
 const API_BASE = "http://localhost:8080";
 
+// The server marks a user offline after 30 s without sessions or heartbeats (bicochat.presence.timeout-ms)
+const PRESENCE_HEARTBEAT_MS = 10000;
+
 /**
  * Retrieves the current user's ID from localStorage.
  * @returns {string|null} The user ID if found, otherwise null.
@@ -85,34 +88,79 @@ const API = {
 
     /**
      * Establishes a WebSocket connection with optional update listeners.
-     * Subscribes to /topic/users, /topic/chats for real-time updates.
+     * Subscribes to /topic/users, /topic/chats and /topic/presence for real-time updates.
+     * The CONNECT frame carries the current user ID ("uid" header) and a heartbeat is sent to
+     * /app/presence/heartbeat while connected, so the server keeps the user online.
+     * Status changes only arrive on /topic/presence: they are also applied to the last users map
+     * and passed to onUsersUpdate, for the pages that read the status from the users.
      * @function createWebSocketClient
      * @param {function} [onUsersUpdate] - Callback for user updates.
      * @param {function} [onChatsUpdate] - Callback for chat updates.
      * @param {function} [onMessagesUpdate] - Callback for message updates.
+     * @param {function} [onPresenceUpdate] - Callback for status changes, called with (uid, status).
      * @returns {Client} STOMP WebSocket client instance.
      */
-    createWebSocketClient: (onUsersUpdate = false, onChatsUpdate = false, onMessagesUpdate = false) => {
+    createWebSocketClient: (onUsersUpdate = false, onChatsUpdate = false, onMessagesUpdate = false, onPresenceUpdate = false) => {
+        const uid = localStorage.getItem("currentUserId");
         const socket = new SockJS(`${API_BASE}/ws`);
         const client = new Client({
             webSocketFactory: () => socket,
+            connectHeaders: uid ? { uid } : {},
             reconnectDelay: 5000,
             debug: () => {},
         });
 
+        let heartbeatTimer = null;
+        let lastUsers = null; // Last users map received, to apply the status changes to
+
+        const stopHeartbeat = () => {
+            if (heartbeatTimer) {
+                clearInterval(heartbeatTimer);
+                heartbeatTimer = null;
+            }
+        };
+
         client.onConnect = () => {
             console.log("✅ WebSocket connected!");
 
-            if (onUsersUpdate) {
+            if (uid) {
+                stopHeartbeat();
+                heartbeatTimer = setInterval(() => {
+                    if (client.connected) {
+                        client.publish({ destination: "/app/presence/heartbeat", body: JSON.stringify({ uid }) });
+                    }
+                }, PRESENCE_HEARTBEAT_MS);
+            }
+
+            if (typeof onUsersUpdate === "function") {
                 client.subscribe("/topic/users", (message) => {
                     let usersData = JSON.parse(message.body);
                     if (Array.isArray(usersData)) {
                         usersData = Object.fromEntries(usersData.map((u) => [u.id, u]));
                     }
+                    lastUsers = usersData;
                     onUsersUpdate(usersData);
                 });
             }
 
+            if (typeof onUsersUpdate === "function" || typeof onPresenceUpdate === "function") {
+                client.subscribe("/topic/presence", (message) => {
+                    try {
+                        const { uid: changedUid, status } = JSON.parse(message.body);
+                        if (typeof onPresenceUpdate === "function") {
+                            onPresenceUpdate(changedUid, status);
+                        }
+                        if (typeof onUsersUpdate === "function" && lastUsers?.[changedUid]?.user) {
+                            const changed = lastUsers[changedUid];
+                            lastUsers = { ...lastUsers, [changedUid]: { ...changed, user: { ...changed.user, status } } };
+                            onUsersUpdate(lastUsers);
+                        }
+                    } catch (e) {
+                        console.warn("⚠️ Errore parsing presence:", e);
+                    }
+                });
+            }
+
             if (onChatsUpdate) {
                 client.subscribe("/topic/chats", (message) => {
                     try {
@@ -158,6 +206,9 @@ const API = {
 
         };
 
+        client.onWebSocketClose = stopHeartbeat;
+        client.onDisconnect = stopHeartbeat;
+
         return client;
     },
 